@@ -0,0 +1,141 @@
+package com.openclassrooms.poseidon.configuration;
+
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+
+/**
+ *
+ * This class is the security of the API. It is a stateless chain, checked before the one of
+ * the views : no session, no form login, no remember-me. A client gets a signed token from
+ * POST /{api.ver}/auth/token, then sends it in the Authorization header (Bearer) of each call.
+ * The token is checked with its signature only, the database is not read.
+ *
+ */
+@Configuration
+@Order(1)
+public class ApiSecurityConfig extends WebSecurityConfigurerAdapter {
+
+  private static final Logger LOGGER = LogManager.getLogger(ApiSecurityConfig.class);
+
+  public static final String TOKEN_ISSUER = "poseidon";
+  public static final String ROLES_CLAIM = "roles";
+
+  private static final int MIN_SECRET_LENGTH = 32;
+
+  @Value("${api.ver}")
+  private String apiVersion;
+
+  @Value("${api.token.secret:}")
+  private String tokenSecret;
+
+  @Value("${api.token.random-secret-allowed:false}")
+  private boolean randomSecretAllowed;
+
+  /**
+   * This method is used to build the key that signs the tokens (HMAC SHA-256). Without
+   * api.token.secret a random key is generated, only when api.token.random-secret-allowed is
+   * set (development and tests) : the tokens are then lost on restart and are only valid on
+   * this node. Otherwise the application does not start.
+   *
+   * @return the signing key.
+   * @throws IllegalStateException if the secret is missing or shorter than 32 bytes.
+   */
+  @Bean
+  public SecretKey apiTokenKey() {
+    byte[] secret;
+    if (tokenSecret == null || tokenSecret.isBlank()) {
+      if (!randomSecretAllowed) {
+        throw new IllegalStateException("api.token.secret must be set, it must be the same on "
+          + "all the API nodes.");
+      }
+      LOGGER.warn("No api.token.secret set, API tokens are signed with a random key.");
+      secret = new byte[MIN_SECRET_LENGTH];
+      new SecureRandom().nextBytes(secret);
+    } else {
+      secret = tokenSecret.getBytes(StandardCharsets.UTF_8);
+      if (secret.length < MIN_SECRET_LENGTH) {
+        throw new IllegalStateException(
+          "api.token.secret must be at least " + MIN_SECRET_LENGTH + " bytes long.");
+      }
+    }
+    return new SecretKeySpec(secret, "HmacSHA256");
+  }
+
+  @Bean
+  public JwtEncoder jwtEncoder(SecretKey apiTokenKey) {
+    return new NimbusJwtEncoder(new ImmutableSecret<>(apiTokenKey));
+  }
+
+  @Bean
+  public JwtDecoder jwtDecoder(SecretKey apiTokenKey) {
+    NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.withSecretKey(apiTokenKey)
+      .macAlgorithm(MacAlgorithm.HS256)
+      .build();
+    jwtDecoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+      JwtValidators.createDefaultWithIssuer(TOKEN_ISSUER)
+    ));
+    return jwtDecoder;
+  }
+
+  @Override
+  public void configure(HttpSecurity httpSecurity) throws Exception {
+    httpSecurity
+      .antMatcher("/" + apiVersion + "/**")
+      .authorizeRequests()
+      .antMatchers("/" + apiVersion + "/auth/token").permitAll()
+      .anyRequest().hasRole("ADMIN")
+
+      .and()
+      .sessionManagement()
+      .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+
+      .and()
+      .oauth2ResourceServer()
+      .jwt()
+      .jwtAuthenticationConverter(jwtAuthenticationConverter())
+
+      .and()
+      .and()
+      .csrf().disable()
+      .requestCache().disable()
+      .logout().disable()
+    ;
+  }
+
+  /**
+   * This method is used to read the roles of the user from the token. They are written with
+   * their ROLE_ prefix, as the authorities of the views.
+   *
+   * @return the converter from a token to an authentication.
+   */
+  private static JwtAuthenticationConverter jwtAuthenticationConverter() {
+    JwtGrantedAuthoritiesConverter authoritiesConverter = new JwtGrantedAuthoritiesConverter();
+    authoritiesConverter.setAuthoritiesClaimName(ROLES_CLAIM);
+    authoritiesConverter.setAuthorityPrefix("");
+    JwtAuthenticationConverter authenticationConverter = new JwtAuthenticationConverter();
+    authenticationConverter.setJwtGrantedAuthoritiesConverter(authoritiesConverter);
+    return authenticationConverter;
+  }
+}
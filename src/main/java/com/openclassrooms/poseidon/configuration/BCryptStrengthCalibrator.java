@@ -0,0 +1,52 @@
+package com.openclassrooms.poseidon.configuration;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+/**
+ *
+ * This class picks the BCrypt strength (log2 of the number of rounds) for the host the
+ * application runs on. Each strength doubles the time of a hash : one hash is timed at the
+ * minimal strength, then the highest strength that stays under the target latency is kept.
+ *
+ */
+public final class BCryptStrengthCalibrator {
+
+  private static final Logger LOGGER = LogManager.getLogger(BCryptStrengthCalibrator.class);
+
+  private static final String SAMPLE_PASSWORD = "calibration-sample";
+
+  private BCryptStrengthCalibrator() {
+  }
+
+  /**
+   * This method is used to find the BCrypt strength that hashes a password in about the
+   * target latency.
+   *
+   * @param targetLatency is the time a hash should take.
+   * @param minStrength   is the lowest strength allowed, used if the host is too slow.
+   * @param maxStrength   is the highest strength allowed.
+   * @return the strength, between minStrength and maxStrength.
+   */
+  public static int calibrate(Duration targetLatency, int minStrength, int maxStrength) {
+    BCryptPasswordEncoder encoder =
+      new BCryptPasswordEncoder(BCryptPasswordEncoder.BCryptVersion.$2B, minStrength);
+    //The first hash warms up the JIT, the second one is timed
+    encoder.encode(SAMPLE_PASSWORD);
+    long start = System.nanoTime();
+    encoder.encode(SAMPLE_PASSWORD);
+    long elapsed = Math.max(System.nanoTime() - start, 1L);
+
+    int strength = minStrength;
+    while (strength < maxStrength && elapsed * 2 <= targetLatency.toNanos()) {
+      elapsed *= 2;
+      strength++;
+    }
+    LOGGER.info("BCrypt strength calibrated to " + strength + " (about "
+      + Duration.ofNanos(elapsed).toMillis() + " ms per hash).");
+    return strength;
+  }
+}
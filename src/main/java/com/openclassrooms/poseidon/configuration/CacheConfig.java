@@ -0,0 +1,69 @@
+package com.openclassrooms.poseidon.configuration;
+
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ *
+ * This class enables the caches of the application :
+ * - the reference data (rule names, ratings and curve points) read by id. These entities are read
+ * far more often than they change : the services keep them in a Caffeine cache and evict them
+ * when they are updated or deleted. Only found entities are cached, so a new entity never has a
+ * stale entry to evict.
+ * - the pages of the lists of each entity, keyed by the method and its arguments (cursor and
+ * limit, or number, size and sort). Every write of the service evicts all the pages of its
+ * entity, the bulk ones included. Concurrent misses of a page are loaded once (sync), the other
+ * callers wait for the result.
+ * - the users loaded by the authentication and their verified passwords, evicted when a user
+ * is modified or deleted.
+ * The size and the time to live of the caches are set by spring.cache.caffeine.spec, their
+ * hits and misses are published as cache.gets metrics. The Caffeine manager is the default one :
+ * when spring.cache.type names another provider, Spring Boot builds the manager of that provider
+ * instead, and the evictions are no longer delayed until the commit.
+ *
+ */
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+  public static final String RULE_NAMES = "ruleNames";
+  public static final String RATINGS = "ratings";
+  public static final String CURVE_POINTS = "curvePoints";
+
+  public static final String BID_LIST_PAGES = "bidListPages";
+  public static final String TRADE_PAGES = "tradePages";
+  public static final String CURVE_POINT_PAGES = "curvePointPages";
+  public static final String RATING_PAGES = "ratingPages";
+  public static final String RULE_NAME_PAGES = "ruleNamePages";
+  public static final String USER_PAGES = "userPages";
+
+  public static final String USER_DETAILS = "userDetails";
+  public static final String VERIFIED_PASSWORDS = "verifiedPasswords";
+
+  /**
+   * This method is used to build the cache manager. The evictions are delayed until the
+   * transaction of the write is committed, otherwise a concurrent read could cache the rows
+   * that are being replaced.
+   *
+   * @param cacheProperties are the spring.cache properties (names and Caffeine spec).
+   * @return the transaction aware Caffeine cache manager.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "spring.cache.type", havingValue = "caffeine",
+    matchIfMissing = true)
+  public CacheManager cacheManager(CacheProperties cacheProperties) {
+    CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager();
+    caffeineCacheManager.setCacheNames(cacheProperties.getCacheNames());
+    caffeineCacheManager.setCacheSpecification(cacheProperties.getCaffeine().getSpec());
+    return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+  }
+
+}
@@ -0,0 +1,117 @@
+package com.openclassrooms.poseidon.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.Cache;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+/**
+ *
+ * This class is a password encoder that remembers the passwords it has already verified.
+ * A BCrypt verification costs tens of milliseconds of CPU : an API client sending the same
+ * credentials on every call only pays it once. The cache maps a hash to an HMAC of the raw
+ * password, computed with a key generated at startup, so the raw password is never kept.
+ * Only successful verifications are cached, a wrong password is always checked by BCrypt.
+ *
+ */
+public class CachingPasswordEncoder implements PasswordEncoder {
+
+  private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+  private final PasswordEncoder delegate;
+  private final Cache verifiedPasswords;
+  private final SecretKey hmacKey;
+  private final MeterRegistry meterRegistry;
+  private final Timer hitTimer;
+  private final Timer missTimer;
+
+  public CachingPasswordEncoder(PasswordEncoder delegate, Cache verifiedPasswords,
+                                MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.verifiedPasswords = verifiedPasswords;
+    try {
+      this.hmacKey = KeyGenerator.getInstance(HMAC_ALGORITHM).generateKey();
+    } catch (GeneralSecurityException ex) {
+      throw new IllegalStateException("HMAC is not available.", ex);
+    }
+    this.meterRegistry = meterRegistry;
+    this.hitTimer = verifyTimer(meterRegistry, "hit");
+    this.missTimer = verifyTimer(meterRegistry, "miss");
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return delegate.encode(rawPassword);
+  }
+
+  /**
+   * This method is used to check a raw password against its hash. The BCrypt verification is
+   * skipped if the same password has already been verified against this hash.
+   *
+   * @param rawPassword     is the password given by the user.
+   * @param encodedPassword is the hash stored in database.
+   * @return true if the password matches the hash.
+   */
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    if (rawPassword == null || encodedPassword == null) {
+      return delegate.matches(rawPassword, encodedPassword);
+    }
+    Timer.Sample sample = Timer.start(meterRegistry);
+    byte[] digest = hmac(rawPassword);
+    byte[] verifiedDigest = verifiedPasswords.get(encodedPassword, byte[].class);
+    if (verifiedDigest != null && MessageDigest.isEqual(verifiedDigest, digest)) {
+      sample.stop(hitTimer);
+      return true;
+    }
+    boolean matches = delegate.matches(rawPassword, encodedPassword);
+    sample.stop(missTimer);
+    if (matches) {
+      verifiedPasswords.put(encodedPassword, digest);
+    }
+    return matches;
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  /**
+   * This method is used to forget the verified password of a hash, when the user is modified
+   * or deleted.
+   *
+   * @param encodedPassword is the hash of the user.
+   */
+  public void evict(String encodedPassword) {
+    if (encodedPassword != null) {
+      verifiedPasswords.evict(encodedPassword);
+    }
+  }
+
+  //  ---- Helpers ----
+
+  private byte[] hmac(CharSequence rawPassword) {
+    try {
+      Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+      mac.init(hmacKey);
+      return mac.doFinal(rawPassword.toString().getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException ex) {
+      throw new IllegalStateException("HMAC is not available.", ex);
+    }
+  }
+
+  private static Timer verifyTimer(MeterRegistry meterRegistry, String cache) {
+    return Timer.builder("poseidon.auth.verify")
+      .description("Time spent to verify a password")
+      .tag("cache", cache)
+      .register(meterRegistry);
+  }
+}
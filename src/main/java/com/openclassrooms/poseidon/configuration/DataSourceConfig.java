@@ -1,36 +1,113 @@
 package com.openclassrooms.poseidon.configuration;
 
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 
 import javax.sql.DataSource;
+import java.time.Duration;
 
+/**
+ *
+ * This class builds the connection pools of the application. The url, the credentials and the
+ * driver are read from spring.datasource.*, the pool itself (sizes, timeouts, leak detection,
+ * driver properties such as the prepared statement cache) from spring.datasource.hikari.*.
+ * The pools are published in the hikaricp.connections.* metrics (active, idle, pending,
+ * acquire time...).
+ * When spring.datasource.replica.url is set, a second pool is built on the read replica
+ * (spring.datasource.replica.* and spring.datasource.replica.hikari.*) and the read-only
+ * transactions are sent to it, see ReadWriteRoutingDataSource.
+ *
+ */
 @Configuration
 public class DataSourceConfig {
 
   private static final Logger LOGGER = LogManager.getLogger(DataSourceConfig.class);
 
-  @Value("${spring.datasource.username}")
-  private String username;
-  @Value("${spring.datasource.password}")
-  private String password;
-  @Value("${spring.datasource.url}")
-  private String url;
-  @Value("${spring.jpa.properties.hibernate.dialect}")
-  private String driver;
+  private static final String REPLICA_URL = "spring.datasource.replica.url";
 
+  @Value("${spring.datasource.replica.lag-query:}")
+  private String replicaLagQuery;
+
+  @Value("${spring.datasource.replica.max-lag:5s}")
+  private Duration replicaMaxLag;
+
+  @Value("${spring.datasource.replica.check-interval:5s}")
+  private Duration replicaCheckInterval;
+
+  @Bean
+  @Primary
+  @ConfigurationProperties("spring.datasource")
+  public DataSourceProperties dataSourceProperties() {
+    return new DataSourceProperties();
+  }
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+    LOGGER.info("Creating the connection pool for " + dataSourceProperties.getUrl());
+    return dataSourceProperties.initializeDataSourceBuilder()
+      .type(HikariDataSource.class)
+      .build();
+  }
+
+  @Bean
+  @ConditionalOnProperty(REPLICA_URL)
+  @ConfigurationProperties("spring.datasource.replica")
+  public DataSourceProperties replicaDataSourceProperties() {
+    return new DataSourceProperties();
+  }
+
+  @Bean
+  @ConditionalOnProperty(REPLICA_URL)
+  @ConfigurationProperties("spring.datasource.replica.hikari")
+  public HikariDataSource replicaDataSource(
+    @Qualifier("replicaDataSourceProperties") DataSourceProperties replicaDataSourceProperties) {
+    LOGGER.info("Creating the read replica connection pool for "
+      + replicaDataSourceProperties.getUrl());
+    return replicaDataSourceProperties.initializeDataSourceBuilder()
+      .type(HikariDataSource.class)
+      .build();
+  }
+
+  @Bean(destroyMethod = "close")
+  @ConditionalOnProperty(REPLICA_URL)
+  public ReplicaLagMonitor replicaLagMonitor(
+    @Qualifier("replicaDataSource") DataSource replicaDataSource, MeterRegistry meterRegistry) {
+    return new ReplicaLagMonitor(replicaDataSource, replicaLagQuery, replicaMaxLag,
+      replicaCheckInterval, meterRegistry);
+  }
+
+  /**
+   * This method is used to build the data source used by the application : a routing between
+   * the primary and the replica pools, which also marks the connections of the read-only
+   * transactions read-only.
+   *
+   * @param primaryDataSource is the pool of the primary database.
+   * @param replicaDataSource is the pool of the read replica, if configured.
+   * @param replicaLagMonitor tells whether the replica can be read, if configured.
+   * @return the data source of the application.
+   */
   @Bean
-  public DataSource getDataSource() {
-
-    DataSourceBuilder dataSourceBuilder = DataSourceBuilder.create();
-    dataSourceBuilder.driverClassName(driver);
-    dataSourceBuilder.url(url);
-    dataSourceBuilder.username(username);
-    dataSourceBuilder.password(password);
-    return dataSourceBuilder.build();
+  @Primary
+  public DataSource dataSource(
+    @Qualifier("primaryDataSource") DataSource primaryDataSource,
+    @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource,
+    ObjectProvider<ReplicaLagMonitor> replicaLagMonitor) {
+    //The connection is opened by the first statement, once the transaction is started
+    return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(
+      primaryDataSource, replicaDataSource.getIfAvailable(), replicaLagMonitor.getIfAvailable()
+    ));
   }
 }
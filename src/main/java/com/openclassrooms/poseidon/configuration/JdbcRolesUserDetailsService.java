@@ -0,0 +1,47 @@
+package com.openclassrooms.poseidon.configuration;
+
+import com.openclassrooms.poseidon.domain.utils.Role;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ *
+ * This class loads the users of the authentication from the users table. The roles are read
+ * from the roles bitmask of the same row, so a login costs a single read of one row through
+ * the unique index on username.
+ *
+ */
+public class JdbcRolesUserDetailsService implements UserDetailsService {
+
+  private static final String USER_BY_USERNAME_QUERY =
+    "select username, password, enabled, roles from users where username = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public JdbcRolesUserDetailsService(DataSource dataSource) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  @Override
+  public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+    List<UserDetails> users = jdbcTemplate.query(USER_BY_USERNAME_QUERY,
+      (rs, rowNum) -> User.withUsername(rs.getString("username"))
+        .password(rs.getString("password"))
+        .disabled(!rs.getBoolean("enabled"))
+        .authorities(Role.fromMask(rs.getInt("roles")).stream()
+          .map(Role::name)
+          .toArray(String[]::new))
+        .build(),
+      username);
+    if (users.isEmpty() || users.get(0).getAuthorities().isEmpty()) {
+      throw new UsernameNotFoundException("User " + username + " not found.");
+    }
+    return users.get(0);
+  }
+}
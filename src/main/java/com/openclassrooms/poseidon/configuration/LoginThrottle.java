@@ -0,0 +1,361 @@
+package com.openclassrooms.poseidon.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ *
+ * This class limits the login attempts, so that a client cannot keep every core busy with
+ * password verifications. Attempts are counted per username and per source address :
+ * - each key has a token bucket, an attempt takes a token and the tokens come back at a
+ * fixed rate.
+ * - after lockoutThreshold failures in a row, the key is locked, for a duration doubled at
+ * each new failure (up to lockoutMax).
+ * The buckets are kept in fixed size arrays (stripes) and updated with compare-and-set, so the
+ * memory is bounded and the logins never wait on a lock. Each key has two stripes, chosen by a
+ * hash keyed with a random secret of the process, so a client cannot pick a key that shares
+ * the stripes of another one. A key takes one of its stripes when it is free, or held by a key
+ * without failures. When both are held by keys with failures, the key is refused (THROTTLED) :
+ * a colliding key can neither bypass the lockout of another one nor reset its failures.
+ * The failures and successes are read from the authentication events.
+ *
+ */
+public class LoginThrottle {
+
+  private static final Logger LOGGER = LogManager.getLogger(LoginThrottle.class);
+
+  public static final String REJECTED_METRIC = "poseidon.login.throttle.rejected";
+  public static final String LOCKOUTS_METRIC = "poseidon.login.throttle.lockouts";
+
+  private static final String STRIPE_HASH = "HmacSHA256";
+
+  /**
+   * The answer to an attempt.
+   */
+  public enum Decision {
+    ALLOWED,
+    THROTTLED,
+    LOCKED
+  }
+
+  private enum KeyType {
+    USERNAME,
+    SOURCE
+  }
+
+  private final AtomicReferenceArray<Bucket> usernameBuckets;
+  private final AtomicReferenceArray<Bucket> sourceBuckets;
+  private final int capacity;
+  private final long refillNanos;
+  private final int lockoutThreshold;
+  private final long lockoutBaseNanos;
+  private final long lockoutMaxNanos;
+  private final Clock clock;
+  private final MeterRegistry meterRegistry;
+  private final SecretKeySpec stripeKey;
+
+  public LoginThrottle(int stripes, int capacity, Duration refillPeriod, int lockoutThreshold,
+                       Duration lockoutBase, Duration lockoutMax, Clock clock,
+                       MeterRegistry meterRegistry) {
+    this.usernameBuckets = new AtomicReferenceArray<>(stripes);
+    this.sourceBuckets = new AtomicReferenceArray<>(stripes);
+    this.capacity = capacity;
+    this.refillNanos = refillPeriod.toNanos();
+    this.lockoutThreshold = lockoutThreshold;
+    this.lockoutBaseNanos = lockoutBase.toNanos();
+    this.lockoutMaxNanos = lockoutMax.toNanos();
+    this.clock = clock;
+    this.meterRegistry = meterRegistry;
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    this.stripeKey = new SecretKeySpec(secret, STRIPE_HASH);
+  }
+
+  /**
+   * This method is used to take a token for a login attempt, for its username and its source.
+   *
+   * @param username is the username of the attempt.
+   * @param source   is the address of the client, it can be null.
+   * @return ALLOWED when the password can be checked, THROTTLED or LOCKED otherwise.
+   */
+  public Decision tryAcquire(String username, String source) {
+    Decision decision = tryAcquire(KeyType.USERNAME, username);
+    if (decision == Decision.ALLOWED) {
+      decision = tryAcquire(KeyType.SOURCE, source);
+    }
+    return decision;
+  }
+
+  /**
+   * This method is used to count a failed login.
+   *
+   * @param username is the username of the attempt.
+   * @param source   is the address of the client, it can be null.
+   */
+  public void recordFailure(String username, String source) {
+    recordFailure(KeyType.USERNAME, username);
+    recordFailure(KeyType.SOURCE, source);
+  }
+
+  /**
+   * This method is used to forget the failures of a key after a successful login.
+   *
+   * @param username is the username of the attempt.
+   * @param source   is the address of the client, it can be null.
+   */
+  public void recordSuccess(String username, String source) {
+    recordSuccess(KeyType.USERNAME, username);
+    recordSuccess(KeyType.SOURCE, source);
+  }
+
+  @EventListener
+  public void onFailure(AuthenticationFailureBadCredentialsEvent event) {
+    if (event.getAuthentication() instanceof UsernamePasswordAuthenticationToken) {
+      recordFailure(event.getAuthentication().getName(), sourceOf(event.getAuthentication()));
+    }
+  }
+
+  @EventListener
+  public void onSuccess(AuthenticationSuccessEvent event) {
+    if (event.getAuthentication() instanceof UsernamePasswordAuthenticationToken) {
+      recordSuccess(event.getAuthentication().getName(), sourceOf(event.getAuthentication()));
+    }
+  }
+
+  /**
+   * This method is used to read the address of the client from the details of an
+   * authentication.
+   *
+   * @param authentication is the authentication of the attempt.
+   * @return the address, or null when the details do not hold it.
+   */
+  public static String sourceOf(Authentication authentication) {
+    if (authentication.getDetails() instanceof WebAuthenticationDetails) {
+      return ((WebAuthenticationDetails) authentication.getDetails()).getRemoteAddress();
+    }
+    return null;
+  }
+
+  //  ---- Helpers ----
+
+  private Decision tryAcquire(KeyType keyType, String key) {
+    if (key == null) {
+      return Decision.ALLOWED;
+    }
+    AtomicReferenceArray<Bucket> buckets = bucketsOf(keyType);
+    int[] stripes = stripesOf(key);
+    while (true) {
+      long now = now();
+      Slot slot = slotOf(buckets, stripes, key, now);
+      if (slot == null) {
+        reject(keyType, "collision");
+        return Decision.THROTTLED;
+      }
+      Bucket bucket = slot.bucket;
+      if (bucket.lockedUntil > now) {
+        reject(keyType, "lockout");
+        return Decision.LOCKED;
+      }
+      if (bucket.tokens < 1) {
+        buckets.compareAndSet(slot.stripe, slot.current, bucket);
+        reject(keyType, "rate");
+        return Decision.THROTTLED;
+      }
+      if (buckets.compareAndSet(slot.stripe, slot.current, bucket.withTokens(bucket.tokens - 1))) {
+        return Decision.ALLOWED;
+      }
+    }
+  }
+
+  private void recordFailure(KeyType keyType, String key) {
+    if (key == null) {
+      return;
+    }
+    AtomicReferenceArray<Bucket> buckets = bucketsOf(keyType);
+    int[] stripes = stripesOf(key);
+    while (true) {
+      long now = now();
+      Slot slot = slotOf(buckets, stripes, key, now);
+      if (slot == null) {
+        return;
+      }
+      Bucket bucket = slot.bucket;
+      int failures = bucket.failures + 1;
+      long lockedUntil = bucket.lockedUntil;
+      if (failures >= lockoutThreshold) {
+        lockedUntil = now + lockoutNanos(failures - lockoutThreshold);
+      }
+      if (buckets.compareAndSet(slot.stripe, slot.current,
+        bucket.withFailures(failures, lockedUntil))) {
+        if (failures >= lockoutThreshold) {
+          meterRegistry.counter(LOCKOUTS_METRIC, "key", tagOf(keyType)).increment();
+          LOGGER.warn("Login locked for " + tagOf(keyType) + " " + key + " after " + failures
+            + " failures.");
+        }
+        return;
+      }
+    }
+  }
+
+  private void recordSuccess(KeyType keyType, String key) {
+    if (key == null) {
+      return;
+    }
+    AtomicReferenceArray<Bucket> buckets = bucketsOf(keyType);
+    int[] stripes = stripesOf(key);
+    while (true) {
+      long now = now();
+      Slot slot = slotOf(buckets, stripes, key, now);
+      if (slot == null || slot.bucket.failures == 0
+        || buckets.compareAndSet(slot.stripe, slot.current, slot.bucket.withFailures(0, 0L))) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * This method returns the slot of a key, with its bucket refilled up to now. The key keeps
+   * the stripe it holds. Otherwise it gets a new bucket in one of its stripes that is empty or
+   * forgotten, else in one held by another key without failures. It returns null when both
+   * stripes are held by other keys with failures : they are never replaced before they are
+   * forgotten.
+   */
+  private Slot slotOf(AtomicReferenceArray<Bucket> buckets, int[] stripes, String key,
+                      long now) {
+    for (int stripe : stripes) {
+      Bucket current = buckets.get(stripe);
+      if (current != null && !isForgotten(current, now) && current.key.equals(key)) {
+        double tokens = Math.min(capacity,
+          current.tokens + (double) (now - current.seenAt) / refillNanos);
+        return new Slot(stripe, current,
+          new Bucket(key, tokens, now, current.failures, current.lockedUntil));
+      }
+    }
+    for (int stripe : stripes) {
+      Bucket current = buckets.get(stripe);
+      if (current == null || isForgotten(current, now)) {
+        return new Slot(stripe, current, new Bucket(key, capacity, now, 0, 0L));
+      }
+    }
+    for (int stripe : stripes) {
+      Bucket current = buckets.get(stripe);
+      if (current.failures == 0) {
+        return new Slot(stripe, current, new Bucket(key, capacity, now, 0, 0L));
+      }
+    }
+    return null;
+  }
+
+  private boolean isForgotten(Bucket bucket, long now) {
+    return now - bucket.seenAt > lockoutMaxNanos;
+  }
+
+  /**
+   * This method is used to choose the two stripes of a key, from a hash keyed with the secret
+   * of this throttle. The second stripe is always another one, when there are several.
+   *
+   * @param key is the username or the source.
+   * @return the two stripes of the key.
+   */
+  int[] stripesOf(String key) {
+    ByteBuffer hash;
+    try {
+      Mac mac = Mac.getInstance(STRIPE_HASH);
+      mac.init(stripeKey);
+      hash = ByteBuffer.wrap(mac.doFinal(key.getBytes(StandardCharsets.UTF_8)));
+    } catch (GeneralSecurityException ex) {
+      throw new IllegalStateException("Cannot hash the login keys.", ex);
+    }
+    int length = usernameBuckets.length();
+    int first = Math.floorMod(hash.getInt(), length);
+    if (length == 1) {
+      return new int[]{first, first};
+    }
+    int second = (first + 1 + Math.floorMod(hash.getInt(), length - 1)) % length;
+    return new int[]{first, second};
+  }
+
+  private long lockoutNanos(int extraFailures) {
+    //Doubled at each failure, without overflowing the shift
+    if (extraFailures >= 62 || lockoutBaseNanos << extraFailures > lockoutMaxNanos
+      || lockoutBaseNanos << extraFailures <= 0) {
+      return lockoutMaxNanos;
+    }
+    return lockoutBaseNanos << extraFailures;
+  }
+
+  private AtomicReferenceArray<Bucket> bucketsOf(KeyType keyType) {
+    return keyType == KeyType.USERNAME ? usernameBuckets : sourceBuckets;
+  }
+
+  private void reject(KeyType keyType, String reason) {
+    meterRegistry.counter(REJECTED_METRIC, "key", tagOf(keyType), "reason", reason).increment();
+  }
+
+  private static String tagOf(KeyType keyType) {
+    return keyType == KeyType.USERNAME ? "username" : "source";
+  }
+
+  private long now() {
+    return Duration.ofMillis(clock.millis()).toNanos();
+  }
+
+  /**
+   * A stripe with the bucket read from it, to compare-and-set, and the bucket of the key.
+   */
+  private static final class Slot {
+    private final int stripe;
+    private final Bucket current;
+    private final Bucket bucket;
+
+    private Slot(int stripe, Bucket current, Bucket bucket) {
+      this.stripe = stripe;
+      this.current = current;
+      this.bucket = bucket;
+    }
+  }
+
+  /**
+   * The state of a key, never modified : a new bucket replaces it.
+   */
+  private static final class Bucket {
+    private final String key;
+    private final double tokens;
+    private final long seenAt;
+    private final int failures;
+    private final long lockedUntil;
+
+    private Bucket(String key, double tokens, long seenAt, int failures, long lockedUntil) {
+      this.key = key;
+      this.tokens = tokens;
+      this.seenAt = seenAt;
+      this.failures = failures;
+      this.lockedUntil = lockedUntil;
+    }
+
+    private Bucket withTokens(double tokens) {
+      return new Bucket(key, tokens, seenAt, failures, lockedUntil);
+    }
+
+    private Bucket withFailures(int failures, long lockedUntil) {
+      return new Bucket(key, tokens, seenAt, failures, lockedUntil);
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.openclassrooms.poseidon.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ *
+ * This class builds the LoginThrottle, which limits the login attempts per username and per
+ * source address before the passwords are verified.
+ *
+ */
+@Configuration
+public class LoginThrottleConfig {
+
+  @Value("${security.login.throttle.stripes:4096}")
+  private int stripes;
+
+  @Value("${security.login.throttle.capacity:10}")
+  private int capacity;
+
+  @Value("${security.login.throttle.refill-period:6s}")
+  private Duration refillPeriod;
+
+  @Value("${security.login.throttle.lockout-threshold:5}")
+  private int lockoutThreshold;
+
+  @Value("${security.login.throttle.lockout-base:5s}")
+  private Duration lockoutBase;
+
+  @Value("${security.login.throttle.lockout-max:15m}")
+  private Duration lockoutMax;
+
+  /**
+   * This method is used to build the login throttle.
+   *
+   * @param meterRegistry counts the refused attempts and the lockouts.
+   * @return the login throttle, also listening to the authentication events.
+   */
+  @Bean
+  public LoginThrottle loginThrottle(MeterRegistry meterRegistry) {
+    return new LoginThrottle(stripes, capacity, refillPeriod, lockoutThreshold, lockoutBase,
+      lockoutMax, Clock.systemUTC(), meterRegistry);
+  }
+}
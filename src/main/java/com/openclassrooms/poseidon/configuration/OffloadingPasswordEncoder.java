@@ -0,0 +1,107 @@
+package com.openclassrooms.poseidon.configuration;
+
+import com.openclassrooms.poseidon.service.exception.PasswordHashingRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ *
+ * This class is a password encoder that hashes and verifies the passwords on a dedicated
+ * executor, instead of the request threads. The executor has a fixed number of threads and a
+ * bounded queue : when a burst of logins fills the queue, the new requests are rejected
+ * (PasswordHashingRejectedException, 503) instead of starving the other endpoints.
+ * The executor is published as the passwordHashing executor metrics (queued, active...).
+ *
+ */
+public class OffloadingPasswordEncoder implements PasswordEncoder {
+
+  public static final String EXECUTOR_NAME = "passwordHashing";
+
+  private final PasswordEncoder delegate;
+  private final ThreadPoolExecutor executor;
+  private final Duration timeout;
+  private final Counter rejectedCounter;
+
+  public OffloadingPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity,
+                                   Duration timeout, MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.timeout = timeout;
+    this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hashing-"),
+      new ThreadPoolExecutor.AbortPolicy());
+    new ExecutorServiceMetrics(executor, EXECUTOR_NAME, Tags.empty()).bindTo(meterRegistry);
+    this.rejectedCounter = Counter.builder("poseidon.password.hashing.rejected")
+      .description("Password hashes and verifications rejected because the executor is full")
+      .register(meterRegistry);
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return run(() -> delegate.encode(rawPassword));
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return run(() -> delegate.matches(rawPassword, encodedPassword));
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  /**
+   * This method is used to stop the threads of the executor when the application stops. The
+   * hashes already submitted are given the timeout to complete.
+   */
+  public void shutdown() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  //  ---- Helpers ----
+
+  private <T> T run(Callable<T> hashing) {
+    Future<T> future;
+    try {
+      future = executor.submit(hashing);
+    } catch (RejectedExecutionException ex) {
+      rejectedCounter.increment();
+      throw new PasswordHashingRejectedException("Too many password checks, retry later.");
+    }
+    try {
+      return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException ex) {
+      future.cancel(true);
+      rejectedCounter.increment();
+      throw new PasswordHashingRejectedException("Password check timed out, retry later.");
+    } catch (InterruptedException ex) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new PasswordHashingRejectedException("Password check interrupted.");
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw new IllegalStateException(ex.getCause());
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package com.openclassrooms.poseidon.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+/**
+ *
+ * This class builds the password encoder of the application :
+ * - BCrypt, with a strength calibrated at startup to hash in about
+ * security.password.bcrypt.target-latency. A stored hash with a lower strength is rehashed at
+ * the next successful login.
+ * - run on a bounded executor (OffloadingPasswordEncoder), not on the request threads.
+ * - with the successful verifications cached (CachingPasswordEncoder).
+ *
+ */
+@Configuration
+public class PasswordEncoderConfig {
+
+  @Value("${security.password.bcrypt.target-latency:250ms}")
+  private Duration targetLatency;
+
+  @Value("${security.password.bcrypt.min-strength:10}")
+  private int minStrength;
+
+  @Value("${security.password.bcrypt.max-strength:14}")
+  private int maxStrength;
+
+  @Value("${security.password.hashing.threads:0}")
+  private int threads;
+
+  @Value("${security.password.hashing.queue-capacity:64}")
+  private int queueCapacity;
+
+  @Value("${security.password.hashing.timeout:5s}")
+  private Duration timeout;
+
+  private OffloadingPasswordEncoder offloadingPasswordEncoder;
+
+  /**
+   * This method is used to build the password encoder.
+   *
+   * @param cacheManager  holds the cache of the verified passwords.
+   * @param meterRegistry records the hashing executor and the time spent to verify passwords.
+   * @return the password encoder used to hash and check the passwords.
+   */
+  @Bean
+  public CachingPasswordEncoder passwordEncoder(CacheManager cacheManager,
+                                                MeterRegistry meterRegistry) {
+    int strength = BCryptStrengthCalibrator.calibrate(targetLatency, minStrength, maxStrength);
+    offloadingPasswordEncoder = new OffloadingPasswordEncoder(
+      new BCryptPasswordEncoder(BCryptPasswordEncoder.BCryptVersion.$2B, strength),
+      threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+      queueCapacity,
+      timeout,
+      meterRegistry
+    );
+    return new CachingPasswordEncoder(
+      offloadingPasswordEncoder,
+      cacheManager.getCache(CacheConfig.VERIFIED_PASSWORDS),
+      meterRegistry
+    );
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (offloadingPasswordEncoder != null) {
+      offloadingPasswordEncoder.shutdown();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.openclassrooms.poseidon.configuration;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * This class sends the connections of the read-only transactions to the read replica, if there
+ * is one, and all the others to the primary. The connections of the read-only transactions are
+ * also marked read-only, so the database does not prepare them for writes (the pool resets the
+ * flag when they are given back).
+ * It must be wrapped in a LazyConnectionDataSourceProxy : the connection is then only opened by
+ * the first statement, once the transaction is known to be read-only. The reads go to the
+ * primary while the ReplicaLagMonitor finds the replica late or unreachable, and when a replica
+ * connection cannot be opened.
+ *
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+  public static final String PRIMARY = "primary";
+  public static final String REPLICA = "replica";
+
+  private final DataSource primary;
+  private final ReplicaLagMonitor replicaLagMonitor;
+
+  /**
+   * @param primary           is the pool of the primary database.
+   * @param replica           is the pool of the read replica, null if there is none.
+   * @param replicaLagMonitor tells whether the replica can be read, null if there is none.
+   */
+  public ReadWriteRoutingDataSource(DataSource primary, DataSource replica,
+                                    ReplicaLagMonitor replicaLagMonitor) {
+    this.primary = primary;
+    this.replicaLagMonitor = replicaLagMonitor;
+    Map<Object, Object> targetDataSources = new HashMap<>();
+    targetDataSources.put(PRIMARY, primary);
+    if (replica != null) {
+      targetDataSources.put(REPLICA, replica);
+    }
+    setTargetDataSources(targetDataSources);
+    setDefaultTargetDataSource(primary);
+    afterPropertiesSet();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+      && replicaLagMonitor != null
+      && replicaLagMonitor.isReplicaUsable()
+      ? REPLICA
+      : PRIMARY;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    Connection connection;
+    try {
+      connection = super.getConnection();
+    } catch (SQLException ex) {
+      connection = fallBackToPrimary(ex).getConnection();
+    }
+    return prepare(connection);
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    Connection connection;
+    try {
+      connection = super.getConnection(username, password);
+    } catch (SQLException ex) {
+      connection = fallBackToPrimary(ex).getConnection(username, password);
+    }
+    return prepare(connection);
+  }
+
+  //  ---- Helpers ----
+
+  private Connection prepare(Connection connection) throws SQLException {
+    if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      connection.setReadOnly(true);
+    }
+    return connection;
+  }
+
+  private DataSource fallBackToPrimary(SQLException ex) throws SQLException {
+    if (!REPLICA.equals(determineCurrentLookupKey())) {
+      throw ex;
+    }
+    logger.warn("No connection to the read replica, the read goes to the primary.", ex);
+    replicaLagMonitor.markUnusable();
+    return primary;
+  }
+}
@@ -0,0 +1,99 @@
+package com.openclassrooms.poseidon.configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * This class checks the read replica at a fixed interval and tells whether the reads can be
+ * sent to it. The replica is not usable while it cannot be reached or, when a lag query is
+ * configured, while it is late by more than maxLag. The reads then go back to the primary.
+ * The lag query returns the number of seconds the replica is late, e.g. read from a heartbeat
+ * table written on the primary. The last lag read is published as poseidon.datasource.replica.lag.
+ *
+ */
+public class ReplicaLagMonitor implements AutoCloseable {
+
+  private static final Logger LOGGER = LogManager.getLogger(ReplicaLagMonitor.class);
+
+  private final JdbcTemplate replicaJdbcTemplate;
+  private final String lagQuery;
+  private final Duration maxLag;
+  private final ScheduledExecutorService scheduler;
+
+  private volatile boolean replicaUsable = true;
+  private volatile double lagSeconds;
+
+  public ReplicaLagMonitor(DataSource replica, String lagQuery, Duration maxLag,
+                           Duration checkInterval, MeterRegistry meterRegistry) {
+    this.replicaJdbcTemplate = new JdbcTemplate(replica);
+    this.lagQuery = lagQuery;
+    this.maxLag = maxLag;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(
+      new CustomizableThreadFactory("replica-lag-"));
+    Gauge.builder("poseidon.datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+      .description("Seconds the read replica is late on the primary")
+      .baseUnit("seconds")
+      .register(meterRegistry);
+    scheduler.scheduleWithFixedDelay(this::check, checkInterval.toMillis(),
+      checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * This method is used to know if the reads can be sent to the replica.
+   *
+   * @return true if the replica was reachable and fresh enough at the last check.
+   */
+  public boolean isReplicaUsable() {
+    return replicaUsable;
+  }
+
+  /**
+   * This method is used to mark the replica as not usable until the next check, when a
+   * connection to it cannot be opened.
+   */
+  public void markUnusable() {
+    replicaUsable = false;
+  }
+
+  /**
+   * This method is used to check the replica, it is called at a fixed interval.
+   */
+  public void check() {
+    boolean usable;
+    try {
+      if (lagQuery == null || lagQuery.isBlank()) {
+        replicaJdbcTemplate.execute("select 1");
+        usable = true;
+      } else {
+        Double lag = replicaJdbcTemplate.queryForObject(lagQuery, Double.class);
+        lagSeconds = lag == null ? Double.MAX_VALUE : lag;
+        usable = lagSeconds <= maxLag.toSeconds();
+      }
+    } catch (RuntimeException ex) {
+      LOGGER.warn("The read replica cannot be checked : " + ex.getMessage());
+      usable = false;
+    }
+    if (usable != replicaUsable) {
+      LOGGER.warn(usable
+        ? "The read replica is used again."
+        : "The read replica is not used, the reads go to the primary.");
+    }
+    replicaUsable = usable;
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+  }
+}
@@ -1,14 +1,17 @@
 package com.openclassrooms.poseidon.configuration;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import javax.sql.DataSource;
@@ -17,34 +20,55 @@ import javax.sql.DataSource;
 @EnableWebSecurity
 public class SpringSecurityConfig extends WebSecurityConfigurerAdapter {
 
-  @Value("${api.ver}")
-  private String apiVersion;
-
   @Autowired
   private DataSource dataSource;
 
+  /**
+   * This method is used to build the cache of the users loaded from database by the
+   * authentication.
+   *
+   * @param cacheManager holds the cache of the users.
+   * @return the user cache, evicted by UserService when a user is modified or deleted.
+   */
   @Bean
-  public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder(BCryptPasswordEncoder.BCryptVersion.$2B);
+  public static UserCache userCache(CacheManager cacheManager) {
+    return new UserDetailsCache(cacheManager.getCache(CacheConfig.USER_DETAILS));
   }
 
   @Autowired
-  public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
+  public void configureGlobal(AuthenticationManagerBuilder auth, PasswordEncoder passwordEncoder,
+                              UserCache userCache,
+                              UserDetailsPasswordService userDetailsPasswordService,
+                              LoginThrottle loginThrottle)
+    throws Exception {
+    //First provider : the throttled attempts are refused before any password is verified
+    auth.authenticationProvider(new ThrottlingAuthenticationProvider(loginThrottle));
+
     auth.inMemoryAuthentication()
       .withUser("springadmin").password("$2b$10$kv4VoEktZZhs4ukksvozuOVUgXawst4Sg9pkQQUX8Ful0r2WT9tdO").roles("ADMIN", "USER")
       .and()
       .withUser("springuser").password("$2b$10$shK1zb9/88ZBYn5oQnSdHucz8TuLfkbalS2Z.yNAnOQMH819VkGAy").roles("USER");
 
-    auth.jdbcAuthentication()
-      .dataSource(dataSource)
-      .usersByUsernameQuery(
-        "select username, password, enabled from users where username = ?;"
-      )
-      .authoritiesByUsernameQuery(
-        "select username, role as name "
-          + "from users u join authorities a on (u.Id=a.userid) " +
-          "where username = ?;"
-      );
+    DaoAuthenticationProvider jdbcAuthenticationProvider = new DaoAuthenticationProvider();
+    jdbcAuthenticationProvider.setUserDetailsService(new JdbcRolesUserDetailsService(dataSource));
+    jdbcAuthenticationProvider.setPasswordEncoder(passwordEncoder);
+    jdbcAuthenticationProvider.setUserCache(userCache);
+    //A hash with a lower strength than the calibrated one is replaced at login
+    jdbcAuthenticationProvider.setUserDetailsPasswordService(userDetailsPasswordService);
+    auth.authenticationProvider(jdbcAuthenticationProvider);
+  }
+
+  /**
+   * This method is used to expose the authentication manager of the users, so that the API
+   * can check the credentials of its login call.
+   *
+   * @return the authentication manager.
+   * @throws Exception if the manager cannot be built.
+   */
+  @Bean
+  @Override
+  public AuthenticationManager authenticationManagerBean() throws Exception {
+    return super.authenticationManagerBean();
   }
 
   @Override
@@ -52,7 +76,6 @@ public class SpringSecurityConfig extends WebSecurityConfigurerAdapter {
     httpSecurity
       .authorizeRequests()
       .antMatchers("/", "/error/**", "/css/**", "/login").permitAll()
-      .antMatchers("/" + apiVersion + "/**").hasRole("ADMIN")
       .antMatchers("/user/**").hasRole("USER")
       .antMatchers("/**").hasRole("ADMIN")
       .anyRequest().authenticated()
@@ -77,11 +100,6 @@ public class SpringSecurityConfig extends WebSecurityConfigurerAdapter {
       .deleteCookies("JSESSIONID")
       .deleteCookies("remember-me")
 
-      //Disabled for the API
-      .and()
-      .csrf()
-      .ignoringAntMatchers("/" + apiVersion + "/**")
-
       .and()
       .httpBasic()
     ;
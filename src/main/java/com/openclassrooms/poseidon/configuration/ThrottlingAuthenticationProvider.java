@@ -0,0 +1,38 @@
+package com.openclassrooms.poseidon.configuration;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+/**
+ *
+ * This class is the first provider of the authentication manager. It does not authenticate
+ * anybody : it stops the attempts refused by the LoginThrottle with a LockedException, before
+ * any password is verified, and lets the next providers check the others.
+ *
+ */
+public class ThrottlingAuthenticationProvider implements AuthenticationProvider {
+
+  private final LoginThrottle loginThrottle;
+
+  public ThrottlingAuthenticationProvider(LoginThrottle loginThrottle) {
+    this.loginThrottle = loginThrottle;
+  }
+
+  @Override
+  public Authentication authenticate(Authentication authentication) {
+    LoginThrottle.Decision decision = loginThrottle.tryAcquire(
+      authentication.getName(), LoginThrottle.sourceOf(authentication)
+    );
+    if (decision != LoginThrottle.Decision.ALLOWED) {
+      throw new LockedException("Too many login attempts, retry later.");
+    }
+    return null;
+  }
+
+  @Override
+  public boolean supports(Class<?> authentication) {
+    return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
+  }
+}
@@ -0,0 +1,43 @@
+package com.openclassrooms.poseidon.configuration;
+
+import org.springframework.cache.Cache;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ *
+ * This class keeps the users loaded by the authentication in a cache, so that the API calls
+ * authenticated with HTTP Basic do not read the users table every time.
+ * Copies are stored and returned : the authentication erases the password of its principal,
+ * it must not erase the cached one.
+ *
+ */
+public class UserDetailsCache implements UserCache {
+
+  private final Cache cache;
+
+  public UserDetailsCache(Cache cache) {
+    this.cache = cache;
+  }
+
+  @Override
+  public UserDetails getUserFromCache(String username) {
+    UserDetails user = cache.get(username, UserDetails.class);
+    return user == null ? null : copy(user);
+  }
+
+  @Override
+  public void putUserInCache(UserDetails user) {
+    cache.put(user.getUsername(), copy(user));
+  }
+
+  @Override
+  public void removeUserFromCache(String username) {
+    cache.evict(username);
+  }
+
+  private static UserDetails copy(UserDetails user) {
+    return User.withUserDetails(user).build();
+  }
+}
@@ -1,10 +1,13 @@
 package com.openclassrooms.poseidon.controller;
 
 import com.openclassrooms.poseidon.controller.rest.BidListRestController;
+import com.openclassrooms.poseidon.controller.rest.ETags;
 import com.openclassrooms.poseidon.domain.BidList;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -26,15 +29,18 @@ public class BidListController {
   private BidListRestController bidListRestController;
 
   /**
-   * This method is used to display all bids in a list.
+   * This method is used to display bids in a paged and sortable list.
    *
    * @param model is the model that display the page correctly.
+   * @param pageable is the page to display, its size and its sort come from the query string.
    * @return is a string path where to find the view for this controller's method.
    */
   @GetMapping("/list")
-  public String home(Principal principal, Model model) {
+  public String home(Principal principal, Model model,
+                     @PageableDefault(size = 20, sort = "bidListId") Pageable pageable) {
     LOGGER.info("Fetching /bidList/list...");
-    model.addAttribute("bidLists", bidListRestController.getAll());
+    model.addAttribute("bidLists",
+      ListPages.clamp(pageable, bidListRestController::getSortedSummaryPage));
     return "bidList/list";
   }
 
@@ -65,7 +71,6 @@ public class BidListController {
     LOGGER.info("Validating entries...");
     if (!result.hasErrors()) {
       LOGGER.info("Entries validated...");
-      model.addAttribute("bidLists", bidListRestController.getAll());
       bidListRestController.create(bid);
       return "redirect:/bidList/list";
     }
@@ -108,8 +113,7 @@ public class BidListController {
       return "bidlist/update";
     }
     LOGGER.info("Entries validated...");
-    bidListRestController.update(bidList);
-    model.addAttribute("bidLists", bidListRestController.getAll());
+    bidListRestController.update(bidList, ETags.of(bidList.getVersion()));
     return "redirect:/bidList/list";
   }
 
@@ -1,10 +1,13 @@
 package com.openclassrooms.poseidon.controller;
 
 import com.openclassrooms.poseidon.controller.rest.CurvePointRestController;
+import com.openclassrooms.poseidon.controller.rest.ETags;
 import com.openclassrooms.poseidon.domain.CurvePoint;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -30,15 +33,18 @@ public class CurveController {
   private CurvePointRestController curvePointRestController;
 
   /**
-   * This method is used to display all curve points in a list.
+   * This method is used to display curve points in a paged and sortable list.
    *
    * @param model is the model that display the page correctly.
+   * @param pageable is the page to display, its size and its sort come from the query string.
    * @return is a string path where to find the view for this controller's method.
    */
   @GetMapping("/list")
-  public String home(Model model) {
+  public String home(Model model,
+                     @PageableDefault(size = 20, sort = "id") Pageable pageable) {
     LOGGER.info("Fetching /curvePoint/list...");
-    model.addAttribute("curvePoints", curvePointRestController.getAll());
+    model.addAttribute("curvePoints",
+      ListPages.clamp(pageable, curvePointRestController::getSortedPage));
     return "curvePoint/list";
   }
 
@@ -69,7 +75,6 @@ public class CurveController {
     LOGGER.info("Validating entries...");
     if (!result.hasErrors()) {
       LOGGER.info("Entries validated...");
-      model.addAttribute("curvePoints", curvePointRestController.getAll());
       curvePointRestController.create(curvePoint);
       return "redirect:/curvePoint/list";
     }
@@ -112,8 +117,7 @@ public class CurveController {
       return "curvePoint/update";
     }
     LOGGER.info("Entries validated...");
-    curvePointRestController.update(curvePoint);
-    model.addAttribute("curvePoints", curvePointRestController.getAll());
+    curvePointRestController.update(curvePoint, ETags.of(curvePoint.getVersion()));
     return "redirect:/curvePoint/list";
   }
 
@@ -0,0 +1,37 @@
+package com.openclassrooms.poseidon.controller;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.function.Function;
+
+/**
+ *
+ * This class keeps the page asked by a list view within the existing pages. A negative page
+ * number is read as the first page (Spring Data does it when the Pageable is resolved), a page
+ * after the last one is replaced by the last page, so an outdated link never shows an empty list.
+ *
+ */
+public final class ListPages {
+
+  private ListPages() {
+  }
+
+  /**
+   * This method is used to load the page asked, or the last page if it is past the end.
+   *
+   * @param pageable is the page asked.
+   * @param loader   is the query that loads a page.
+   * @param <T>      is the type of the rows of the page.
+   * @return the page asked, or the last page.
+   */
+  public static <T> Page<T> clamp(Pageable pageable, Function<Pageable, Page<T>> loader) {
+    Page<T> page = loader.apply(pageable);
+    if (page.getTotalPages() > 0 && page.getNumber() >= page.getTotalPages()) {
+      page = loader.apply(
+        PageRequest.of(page.getTotalPages() - 1, pageable.getPageSize(), pageable.getSort()));
+    }
+    return page;
+  }
+}
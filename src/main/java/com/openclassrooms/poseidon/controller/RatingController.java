@@ -1,11 +1,14 @@
 package com.openclassrooms.poseidon.controller;
 
+import com.openclassrooms.poseidon.controller.rest.ETags;
 import com.openclassrooms.poseidon.controller.rest.RatingRestController;
 import com.openclassrooms.poseidon.domain.Rating;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -29,15 +32,18 @@ public class RatingController {
   private RatingRestController ratingRestController;
 
   /**
-   * This method is used to display all ratings in a list.
+   * This method is used to display ratings in a paged and sortable list.
    *
    * @param model is the model that display the page correctly.
+   * @param pageable is the page to display, its size and its sort come from the query string.
    * @return is a string path where to find the view for this controller's method.
    */
   @GetMapping("/list")
-  public String home(Model model) {
+  public String home(Model model,
+                     @PageableDefault(size = 20, sort = "id") Pageable pageable) {
     LOGGER.info("Fetching /rating/list...");
-    model.addAttribute("ratings", ratingRestController.getAll());
+    model.addAttribute("ratings",
+      ListPages.clamp(pageable, ratingRestController::getSortedPage));
     return "rating/list";
   }
 
@@ -68,7 +74,6 @@ public class RatingController {
     LOGGER.info("Validating entries...");
     if (!result.hasErrors()) {
       LOGGER.info("Entries validated...");
-      model.addAttribute("ratings", ratingRestController.getAll());
       ratingRestController.create(rating);
       return "redirect:/rating/list";
     }
@@ -111,8 +116,7 @@ public class RatingController {
       return "rating/update";
     }
     LOGGER.info("Entries validated...");
-    ratingRestController.update(rating);
-    model.addAttribute("curvePoints", ratingRestController.getAll());
+    ratingRestController.update(rating, ETags.of(rating.getVersion()));
     return "redirect:/rating/list";
   }
 
@@ -1,10 +1,13 @@
 package com.openclassrooms.poseidon.controller;
 
+import com.openclassrooms.poseidon.controller.rest.ETags;
 import com.openclassrooms.poseidon.controller.rest.RuleNameRestController;
 import com.openclassrooms.poseidon.domain.RuleName;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -30,16 +33,20 @@ public class RuleNameController {
     private RuleNameRestController ruleNameRestController;
 
     /**
-     * This method is used to display all rule names in a list.
+     * This method is used to display rule names in a paged and sortable list, with previews of
+     * their long text columns.
      *
      * @param model is the model that display the page correctly.
+     * @param pageable is the page to display, its size and its sort come from the query string.
      * @return is a string path where to find the view for this controller's method.
      */
     @GetMapping("/list")
-    public String home(Model model)
+    public String home(Model model,
+                       @PageableDefault(size = 20, sort = "id") Pageable pageable)
     {
         LOGGER.info("Fetching /ruleName/list...");
-        model.addAttribute("ruleNames", ruleNameRestController.getAll());
+        model.addAttribute("ruleNames",
+          ListPages.clamp(pageable, ruleNameRestController::getSortedSummaryPage));
         return "ruleName/list";
     }
 
@@ -70,7 +77,6 @@ public class RuleNameController {
         LOGGER.info("Validating entries...");
         if (!result.hasErrors()) {
             LOGGER.info("Entries validated...");
-            model.addAttribute("ratings", ruleNameRestController.getAll());
             ruleNameRestController.create(ruleName);
             return "redirect:/ruleName/list";
         }
@@ -113,8 +119,7 @@ public class RuleNameController {
             return "ruleName/update";
         }
         LOGGER.info("Entries validated...");
-        ruleNameRestController.update(ruleName);
-        model.addAttribute("ruleNames", ruleNameRestController.getAll());
+        ruleNameRestController.update(ruleName, ETags.of(ruleName.getVersion()));
         return "redirect:/ruleName/list";
     }
 
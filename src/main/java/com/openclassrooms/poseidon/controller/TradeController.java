@@ -1,10 +1,13 @@
 package com.openclassrooms.poseidon.controller;
 
+import com.openclassrooms.poseidon.controller.rest.ETags;
 import com.openclassrooms.poseidon.controller.rest.TradeRestController;
 import com.openclassrooms.poseidon.domain.Trade;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -30,15 +33,18 @@ public class TradeController {
   private TradeRestController tradeRestController;
 
   /**
-   * This method is used to display all trades in a list.
+   * This method is used to display trades in a paged and sortable list.
    *
    * @param model is the model that display the page correctly.
+   * @param pageable is the page to display, its size and its sort come from the query string.
    * @return is a string path where to find the view for this controller's method.
    */
   @GetMapping("/list")
-  public String home(Model model) {
+  public String home(Model model,
+                     @PageableDefault(size = 20, sort = "tradeId") Pageable pageable) {
     LOGGER.info("Fetching /trade/list...");
-    model.addAttribute("trades", tradeRestController.getAll());
+    model.addAttribute("trades",
+      ListPages.clamp(pageable, tradeRestController::getSortedSummaryPage));
     return "trade/list";
   }
 
@@ -69,7 +75,6 @@ public class TradeController {
     LOGGER.info("Validating entries...");
     if (!result.hasErrors()) {
       LOGGER.info("Entries validated...");
-      model.addAttribute("trades", tradeRestController.getAll());
       tradeRestController.create(trade);
       return "redirect:/trade/list";
     }
@@ -112,8 +117,7 @@ public class TradeController {
       return "trade/update";
     }
     LOGGER.info("Entries validated...");
-    tradeRestController.update(trade);
-    model.addAttribute("trades", tradeRestController.getAll());
+    tradeRestController.update(trade, ETags.of(trade.getVersion()));
     return "redirect:/trade/list";
   }
 
@@ -6,6 +6,9 @@ import com.openclassrooms.poseidon.service.exception.UserAlreadyExistsException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -31,15 +34,17 @@ public class UserController {
   private Logger LOGGER = LogManager.getLogger(UserController.class);
 
   /**
-   * This method is used to display all users in a list.
+   * This method is used to display users in a paged and sortable list.
    *
    * @param model is the model that display the page correctly.
+   * @param pageable is the page to display, its size and its sort come from the query string.
    * @return is a string path where to find the view for this controller's method.
    */
   @GetMapping("/list")
-  public String home(Model model, Principal principal) {
+  public String home(Model model, Principal principal,
+                     @PageableDefault(size = 20, sort = "id") Pageable pageable) {
     LOGGER.info("Fetching /user/list...");
-    Iterable<UserDTO> users = userRestController.getAllUserDTO();
+    Page<UserDTO> users = ListPages.clamp(pageable, userRestController::getSortedPage);
     model.addAttribute("users", users);
     return "user/list";
   }
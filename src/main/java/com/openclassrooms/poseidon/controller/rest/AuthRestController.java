@@ -0,0 +1,111 @@
+package com.openclassrooms.poseidon.controller.rest;
+
+import com.openclassrooms.poseidon.domain.DTO.TokenRequest;
+import com.openclassrooms.poseidon.domain.DTO.TokenResponse;
+import com.openclassrooms.poseidon.service.exception.PasswordHashingRejectedException;
+import com.openclassrooms.poseidon.service.TokenService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class is the REST Controller used to log in to the API : it exchanges a username and a
+ * password for a signed token.
+ */
+@RestController
+@RequestMapping("${api.ver}" + "/auth")
+public class AuthRestController {
+
+  private static final Logger LOGGER = LogManager.getLogger(AuthRestController.class);
+
+  @Autowired
+  private AuthenticationManager authenticationManager;
+
+  @Autowired
+  private TokenService tokenService;
+
+  /**
+   * this method is one of the Exception Handler to display specific exceptions from
+   * this controller.
+   *
+   * @param ex is the exception handled here
+   * @return a map with all errors stacked in this exception.
+   */
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  @ExceptionHandler(MethodArgumentNotValidException.class)
+  public Map<String, String> handleValidationExceptions(
+    MethodArgumentNotValidException ex) {
+    Map<String, String> errors = new HashMap<>();
+    ex.getBindingResult().getAllErrors().forEach(
+      (error) -> {
+        String fieldName = ((FieldError) error).getField();
+        String errorMessage = error.getDefaultMessage();
+        errors.put(fieldName, errorMessage);
+      }
+    );
+    return errors;
+  }
+
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  @ExceptionHandler(HttpMessageNotReadableException.class)
+  public String handleValidationExceptions(
+    HttpMessageNotReadableException ex) {
+    return "The json you provided cannot be parsed. Some variable does not match the scheme.";
+  }
+
+  @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+  @ExceptionHandler(PasswordHashingRejectedException.class)
+  public String handlePasswordHashingRejectedExceptions(
+    PasswordHashingRejectedException ex) {
+    return ex.getMessage();
+  }
+
+  @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+  @ExceptionHandler(LockedException.class)
+  public String handleLockedExceptions(
+    LockedException ex) {
+    return ex.getMessage();
+  }
+
+  @ResponseStatus(HttpStatus.UNAUTHORIZED)
+  @ExceptionHandler(AuthenticationException.class)
+  public String handleAuthenticationExceptions(
+    AuthenticationException ex) {
+    return "Bad credentials.";
+  }
+
+  /**
+   * This method is used to get a token for the API. The token is sent in the Authorization
+   * header of the next calls : "Bearer " followed by the token.
+   *
+   * @param tokenRequest holds the username and the password of the user.
+   * @param request      is the http request, its address is used to throttle the attempts.
+   * @return the signed token and its validity in seconds.
+   */
+  @PostMapping("/token")
+  public TokenResponse token(@Valid @RequestBody TokenRequest tokenRequest,
+                             HttpServletRequest request) {
+    LOGGER.info("API Request -> token for " + tokenRequest.getUsername() + "...");
+    UsernamePasswordAuthenticationToken authenticationRequest =
+      new UsernamePasswordAuthenticationToken(tokenRequest.getUsername(), tokenRequest.getPassword());
+    authenticationRequest.setDetails(new WebAuthenticationDetails(request));
+    Authentication authentication = authenticationManager.authenticate(authenticationRequest);
+    return tokenService.issue(authentication);
+  }
+}
@@ -1,21 +1,43 @@
 package com.openclassrooms.poseidon.controller.rest;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.openclassrooms.poseidon.domain.DTO.BidListSummary;
+import com.openclassrooms.poseidon.domain.DTO.BulkResult;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
 import com.openclassrooms.poseidon.domain.BidList;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
+import com.openclassrooms.poseidon.domain.DTO.ImportReport;
+import com.openclassrooms.poseidon.domain.DTO.StatusUpdate;
+import com.openclassrooms.poseidon.service.BidListImportService;
 import com.openclassrooms.poseidon.service.BidListService;
+import com.openclassrooms.poseidon.service.IdListFetcher;
+import com.openclassrooms.poseidon.service.MergePatcher;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.transaction.Transactional;
+import javax.validation.ConstraintViolationException;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -31,6 +53,9 @@ public class BidListRestController {
   @Autowired
   private BidListService bidListService;
 
+  @Autowired
+  private BidListImportService bidListImportService;
+
   /**
    * this method is one of the Exception Handler to display specific exceptions from
    * this controller.
@@ -53,6 +78,24 @@ public class BidListRestController {
     return errors;
   }
 
+  /**
+   * this method is one of the Exception Handler to display specific exceptions from
+   * this controller. It handles the errors found in a patched bid.
+   *
+   * @param ex is the exception handled here
+   * @return a map with all errors stacked in this exception.
+   */
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  @ExceptionHandler(ConstraintViolationException.class)
+  private Map<String, String> handleValidationExceptions(
+    ConstraintViolationException ex) {
+    Map<String, String> errors = new HashMap<>();
+    ex.getConstraintViolations().forEach(
+      (violation) -> errors.put(violation.getPropertyPath().toString(), violation.getMessage())
+    );
+    return errors;
+  }
+
   @ResponseStatus(HttpStatus.BAD_REQUEST)
   @ExceptionHandler(IllegalArgumentException.class)
   private String handleValidationExceptions(
@@ -82,24 +125,108 @@ public class BidListRestController {
   }
 
   /**
-   * This method is used to display all bids in a list.
+   * This method is used to display bids page by page. The next page is fetched by giving
+   * back the nextCursor of the response in the after parameter.
    *
-   * @return the iterable of all bids contained in database.
+   * @param after is the cursor (or the id) after which bids are listed.
+   * @param limit is the maximum number of bids in the page.
+   * @return a page of bids with the cursor of the next page.
    */
   @GetMapping("/list")
-  public Iterable<BidList> getAll() {
-    LOGGER.info("API Request -> get all the bids...");
-    return bidListService.getAll();
+  public CursorPage<BidList> getPage(@RequestParam(required = false) String after,
+                                     @RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+    LOGGER.info("API Request -> get bids after " + after + "...");
+    return bidListService.getPage(CursorPage.decodeCursor(after), CursorPage.checkLimit(limit));
+  }
+
+  /**
+   * This method is used to display one page of bids. The page number, its size and its sort
+   * are given in the query string (e.g. ?page=0&size=20&sort=bidListId,desc).
+   *
+   * @param pageable is the page asked.
+   * @return the page of bids with the total number of bids.
+   */
+  @GetMapping("/list/sorted")
+  public Page<BidList> getSortedPage(@PageableDefault(size = 20, sort = "bidListId") Pageable pageable) {
+    LOGGER.info("API Request -> get page " + pageable.getPageNumber() + " of bids...");
+    return bidListService.getSortedPage(pageable);
+  }
+
+  /**
+   * This method is used to display bids page by page, like getPage, but only with their id,
+   * account, type and quantity (?view=summary).
+   *
+   * @param after is the cursor (or the id) after which bids are listed.
+   * @param limit is the maximum number of bids in the page.
+   * @return a page of bid summaries with the cursor of the next page.
+   */
+  @GetMapping(value = "/list", params = {"view=summary", "!ids"})
+  public CursorPage<BidListSummary> getSummaryPage(@RequestParam(required = false) String after,
+                                                   @RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+    LOGGER.info("API Request -> get bid summaries after " + after + "...");
+    return bidListService.getSummaryPage(CursorPage.decodeCursor(after), CursorPage.checkLimit(limit));
+  }
+
+  /**
+   * This method is used to display one page of bids, like getSortedPage, but only with their
+   * id, account, type and quantity (?view=summary).
+   *
+   * @param pageable is the page asked.
+   * @return the page of bid summaries with the total number of bids.
+   */
+  @GetMapping(value = "/list/sorted", params = "view=summary")
+  public Page<BidListSummary> getSortedSummaryPage(@PageableDefault(size = 20, sort = "bidListId") Pageable pageable) {
+    LOGGER.info("API Request -> get page " + pageable.getPageNumber() + " of bid summaries...");
+    return bidListService.getSortedSummaryPage(pageable);
   }
 
   /**
-   * This method is used to recover a specific bid thanks to its id.
+   * This method is used to recover several bids at once thanks to their ids
+   * (e.g. ?ids=3,1,2). The bids are sent in the order of the ids, the ids that match no bid
+   * are listed in missingIds. The summary view is not available by ids (400).
+   *
+   * @param ids are the ids of the bids you are looking for (at most IdListFetcher.MAX_IDS).
+   * @param view is refused, it must not be given with the ids.
+   * @return the bids found and the missing ids.
+   */
+  @GetMapping(value = "/list", params = "ids")
+  public IdListResult<BidList> getByIds(@RequestParam List<Integer> ids,
+                                        @RequestParam(required = false) String view) {
+    if (view != null) {
+      throw new IllegalArgumentException("The view parameter cannot be used with ids.");
+    }
+    LOGGER.info("API Request -> get " + ids.size() + " bids by id...");
+    return bidListService.findAllByIds(IdListFetcher.checkIds(ids));
+  }
+
+  /**
+   * This method is used to recover a specific bid thanks to its id. The version of the bid is
+   * sent as ETag : when it matches the If-None-Match header, the bid is not sent again (304).
+   *
+   * @param id         is the bid's id you are looking for.
+   * @param webRequest is the request, used to check its If-None-Match header.
+   * @return the bid with its ETag.
+   */
+  @GetMapping("/list/{id}")
+  public ResponseEntity<BidList> getWithETag(@PathVariable Integer id, WebRequest webRequest) {
+    LOGGER.info("API Request -> get bid with Id : " + id + "...");
+    BidList bidList = bidListService.findById(id).orElseThrow(
+      () -> new NullPointerException("No bid found with this id (" + id + ")")
+    );
+    String eTag = ETags.of(bidList.getVersion());
+    if (ETags.notModified(webRequest, eTag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+    }
+    return ResponseEntity.ok().eTag(eTag).body(bidList);
+  }
+
+  /**
+   * This method is used by the views to recover a specific bid thanks to its id.
    *
    * @param id is the bid's id you are looking for.
    * @return an optional bidList object
    */
-  @GetMapping("/list/{id}")
-  public Optional<BidList> getById(@PathVariable Integer id) {
+  public Optional<BidList> getById(Integer id) {
     LOGGER.info("API Request -> get bid with Id : " + id + "...");
     return bidListService.findById(id);
   }
@@ -120,6 +247,55 @@ public class BidListRestController {
     return ResponseEntity.ok("BidList with id " + id + " has been deleted successfully.");
   }
 
+  /**
+   * This method is used to delete several bids at once thanks to their ids (e.g. ?ids=3,1,2),
+   * with a single statement.
+   *
+   * @param ids are the ids of the bids you want to delete (at most IdListFetcher.MAX_IDS).
+   * @return the number of deleted bids.
+   */
+  @DeleteMapping(value = "/delete", params = "ids")
+  public BulkResult deleteByIds(@RequestParam List<Integer> ids) {
+    LOGGER.info("API Request -> deleting " + ids.size() + " bids by id...");
+    return new BulkResult(bidListService.deleteAllByIds(IdListFetcher.checkIds(ids)));
+  }
+
+  /**
+   * This method is used to delete all the bids that match a filter, with a single statement.
+   * At least one criterion must be given.
+   *
+   * @param account       is the account of the bids to delete (optional).
+   * @param type          is the type of the bids to delete (optional).
+   * @param status        is the status of the bids to delete (optional).
+   * @param createdBefore is the date (ISO, e.g. 2022-05-31T00:00:00) the bids must have been
+   *                      created before (optional).
+   * @return the number of deleted bids.
+   */
+  @DeleteMapping("/delete/filter")
+  public BulkResult deleteByFilter(@RequestParam(required = false) String account,
+                                   @RequestParam(required = false) String type,
+                                   @RequestParam(required = false) String status,
+                                   @RequestParam(required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdBefore) {
+    LOGGER.info("API Request -> deleting bids by filter...");
+    return new BulkResult(bidListService.deleteAllByFilter(account, type, status, createdBefore));
+  }
+
+  /**
+   * This method is used to give the same status to several bids at once, with a single
+   * statement.
+   *
+   * @param statusUpdate is the Json body with the ids of the bids and their new status.
+   * @return the number of updated bids.
+   */
+  @PutMapping("/update/status")
+  public BulkResult updateStatus(@Valid @RequestBody StatusUpdate statusUpdate) {
+    LOGGER.info("API Request -> setting status " + statusUpdate.getStatus() + " on "
+      + statusUpdate.getIds().size() + " bids...");
+    return new BulkResult(bidListService.updateStatus(
+      IdListFetcher.checkIds(statusUpdate.getIds()), statusUpdate.getStatus()));
+  }
+
   /**
    * This method is used to add a new bid into database.
    *
@@ -137,21 +313,59 @@ public class BidListRestController {
   }
 
   /**
-   * This method is used to update an existing bid from database.
+   * This method is used to add many bids at once from a CSV file. The first line of the file
+   * names the columns (account,type,bidQuantity,...). Invalid lines are skipped and reported.
+   *
+   * @param file is the CSV file sent as multipart form data.
+   * @return the report of the import.
+   * @throws IOException if the file cannot be read.
+   */
+  @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  public ResponseEntity<ImportReport> importCsv(@RequestParam MultipartFile file)
+    throws IOException {
+    LOGGER.info("API Request -> importing bids from file " + file.getOriginalFilename() + "...");
+    return ResponseEntity.ok(bidListImportService.importCsv(file.getInputStream()));
+  }
+
+  /**
+   * This method is used to update an existing bid from database. Only the attributes of the html
+   * form are written : account, type and bidQuantity. Any other attribute must be left out of the
+   * body, the update is refused (400) otherwise : use PATCH /{id} to change the other attributes.
    *
    * @param bid is the bid you want to modify.
+   * @param ifMatch is the ETag of the bid read before (optional), the update is refused (412)
+   *                if the bid has been modified since.
    * @return the confirmation message that you correctly updated the bid.
    */
   @PutMapping("/update")
   @Transactional
-  public ResponseEntity<String> update(@Valid @RequestBody BidList bid) {
+  public ResponseEntity<String> update(@Valid @RequestBody BidList bid,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     LOGGER.info("API Request -> updating bid : ");
     LOGGER.info(bid.toString());
-    BidList bidListFromDb = bidListService.findById(bid.getBidListId()).orElseThrow(
-      () -> new NullPointerException("No bid found with this id (" + bid.getBidListId() + ")")
-    );
-    LOGGER.info("Bid to update found in DB.");
-    bidListService.update(bid, bidListFromDb);
+    if (!bidListService.update(bid, ETags.parseVersions(ifMatch))) {
+      throw new NullPointerException("No bid found with this id (" + bid.getBidListId() + ")");
+    }
     return ResponseEntity.ok("Bid successfully updated !");
   }
+
+  /**
+   * This method is used to change some attributes of a bid. The body is a JSON merge patch :
+   * only the given attributes are changed and a null attribute is cleared.
+   *
+   * @param id      is the id of the bid to patch.
+   * @param patch   is the JSON merge patch.
+   * @param ifMatch is the ETag of the bid read before (optional), the patch is refused (412)
+   *                if the bid has been modified since.
+   * @return the patched bid.
+   */
+  @PatchMapping(value = "/{id}",
+    consumes = {MergePatcher.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+  public BidList patch(@PathVariable Integer id, @RequestBody JsonNode patch,
+                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    LOGGER.info("API Request -> patching bid with id : " + id + "...");
+    return bidListService.patch(id, patch, ETags.parseVersions(ifMatch)).orElseThrow(
+      () -> new NullPointerException("No bid found with this id (" + id + ")")
+    );
+  }
 }
@@ -1,20 +1,30 @@
 package com.openclassrooms.poseidon.controller.rest;
 
+import com.openclassrooms.poseidon.domain.DTO.BulkResult;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
 import com.openclassrooms.poseidon.domain.CurvePoint;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
 import com.openclassrooms.poseidon.service.CurvePointService;
+import com.openclassrooms.poseidon.service.IdListFetcher;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.transaction.Transactional;
 import javax.validation.Valid;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -82,14 +92,31 @@ public class CurvePointRestController {
   }
 
   /**
-   * This method is used to display all curve point in a list.
+   * This method is used to display curve points page by page. The next page is fetched by giving
+   * back the nextCursor of the response in the after parameter.
    *
-   * @return the iterable of all curve points contained in database.
+   * @param after is the cursor (or the id) after which curve points are listed.
+   * @param limit is the maximum number of curve points in the page.
+   * @return a page of curve points with the cursor of the next page.
    */
   @GetMapping("/list")
-  public Iterable<CurvePoint> getAll() {
-    LOGGER.info("API Request -> get all curve points...");
-    return curvePointService.getAll();
+  public CursorPage<CurvePoint> getPage(@RequestParam(required = false) String after,
+                                        @RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+    LOGGER.info("API Request -> get curve points after " + after + "...");
+    return curvePointService.getPage(CursorPage.decodeCursor(after), CursorPage.checkLimit(limit));
+  }
+
+  /**
+   * This method is used to display one page of curve points. The page number, its size and its sort
+   * are given in the query string (e.g. ?page=0&size=20&sort=id,desc).
+   *
+   * @param pageable is the page asked.
+   * @return the page of curve points with the total number of curve points.
+   */
+  @GetMapping("/list/sorted")
+  public Page<CurvePoint> getSortedPage(@PageableDefault(size = 20, sort = "id") Pageable pageable) {
+    LOGGER.info("API Request -> get page " + pageable.getPageNumber() + " of curve points...");
+    return curvePointService.getSortedPage(pageable);
   }
 
   /**
@@ -109,32 +136,70 @@ public class CurvePointRestController {
   }
 
   /**
-   * This method is used to recover a specific curve point thanks to its id.
+   * This method is used to recover several curve points at once thanks to their ids
+   * (e.g. ?ids=3,1,2). The curve points are sent in the order of the ids, the ids that match no curve point
+   * are listed in missingIds.
+   *
+   * @param ids are the ids of the curve points you are looking for (at most IdListFetcher.MAX_IDS).
+   * @return the curve points found and the missing ids.
+   */
+  @GetMapping(value = "/list", params = "ids")
+  public IdListResult<CurvePoint> getByIds(@RequestParam List<Integer> ids) {
+    LOGGER.info("API Request -> get " + ids.size() + " curve points by id...");
+    return curvePointService.findAllByIds(IdListFetcher.checkIds(ids));
+  }
+
+  /**
+   * This method is used to recover a specific curve point thanks to its id. The version of the curve point is
+   * sent as ETag : when it matches the If-None-Match header, the curve point is not sent again (304).
+   *
+   * @param id         is the curve point's id you are looking for.
+   * @param webRequest is the request, used to check its If-None-Match header.
+   * @return the curve point with its ETag.
+   */
+  @GetMapping("/list/{id}")
+  public ResponseEntity<CurvePoint> getWithETag(@PathVariable Integer id, WebRequest webRequest) {
+    LOGGER.info("API Request -> get curve point with Id : " + id + "...");
+    CurvePoint curvePoint = curvePointService.findById(id).orElseThrow(
+      () -> new NullPointerException("No curve point found with this id (" + id + ")")
+    );
+    String eTag = ETags.of(curvePoint.getVersion());
+    if (ETags.notModified(webRequest, eTag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+    }
+    return ResponseEntity.ok().eTag(eTag).body(curvePoint);
+  }
+
+  /**
+   * This method is used by the views to recover a specific curve point thanks to its id.
    *
    * @param id is the curve point's id you are looking for.
    * @return an optional rule name object
    */
-  @GetMapping("/list/{id}")
-  public Optional<CurvePoint> getById(@PathVariable Integer id) {
+  public Optional<CurvePoint> getById(Integer id) {
     LOGGER.info("API Request -> get curve point with Id : " + id + "...");
     return curvePointService.findById(id);
   }
 
   /**
-   * This method is used to update an existing curve point from database.
+   * This method is used to update an existing curve point from database. Only the attributes of the
+   * html form are written : curveId, term and value. Any other attribute must be left out of the
+   * body, the update is refused (400) otherwise.
    *
    * @param curvePoint is the curve point you want to modify.
+   * @param ifMatch is the ETag of the curve point read before (optional), the update is refused (412)
+   *                if the curve point has been modified since.
    * @return the confirmation message that you correctly updated the curve point.
    */
   @PutMapping("/update")
   @Transactional
-  public ResponseEntity<String> update(@Valid @RequestBody CurvePoint curvePoint) {
+  public ResponseEntity<String> update(@Valid @RequestBody CurvePoint curvePoint,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     LOGGER.info("API Request -> updating curve point : ");
     LOGGER.info(curvePoint.toString());
-    CurvePoint curvePointFromDB = curvePointService.findById(curvePoint.getId()).orElseThrow(
-      () -> new NullPointerException("No curve point found with this id (" + curvePoint.getId() + ")")
-    );
-    curvePointService.update(curvePoint, curvePointFromDB);
+    if (!curvePointService.update(curvePoint, ETags.parseVersions(ifMatch))) {
+      throw new NullPointerException("No curve point found with this id (" + curvePoint.getId() + ")");
+    }
     LOGGER.info("Curve point updated successfully !");
     return ResponseEntity.ok("Curve point successfully updated !");
   }
@@ -154,4 +219,17 @@ public class CurvePointRestController {
     curvePointService.delete(curvePointToDelete);
     return ResponseEntity.ok("Curve point with id " + id + " has been deleted successfully.");
   }
+
+  /**
+   * This method is used to delete several curve points at once thanks to their ids (e.g. ?ids=3,1,2),
+   * with a single statement.
+   *
+   * @param ids are the ids of the curve points you want to delete (at most IdListFetcher.MAX_IDS).
+   * @return the number of deleted curve points.
+   */
+  @DeleteMapping(value = "/delete", params = "ids")
+  public BulkResult deleteByIds(@RequestParam List<Integer> ids) {
+    LOGGER.info("API Request -> deleting " + ids.size() + " curve points by id...");
+    return new BulkResult(curvePointService.deleteAllByIds(IdListFetcher.checkIds(ids)));
+  }
 }
@@ -0,0 +1,95 @@
+package com.openclassrooms.poseidon.controller.rest;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ *
+ * This class converts the version of an entity into an ETag header, and reads it back from an
+ * If-Match header, and checks the If-None-Match header of a request.
+ *
+ */
+public final class ETags {
+
+  private ETags() {
+  }
+
+  /**
+   * This method is used to build the ETag of an entity from its version.
+   *
+   * @param version is the version of the entity.
+   * @return the quoted ETag, null if there is no version.
+   */
+  public static String of(Integer version) {
+    return version == null ? null : "\"" + version + "\"";
+  }
+
+  /**
+   * This method is used to know if the client already has the entity : one ETag of the
+   * If-None-Match list is the ETag of the entity, or the list is *.
+   *
+   * @param webRequest is the request, with its If-None-Match header.
+   * @param eTag       is the current ETag of the entity.
+   * @return true if the entity is not to be sent again (304).
+   */
+  public static boolean notModified(WebRequest webRequest, String eTag) {
+    String ifNoneMatch = webRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+    if (ifNoneMatch != null && ifNoneMatch.trim().equals("*")) {
+      return true;
+    }
+    return webRequest.checkNotModified(eTag);
+  }
+
+  /**
+   * This method is used to read the versions expected by an If-Match header. The header is a
+   * comma separated list of ETags (RFC 7232), the entity must have one of their versions. If-Match
+   * uses the strong comparison : a weak ETag never matches, nor an ETag that is not a version.
+   *
+   * @param ifMatch is the If-Match header, it can be null.
+   * @return the expected versions, null if any version matches (no header or *).
+   * @throws ResponseStatusException 412 if no ETag of the list can match.
+   * @throws IllegalArgumentException if the list is not valid.
+   */
+  public static Set<Integer> parseVersions(String ifMatch) {
+    if (ifMatch == null || ifMatch.isBlank()) {
+      return null;
+    }
+    Set<Integer> versions = new HashSet<>();
+    int i = 0;
+    while (i < ifMatch.length()) {
+      char c = ifMatch.charAt(i);
+      if (c == ',' || c == ' ' || c == '\t') {
+        i++;
+        continue;
+      }
+      if (c == '*') {
+        return null;
+      }
+      boolean weak = ifMatch.startsWith("W/", i);
+      int start = weak ? i + 2 : i;
+      int end = start < ifMatch.length() && ifMatch.charAt(start) == '"'
+        ? ifMatch.indexOf('"', start + 1) : -1;
+      if (end < 0) {
+        throw new IllegalArgumentException("The ETag list " + ifMatch + " is not valid.");
+      }
+      if (!weak) {
+        try {
+          versions.add(Integer.valueOf(ifMatch.substring(start + 1, end)));
+        } catch (NumberFormatException ex) {
+          //An opaque tag that is not one of our versions : it never matches
+        }
+      }
+      i = end + 1;
+    }
+    if (versions.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+        "No ETag of " + ifMatch + " can match with If-Match.");
+    }
+    return versions;
+  }
+}
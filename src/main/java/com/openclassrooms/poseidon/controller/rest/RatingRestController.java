@@ -1,20 +1,30 @@
 package com.openclassrooms.poseidon.controller.rest;
 
+import com.openclassrooms.poseidon.domain.DTO.BulkResult;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
 import com.openclassrooms.poseidon.domain.Rating;
+import com.openclassrooms.poseidon.service.IdListFetcher;
 import com.openclassrooms.poseidon.service.RatingService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.transaction.Transactional;
 import javax.validation.Valid;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -82,14 +92,31 @@ public class RatingRestController {
   }
 
   /**
-   * This method is used to display all ratings in a list.
+   * This method is used to display ratings page by page. The next page is fetched by giving
+   * back the nextCursor of the response in the after parameter.
    *
-   * @return the iterable of all ratings contained in database.
+   * @param after is the cursor (or the id) after which ratings are listed.
+   * @param limit is the maximum number of ratings in the page.
+   * @return a page of ratings with the cursor of the next page.
    */
   @GetMapping("/list")
-  public Iterable<Rating> getAll() {
-    LOGGER.info("API Request -> get all ratings...");
-    return ratingService.getAll();
+  public CursorPage<Rating> getPage(@RequestParam(required = false) String after,
+                                    @RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+    LOGGER.info("API Request -> get ratings after " + after + "...");
+    return ratingService.getPage(CursorPage.decodeCursor(after), CursorPage.checkLimit(limit));
+  }
+
+  /**
+   * This method is used to display one page of ratings. The page number, its size and its sort
+   * are given in the query string (e.g. ?page=0&size=20&sort=id,desc).
+   *
+   * @param pageable is the page asked.
+   * @return the page of ratings with the total number of ratings.
+   */
+  @GetMapping("/list/sorted")
+  public Page<Rating> getSortedPage(@PageableDefault(size = 20, sort = "id") Pageable pageable) {
+    LOGGER.info("API Request -> get page " + pageable.getPageNumber() + " of ratings...");
+    return ratingService.getSortedPage(pageable);
   }
 
   /**
@@ -109,14 +136,48 @@ public class RatingRestController {
   }
 
   /**
-   * This method is used to recover a specific rating thanks to its id.
+   * This method is used to recover several ratings at once thanks to their ids
+   * (e.g. ?ids=3,1,2). The ratings are sent in the order of the ids, the ids that match no rating
+   * are listed in missingIds.
+   *
+   * @param ids are the ids of the ratings you are looking for (at most IdListFetcher.MAX_IDS).
+   * @return the ratings found and the missing ids.
+   */
+  @GetMapping(value = "/list", params = "ids")
+  public IdListResult<Rating> getByIds(@RequestParam List<Integer> ids) {
+    LOGGER.info("API Request -> get " + ids.size() + " ratings by id...");
+    return ratingService.findAllByIds(IdListFetcher.checkIds(ids));
+  }
+
+  /**
+   * This method is used to recover a specific rating thanks to its id. The version of the rating is
+   * sent as ETag : when it matches the If-None-Match header, the rating is not sent again (304).
+   *
+   * @param id         is the rating's id you are looking for.
+   * @param webRequest is the request, used to check its If-None-Match header.
+   * @return the rating with its ETag.
+   */
+  @GetMapping("/list/{id}")
+  public ResponseEntity<Rating> getWithETag(@PathVariable Integer id, WebRequest webRequest) {
+    LOGGER.info("API Request -> get rating with Id : " + id + "...");
+    Rating rating = ratingService.findById(id).orElseThrow(
+      () -> new NullPointerException("No rating found with this id (" + id + ")")
+    );
+    String eTag = ETags.of(rating.getVersion());
+    if (ETags.notModified(webRequest, eTag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+    }
+    return ResponseEntity.ok().eTag(eTag).body(rating);
+  }
+
+  /**
+   * This method is used by the views to recover a specific rating thanks to its id.
    *
    * @param id is the rating's id you are looking for.
    * @return an optional rating object
    */
-  @GetMapping("/list/{id}")
-  public Optional<Rating> getById(@PathVariable Integer id) {
-    LOGGER.info("API Request -> get curve point with Id : " + id + "...");
+  public Optional<Rating> getById(Integer id) {
+    LOGGER.info("API Request -> get rating with Id : " + id + "...");
     return ratingService.findById(id);
   }
 
@@ -124,17 +185,19 @@ public class RatingRestController {
    * This method is used to update an existing rating from database.
    *
    * @param rating is the curve point you want to modify.
+   * @param ifMatch is the ETag of the rating read before (optional), the update is refused (412)
+   *                if the rating has been modified since.
    * @return the confirmation message that you correctly updated the rating.
    */
   @PutMapping("/update")
   @Transactional
-  public ResponseEntity<String> update(@Valid @RequestBody Rating rating) {
+  public ResponseEntity<String> update(@Valid @RequestBody Rating rating,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     LOGGER.info("API Request -> updating rating : ");
     LOGGER.info(rating.toString());
-    Rating ratingFromDB = ratingService.findById(rating.getId()).orElseThrow(
-      () -> new NullPointerException("No rating found with this id (" + rating.getId() + ")")
-    );
-    ratingService.update(rating, ratingFromDB);
+    if (!ratingService.update(rating, ETags.parseVersions(ifMatch))) {
+      throw new NullPointerException("No rating found with this id (" + rating.getId() + ")");
+    }
     LOGGER.info("Rating updated successfully !");
     return ResponseEntity.ok("Rating successfully updated !");
   }
@@ -154,4 +217,17 @@ public class RatingRestController {
     ratingService.delete(ratingToDelete);
     return ResponseEntity.ok("Rating with id " + id + " has been deleted successfully.");
   }
+
+  /**
+   * This method is used to delete several ratings at once thanks to their ids (e.g. ?ids=3,1,2),
+   * with a single statement.
+   *
+   * @param ids are the ids of the ratings you want to delete (at most IdListFetcher.MAX_IDS).
+   * @return the number of deleted ratings.
+   */
+  @DeleteMapping(value = "/delete", params = "ids")
+  public BulkResult deleteByIds(@RequestParam List<Integer> ids) {
+    LOGGER.info("API Request -> deleting " + ids.size() + " ratings by id...");
+    return new BulkResult(ratingService.deleteAllByIds(IdListFetcher.checkIds(ids)));
+  }
 }
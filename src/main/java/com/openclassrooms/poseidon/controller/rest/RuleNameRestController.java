@@ -1,20 +1,31 @@
 package com.openclassrooms.poseidon.controller.rest;
 
+import com.openclassrooms.poseidon.domain.DTO.BulkResult;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
+import com.openclassrooms.poseidon.domain.DTO.RuleNameSummary;
 import com.openclassrooms.poseidon.domain.RuleName;
+import com.openclassrooms.poseidon.service.IdListFetcher;
 import com.openclassrooms.poseidon.service.RuleNameService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.transaction.Transactional;
 import javax.validation.Valid;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -82,14 +93,59 @@ public class RuleNameRestController {
   }
 
   /**
-   * This method is used to display all rule names in a list.
+   * This method is used to display rule names page by page. The next page is fetched by giving
+   * back the nextCursor of the response in the after parameter.
    *
-   * @return the iterable of all rule names contained in database.
+   * @param after is the cursor (or the id) after which rule names are listed.
+   * @param limit is the maximum number of rule names in the page.
+   * @return a page of rule names with the cursor of the next page.
    */
   @GetMapping("/list")
-  public Iterable<RuleName> getAll() {
-    LOGGER.info("API Request -> get all rule names...");
-    return ruleNameService.getAll();
+  public CursorPage<RuleName> getPage(@RequestParam(required = false) String after,
+                                      @RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+    LOGGER.info("API Request -> get rule names after " + after + "...");
+    return ruleNameService.getPage(CursorPage.decodeCursor(after), CursorPage.checkLimit(limit));
+  }
+
+  /**
+   * This method is used to display one page of rule names. The page number, its size and its sort
+   * are given in the query string (e.g. ?page=0&size=20&sort=id,desc).
+   *
+   * @param pageable is the page asked.
+   * @return the page of rule names with the total number of rule names.
+   */
+  @GetMapping("/list/sorted")
+  public Page<RuleName> getSortedPage(@PageableDefault(size = 20, sort = "id") Pageable pageable) {
+    LOGGER.info("API Request -> get page " + pageable.getPageNumber() + " of rule names...");
+    return ruleNameService.getSortedPage(pageable);
+  }
+
+  /**
+   * This method is used to display rule names page by page, like getPage, but with previews of
+   * their json, template, sqlStr and sqlPart instead of the full text (?view=summary).
+   *
+   * @param after is the cursor (or the id) after which rule names are listed.
+   * @param limit is the maximum number of rule names in the page.
+   * @return a page of rule name summaries with the cursor of the next page.
+   */
+  @GetMapping(value = "/list", params = {"view=summary", "!ids"})
+  public CursorPage<RuleNameSummary> getSummaryPage(@RequestParam(required = false) String after,
+                                                    @RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+    LOGGER.info("API Request -> get rule name summaries after " + after + "...");
+    return ruleNameService.getSummaryPage(CursorPage.decodeCursor(after), CursorPage.checkLimit(limit));
+  }
+
+  /**
+   * This method is used to display one page of rule names, like getSortedPage, but with previews
+   * of their json, template, sqlStr and sqlPart instead of the full text (?view=summary).
+   *
+   * @param pageable is the page asked.
+   * @return the page of rule name summaries with the total number of rule names.
+   */
+  @GetMapping(value = "/list/sorted", params = "view=summary")
+  public Page<RuleNameSummary> getSortedSummaryPage(@PageableDefault(size = 20, sort = "id") Pageable pageable) {
+    LOGGER.info("API Request -> get page " + pageable.getPageNumber() + " of rule name summaries...");
+    return ruleNameService.getSortedSummaryPage(pageable);
   }
 
   /**
@@ -110,13 +166,52 @@ public class RuleNameRestController {
   }
 
   /**
-   * This method is used to recover a specific rule name thanks to its id.
+   * This method is used to recover several rule names at once thanks to their ids
+   * (e.g. ?ids=3,1,2). The rule names are sent in the order of the ids, the ids that match no rule name
+   * are listed in missingIds. The summary view is not available by ids (400).
+   *
+   * @param ids are the ids of the rule names you are looking for (at most IdListFetcher.MAX_IDS).
+   * @param view is refused, it must not be given with the ids.
+   * @return the rule names found and the missing ids.
+   */
+  @GetMapping(value = "/list", params = "ids")
+  public IdListResult<RuleName> getByIds(@RequestParam List<Integer> ids,
+                                         @RequestParam(required = false) String view) {
+    if (view != null) {
+      throw new IllegalArgumentException("The view parameter cannot be used with ids.");
+    }
+    LOGGER.info("API Request -> get " + ids.size() + " rule names by id...");
+    return ruleNameService.findAllByIds(IdListFetcher.checkIds(ids));
+  }
+
+  /**
+   * This method is used to recover a specific rule name thanks to its id. The version of the rule name is
+   * sent as ETag : when it matches the If-None-Match header, the rule name is not sent again (304).
+   *
+   * @param id         is the rule name's id you are looking for.
+   * @param webRequest is the request, used to check its If-None-Match header.
+   * @return the rule name with its ETag.
+   */
+  @GetMapping("/list/{id}")
+  public ResponseEntity<RuleName> getWithETag(@PathVariable Integer id, WebRequest webRequest) {
+    LOGGER.info("API Request -> get rule name with Id : " + id + "...");
+    RuleName ruleName = ruleNameService.findById(id).orElseThrow(
+      () -> new NullPointerException("No rule name found with this id (" + id + ")")
+    );
+    String eTag = ETags.of(ruleName.getVersion());
+    if (ETags.notModified(webRequest, eTag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+    }
+    return ResponseEntity.ok().eTag(eTag).body(ruleName);
+  }
+
+  /**
+   * This method is used by the views to recover a specific rule name thanks to its id.
    *
    * @param id is the rule name's id you are looking for.
    * @return an optional rule name object
    */
-  @GetMapping("/list/{id}")
-  public Optional<RuleName> getById(@PathVariable Integer id) {
+  public Optional<RuleName> getById(Integer id) {
     LOGGER.info("API Request -> get rule name with Id : " + id + "...");
     return ruleNameService.findById(id);
   }
@@ -125,17 +220,19 @@ public class RuleNameRestController {
    * This method is used to update an existing rule name from database.
    *
    * @param ruleName is the curve point you want to modify.
+   * @param ifMatch is the ETag of the rule name read before (optional), the update is refused (412)
+   *                if the rule name has been modified since.
    * @return the confirmation message that you correctly updated the rule name.
    */
   @PutMapping("/update")
   @Transactional
-  public ResponseEntity<String> update(@Valid @RequestBody RuleName ruleName) {
+  public ResponseEntity<String> update(@Valid @RequestBody RuleName ruleName,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     LOGGER.info("API Request -> updating rule name : ");
     LOGGER.info(ruleName.toString());
-    RuleName ruleNameFromDB = ruleNameService.findById(ruleName.getId()).orElseThrow(
-      () -> new NullPointerException("No rule name found with this id (" + ruleName.getId() + ")")
-    );
-    ruleNameService.update(ruleName, ruleNameFromDB);
+    if (!ruleNameService.update(ruleName, ETags.parseVersions(ifMatch))) {
+      throw new NullPointerException("No rule name found with this id (" + ruleName.getId() + ")");
+    }
     LOGGER.info("Rule name updated successfully !");
     return ResponseEntity.ok("Rule name successfully updated !");
   }
@@ -155,4 +252,17 @@ public class RuleNameRestController {
     ruleNameService.delete(ruleNameToDelete);
     return ResponseEntity.ok("Rule name with id " + id + " has been deleted successfully.");
   }
+
+  /**
+   * This method is used to delete several rule names at once thanks to their ids (e.g. ?ids=3,1,2),
+   * with a single statement.
+   *
+   * @param ids are the ids of the rule names you want to delete (at most IdListFetcher.MAX_IDS).
+   * @return the number of deleted rule names.
+   */
+  @DeleteMapping(value = "/delete", params = "ids")
+  public BulkResult deleteByIds(@RequestParam List<Integer> ids) {
+    LOGGER.info("API Request -> deleting " + ids.size() + " rule names by id...");
+    return new BulkResult(ruleNameService.deleteAllByIds(IdListFetcher.checkIds(ids)));
+  }
 }
@@ -1,20 +1,41 @@
 package com.openclassrooms.poseidon.controller.rest;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.openclassrooms.poseidon.domain.DTO.BulkResult;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
+import com.openclassrooms.poseidon.domain.DTO.StatusUpdate;
+import com.openclassrooms.poseidon.domain.DTO.TradeSummary;
 import com.openclassrooms.poseidon.domain.Trade;
+import com.openclassrooms.poseidon.service.IdListFetcher;
+import com.openclassrooms.poseidon.service.MergePatcher;
 import com.openclassrooms.poseidon.service.TradeService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.transaction.Transactional;
+import javax.validation.constraints.Size;
+import javax.validation.ConstraintViolationException;
 import javax.validation.Valid;
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -23,6 +44,7 @@ import java.util.Optional;
  * with trade objects.
  */
 @RestController
+@Validated
 @RequestMapping("${api.ver}" + "/trade")
 public class TradeRestController {
 
@@ -54,6 +76,24 @@ public class TradeRestController {
     return errors;
   }
 
+  /**
+   * this method is one of the Exception Handler to display specific exceptions from
+   * this controller. It handles the errors found in the elements of a list body.
+   *
+   * @param ex is the exception handled here
+   * @return a map with all errors stacked in this exception.
+   */
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  @ExceptionHandler(ConstraintViolationException.class)
+  public Map<String, String> handleValidationExceptions(
+    ConstraintViolationException ex) {
+    Map<String, String> errors = new HashMap<>();
+    ex.getConstraintViolations().forEach(
+      (violation) -> errors.put(violation.getPropertyPath().toString(), violation.getMessage())
+    );
+    return errors;
+  }
+
   @ResponseStatus(HttpStatus.BAD_REQUEST)
   @ExceptionHandler(IllegalArgumentException.class)
   public String handleValidationExceptions(
@@ -83,14 +123,74 @@ public class TradeRestController {
   }
 
   /**
-   * This method is used to display all trades in a list.
+   * This method is used to display trades page by page. The next page is fetched by giving
+   * back the nextCursor of the response in the after parameter.
    *
-   * @return the iterable of all trades contained in database.
+   * @param after is the cursor (or the id) after which trades are listed.
+   * @param limit is the maximum number of trades in the page.
+   * @return a page of trades with the cursor of the next page.
    */
   @GetMapping("/list")
-  public Iterable<Trade> getAll() {
-    LOGGER.info("API Request -> get all trades...");
-    return tradeService.getAll();
+  public CursorPage<Trade> getPage(@RequestParam(required = false) String after,
+                                   @RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+    LOGGER.info("API Request -> get trades after " + after + "...");
+    return tradeService.getPage(CursorPage.decodeCursor(after), CursorPage.checkLimit(limit));
+  }
+
+  /**
+   * This method is used to display one page of trades. The page number, its size and its sort
+   * are given in the query string (e.g. ?page=0&size=20&sort=tradeId,desc).
+   *
+   * @param pageable is the page asked.
+   * @return the page of trades with the total number of trades.
+   */
+  @GetMapping("/list/sorted")
+  public Page<Trade> getSortedPage(@PageableDefault(size = 20, sort = "tradeId") Pageable pageable) {
+    LOGGER.info("API Request -> get page " + pageable.getPageNumber() + " of trades...");
+    return tradeService.getSortedPage(pageable);
+  }
+
+  /**
+   * This method is used to display trades page by page, like getPage, but only with their id,
+   * account, type and quantity (?view=summary).
+   *
+   * @param after is the cursor (or the id) after which trades are listed.
+   * @param limit is the maximum number of trades in the page.
+   * @return a page of trade summaries with the cursor of the next page.
+   */
+  @GetMapping(value = "/list", params = {"view=summary", "!ids"})
+  public CursorPage<TradeSummary> getSummaryPage(@RequestParam(required = false) String after,
+                                                 @RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+    LOGGER.info("API Request -> get trade summaries after " + after + "...");
+    return tradeService.getSummaryPage(CursorPage.decodeCursor(after), CursorPage.checkLimit(limit));
+  }
+
+  /**
+   * This method is used to display one page of trades, like getSortedPage, but only with their
+   * id, account, type and quantity (?view=summary).
+   *
+   * @param pageable is the page asked.
+   * @return the page of trade summaries with the total number of trades.
+   */
+  @GetMapping(value = "/list/sorted", params = "view=summary")
+  public Page<TradeSummary> getSortedSummaryPage(@PageableDefault(size = 20, sort = "tradeId") Pageable pageable) {
+    LOGGER.info("API Request -> get page " + pageable.getPageNumber() + " of trade summaries...");
+    return tradeService.getSortedSummaryPage(pageable);
+  }
+
+  /**
+   * This method is used to export all trades as newline-delimited JSON (one trade per line).
+   * Rows are written to the response as soon as they are read from database.
+   *
+   * @return the streamed body of the export.
+   */
+  @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> export() {
+    LOGGER.info("API Request -> export all trades...");
+    StreamingResponseBody body = outputStream -> tradeService.exportAll(outputStream);
+    return ResponseEntity.ok()
+      .contentType(MediaType.APPLICATION_NDJSON)
+      .body(body);
   }
 
   /**
@@ -110,32 +210,90 @@ public class TradeRestController {
   }
 
   /**
-   * This method is used to recover a specific trade thanks to its id.
+   * This method is used to add many trades into database in one transaction.
+   *
+   * @param trades is the Json array of the trades you want to add.
+   * @return the ids of the created trades, in the order of the array.
+   */
+  @PostMapping("/add/batch")
+  public ResponseEntity<List<Integer>> createAll(
+    @RequestBody @Size(min = 1, max = 1000) List<@Valid Trade> trades) {
+    LOGGER.info("API Request -> saving " + trades.size() + " trades...");
+    List<Integer> ids = tradeService.saveAll(trades);
+    LOGGER.info("Trades saved successfully");
+    return ResponseEntity.ok(ids);
+  }
+
+  /**
+   * This method is used to recover several trades at once thanks to their ids
+   * (e.g. ?ids=3,1,2). The trades are sent in the order of the ids, the ids that match no trade
+   * are listed in missingIds. The summary view is not available by ids (400).
+   *
+   * @param ids are the ids of the trades you are looking for (at most IdListFetcher.MAX_IDS).
+   * @param view is refused, it must not be given with the ids.
+   * @return the trades found and the missing ids.
+   */
+  @GetMapping(value = "/list", params = "ids")
+  public IdListResult<Trade> getByIds(@RequestParam List<Integer> ids,
+                                      @RequestParam(required = false) String view) {
+    if (view != null) {
+      throw new IllegalArgumentException("The view parameter cannot be used with ids.");
+    }
+    LOGGER.info("API Request -> get " + ids.size() + " trades by id...");
+    return tradeService.findAllByIds(IdListFetcher.checkIds(ids));
+  }
+
+  /**
+   * This method is used to recover a specific trade thanks to its id. The version of the trade is
+   * sent as ETag : when it matches the If-None-Match header, the trade is not sent again (304).
+   *
+   * @param id         is the trade's id you are looking for.
+   * @param webRequest is the request, used to check its If-None-Match header.
+   * @return the trade with its ETag.
+   */
+  @GetMapping("/list/{id}")
+  public ResponseEntity<Trade> getWithETag(@PathVariable Integer id, WebRequest webRequest) {
+    LOGGER.info("API Request -> get trade with Id : " + id + "...");
+    Trade trade = tradeService.findById(id).orElseThrow(
+      () -> new NullPointerException("No trade found with this id (" + id + ")")
+    );
+    String eTag = ETags.of(trade.getVersion());
+    if (ETags.notModified(webRequest, eTag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+    }
+    return ResponseEntity.ok().eTag(eTag).body(trade);
+  }
+
+  /**
+   * This method is used by the views to recover a specific trade thanks to its id.
    *
    * @param id is the trade's id you are looking for.
    * @return an optional trade object
    */
-  @GetMapping("/list/{id}")
-  public Optional<Trade> getById(@PathVariable Integer id) {
+  public Optional<Trade> getById(Integer id) {
     LOGGER.info("API Request -> get trade with Id : " + id + "...");
     return tradeService.findById(id);
   }
 
   /**
-   * This method is used to update an existing trade from database.
+   * This method is used to update an existing trade from database. Only the attributes of the html
+   * form are written : account, type and buyQuantity. Any other attribute must be left out of the
+   * body, the update is refused (400) otherwise : use PATCH /{id} to change the other attributes.
    *
    * @param trade is the curve point you want to modify.
+   * @param ifMatch is the ETag of the trade read before (optional), the update is refused (412)
+   *                if the trade has been modified since.
    * @return the confirmation message that you correctly updated the trade.
    */
   @PutMapping("/update")
   @Transactional
-  public ResponseEntity<String> update(@Valid @RequestBody Trade trade) {
+  public ResponseEntity<String> update(@Valid @RequestBody Trade trade,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
     LOGGER.info("API Request -> updating trade : ");
     LOGGER.info(trade.toString());
-    Trade tradeFromDB = tradeService.findById(trade.getTradeId()).orElseThrow(
-      () -> new NullPointerException("No trade found with this id (" + trade.getTradeId() + ")")
-    );
-    tradeService.update(trade, tradeFromDB);
+    if (!tradeService.update(trade, ETags.parseVersions(ifMatch))) {
+      throw new NullPointerException("No trade found with this id (" + trade.getTradeId() + ")");
+    }
     LOGGER.info("Trade updated successfully !");
     return ResponseEntity.ok("Trade successfully updated !");
   }
@@ -155,4 +313,73 @@ public class TradeRestController {
     tradeService.delete(tradeToDelete);
     return ResponseEntity.ok("Trade with id " + id + " has been deleted successfully.");
   }
+
+  /**
+   * This method is used to delete several trades at once thanks to their ids (e.g. ?ids=3,1,2),
+   * with a single statement.
+   *
+   * @param ids are the ids of the trades you want to delete (at most IdListFetcher.MAX_IDS).
+   * @return the number of deleted trades.
+   */
+  @DeleteMapping(value = "/delete", params = "ids")
+  public BulkResult deleteByIds(@RequestParam List<Integer> ids) {
+    LOGGER.info("API Request -> deleting " + ids.size() + " trades by id...");
+    return new BulkResult(tradeService.deleteAllByIds(IdListFetcher.checkIds(ids)));
+  }
+
+  /**
+   * This method is used to delete all the trades that match a filter, with a single statement.
+   * At least one criterion must be given.
+   *
+   * @param account       is the account of the trades to delete (optional).
+   * @param type          is the type of the trades to delete (optional).
+   * @param status        is the status of the trades to delete (optional).
+   * @param createdBefore is the date (ISO, e.g. 2022-05-31T00:00:00) the trades must have been
+   *                      created before (optional).
+   * @return the number of deleted trades.
+   */
+  @DeleteMapping("/delete/filter")
+  public BulkResult deleteByFilter(@RequestParam(required = false) String account,
+                                   @RequestParam(required = false) String type,
+                                   @RequestParam(required = false) String status,
+                                   @RequestParam(required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdBefore) {
+    LOGGER.info("API Request -> deleting trades by filter...");
+    return new BulkResult(tradeService.deleteAllByFilter(account, type, status, createdBefore));
+  }
+
+  /**
+   * This method is used to give the same status to several trades at once, with a single
+   * statement.
+   *
+   * @param statusUpdate is the Json body with the ids of the trades and their new status.
+   * @return the number of updated trades.
+   */
+  @PutMapping("/update/status")
+  public BulkResult updateStatus(@Valid @RequestBody StatusUpdate statusUpdate) {
+    LOGGER.info("API Request -> setting status " + statusUpdate.getStatus() + " on "
+      + statusUpdate.getIds().size() + " trades...");
+    return new BulkResult(tradeService.updateStatus(
+      IdListFetcher.checkIds(statusUpdate.getIds()), statusUpdate.getStatus()));
+  }
+
+  /**
+   * This method is used to change some attributes of a trade. The body is a JSON merge patch :
+   * only the given attributes are changed and a null attribute is cleared.
+   *
+   * @param id      is the id of the trade to patch.
+   * @param patch   is the JSON merge patch.
+   * @param ifMatch is the ETag of the trade read before (optional), the patch is refused (412)
+   *                if the trade has been modified since.
+   * @return the patched trade.
+   */
+  @PatchMapping(value = "/{id}",
+    consumes = {MergePatcher.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+  public Trade patch(@PathVariable Integer id, @RequestBody JsonNode patch,
+                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+    LOGGER.info("API Request -> patching trade with id : " + id + "...");
+    return tradeService.patch(id, patch, ETags.parseVersions(ifMatch)).orElseThrow(
+      () -> new NullPointerException("No trade found with this id (" + id + ")")
+    );
+  }
 }
@@ -1,12 +1,18 @@
 package com.openclassrooms.poseidon.controller.rest;
 
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
 import com.openclassrooms.poseidon.domain.DTO.UserDTO;
 import com.openclassrooms.poseidon.domain.User;
+import com.openclassrooms.poseidon.service.IdListFetcher;
 import com.openclassrooms.poseidon.service.UserService;
 import com.openclassrooms.poseidon.service.exception.UserAlreadyExistsException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -17,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
 import javax.transaction.Transactional;
 import javax.validation.Valid;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -85,11 +92,38 @@ public class UserRestController {
   }
 
   /**
-   * This method is used to display all userDTOs in a list.
+   * This method is used to display users page by page. The next page is fetched by giving
+   * back the nextCursor of the response in the after parameter.
    *
-   * @return the iterable of all userDTOs contained in database.
+   * @param after is the cursor (or the id) after which users are listed.
+   * @param limit is the maximum number of users in the page.
+   * @return a page of users with the cursor of the next page.
    */
   @GetMapping("/list")
+  public CursorPage<UserDTO> getPage(@RequestParam(required = false) String after,
+                                     @RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+    LOGGER.info("API Request -> get users after " + after + "...");
+    return userService.getDTOPage(CursorPage.decodeCursor(after), CursorPage.checkLimit(limit));
+  }
+
+  /**
+   * This method is used to display one page of users. The page number, its size and its sort
+   * are given in the query string (e.g. ?page=0&size=20&sort=id,desc).
+   *
+   * @param pageable is the page asked.
+   * @return the page of users with the total number of users.
+   */
+  @GetMapping("/list/sorted")
+  public Page<UserDTO> getSortedPage(@PageableDefault(size = 20, sort = "id") Pageable pageable) {
+    LOGGER.info("API Request -> get page " + pageable.getPageNumber() + " of users...");
+    return userService.getSortedDTOPage(pageable);
+  }
+
+  /**
+   * This method is used by the views to get all users at once.
+   *
+   * @return the iterable of all users contained in database.
+   */
   public Iterable<UserDTO> getAllUserDTO() {
     LOGGER.info("API Request -> get all users...");
     return userService.getAllDTO();
@@ -148,6 +182,20 @@ public class UserRestController {
 
   }
 
+  /**
+   * This method is used to recover several users at once thanks to their ids
+   * (e.g. ?ids=3,1,2). The users are sent in the order of the ids, the ids that match no user
+   * are listed in missingIds.
+   *
+   * @param ids are the ids of the users you are looking for (at most IdListFetcher.MAX_IDS).
+   * @return the users found and the missing ids.
+   */
+  @GetMapping(value = "/list", params = "ids")
+  public IdListResult<UserDTO> getByIds(@RequestParam List<Integer> ids) {
+    LOGGER.info("API Request -> get " + ids.size() + " users by id...");
+    return userService.findAllDTOByIds(IdListFetcher.checkIds(ids));
+  }
+
   /**
    * This method is used to recover a specific userdto thanks to its id.
    *
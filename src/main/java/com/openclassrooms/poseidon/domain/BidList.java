@@ -1,6 +1,8 @@
 package com.openclassrooms.poseidon.domain;
 
 
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.format.annotation.NumberFormat;
 
@@ -8,16 +10,24 @@ import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
 import java.sql.Timestamp;
 
 @Entity
+@DynamicUpdate
 @Table(name = "bidlist")
 public class BidList {
   @Column(name = "bidlistid")
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(generator = "bidlist_id")
+  @GenericGenerator(name = "bidlist_id",
+    strategy = "com.openclassrooms.poseidon.repository.PooledIdGenerator")
   private Integer bidListId;
 
+  @Version
+  @Column(name = "version", nullable = false, columnDefinition = "integer default 0")
+  private Integer version;
+
   @Column(name = "account")
   @NotBlank(message = "Account is mandatory")
   private String account;
@@ -55,6 +65,7 @@ public class BidList {
   @Column(name = "security")
   private String security;
 
+  @Size(max = 10, message = "Status must be at most 10 characters")
   @Column(name = "status")
   private String status;
 
@@ -98,6 +109,14 @@ public class BidList {
     this.bidListId = bidListId;
   }
 
+  public Integer getVersion() {
+    return version;
+  }
+
+  public void setVersion(Integer version) {
+    this.version = version;
+  }
+
   public String getAccount() {
     return account;
   }
@@ -1,6 +1,7 @@
 package com.openclassrooms.poseidon.domain;
 
 
+import org.hibernate.annotations.GenericGenerator;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import javax.persistence.*;
@@ -14,9 +15,15 @@ import java.sql.Timestamp;
 @Table(name = "curvepoint")
 public class CurvePoint {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(generator = "curvepoint_id")
+  @GenericGenerator(name = "curvepoint_id",
+    strategy = "com.openclassrooms.poseidon.repository.PooledIdGenerator")
   private Integer id;
 
+  @Version
+  @Column(name = "version", nullable = false, columnDefinition = "integer default 0")
+  private Integer version;
+
   @Column(name = "curveid")
   @NotNull
   @Min(value = -128, message = "curveId must be upper than -128.")
@@ -48,6 +55,14 @@ public class CurvePoint {
     this.id = id;
   }
 
+  public Integer getVersion() {
+    return version;
+  }
+
+  public void setVersion(Integer version) {
+    this.version = version;
+  }
+
   public Integer getCurveId() {
     return curveId;
   }
@@ -0,0 +1,18 @@
+package com.openclassrooms.poseidon.domain.DTO;
+
+/**
+ *
+ * This interface is the projection of a bid shown in the lists : only its id, account, type
+ * and quantity are read from database, the long text columns are left out.
+ *
+ */
+public interface BidListSummary {
+
+  Integer getBidListId();
+
+  String getAccount();
+
+  String getType();
+
+  Double getBidQuantity();
+}
@@ -0,0 +1,31 @@
+package com.openclassrooms.poseidon.domain.DTO;
+
+/**
+ *
+ * This class is the answer of a bulk delete or a bulk update : the number of rows changed by
+ * the statement.
+ *
+ */
+public class BulkResult {
+
+  private int affectedRows;
+
+  public BulkResult(int affectedRows) {
+    this.affectedRows = affectedRows;
+  }
+
+  public int getAffectedRows() {
+    return affectedRows;
+  }
+
+  public void setAffectedRows(int affectedRows) {
+    this.affectedRows = affectedRows;
+  }
+
+  @Override
+  public String toString() {
+    return "BulkResult{" +
+      "affectedRows=" + affectedRows +
+      '}';
+  }
+}
@@ -0,0 +1,117 @@
+package com.openclassrooms.poseidon.domain.DTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ *
+ * This class is a page of results fetched with keyset (cursor) pagination.
+ * The next cursor is an opaque token that encodes the last id of the page, it is null when
+ * there is nothing left to fetch.
+ *
+ * @param <T> is the type of the objects contained in the page.
+ */
+public class CursorPage<T> {
+
+  public static final int DEFAULT_LIMIT = 50;
+  public static final int MAX_LIMIT = 500;
+
+  private List<T> content;
+
+  private String nextCursor;
+
+  public CursorPage(List<T> content, String nextCursor) {
+    this.content = content;
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * This method builds a page from a slice fetched with one more row than the limit. The extra
+   * row only tells that another page exists, it is dropped from the content.
+   *
+   * @param rows  are the rows fetched from database (at most limit + 1).
+   * @param limit is the maximum number of rows of the page.
+   * @param idOf  is the function used to read the id of a row.
+   * @return the page with its next cursor.
+   */
+  public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, Integer> idOf) {
+    if (rows.size() <= limit) {
+      return new CursorPage<>(rows, null);
+    }
+    List<T> content = rows.subList(0, limit);
+    return new CursorPage<>(content, encodeCursor(idOf.apply(content.get(limit - 1))));
+  }
+
+  /**
+   * This method turns an id into an opaque cursor.
+   *
+   * @param id is the last id of a page.
+   * @return the cursor to give back in the after parameter.
+   */
+  public static String encodeCursor(Integer id) {
+    return Base64.getUrlEncoder().withoutPadding()
+      .encodeToString(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * This method reads the after parameter of a list request. It accepts either a cursor
+   * given by a previous page or a raw id.
+   *
+   * @param after is the after parameter, it can be null.
+   * @return the id after which rows must be fetched (0 when after is null).
+   */
+  public static Integer decodeCursor(String after) {
+    if (after == null || after.isBlank()) {
+      return 0;
+    }
+    try {
+      if (after.chars().allMatch(Character::isDigit)) {
+        return Integer.valueOf(after);
+      }
+      return Integer.valueOf(
+        new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8)
+      );
+    } catch (IllegalArgumentException ex) {
+      throw new IllegalArgumentException("The cursor " + after + " is not valid.");
+    }
+  }
+
+  /**
+   * This method checks the limit parameter of a list request.
+   *
+   * @param limit is the number of rows asked.
+   * @return the limit if it is between 1 and MAX_LIMIT.
+   */
+  public static int checkLimit(int limit) {
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT + ".");
+    }
+    return limit;
+  }
+
+  public List<T> getContent() {
+    return content;
+  }
+
+  public void setContent(List<T> content) {
+    this.content = content;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+
+  @Override
+  public String toString() {
+    return "CursorPage{" +
+      "size=" + content.size() +
+      ", nextCursor='" + nextCursor + '\'' +
+      '}';
+  }
+}
@@ -0,0 +1,46 @@
+package com.openclassrooms.poseidon.domain.DTO;
+
+import java.util.List;
+
+/**
+ *
+ * This class is the result of a fetch by a list of ids (see IdListFetcher). The objects found are
+ * given in the order of the requested ids, the ids that match no object are listed apart.
+ *
+ * @param <T> is the type of the objects fetched.
+ */
+public class IdListResult<T> {
+
+  private List<T> content;
+
+  private List<Integer> missingIds;
+
+  public IdListResult(List<T> content, List<Integer> missingIds) {
+    this.content = content;
+    this.missingIds = missingIds;
+  }
+
+  public List<T> getContent() {
+    return content;
+  }
+
+  public void setContent(List<T> content) {
+    this.content = content;
+  }
+
+  public List<Integer> getMissingIds() {
+    return missingIds;
+  }
+
+  public void setMissingIds(List<Integer> missingIds) {
+    this.missingIds = missingIds;
+  }
+
+  @Override
+  public String toString() {
+    return "IdListResult{" +
+      "size=" + content.size() +
+      ", missingIds=" + missingIds +
+      '}';
+  }
+}
@@ -0,0 +1,171 @@
+package com.openclassrooms.poseidon.domain.DTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * This class is the report sent back after a bulk import. It counts the imported and rejected
+ * rows and gives the reasons of each rejection (only the first MAX_ERRORS ones are kept). The
+ * rows of a batch that could not be inserted are counted as failed, the batch is described in
+ * failedBatches.
+ *
+ */
+public class ImportReport {
+
+  public static final int MAX_ERRORS = 1000;
+
+  private int importedRows;
+
+  private int rejectedRows;
+
+  private int failedRows;
+
+  private long elapsedMillis;
+
+  private List<RowError> errors = new ArrayList<>();
+
+  private List<BatchError> failedBatches = new ArrayList<>();
+
+  public int getImportedRows() {
+    return importedRows;
+  }
+
+  public void setImportedRows(int importedRows) {
+    this.importedRows = importedRows;
+  }
+
+  public int getRejectedRows() {
+    return rejectedRows;
+  }
+
+  public void setRejectedRows(int rejectedRows) {
+    this.rejectedRows = rejectedRows;
+  }
+
+  public int getFailedRows() {
+    return failedRows;
+  }
+
+  public void setFailedRows(int failedRows) {
+    this.failedRows = failedRows;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  public void setElapsedMillis(long elapsedMillis) {
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  public List<RowError> getErrors() {
+    return errors;
+  }
+
+  public void setErrors(List<RowError> errors) {
+    this.errors = errors;
+  }
+
+  public List<BatchError> getFailedBatches() {
+    return failedBatches;
+  }
+
+  public void setFailedBatches(List<BatchError> failedBatches) {
+    this.failedBatches = failedBatches;
+  }
+
+  //  -------------------------------- Helpers --------------------------------
+  public void addImportedRows(int count) {
+    importedRows += count;
+  }
+
+  public void reject(long line, List<String> messages) {
+    rejectedRows++;
+    if (errors.size() < MAX_ERRORS) {
+      errors.add(new RowError(line, messages));
+    }
+  }
+
+  public void fail(long firstLine, long lastLine, int rows, String message) {
+    failedRows += rows;
+    if (failedBatches.size() < MAX_ERRORS) {
+      failedBatches.add(new BatchError(firstLine, lastLine, rows, message));
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ImportReport{" +
+      "importedRows=" + importedRows +
+      ", rejectedRows=" + rejectedRows +
+      ", failedRows=" + failedRows +
+      ", elapsedMillis=" + elapsedMillis +
+      '}';
+  }
+
+  /**
+   *
+   * This class describes why one line of the imported file has been rejected.
+   *
+   */
+  public static class RowError {
+
+    private long line;
+
+    private List<String> messages;
+
+    public RowError(long line, List<String> messages) {
+      this.line = line;
+      this.messages = messages;
+    }
+
+    public long getLine() {
+      return line;
+    }
+
+    public List<String> getMessages() {
+      return messages;
+    }
+  }
+
+  /**
+   *
+   * This class describes a batch of valid lines that could not be inserted : none of its rows
+   * has been imported.
+   *
+   */
+  public static class BatchError {
+
+    private long firstLine;
+
+    private long lastLine;
+
+    private int rows;
+
+    private String message;
+
+    public BatchError(long firstLine, long lastLine, int rows, String message) {
+      this.firstLine = firstLine;
+      this.lastLine = lastLine;
+      this.rows = rows;
+      this.message = message;
+    }
+
+    public long getFirstLine() {
+      return firstLine;
+    }
+
+    public long getLastLine() {
+      return lastLine;
+    }
+
+    public int getRows() {
+      return rows;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+  }
+}
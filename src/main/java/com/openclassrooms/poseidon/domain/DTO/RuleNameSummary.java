@@ -0,0 +1,26 @@
+package com.openclassrooms.poseidon.domain.DTO;
+
+/**
+ *
+ * This interface is the projection of a rule name shown in the lists : its id, name and
+ * description, and only the first PREVIEW_LENGTH characters of its long text columns.
+ *
+ */
+public interface RuleNameSummary {
+
+  int PREVIEW_LENGTH = 50;
+
+  Integer getId();
+
+  String getName();
+
+  String getDescription();
+
+  String getJsonPreview();
+
+  String getTemplatePreview();
+
+  String getSqlStrPreview();
+
+  String getSqlPartPreview();
+}
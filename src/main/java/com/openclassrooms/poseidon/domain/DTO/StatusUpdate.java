@@ -0,0 +1,36 @@
+package com.openclassrooms.poseidon.domain.DTO;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+/**
+ *
+ * This class is the body of a bulk status update : the same status is given to all the rows of
+ * the listed ids.
+ *
+ */
+public class StatusUpdate {
+
+  @NotEmpty(message = "Ids are mandatory")
+  private List<Integer> ids;
+
+  @NotBlank(message = "Status is mandatory")
+  private String status;
+
+  public List<Integer> getIds() {
+    return ids;
+  }
+
+  public void setIds(List<Integer> ids) {
+    this.ids = ids;
+  }
+
+  public String getStatus() {
+    return status;
+  }
+
+  public void setStatus(String status) {
+    this.status = status;
+  }
+}
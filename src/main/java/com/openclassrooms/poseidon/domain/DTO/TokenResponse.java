@@ -0,0 +1,41 @@
+package com.openclassrooms.poseidon.domain.DTO;
+
+public class TokenResponse {
+
+  public static final String BEARER = "Bearer";
+
+  private String accessToken;
+
+  private String tokenType = BEARER;
+
+  private long expiresIn;
+
+  public TokenResponse(String accessToken, long expiresIn) {
+    this.accessToken = accessToken;
+    this.expiresIn = expiresIn;
+  }
+
+  public String getAccessToken() {
+    return accessToken;
+  }
+
+  public void setAccessToken(String accessToken) {
+    this.accessToken = accessToken;
+  }
+
+  public String getTokenType() {
+    return tokenType;
+  }
+
+  public void setTokenType(String tokenType) {
+    this.tokenType = tokenType;
+  }
+
+  public long getExpiresIn() {
+    return expiresIn;
+  }
+
+  public void setExpiresIn(long expiresIn) {
+    this.expiresIn = expiresIn;
+  }
+}
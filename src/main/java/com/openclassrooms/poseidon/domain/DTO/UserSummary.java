@@ -0,0 +1,20 @@
+package com.openclassrooms.poseidon.domain.DTO;
+
+/**
+ *
+ * This interface is the projection of a user shown in the lists : one row per user, without
+ * the password. The roles are the bitmask stored in database, see Role.
+ *
+ */
+public interface UserSummary {
+
+  Integer getId();
+
+  String getUsername();
+
+  String getFullname();
+
+  boolean isEnabled();
+
+  int getRoles();
+}
@@ -1,6 +1,8 @@
 package com.openclassrooms.poseidon.domain;
 
 
+import org.hibernate.annotations.GenericGenerator;
+
 import javax.persistence.*;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
@@ -11,9 +13,15 @@ import javax.validation.constraints.NotNull;
 @Table(name = "rating")
 public class Rating {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(generator = "rating_id")
+  @GenericGenerator(name = "rating_id",
+    strategy = "com.openclassrooms.poseidon.repository.PooledIdGenerator")
   private Integer id;
 
+  @Version
+  @Column(name = "version", nullable = false, columnDefinition = "integer default 0")
+  private Integer version;
+
   @Column(name = "moodysrating")
   @NotBlank(message = "Moody's rating is mandatory.")
   private String moodysRating;
@@ -40,6 +48,14 @@ public class Rating {
     this.id = id;
   }
 
+  public Integer getVersion() {
+    return version;
+  }
+
+  public void setVersion(Integer version) {
+    this.version = version;
+  }
+
   public String getMoodysRating() {
     return moodysRating;
   }
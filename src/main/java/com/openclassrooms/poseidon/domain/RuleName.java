@@ -1,17 +1,31 @@
 package com.openclassrooms.poseidon.domain;
 
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.LazyGroup;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 
+/**
+ * The json, template, sqlStr and sqlPart columns are loaded lazily, all together on first
+ * access (with the bytecode enhancement of the build). The lists read RuleNameSummary
+ * projections instead.
+ */
 @Entity
 @Table(name = "rulename")
 public class RuleName {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(generator = "rulename_id")
+  @GenericGenerator(name = "rulename_id",
+    strategy = "com.openclassrooms.poseidon.repository.PooledIdGenerator")
   @Column(name = "id")
   private Integer id;
 
+  @Version
+  @Column(name = "version", nullable = false, columnDefinition = "integer default 0")
+  private Integer version;
+
   @Column(name = "name")
   @NotBlank(message = "Name is mandatory")
   private String name;
@@ -20,18 +34,26 @@ public class RuleName {
   @NotBlank(message = "Description is mandatory")
   private String description;
 
+  @Basic(fetch = FetchType.LAZY)
+  @LazyGroup("text")
   @Column(name = "json")
   @NotBlank(message = "Json is mandatory")
   private String json;
 
+  @Basic(fetch = FetchType.LAZY)
+  @LazyGroup("text")
   @Column(name = "template")
   @NotBlank(message = "Template is mandatory")
   private String template;
 
+  @Basic(fetch = FetchType.LAZY)
+  @LazyGroup("text")
   @Column(name = "sqlstr")
   @NotBlank(message = "SQL String is mandatory")
   private String sqlStr;
 
+  @Basic(fetch = FetchType.LAZY)
+  @LazyGroup("text")
   @Column(name = "sqlpart")
   @NotBlank(message = "SQL part is mandatory")
   private String sqlPart;
@@ -44,6 +66,14 @@ public class RuleName {
     this.id = id;
   }
 
+  public Integer getVersion() {
+    return version;
+  }
+
+  public void setVersion(Integer version) {
+    this.version = version;
+  }
+
   public String getName() {
     return name;
   }
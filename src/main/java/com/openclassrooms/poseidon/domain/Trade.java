@@ -1,5 +1,7 @@
 package com.openclassrooms.poseidon.domain;
 
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.format.annotation.NumberFormat;
 
@@ -7,16 +9,24 @@ import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
 import java.sql.Timestamp;
 
 @Entity
+@DynamicUpdate
 @Table(name = "trade")
 public class Trade {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(generator = "trade_id")
+  @GenericGenerator(name = "trade_id",
+    strategy = "com.openclassrooms.poseidon.repository.PooledIdGenerator")
   @Column(name = "tradeid")
   private Integer tradeId;
 
+  @Version
+  @Column(name = "version", nullable = false, columnDefinition = "integer default 0")
+  private Integer version;
+
   @Column(name = "account")
   @NotBlank(message = "Account is mandatory")
   private String account;
@@ -56,6 +66,7 @@ public class Trade {
   @Column(name = "security")
   private String security;
 
+  @Size(max = 10, message = "Status must be at most 10 characters")
   @Column(name = "status")
   private String status;
 
@@ -99,6 +110,14 @@ public class Trade {
     this.tradeId = tradeId;
   }
 
+  public Integer getVersion() {
+    return version;
+  }
+
+  public void setVersion(Integer version) {
+    this.version = version;
+  }
+
   public String getAccount() {
     return account;
   }
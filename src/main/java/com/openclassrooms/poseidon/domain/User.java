@@ -1,18 +1,23 @@
 package com.openclassrooms.poseidon.domain;
 
+import com.openclassrooms.poseidon.domain.utils.Role;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
-import javax.validation.constraints.NotEmpty;
-import javax.validation.constraints.Pattern;
-import java.util.ArrayList;
-import java.util.List;
+import javax.validation.constraints.Positive;
+import java.util.Set;
 
 
 @Entity
 @Table(name = "users")
+@DynamicUpdate
 public class User {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(generator = "users_id")
+  @GenericGenerator(name = "users_id",
+    strategy = "com.openclassrooms.poseidon.repository.PooledIdGenerator")
   @Column(name = "id")
   private Integer id;
 
@@ -28,14 +33,10 @@ public class User {
   @NotBlank(message = "FullName is mandatory")
   private String fullname;
 
-  @OneToMany(
-    mappedBy = "user",
-    cascade = CascadeType.ALL,
-    orphanRemoval = true,
-    fetch = FetchType.EAGER
-  )
-  @NotEmpty(message = "Role is mandatory")
-  private List<Authority> authorities = new ArrayList<>();
+  //Bitmask of the roles, see Role
+  @Column(name = "roles", nullable = false)
+  @Positive(message = "Role is mandatory")
+  private int roles;
 
   @Column(name = "enabled")
   private boolean enabled;
@@ -72,12 +73,12 @@ public class User {
     this.fullname = fullname;
   }
 
-  public List<Authority> getAuthorities() {
-    return authorities;
+  public Set<Role> getRoles() {
+    return Role.fromMask(roles);
   }
 
-  public void setAuthorities(List<Authority> authorities) {
-    this.authorities = authorities;
+  public void setRoles(Set<Role> roles) {
+    this.roles = Role.toMask(roles);
   }
 
   public boolean isEnabled() {
@@ -97,13 +98,15 @@ public class User {
   }
 
   //  -------------------------------- Helpers --------------------------------
-  public void addAuthority(Authority authority) {
-    authorities.add(authority);
-    authority.setUser(this);
+  public boolean hasRole(Role role) {
+    return (roles & role.getBit()) != 0;
+  }
+
+  public void addRole(Role role) {
+    roles |= role.getBit();
   }
 
-  public void removeAuthority(Authority authority) {
-    authorities.remove(authority);
-    authority.setUser(null);
+  public void removeRole(Role role) {
+    roles &= ~role.getBit();
   }
 }
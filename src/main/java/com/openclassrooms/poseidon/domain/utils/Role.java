@@ -1,6 +1,56 @@
 package com.openclassrooms.poseidon.domain.utils;
 
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ *
+ * This enum lists the roles of the users. The roles of a user are stored in the roles column
+ * of the users table as a bitmask : each role has its own bit, which must never change once
+ * users are stored.
+ *
+ */
 public enum Role {
-  ROLE_ADMIN,
-  ROLE_USER;
+  ROLE_ADMIN(1),
+  ROLE_USER(1 << 1);
+
+  private final int bit;
+
+  Role(int bit) {
+    this.bit = bit;
+  }
+
+  public int getBit() {
+    return bit;
+  }
+
+  /**
+   * This method is used to turn a bitmask read from database into roles.
+   *
+   * @param mask is the bitmask of the roles.
+   * @return the roles whose bit is set.
+   */
+  public static Set<Role> fromMask(int mask) {
+    Set<Role> roles = EnumSet.noneOf(Role.class);
+    for (Role role : values()) {
+      if ((mask & role.bit) != 0) {
+        roles.add(role);
+      }
+    }
+    return roles;
+  }
+
+  /**
+   * This method is used to turn roles into the bitmask stored in database.
+   *
+   * @param roles are the roles of a user.
+   * @return the bitmask of the roles.
+   */
+  public static int toMask(Set<Role> roles) {
+    int mask = 0;
+    for (Role role : roles) {
+      mask |= role.bit;
+    }
+    return mask;
+  }
 }
@@ -1,10 +1,112 @@
 package com.openclassrooms.poseidon.repository;
 
 import com.openclassrooms.poseidon.domain.BidList;
-import org.springframework.data.repository.CrudRepository;
+import com.openclassrooms.poseidon.domain.DTO.BidListSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 @Repository
-public interface BidListRepository extends CrudRepository<BidList, Integer> {
+public interface BidListRepository extends PagingAndSortingRepository<BidList, Integer> {
+
+  /**
+   * This method is used to fetch a page of bidLists with keyset pagination. It is resolved
+   * with a range scan on the primary key, so no row before the cursor is ever read.
+   *
+   * @param bidListId is the id after which rows are fetched.
+   * @param pageable is only used to limit the number of rows (always first page).
+   * @return the bidLists ordered by id.
+   */
+  List<BidList> findByBidListIdGreaterThanOrderByBidListIdAsc(Integer bidListId, Pageable pageable);
+
+  /**
+   * Attributes of the bids written by updateFormFields.
+   */
+  Set<String> FORM_FIELDS = Set.of("account", "type", "bidQuantity");
+
+  /**
+   * This method is used to update the attributes of a bid that are accessible from the html
+   * form, in one statement and without reading the bid first. The version is increased.
+   *
+   * @param bidList holds the id of the bid to update and its new attributes.
+   * @param versions are the versions the bid may still have, null to update any version.
+   * @return the number of updated rows, 0 if no bid has this id and one of these versions.
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("update BidList b set " +
+    "b.account = :#{#bidList.account}, b.type = :#{#bidList.type}, " +
+    "b.bidQuantity = :#{#bidList.bidQuantity}, " +
+    "b.version = b.version + 1 " +
+    "where b.bidListId = :#{#bidList.bidListId} and (:#{#versions == null} = true or " +
+    "b.version in :#{#versions ?: T(java.util.Set).of(0)})")
+  int updateFormFields(@Param("bidList") BidList bidList, @Param("versions") Set<Integer> versions);
+
+  /**
+   * This method is used to delete the bids of a list of ids with a single DELETE statement,
+   * without loading them.
+   *
+   * @param ids are the ids of the bids to delete.
+   * @return the number of deleted rows.
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("delete from BidList b where b.bidListId in :ids")
+  int deleteInBulkByIds(@Param("ids") Collection<Integer> ids);
+
+  /**
+   * This method is used to delete the bids that match a filter with a single DELETE statement,
+   * without loading them. A null criterion matches every bid.
+   *
+   * @param account       is the account of the bids, null for any.
+   * @param type          is the type of the bids, null for any.
+   * @param status        is the status of the bids, null for any.
+   * @param createdBefore is the date the bids must have been created before, null for any.
+   * @return the number of deleted rows.
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("delete from BidList b where (:account is null or b.account = :account) " +
+    "and (:type is null or b.type = :type) " +
+    "and (:status is null or b.status = :status) " +
+    "and (:createdBefore is null or b.creationDate < :createdBefore)")
+  int deleteInBulkByFilter(@Param("account") String account, @Param("type") String type,
+                           @Param("status") String status,
+                           @Param("createdBefore") Timestamp createdBefore);
+
+  /**
+   * This method is used to give the same status to the bids of a list of ids with a single
+   * UPDATE statement, without loading them. Their version is increased.
+   *
+   * @param ids    are the ids of the bids to update.
+   * @param status is the new status.
+   * @return the number of updated rows.
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("update BidList b set b.status = :status, b.version = b.version + 1 where b.bidListId in :ids")
+  int updateStatusInBulk(@Param("ids") Collection<Integer> ids, @Param("status") String status);
+
+  /**
+   * This method is used to fetch a page of bid summaries with keyset pagination.
+   *
+   * @param bidListId is the id after which rows are fetched.
+   * @param pageable is only used to limit the number of rows (always first page).
+   * @return the bid summaries ordered by id.
+   */
+  List<BidListSummary> findSummaryByBidListIdGreaterThanOrderByBidListIdAsc(Integer bidListId, Pageable pageable);
 
+  /**
+   * This method is used to fetch one page of bid summaries, only the summary columns are
+   * selected.
+   *
+   * @param pageable is the number, the size and the sort of the page.
+   * @return the page of bid summaries.
+   */
+  Page<BidListSummary> findSummaryBy(Pageable pageable);
 }
@@ -1,10 +1,61 @@
 package com.openclassrooms.poseidon.repository;
 
 import com.openclassrooms.poseidon.domain.CurvePoint;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 @Repository
-public interface CurvePointRepository extends CrudRepository<CurvePoint, Integer> {
+public interface CurvePointRepository extends PagingAndSortingRepository<CurvePoint, Integer> {
+
+  /**
+   * This method is used to fetch a page of curvePoints with keyset pagination. It is resolved
+   * with a range scan on the primary key, so no row before the cursor is ever read.
+   *
+   * @param id is the id after which rows are fetched.
+   * @param pageable is only used to limit the number of rows (always first page).
+   * @return the curvePoints ordered by id.
+   */
+  List<CurvePoint> findByIdGreaterThanOrderByIdAsc(Integer id, Pageable pageable);
+
+  /**
+   * Attributes of the curve points written by updateFormFields.
+   */
+  Set<String> FORM_FIELDS = Set.of("curveId", "term", "value");
+
+  /**
+   * This method is used to update the attributes of a curve point that are accessible from the html
+   * form, in one statement and without reading the curve point first. The version is increased.
+   *
+   * @param curvePoint holds the id of the curve point to update and its new attributes.
+   * @param versions are the versions the curve point may still have, null to update any version.
+   * @return the number of updated rows, 0 if no curve point has this id and one of these versions.
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("update CurvePoint c set " +
+    "c.curveId = :#{#curvePoint.curveId}, c.term = :#{#curvePoint.term}, " +
+    "c.value = :#{#curvePoint.value}, " +
+    "c.version = c.version + 1 " +
+    "where c.id = :#{#curvePoint.id} and (:#{#versions == null} = true or " +
+    "c.version in :#{#versions ?: T(java.util.Set).of(0)})")
+  int updateFormFields(@Param("curvePoint") CurvePoint curvePoint,
+                       @Param("versions") Set<Integer> versions);
 
+  /**
+   * This method is used to delete the curve points of a list of ids with a single DELETE statement,
+   * without loading them.
+   *
+   * @param ids are the ids of the curve points to delete.
+   * @return the number of deleted rows.
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("delete from CurvePoint c where c.id in :ids")
+  int deleteInBulkByIds(@Param("ids") Collection<Integer> ids);
 }
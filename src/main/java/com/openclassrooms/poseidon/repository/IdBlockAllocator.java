@@ -0,0 +1,88 @@
+package com.openclassrooms.poseidon.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ *
+ * This class reserves blocks of ids for the inserts made without Hibernate (JDBC batches).
+ * It follows the same pooled-lo protocol on the id_sequences table as PooledIdGenerator, so the
+ * ids it gives are never given by Hibernate, nor by another node.
+ *
+ */
+@Repository
+public class IdBlockAllocator {
+
+  private static final String SELECT_SQL = "select next_val from "
+    + PooledIdGenerator.SEQUENCE_TABLE + " where sequence_name = ? for update";
+  private static final String UPDATE_SQL = "update " + PooledIdGenerator.SEQUENCE_TABLE
+    + " set next_val = ? where sequence_name = ?";
+  private static final String INSERT_SQL = "insert into " + PooledIdGenerator.SEQUENCE_TABLE
+    + " (sequence_name, next_val) values (?, ?)";
+
+  /**
+   * Number of times a block is reserved before the failure is given to the caller.
+   */
+  static final int MAX_ATTEMPTS = 3;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final TransactionTemplate transactionTemplate;
+
+  @Autowired
+  public IdBlockAllocator(JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    //The row must be released at once, whatever the transaction of the caller
+    this.transactionTemplate.setPropagationBehavior(
+      TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  /**
+   * This method is used to reserve a block of consecutive ids for a table. When the table has no
+   * row in id_sequences yet, the row is created. If another node creates it at the same time,
+   * the insert fails on the primary key, or on a deadlock when both selects took a gap lock
+   * (InnoDB), and the block is reserved again, from the row now locked by the select for update.
+   * It is tried {@link #MAX_ATTEMPTS} times at most.
+   *
+   * @param entityTable is the table the ids are reserved for (its row in id_sequences).
+   * @param count       is the number of ids to reserve.
+   * @return the first id of the block, the block goes up to first + count - 1.
+   */
+  public int allocate(String entityTable, int count) {
+    if (count < 1) {
+      throw new IllegalArgumentException("At least one id must be reserved.");
+    }
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return transactionTemplate.execute(status -> reserve(entityTable, count));
+      } catch (DuplicateKeyException | ConcurrencyFailureException ex) {
+        //The row did not exist : another node inserted it first, or both inserts deadlocked
+        if (attempt == MAX_ATTEMPTS) {
+          throw ex;
+        }
+      }
+    }
+  }
+
+  private int reserve(String entityTable, int count) {
+    List<Long> nextValues = jdbcTemplate.queryForList(SELECT_SQL, Long.class, entityTable);
+    if (nextValues.isEmpty()) {
+      //Same initial value as the Hibernate generator
+      jdbcTemplate.update(INSERT_SQL, entityTable, 1L + count);
+      return 1;
+    }
+    long first = nextValues.get(0);
+    jdbcTemplate.update(UPDATE_SQL, first + count, entityTable);
+    return Math.toIntExact(first);
+  }
+}
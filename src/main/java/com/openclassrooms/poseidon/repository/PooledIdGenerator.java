@@ -0,0 +1,56 @@
+package com.openclassrooms.poseidon.repository;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ *
+ * This class is the id generator of the entities. Ids are taken by blocks from the
+ * id_sequences table, one row per entity table, with the pooled-lo protocol : the row holds the
+ * first id of the next free block and a node reserves a block by moving it forward in its own
+ * transaction. Several nodes can share the table, each one using its own blocks.
+ * The block size is read from the Hibernate setting poseidon.id.block-size.[table], then
+ * poseidon.id.block-size, and is 50 by default.
+ *
+ */
+public class PooledIdGenerator extends TableGenerator {
+
+  public static final String SEQUENCE_TABLE = "id_sequences";
+  public static final String BLOCK_SIZE_SETTING = "poseidon.id.block-size";
+  public static final int DEFAULT_BLOCK_SIZE = 50;
+
+  @Override
+  public void configure(Type type, Properties params, ServiceRegistry serviceRegistry)
+    throws MappingException {
+    Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+    String entityTable = params.getProperty(PersistentIdentifierGenerator.TABLE);
+    params.putIfAbsent(TABLE_PARAM, SEQUENCE_TABLE);
+    params.putIfAbsent(CONFIG_PREFER_SEGMENT_PER_ENTITY, "true");
+    params.putIfAbsent(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+    params.putIfAbsent(INCREMENT_PARAM, String.valueOf(blockSize(settings, entityTable)));
+    super.configure(type, params, serviceRegistry);
+  }
+
+  /**
+   * This method is used to read the block size of an entity table from the settings.
+   *
+   * @param settings    are the Hibernate settings (spring.jpa.properties.*).
+   * @param entityTable is the table of the entity.
+   * @return the number of ids reserved at once.
+   */
+  static int blockSize(Map<?, ?> settings, String entityTable) {
+    Object blockSize = settings.get(BLOCK_SIZE_SETTING + "." + entityTable);
+    if (blockSize == null) {
+      blockSize = settings.get(BLOCK_SIZE_SETTING);
+    }
+    return blockSize == null ? DEFAULT_BLOCK_SIZE : Integer.parseInt(blockSize.toString().trim());
+  }
+}
@@ -1,10 +1,62 @@
 package com.openclassrooms.poseidon.repository;
 
 import com.openclassrooms.poseidon.domain.Rating;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 @Repository
-public interface RatingRepository extends CrudRepository<Rating, Integer> {
+public interface RatingRepository extends PagingAndSortingRepository<Rating, Integer> {
+
+  /**
+   * This method is used to fetch a page of ratings with keyset pagination. It is resolved
+   * with a range scan on the primary key, so no row before the cursor is ever read.
+   *
+   * @param id is the id after which rows are fetched.
+   * @param pageable is only used to limit the number of rows (always first page).
+   * @return the ratings ordered by id.
+   */
+  List<Rating> findByIdGreaterThanOrderByIdAsc(Integer id, Pageable pageable);
+
+  /**
+   * Attributes of the ratings written by updateFormFields.
+   */
+  Set<String> FORM_FIELDS = Set.of("moodysRating", "sandPRating", "fitchRating", "orderNumber");
+
+  /**
+   * This method is used to update the attributes of a rating that are accessible from the html
+   * form, in one statement and without reading the rating first. The version is increased.
+   *
+   * @param rating holds the id of the rating to update and its new attributes.
+   * @param versions are the versions the rating may still have, null to update any version.
+   * @return the number of updated rows, 0 if no rating has this id and one of these versions.
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("update Rating r set " +
+    "r.moodysRating = :#{#rating.moodysRating}, " +
+    "r.sandPRating = :#{#rating.sandPRating}, " +
+    "r.fitchRating = :#{#rating.fitchRating}, " +
+    "r.orderNumber = :#{#rating.orderNumber}, " +
+    "r.version = r.version + 1 " +
+    "where r.id = :#{#rating.id} and (:#{#versions == null} = true or " +
+    "r.version in :#{#versions ?: T(java.util.Set).of(0)})")
+  int updateFormFields(@Param("rating") Rating rating, @Param("versions") Set<Integer> versions);
 
+  /**
+   * This method is used to delete the ratings of a list of ids with a single DELETE statement,
+   * without loading them.
+   *
+   * @param ids are the ids of the ratings to delete.
+   * @return the number of deleted rows.
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("delete from Rating r where r.id in :ids")
+  int deleteInBulkByIds(@Param("ids") Collection<Integer> ids);
 }
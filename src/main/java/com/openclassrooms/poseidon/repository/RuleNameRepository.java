@@ -1,9 +1,138 @@
 package com.openclassrooms.poseidon.repository;
 
+import com.openclassrooms.poseidon.domain.DTO.RuleNameSummary;
 import com.openclassrooms.poseidon.domain.RuleName;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 @Repository
-public interface RuleNameRepository extends CrudRepository<RuleName, Integer> {
+public interface RuleNameRepository extends PagingAndSortingRepository<RuleName, Integer> {
+
+  /**
+   * The select of the summaries : the text columns are cut after PREVIEW_LENGTH characters by
+   * the database, so the full text is never sent. They are measured with char_length, as the
+   * length of MySQL counts the bytes and would add '...' to a shorter text with accents.
+   */
+  String SUMMARY_SELECT = "select r.id as id, r.name as name, r.description as description, "
+    + "case when function('char_length', r.json) > " + RuleNameSummary.PREVIEW_LENGTH
+    + " then concat(substring(r.json, 1, " + RuleNameSummary.PREVIEW_LENGTH + "), '...')"
+    + " else r.json end as jsonPreview, "
+    + "case when function('char_length', r.template) > " + RuleNameSummary.PREVIEW_LENGTH
+    + " then concat(substring(r.template, 1, " + RuleNameSummary.PREVIEW_LENGTH + "), '...')"
+    + " else r.template end as templatePreview, "
+    + "case when function('char_length', r.sqlStr) > " + RuleNameSummary.PREVIEW_LENGTH
+    + " then concat(substring(r.sqlStr, 1, " + RuleNameSummary.PREVIEW_LENGTH + "), '...')"
+    + " else r.sqlStr end as sqlStrPreview, "
+    + "case when function('char_length', r.sqlPart) > " + RuleNameSummary.PREVIEW_LENGTH
+    + " then concat(substring(r.sqlPart, 1, " + RuleNameSummary.PREVIEW_LENGTH + "), '...')"
+    + " else r.sqlPart end as sqlPartPreview "
+    + "from RuleName r";
+
+  /**
+   * This method is used to find a rule name with its lazy text columns, which are read in the
+   * same statement.
+   *
+   * @param id is the id of the rule name.
+   * @return an optional rule name with all its attributes loaded.
+   */
+  @Override
+  @Query("select r from RuleName r fetch all properties where r.id = :id")
+  Optional<RuleName> findById(@Param("id") Integer id);
+
+  /**
+   * This method is used to fetch one page of complete rule names, the lazy text columns are
+   * read in the same statement.
+   *
+   * @param pageable is the number, the size and the sort of the page.
+   * @return the page of rule names.
+   */
+  @Override
+  @Query(value = "select r from RuleName r fetch all properties",
+    countQuery = "select count(r) from RuleName r")
+  Page<RuleName> findAll(Pageable pageable);
+
+  /**
+   * This method is used to fetch a page of ruleNames with keyset pagination. It is resolved
+   * with a range scan on the primary key, so no row before the cursor is ever read.
+   *
+   * @param id is the id after which rows are fetched.
+   * @param pageable is only used to limit the number of rows (always first page).
+   * @return the ruleNames ordered by id, with their lazy text columns loaded.
+   */
+  @Query("select r from RuleName r fetch all properties where r.id > :id order by r.id")
+  List<RuleName> findByIdGreaterThanOrderByIdAsc(@Param("id") Integer id, Pageable pageable);
+
+  /**
+   * This method is used to fetch the complete rule names of a list of ids, the lazy text columns
+   * are read in the same statement.
+   *
+   * @param ids are the ids of the rule names.
+   * @return the rule names found, in any order.
+   */
+  @Query("select r from RuleName r fetch all properties where r.id in :ids")
+  List<RuleName> findWithTextByIdIn(@Param("ids") Collection<Integer> ids);
+
+  /**
+   * This method is used to fetch a page of rule name summaries with keyset pagination.
+   *
+   * @param id is the id after which rows are fetched.
+   * @param pageable is only used to limit the number of rows (always first page).
+   * @return the rule name summaries ordered by id.
+   */
+  @Query(SUMMARY_SELECT + " where r.id > :id order by r.id")
+  List<RuleNameSummary> findSummaryByIdGreaterThan(@Param("id") Integer id, Pageable pageable);
+
+  /**
+   * This method is used to fetch one page of rule name summaries.
+   *
+   * @param pageable is the number, the size and the sort of the page.
+   * @return the page of rule name summaries.
+   */
+  @Query(value = SUMMARY_SELECT, countQuery = "select count(r) from RuleName r")
+  Page<RuleNameSummary> findSummaryBy(Pageable pageable);
+
+  /**
+   * Attributes of the rule names written by updateFormFields.
+   */
+  Set<String> FORM_FIELDS = Set.of("name", "description", "json", "template", "sqlStr", "sqlPart");
+
+  /**
+   * This method is used to update the attributes of a rule name that are accessible from the html
+   * form, in one statement and without reading the rule name first. The version is increased.
+   *
+   * @param ruleName holds the id of the rule name to update and its new attributes.
+   * @param versions are the versions the rule name may still have, null to update any version.
+   * @return the number of updated rows, 0 if no rule name has this id and one of these versions.
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("update RuleName r set " +
+    "r.name = :#{#ruleName.name}, r.description = :#{#ruleName.description}, " +
+    "r.json = :#{#ruleName.json}, r.template = :#{#ruleName.template}, " +
+    "r.sqlStr = :#{#ruleName.sqlStr}, r.sqlPart = :#{#ruleName.sqlPart}, " +
+    "r.version = r.version + 1 " +
+    "where r.id = :#{#ruleName.id} and (:#{#versions == null} = true or " +
+    "r.version in :#{#versions ?: T(java.util.Set).of(0)})")
+  int updateFormFields(@Param("ruleName") RuleName ruleName,
+                       @Param("versions") Set<Integer> versions);
+
+  /**
+   * This method is used to delete the rule names of a list of ids with a single DELETE statement,
+   * without loading them.
+   *
+   * @param ids are the ids of the rule names to delete.
+   * @return the number of deleted rows.
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("delete from RuleName r where r.id in :ids")
+  int deleteInBulkByIds(@Param("ids") Collection<Integer> ids);
 }
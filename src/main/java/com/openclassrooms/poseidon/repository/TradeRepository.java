@@ -1,9 +1,112 @@
 package com.openclassrooms.poseidon.repository;
 
+import com.openclassrooms.poseidon.domain.DTO.TradeSummary;
 import com.openclassrooms.poseidon.domain.Trade;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 @Repository
-public interface TradeRepository extends CrudRepository<Trade, Integer> {
+public interface TradeRepository extends JpaRepository<Trade, Integer>, TradeRepositoryCustom {
+
+  /**
+   * This method is used to fetch a page of trades with keyset pagination. It is resolved
+   * with a range scan on the primary key, so no row before the cursor is ever read.
+   *
+   * @param tradeId is the id after which rows are fetched.
+   * @param pageable is only used to limit the number of rows (always first page).
+   * @return the trades ordered by id.
+   */
+  List<Trade> findByTradeIdGreaterThanOrderByTradeIdAsc(Integer tradeId, Pageable pageable);
+
+  /**
+   * Attributes of the trades written by updateFormFields.
+   */
+  Set<String> FORM_FIELDS = Set.of("account", "type", "buyQuantity");
+
+  /**
+   * This method is used to update the attributes of a trade that are accessible from the html
+   * form, in one statement and without reading the trade first. The version is increased.
+   *
+   * @param trade holds the id of the trade to update and its new attributes.
+   * @param versions are the versions the trade may still have, null to update any version.
+   * @return the number of updated rows, 0 if no trade has this id and one of these versions.
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("update Trade t set " +
+    "t.account = :#{#trade.account}, t.type = :#{#trade.type}, " +
+    "t.buyQuantity = :#{#trade.buyQuantity}, " +
+    "t.version = t.version + 1 " +
+    "where t.tradeId = :#{#trade.tradeId} and (:#{#versions == null} = true or " +
+    "t.version in :#{#versions ?: T(java.util.Set).of(0)})")
+  int updateFormFields(@Param("trade") Trade trade, @Param("versions") Set<Integer> versions);
+
+  /**
+   * This method is used to delete the trades of a list of ids with a single DELETE statement,
+   * without loading them.
+   *
+   * @param ids are the ids of the trades to delete.
+   * @return the number of deleted rows.
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("delete from Trade t where t.tradeId in :ids")
+  int deleteInBulkByIds(@Param("ids") Collection<Integer> ids);
+
+  /**
+   * This method is used to delete the trades that match a filter with a single DELETE statement,
+   * without loading them. A null criterion matches every trade.
+   *
+   * @param account       is the account of the trades, null for any.
+   * @param type          is the type of the trades, null for any.
+   * @param status        is the status of the trades, null for any.
+   * @param createdBefore is the date the trades must have been created before, null for any.
+   * @return the number of deleted rows.
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("delete from Trade t where (:account is null or t.account = :account) " +
+    "and (:type is null or t.type = :type) " +
+    "and (:status is null or t.status = :status) " +
+    "and (:createdBefore is null or t.creationDate < :createdBefore)")
+  int deleteInBulkByFilter(@Param("account") String account, @Param("type") String type,
+                           @Param("status") String status,
+                           @Param("createdBefore") Timestamp createdBefore);
+
+  /**
+   * This method is used to give the same status to the trades of a list of ids with a single
+   * UPDATE statement, without loading them. Their version is increased.
+   *
+   * @param ids    are the ids of the trades to update.
+   * @param status is the new status.
+   * @return the number of updated rows.
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("update Trade t set t.status = :status, t.version = t.version + 1 where t.tradeId in :ids")
+  int updateStatusInBulk(@Param("ids") Collection<Integer> ids, @Param("status") String status);
+
+  /**
+   * This method is used to fetch a page of trade summaries with keyset pagination.
+   *
+   * @param tradeId is the id after which rows are fetched.
+   * @param pageable is only used to limit the number of rows (always first page).
+   * @return the trade summaries ordered by id.
+   */
+  List<TradeSummary> findSummaryByTradeIdGreaterThanOrderByTradeIdAsc(Integer tradeId, Pageable pageable);
+
+  /**
+   * This method is used to fetch one page of trade summaries, only the summary columns are
+   * selected.
+   *
+   * @param pageable is the number, the size and the sort of the page.
+   * @return the page of trade summaries.
+   */
+  Page<TradeSummary> findSummaryBy(Pageable pageable);
 }
@@ -0,0 +1,23 @@
+package com.openclassrooms.poseidon.repository;
+
+import com.openclassrooms.poseidon.domain.Trade;
+
+import java.util.stream.Stream;
+
+/**
+ *
+ * This interface gathers the trade queries that cannot be derived by Spring Data.
+ *
+ */
+public interface TradeRepositoryCustom {
+
+  /**
+   * This method is used to read every trade from a forward-only cursor. Each trade is detached
+   * as soon as it is handed to the stream, so the persistence context does not grow with the
+   * table. The stream must be closed to release the cursor.
+   *
+   * @param fetchSize is the number of rows the driver fetches per round trip.
+   * @return a stream of all trades ordered by id.
+   */
+  Stream<Trade> streamAll(int fetchSize);
+}
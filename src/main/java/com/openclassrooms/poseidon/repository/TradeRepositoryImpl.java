@@ -0,0 +1,29 @@
+package com.openclassrooms.poseidon.repository;
+
+import com.openclassrooms.poseidon.domain.Trade;
+import org.hibernate.jpa.QueryHints;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.stream.Stream;
+
+/**
+ *
+ * This class implements the custom trade queries of TradeRepository.
+ *
+ */
+public class TradeRepositoryImpl implements TradeRepositoryCustom {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  public Stream<Trade> streamAll(int fetchSize) {
+    return entityManager
+      .createQuery("select t from Trade t order by t.tradeId", Trade.class)
+      .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+      .setHint(QueryHints.HINT_READONLY, true)
+      .getResultStream()
+      .peek(entityManager::detach);
+  }
+}
@@ -1,13 +1,76 @@
 package com.openclassrooms.poseidon.repository;
 
+import com.openclassrooms.poseidon.domain.DTO.UserSummary;
 import com.openclassrooms.poseidon.domain.User;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends CrudRepository<User, Integer> {
+public interface UserRepository extends PagingAndSortingRepository<User, Integer> {
+
+  /**
+   * Select of the user summaries : the columns shown in the lists, never the password.
+   */
+  String SUMMARY_SELECT = "select u.id as id, u.username as username, u.fullname as fullname, "
+    + "u.enabled as enabled, u.roles as roles "
+    + "from User u";
 
   boolean existsByUsername(String username);
+
+  /**
+   * This method is used to fetch all the users shown in the lists with a single statement.
+   *
+   * @return one summary per user ordered by id.
+   */
+  @Query(SUMMARY_SELECT + " order by u.id")
+  List<UserSummary> findAllSummaries();
+
+  /**
+   * This method is used to fetch the users of a list of ids, as they are shown in the lists.
+   *
+   * @param ids are the ids of the users.
+   * @return one summary per user found, in any order.
+   */
+  @Query(SUMMARY_SELECT + " where u.id in :ids")
+  List<UserSummary> findSummariesByIdIn(@Param("ids") Collection<Integer> ids);
+
+  /**
+   * This method is used to fetch a page of user summaries with keyset pagination. It is resolved
+   * with a range scan on the primary key, so no row before the cursor is ever read.
+   *
+   * @param id is the id after which rows are fetched.
+   * @param pageable is only used to limit the number of rows (always first page).
+   * @return the user summaries ordered by id.
+   */
+  @Query(SUMMARY_SELECT + " where u.id > :id order by u.id")
+  List<UserSummary> findSummaryByIdGreaterThan(@Param("id") Integer id, Pageable pageable);
+
+  /**
+   * This method is used to fetch one page of user summaries.
+   *
+   * @param pageable is the number, the size and the sort of the page.
+   * @return the page of user summaries.
+   */
+  @Query(value = SUMMARY_SELECT, countQuery = "select count(u) from User u")
+  Page<UserSummary> findSummaryBy(Pageable pageable);
+
+  /**
+   * This method is used to replace the password hash of a user, without loading it.
+   *
+   * @param username is the username of the user.
+   * @param password is the new hash.
+   * @return the number of users updated.
+   */
+  @Modifying
+  @Query("update User u set u.password = :password where u.username = :username")
+  int updatePassword(@Param("username") String username, @Param("password") String password);
 }
@@ -0,0 +1,424 @@
+package com.openclassrooms.poseidon.service;
+
+import com.openclassrooms.poseidon.configuration.CacheConfig;
+import com.openclassrooms.poseidon.domain.BidList;
+import com.openclassrooms.poseidon.domain.DTO.ImportReport;
+import com.openclassrooms.poseidon.repository.IdBlockAllocator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ *
+ * This class imports bids from a CSV file. The file is read record by record, each record is
+ * checked against the BidList constraints and the valid ones are inserted by JDBC batches, one
+ * transaction per batch. It is not transactional as a whole : a failing batch is rolled back
+ * alone, it is recorded in the report and the import goes on with the next rows. The batches
+ * committed before and after it are kept.
+ *
+ */
+@Service
+public class BidListImportService {
+
+  private final static Logger LOGGER = LogManager.getLogger(BidListImportService.class);
+
+  private static final String INSERT_SQL = "insert into bidlist (bidlistid, account, type, " +
+    "bidquantity, askquantity, bid, ask, benchmark, bidlistdate, commentary, security, status, " +
+    "trader, book, creationdate, dealname, dealtype, sourcelistid, side) " +
+    "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+  /**
+   * Columns accepted in the header of the file, in lower case, with the setter they fill.
+   */
+  private static final Map<String, BiConsumer<BidList, String>> COLUMNS = new LinkedHashMap<>();
+
+  static {
+    COLUMNS.put("account", BidList::setAccount);
+    COLUMNS.put("type", BidList::setType);
+    COLUMNS.put("bidquantity", (bid, value) -> bid.setBidQuantity(Double.valueOf(value)));
+    COLUMNS.put("askquantity", (bid, value) -> bid.setAskQuantity(Double.valueOf(value)));
+    COLUMNS.put("bid", (bid, value) -> bid.setBid(Double.valueOf(value)));
+    COLUMNS.put("ask", (bid, value) -> bid.setAsk(Double.valueOf(value)));
+    COLUMNS.put("benchmark", BidList::setBenchmark);
+    COLUMNS.put("bidlistdate", (bid, value) -> bid.setBidListDate(Timestamp.valueOf(value)));
+    COLUMNS.put("commentary", BidList::setCommentary);
+    COLUMNS.put("security", BidList::setSecurity);
+    COLUMNS.put("status", BidList::setStatus);
+    COLUMNS.put("trader", BidList::setTrader);
+    COLUMNS.put("book", BidList::setBook);
+    COLUMNS.put("dealname", BidList::setDealName);
+    COLUMNS.put("dealtype", BidList::setDealType);
+    COLUMNS.put("sourcelistid", BidList::setSourceListId);
+    COLUMNS.put("side", BidList::setSide);
+  }
+
+  /**
+   * Longest record read, in characters. A longer one is rejected without being kept in memory.
+   */
+  static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private IdBlockAllocator idBlockAllocator;
+
+  @Autowired
+  private Validator validator;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Value("${import.batch-size}")
+  private int batchSize;
+
+  /**
+   * This method is used to import bids from a CSV file. The first line is the header, it names
+   * the columns with the BidList attribute names (case is ignored). Values can be quoted with
+   * double quotes, a double quote inside a quoted value is written twice and a quoted value can
+   * span several lines. A quote opens a value only at the start of it, elsewhere it is read as
+   * is. A record longer than {@link #MAX_RECORD_LENGTH} characters is rejected and the reading
+   * goes on at the next line. A batch that cannot be inserted does not stop the import : its
+   * rows are counted as failed in the report, the other batches are committed.
+   *
+   * @param csv is the content of the file.
+   * @return the report of the import with the reasons of each rejected line and failed batch.
+   * @throws IOException if the file cannot be read.
+   */
+  @CacheEvict(cacheNames = CacheConfig.BID_LIST_PAGES, allEntries = true)
+  public ImportReport importCsv(InputStream csv) throws IOException {
+    long start = System.currentTimeMillis();
+    ImportReport report = new ImportReport();
+    try (BufferedReader reader = new BufferedReader(
+      new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+      RecordReader records = new RecordReader(reader, 0);
+      String headerLine = records.next();
+      if (headerLine == null) {
+        throw new IllegalArgumentException("The file is empty.");
+      }
+      if (records.getError() != null) {
+        throw new IllegalArgumentException("Cannot read header : " + records.getError());
+      }
+      List<BiConsumer<BidList, String>> setters = readHeader(headerLine);
+      TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+      Timestamp creationDate = Timestamp.valueOf(LocalDateTime.now());
+      List<BidList> batch = new ArrayList<>(batchSize);
+      long batchFirstLine = 0;
+      String record;
+      while ((record = records.next()) != null) {
+        long recordLine = records.getRecordLine();
+        if (records.getError() != null) {
+          report.reject(recordLine, List.of(records.getError()));
+          continue;
+        }
+        if (record.isBlank()) {
+          continue;
+        }
+        List<String> errors = new ArrayList<>();
+        BidList bid = readBid(record, setters, errors);
+        if (errors.isEmpty()) {
+          for (ConstraintViolation<BidList> violation : validator.validate(bid)) {
+            errors.add(violation.getPropertyPath() + " : " + violation.getMessage());
+          }
+        }
+        if (!errors.isEmpty()) {
+          report.reject(recordLine, errors);
+          continue;
+        }
+        bid.setCreationDate(creationDate);
+        if (batch.isEmpty()) {
+          batchFirstLine = recordLine;
+        }
+        batch.add(bid);
+        if (batch.size() == batchSize) {
+          insertBatch(transactionTemplate, batch, batchFirstLine, records.getLineNumber(), report);
+          batch = new ArrayList<>(batchSize);
+        }
+      }
+      if (!batch.isEmpty()) {
+        insertBatch(transactionTemplate, batch, batchFirstLine, records.getLineNumber(), report);
+      }
+    }
+    report.setElapsedMillis(System.currentTimeMillis() - start);
+    LOGGER.info("Bids imported : " + report);
+    return report;
+  }
+
+  /**
+   * This method is used to match the columns of the header with the BidList setters.
+   *
+   * @param headerLine is the first line of the file.
+   * @return the setters, in the order of the columns.
+   */
+  private List<BiConsumer<BidList, String>> readHeader(String headerLine) {
+    //An Excel export may start with a byte order mark
+    if (headerLine.startsWith("\uFEFF")) {
+      headerLine = headerLine.substring(1);
+    }
+    List<BiConsumer<BidList, String>> setters = new ArrayList<>();
+    for (String column : parseLine(headerLine)) {
+      BiConsumer<BidList, String> setter = COLUMNS.get(column.trim().toLowerCase());
+      if (setter == null) {
+        throw new IllegalArgumentException("Unknown column in header : " + column);
+      }
+      setters.add(setter);
+    }
+    return setters;
+  }
+
+  /**
+   * This method is used to build a bid from one line of the file. Empty values are left null.
+   *
+   * @param line    is the line read.
+   * @param setters are the setters of the columns.
+   * @param errors  is the list where the parsing errors are added.
+   * @return the bid read.
+   */
+  private BidList readBid(String line, List<BiConsumer<BidList, String>> setters,
+                          List<String> errors) {
+    List<String> values = parseLine(line);
+    if (values.size() != setters.size()) {
+      errors.add("Expected " + setters.size() + " values but found " + values.size());
+      return null;
+    }
+    BidList bid = new BidList();
+    for (int i = 0; i < values.size(); i++) {
+      String value = values.get(i).trim();
+      if (value.isEmpty()) {
+        continue;
+      }
+      try {
+        setters.get(i).accept(bid, value);
+      } catch (IllegalArgumentException ex) {
+        errors.add("Column " + (i + 1) + " : cannot read value '" + value + "'");
+      }
+    }
+    return bid;
+  }
+
+  /**
+   * This method is used to split a CSV record into its values.
+   *
+   * @param line is the record to split, line breaks of quoted values included.
+   * @return the values of the record, unquoted.
+   */
+  static List<String> parseLine(String line) {
+    List<String> values = new ArrayList<>();
+    StringBuilder value = new StringBuilder();
+    boolean quoted = false;
+    boolean fieldStart = true;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          value.append('"');
+          i++;
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          value.append(c);
+        }
+      } else if (c == '"' && fieldStart) {
+        quoted = true;
+      } else if (c == ',') {
+        values.add(value.toString());
+        value.setLength(0);
+        fieldStart = true;
+        continue;
+      } else {
+        value.append(c);
+      }
+      fieldStart = false;
+    }
+    values.add(value.toString());
+    return values;
+  }
+
+  /**
+   * This method is used to insert a batch of bids in its own transaction. Their ids are
+   * reserved at once, from the same sequence as the bids saved through Hibernate. If the batch
+   * fails, it is rolled back and recorded in the report with the lines it covers.
+   *
+   * @param transactionTemplate is the template that opens the transaction.
+   * @param batch               are the bids to insert.
+   * @param firstLine           is the line of the file where the batch starts.
+   * @param lastLine            is the line of the file where the batch ends.
+   * @param report              is the report of the import.
+   */
+  private void insertBatch(TransactionTemplate transactionTemplate, List<BidList> batch,
+                           long firstLine, long lastLine, ImportReport report) {
+    LOGGER.debug("Inserting a batch of " + batch.size() + " bids...");
+    try {
+      int firstId = idBlockAllocator.allocate("bidlist", batch.size());
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).setBidListId(firstId + i);
+      }
+      transactionTemplate.executeWithoutResult(
+        status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), this::setValues)
+      );
+      report.addImportedRows(batch.size());
+    } catch (DataAccessException | TransactionException ex) {
+      LOGGER.error("Batch of lines " + firstLine + " to " + lastLine + " failed.", ex);
+      report.fail(firstLine, lastLine, batch.size(), ex.getMostSpecificCause().getMessage());
+    }
+  }
+
+  private void setValues(PreparedStatement ps, BidList bid) throws SQLException {
+    ps.setInt(1, bid.getBidListId());
+    ps.setString(2, bid.getAccount());
+    ps.setString(3, bid.getType());
+    ps.setObject(4, bid.getBidQuantity(), Types.DOUBLE);
+    ps.setObject(5, bid.getAskQuantity(), Types.DOUBLE);
+    ps.setObject(6, bid.getBid(), Types.DOUBLE);
+    ps.setObject(7, bid.getAsk(), Types.DOUBLE);
+    ps.setString(8, bid.getBenchmark());
+    ps.setTimestamp(9, bid.getBidListDate());
+    ps.setString(10, bid.getCommentary());
+    ps.setString(11, bid.getSecurity());
+    ps.setString(12, bid.getStatus());
+    ps.setString(13, bid.getTrader());
+    ps.setString(14, bid.getBook());
+    ps.setTimestamp(15, bid.getCreationDate());
+    ps.setString(16, bid.getDealName());
+    ps.setString(17, bid.getDealType());
+    ps.setString(18, bid.getSourceListId());
+    ps.setString(19, bid.getSide());
+  }
+
+  /**
+   *
+   * This class reads the file record by record. A record ends at the first line break outside a
+   * quoted value. The characters past {@link #MAX_RECORD_LENGTH} are dropped and the record ends
+   * at the next line break, quoted or not, so that a quote never closed cannot swallow the rest
+   * of the file.
+   *
+   */
+  static class RecordReader {
+
+    private final BufferedReader reader;
+
+    private long lineNumber;
+
+    private long recordLine;
+
+    private String error;
+
+    /**
+     * @param reader     is the reader of the file.
+     * @param lineNumber is the number of lines already read.
+     */
+    RecordReader(BufferedReader reader, long lineNumber) {
+      this.reader = reader;
+      this.lineNumber = lineNumber;
+    }
+
+    /**
+     * This method is used to read the next record.
+     *
+     * @return the record, line breaks of quoted values included, or null at the end of file.
+     * @throws IOException if the file cannot be read.
+     */
+    String next() throws IOException {
+      int c = reader.read();
+      if (c == -1) {
+        return null;
+      }
+      error = null;
+      recordLine = ++lineNumber;
+      StringBuilder record = new StringBuilder();
+      boolean quoted = false;
+      boolean fieldStart = true;
+      boolean closed = false;
+      boolean tooLong = false;
+      for (; c != -1; c = reader.read()) {
+        if (c == '\r' || c == '\n') {
+          if (c == '\r') {
+            skipLineFeed();
+          }
+          if (!quoted || tooLong) {
+            break;
+          }
+          lineNumber++;
+          c = '\n';
+        } else if (quoted) {
+          if (c == '"') {
+            quoted = false;
+            closed = true;
+          }
+        } else if (c == '"' && (fieldStart || closed)) {
+          //At the start of a value, or escaped by the quote that just closed it
+          quoted = true;
+        }
+        if (c != '"') {
+          closed = false;
+        }
+        fieldStart = !quoted && c == ',';
+        if (record.length() < MAX_RECORD_LENGTH) {
+          record.append((char) c);
+        } else {
+          tooLong = true;
+        }
+      }
+      if (tooLong) {
+        error = "Record is longer than " + MAX_RECORD_LENGTH + " characters";
+      } else if (quoted) {
+        error = "Quoted value is not closed before the end of file";
+      }
+      return record.toString();
+    }
+
+    private void skipLineFeed() throws IOException {
+      reader.mark(1);
+      if (reader.read() != '\n') {
+        reader.reset();
+      }
+    }
+
+    /**
+     * @return the number of lines read so far, the last line of the record read included.
+     */
+    long getLineNumber() {
+      return lineNumber;
+    }
+
+    /**
+     * @return the line where the record read starts.
+     */
+    long getRecordLine() {
+      return recordLine;
+    }
+
+    /**
+     * @return why the record read is rejected, null if it can be parsed.
+     */
+    String getError() {
+      return error;
+    }
+  }
+}
@@ -1,18 +1,33 @@
 package com.openclassrooms.poseidon.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.openclassrooms.poseidon.configuration.CacheConfig;
 import com.openclassrooms.poseidon.domain.BidList;
+import com.openclassrooms.poseidon.domain.DTO.BidListSummary;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
 import com.openclassrooms.poseidon.repository.BidListRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import javax.transaction.Transactional;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  *
@@ -24,17 +39,87 @@ import java.util.Optional;
 public class BidListService {
 
   private final static Logger LOGGER = LogManager.getLogger(BidListService.class);
+
+  private static final Set<String> SORTABLE_PROPERTIES = Set.of(
+    "bidListId", "account", "type", "bidQuantity"
+  );
+
   @Autowired
   private BidListRepository bidListRepository;
 
+  @Autowired
+  private MergePatcher mergePatcher;
+
+  @Autowired
+  private Validator validator;
+
   /**
-   * This method is used to display all bids in iterables.
+   * This method is used to display bids page by page, with keyset pagination.
    *
-   * @return is an iterable containing all BidList Object.
+   * @param afterId is the id after which bids are fetched.
+   * @param limit   is the maximum number of bids in the page.
+   * @return a page of bids with the cursor of the next page.
    */
-  public Iterable<BidList> getAll() {
-    LOGGER.info("Contacting DB to get all bids...");
-    return bidListRepository.findAll();
+  @Cacheable(cacheNames = CacheConfig.BID_LIST_PAGES,
+    key = "{#root.methodName, #afterId, #limit}", sync = true)
+  @Transactional(readOnly = true)
+  public CursorPage<BidList> getPage(Integer afterId, int limit) {
+    LOGGER.info("Contacting DB to get " + limit + " bids after id " + afterId + "...");
+    List<BidList> rows = bidListRepository.findByBidListIdGreaterThanOrderByBidListIdAsc(
+      afterId, PageRequest.of(0, limit + 1)
+    );
+    return CursorPage.of(rows, limit, BidList::getBidListId);
+  }
+
+  /**
+   * This method is used to display one page of bids, sorted by one of the listed columns.
+   * Only the rows of the page are read, plus a count of all bids.
+   *
+   * @param pageable is the number, the size and the sort of the page.
+   * @return the page of bids.
+   */
+  @Cacheable(cacheNames = CacheConfig.BID_LIST_PAGES,
+    key = "{#root.methodName, #pageable}", sync = true)
+  @Transactional(readOnly = true)
+  public Page<BidList> getSortedPage(Pageable pageable) {
+    LOGGER.info("Contacting DB to get page " + pageable.getPageNumber() + " of bids...");
+    checkSort(pageable);
+    return bidListRepository.findAll(pageable);
+  }
+
+  /**
+   * This method is used to display bids page by page, with keyset pagination. Only the
+   * summary columns are read.
+   *
+   * @param afterId is the id after which bids are fetched.
+   * @param limit   is the maximum number of bids in the page.
+   * @return a page of bid summaries with the cursor of the next page.
+   */
+  @Cacheable(cacheNames = CacheConfig.BID_LIST_PAGES,
+    key = "{#root.methodName, #afterId, #limit}", sync = true)
+  @Transactional(readOnly = true)
+  public CursorPage<BidListSummary> getSummaryPage(Integer afterId, int limit) {
+    LOGGER.info("Contacting DB to get " + limit + " bid summaries after id " + afterId + "...");
+    List<BidListSummary> rows = bidListRepository.findSummaryByBidListIdGreaterThanOrderByBidListIdAsc(
+      afterId, PageRequest.of(0, limit + 1)
+    );
+    return CursorPage.of(rows, limit, BidListSummary::getBidListId);
+  }
+
+  /**
+   * This method is used to display one page of bid summaries, sorted by one of the listed
+   * columns. Only the summary columns are read and nothing is kept in the persistence context.
+   *
+   * @param pageable is the number, the size and the sort of the page.
+   * @return the page of bid summaries.
+   */
+  @Cacheable(cacheNames = CacheConfig.BID_LIST_PAGES,
+    key = "{#root.methodName, #pageable}", sync = true)
+  @Transactional(readOnly = true)
+  public Page<BidListSummary> getSortedSummaryPage(Pageable pageable) {
+    LOGGER.info("Contacting DB to get page " + pageable.getPageNumber() + " of bid summaries...");
+    checkSort(pageable);
+    return bidListRepository.findSummaryBy(pageable);
   }
 
   /**
@@ -43,22 +128,93 @@ public class BidListService {
    * @param bidList is the deleted bidList.
    * @Return
    */
+  @CacheEvict(cacheNames = CacheConfig.BID_LIST_PAGES, allEntries = true)
   public void delete(BidList bidList) {
     LOGGER.info("Contacting DB to delete bid : " + bidList.toString());
     bidListRepository.delete(bidList);
   }
 
+  /**
+   * This method is used to delete the bids of a list of ids with a single statement, the
+   * bids are not loaded first.
+   *
+   * @param ids are the ids of the bids to delete.
+   * @return the number of deleted bids.
+   */
+  @CacheEvict(cacheNames = CacheConfig.BID_LIST_PAGES, allEntries = true)
+  public int deleteAllByIds(List<Integer> ids) {
+    LOGGER.info("Contacting DB to delete " + ids.size() + " bids...");
+    return bidListRepository.deleteInBulkByIds(ids);
+  }
+
+  /**
+   * This method is used to delete the bids that match a filter with a single statement, the
+   * bids are not loaded first. At least one criterion must be given.
+   *
+   * @param account       is the account of the bids to delete, null for any.
+   * @param type          is the type of the bids to delete, null for any.
+   * @param status        is the status of the bids to delete, null for any.
+   * @param createdBefore is the date the bids must have been created before, null for any.
+   * @return the number of deleted bids.
+   */
+  @CacheEvict(cacheNames = CacheConfig.BID_LIST_PAGES, allEntries = true)
+  public int deleteAllByFilter(String account, String type, String status,
+                               LocalDateTime createdBefore) {
+    LOGGER.info("Contacting DB to delete bids with account " + account + ", type " + type
+      + ", status " + status + " and created before " + createdBefore + "...");
+    if (account == null && type == null && status == null && createdBefore == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+        "At least one filter must be given to delete bids.");
+    }
+    return bidListRepository.deleteInBulkByFilter(account, type, status,
+      createdBefore == null ? null : Timestamp.valueOf(createdBefore));
+  }
+
+  /**
+   * This method is used to give the same status to the bids of a list of ids with a single
+   * statement, the bids are not loaded first. Their version is increased.
+   *
+   * @param ids    are the ids of the bids to update.
+   * @param status is the new status, checked against the constraints of the status of a bid
+   *               since the update does not go through the entity.
+   * @return the number of updated bids.
+   */
+  @CacheEvict(cacheNames = CacheConfig.BID_LIST_PAGES, allEntries = true)
+  public int updateStatus(List<Integer> ids, String status) {
+    LOGGER.info("Contacting DB to set status " + status + " on " + ids.size() + " bids...");
+    Set<ConstraintViolation<BidList>> violations =
+      validator.validateValue(BidList.class, "status", status);
+    if (!violations.isEmpty()) {
+      throw new ConstraintViolationException(violations);
+    }
+    return bidListRepository.updateStatusInBulk(ids, status);
+  }
+
   /**
    * This method is used to find a specific BidList object from DB thanks to its id.
    *
    * @param id is the id of the bidList you want to retrieve form DB.
    * @return an optional bidList Object.
    */
+  @Transactional(readOnly = true)
   public Optional<BidList> findById(Integer id) {
     LOGGER.info("Contacting DB to find bid with id : " + id);
     return bidListRepository.findById(id);
   }
 
+  /**
+   * This method is used to find several bids at once thanks to their ids, with one IN query per
+   * chunk of ids.
+   *
+   * @param ids are the ids of the bids, without duplicates.
+   * @return the bids found in the order of the ids, and the ids that match no bid.
+   */
+  @Transactional(readOnly = true)
+  public IdListResult<BidList> findAllByIds(List<Integer> ids) {
+    LOGGER.info("Contacting DB to find " + ids.size() + " bids by id...");
+    return IdListFetcher.fetch(ids, bidListRepository::findAllById, BidList::getBidListId);
+  }
+
   /**
    * This method is used to save a NEW BidList in the database, and it also adds the creation
    * date to the object.
@@ -68,6 +224,7 @@ public class BidListService {
    * @param bid is the BidList object you want to save.
    * @return the saved BidList
    */
+  @CacheEvict(cacheNames = CacheConfig.BID_LIST_PAGES, allEntries = true)
   public BidList save(BidList bid) {
     LOGGER.info("Contacting DB to save bid...");
     if (bid.getBidListId() != null) {
@@ -86,36 +243,66 @@ public class BidListService {
   }
 
   /**
-   * This method is used to update an EXISTING bidList object.
+   * This method is used to update an EXISTING bidList object. Only the attributes accessible from
+   * the html form are written, with a single UPDATE statement.
+   * The other attributes must be left null, the update is refused (400) otherwise.
    *
    * @param modifiedBidList is the object that is going to overwrite the one in DB.
-   * @param bidListToUpdate is the object from db to be updated. (the repo that connect to db will basically just check this object id).
-   * @return the updated bidList object
+   * @param expectedVersions are the versions the bid may have (If-Match), null for any.
+   * @return true if the bid has been updated, false if no bid has this id.
    */
-  public BidList update(BidList modifiedBidList, BidList bidListToUpdate) {
+  @CacheEvict(cacheNames = CacheConfig.BID_LIST_PAGES, allEntries = true)
+  public boolean update(BidList modifiedBidList, Set<Integer> expectedVersions) {
     LOGGER.info("Contacting DB to update bid...");
-    if (modifiedBidList.getBidListId() != bidListToUpdate.getBidListId()) {
-      LOGGER.warn("Your two bids have different id. Update is not possible !");
-      throw new RuntimeException("Bid's ID mismatch.");
-    } else if (existsById(bidListToUpdate.getBidListId())){
-      //we only set parameters accessible from html form
-      bidListToUpdate.setAccount(modifiedBidList.getAccount());
-      bidListToUpdate.setType(modifiedBidList.getType());
-      bidListToUpdate.setBidQuantity(modifiedBidList.getBidQuantity());
-      return bidListRepository.save(bidListToUpdate);
-    } else {
-      return null;
+    mergePatcher.checkOnlySet(modifiedBidList, BidListRepository.FORM_FIELDS);
+    if (bidListRepository.updateFormFields(modifiedBidList, expectedVersions) == 1) {
+      return true;
     }
+    if (expectedVersions != null && bidListRepository.existsById(modifiedBidList.getBidListId())) {
+      throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+        "The bid is no longer at one of the versions " + expectedVersions + ".");
+    }
+    return false;
+  }
+
+  /**
+   * This method is used to change some attributes of an EXISTING bid with a JSON merge patch.
+   * The bid is dynamically updated : only the columns that really changed are written.
+   *
+   * @param id              is the id of the bid to patch.
+   * @param patch           is the JSON merge patch.
+   * @param expectedVersions are the versions the bid may have (If-Match), null for any.
+   * @return the patched bid, empty if no bid has this id.
+   */
+  @CacheEvict(cacheNames = CacheConfig.BID_LIST_PAGES, allEntries = true)
+  public Optional<BidList> patch(Integer id, JsonNode patch, Set<Integer> expectedVersions) {
+    LOGGER.info("Contacting DB to patch bid with id : " + id);
+    Optional<BidList> bidList = bidListRepository.findById(id);
+    bidList.ifPresent(bidListToPatch -> {
+      if (expectedVersions != null && !expectedVersions.contains(bidListToPatch.getVersion())) {
+        throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+          "The bid is no longer at one of the versions " + expectedVersions + ".");
+      }
+      mergePatcher.apply(bidListToPatch, patch);
+      Set<ConstraintViolation<BidList>> violations = validator.validate(bidListToPatch);
+      if (!violations.isEmpty()) {
+        throw new ConstraintViolationException(violations);
+      }
+    });
+    return bidList;
   }
 
   /**
-   * This method is used to check the existence of a bidList object in DB thanks to its id.
+   * This method is used to check that a page is only sorted by the listed columns.
    *
-   * @param bidListId is an integer that represent the bidList id of the bidList object you want to
-   *                  check the existence.
-   * @return a boolean, true if it exists.
+   * @param pageable is the page asked.
    */
-  private boolean existsById(Integer bidListId) {
-    return bidListRepository.existsById(bidListId);
+  private void checkSort(Pageable pageable) {
+    pageable.getSort().forEach(order -> {
+      if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Bids cannot be sorted by " + order.getProperty());
+      }
+    });
   }
 }
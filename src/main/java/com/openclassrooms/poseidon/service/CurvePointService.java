@@ -1,18 +1,29 @@
 package com.openclassrooms.poseidon.service;
 
+import com.openclassrooms.poseidon.configuration.CacheConfig;
 import com.openclassrooms.poseidon.domain.CurvePoint;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
 import com.openclassrooms.poseidon.repository.CurvePointRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import javax.transaction.Transactional;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  *
@@ -25,17 +36,53 @@ public class CurvePointService {
 
   private static final Logger LOGGER = LogManager.getLogger(CurvePointService.class);
 
+  private static final Set<String> SORTABLE_PROPERTIES = Set.of(
+    "id", "curveId", "term", "value"
+  );
+
   @Autowired
   private CurvePointRepository curvePointRepository;
 
+  @Autowired
+  private MergePatcher mergePatcher;
+
+  /**
+   * This method is used to display curve points page by page, with keyset pagination.
+   *
+   * @param afterId is the id after which curve points are fetched.
+   * @param limit   is the maximum number of curve points in the page.
+   * @return a page of curve points with the cursor of the next page.
+   */
+  @Cacheable(cacheNames = CacheConfig.CURVE_POINT_PAGES,
+    key = "{#root.methodName, #afterId, #limit}", sync = true)
+  @Transactional(readOnly = true)
+  public CursorPage<CurvePoint> getPage(Integer afterId, int limit) {
+    LOGGER.info("Contacting DB to get " + limit + " curve points after id " + afterId + "...");
+    List<CurvePoint> rows = curvePointRepository.findByIdGreaterThanOrderByIdAsc(
+      afterId, PageRequest.of(0, limit + 1)
+    );
+    return CursorPage.of(rows, limit, CurvePoint::getId);
+  }
+
   /**
-   * This method is used to display all curvePoint in iterables.
+   * This method is used to display one page of curve points, sorted by one of the listed columns.
+   * Only the rows of the page are read, plus a count of all curve points.
    *
-   * @return is an iterable containing all CurvePoint Object.
+   * @param pageable is the number, the size and the sort of the page.
+   * @return the page of curve points.
    */
-  public Iterable<CurvePoint> getAll() {
-    LOGGER.info("Contacting DB to get all curve points...");
-    return curvePointRepository.findAll();
+  @Cacheable(cacheNames = CacheConfig.CURVE_POINT_PAGES,
+    key = "{#root.methodName, #pageable}", sync = true)
+  @Transactional(readOnly = true)
+  public Page<CurvePoint> getSortedPage(Pageable pageable) {
+    LOGGER.info("Contacting DB to get page " + pageable.getPageNumber() + " of curve points...");
+    pageable.getSort().forEach(order -> {
+      if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Curve points cannot be sorted by " + order.getProperty());
+      }
+    });
+    return curvePointRepository.findAll(pageable);
   }
 
 
@@ -48,6 +95,7 @@ public class CurvePointService {
    * @param curvePoint is the curvePoint object you want to save.
    * @return the saved curvePoint
    */
+  @CacheEvict(cacheNames = CacheConfig.CURVE_POINT_PAGES, allEntries = true)
   public CurvePoint save(CurvePoint curvePoint) {
     LOGGER.info("Contacting DB to save curve point...");
     if (curvePoint.getId() != null) {
@@ -66,43 +114,85 @@ public class CurvePointService {
   }
 
   /**
-   * This method is used to find a specific CurvePoint object from DB thanks to its id.
+   * This method is used to find a specific CurvePoint object from DB thanks to its id. The curve
+   * point is cached until it is updated or deleted.
    *
    * @param id is the id of the curvePoint you want to retrieve form DB.
    * @return an optional curvePoint Object.
    */
+  @Cacheable(cacheNames = CacheConfig.CURVE_POINTS, key = "#id", unless = "#result == null")
+  @Transactional(readOnly = true)
   public Optional<CurvePoint> findById(Integer id) {
     LOGGER.info("Contacting DB to find curve point with id : " + id);
     return curvePointRepository.findById(id);
   }
 
+  /**
+   * This method is used to find several curve points at once thanks to their ids, with one IN query per
+   * chunk of ids.
+   *
+   * @param ids are the ids of the curve points, without duplicates.
+   * @return the curve points found in the order of the ids, and the ids that match no curve point.
+   */
+  @Transactional(readOnly = true)
+  public IdListResult<CurvePoint> findAllByIds(List<Integer> ids) {
+    LOGGER.info("Contacting DB to find " + ids.size() + " curve points by id...");
+    return IdListFetcher.fetch(ids, curvePointRepository::findAllById, CurvePoint::getId);
+  }
+
   /**
    * This method is used to delete an existing curvePoint from database.
    *
    * @param curvePointToDelete is the deleted curvePoint.
    */
+  @Caching(evict = {
+    @CacheEvict(cacheNames = CacheConfig.CURVE_POINTS, key = "#curvePointToDelete.id",
+      condition = "#curvePointToDelete.id != null"),
+    @CacheEvict(cacheNames = CacheConfig.CURVE_POINT_PAGES, allEntries = true)
+  })
   public void delete(CurvePoint curvePointToDelete) {
     LOGGER.info("Contacting DB to delete curve point : " + curvePointToDelete.toString());
     curvePointRepository.delete(curvePointToDelete);
   }
 
   /**
-   * This method is used to update an EXISTING curvePoint object.
+   * This method is used to delete the curve points of a list of ids with a single statement, the
+   * curve points are not loaded first.
+   *
+   * @param ids are the ids of the curve points to delete.
+   * @return the number of deleted curve points.
+   */
+  @CacheEvict(cacheNames = {CacheConfig.CURVE_POINTS, CacheConfig.CURVE_POINT_PAGES},
+    allEntries = true)
+  public int deleteAllByIds(List<Integer> ids) {
+    LOGGER.info("Contacting DB to delete " + ids.size() + " curve points...");
+    return curvePointRepository.deleteInBulkByIds(ids);
+  }
+
+  /**
+   * This method is used to update an EXISTING curvePoint object. Only the attributes accessible from
+   * the html form are written, with a single UPDATE statement.
+   * The other attributes must be left null, the update is refused (400) otherwise.
    *
    * @param modifiedCurvePoint is the object that is going to overwrite the one in DB.
-   * @param curvePointToUpdate is the object from db to be updated. (the repo that connect to db will basically just check this object id).
-   * @return the updated curvePoint object
+   * @param expectedVersions are the versions the curve point may have (If-Match), null for any.
+   * @return true if the curve point has been updated, false if no curve point has this id.
    */
-  public CurvePoint update(CurvePoint modifiedCurvePoint, CurvePoint curvePointToUpdate) {
+  @Caching(evict = {
+    @CacheEvict(cacheNames = CacheConfig.CURVE_POINTS, key = "#modifiedCurvePoint.id",
+      condition = "#modifiedCurvePoint.id != null"),
+    @CacheEvict(cacheNames = CacheConfig.CURVE_POINT_PAGES, allEntries = true)
+  })
+  public boolean update(CurvePoint modifiedCurvePoint, Set<Integer> expectedVersions) {
     LOGGER.info("Contacting DB to update curve point...");
-    if (modifiedCurvePoint.getId() != curvePointToUpdate.getId()) {
-      LOGGER.warn("Your two curve points have different id. Update is not possible !");
-      throw new RuntimeException("Curve point ID mismatch.");
+    mergePatcher.checkOnlySet(modifiedCurvePoint, CurvePointRepository.FORM_FIELDS);
+    if (curvePointRepository.updateFormFields(modifiedCurvePoint, expectedVersions) == 1) {
+      return true;
+    }
+    if (expectedVersions != null && curvePointRepository.existsById(modifiedCurvePoint.getId())) {
+      throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+        "The curve point is no longer at one of the versions " + expectedVersions + ".");
     }
-    //we only set parameters accessible from html form
-    curvePointToUpdate.setCurveId(modifiedCurvePoint.getCurveId());
-    curvePointToUpdate.setTerm(modifiedCurvePoint.getTerm());
-    curvePointToUpdate.setValue(modifiedCurvePoint.getValue());
-    return curvePointRepository.save(curvePointToUpdate);
+    return false;
   }
 }
@@ -0,0 +1,78 @@
+package com.openclassrooms.poseidon.service;
+
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.Objects;
+
+/**
+ *
+ * This class fetches the objects of a list of ids for the services : the ids are checked, read by
+ * chunks with IN queries, and the objects found are put back in the order of the ids.
+ *
+ */
+public final class IdListFetcher {
+
+  public static final int MAX_IDS = 1000;
+
+  /**
+   * Maximum number of ids bound to one IN query, the ids of a request are read by chunks.
+   */
+  public static final int CHUNK_SIZE = 500;
+
+  private IdListFetcher() {
+  }
+
+  /**
+   * This method fetches the objects of a list of ids, with one IN query per chunk of CHUNK_SIZE
+   * ids.
+   *
+   * @param ids    are the requested ids, without duplicates (see checkIds).
+   * @param finder is the query that reads the objects of a chunk of ids, in any order.
+   * @param idOf   is the function used to read the id of an object.
+   * @param <T>    is the type of the objects fetched.
+   * @return the objects in the order of the ids, and the ids not found.
+   */
+  public static <T> IdListResult<T> fetch(List<Integer> ids,
+                                          Function<List<Integer>, Iterable<T>> finder,
+                                          Function<T, Integer> idOf) {
+    Map<Integer, T> found = new HashMap<>();
+    for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+      finder.apply(ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size())))
+        .forEach(row -> found.put(idOf.apply(row), row));
+    }
+    List<T> content = new ArrayList<>(found.size());
+    List<Integer> missingIds = new ArrayList<>();
+    for (Integer id : ids) {
+      T row = found.get(id);
+      if (row == null) {
+        missingIds.add(id);
+      } else {
+        content.add(row);
+      }
+    }
+    return new IdListResult<>(content, missingIds);
+  }
+
+  /**
+   * This method checks the ids parameter of a request.
+   *
+   * @param ids are the ids asked.
+   * @return the ids without duplicates, in the order of their first occurrence.
+   */
+  public static List<Integer> checkIds(List<Integer> ids) {
+    if (ids == null || ids.isEmpty() || ids.stream().anyMatch(Objects::isNull)) {
+      throw new IllegalArgumentException("At least one id must be given, and no empty id.");
+    }
+    List<Integer> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+    if (distinctIds.size() > MAX_IDS) {
+      throw new IllegalArgumentException("At most " + MAX_IDS + " ids can be asked at once.");
+    }
+    return distinctIds;
+  }
+}
@@ -0,0 +1,120 @@
+package com.openclassrooms.poseidon.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.persistence.Id;
+import javax.persistence.Version;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ *
+ * This class applies JSON merge patches (RFC 7396) on entities : each member of the patch
+ * replaces the attribute of the same name, a null member clears it, absent attributes are left
+ * untouched. The attributes that can be patched are read once per entity class and kept.
+ *
+ */
+@Component
+public class MergePatcher {
+
+  public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+  /**
+   * Attributes filled by the application, never by a patch (the id and the version are
+   * excluded as well).
+   */
+  private static final Set<String> READ_ONLY_PROPERTIES = Set.of("creationName", "creationDate");
+
+  private final Map<Class<?>, Set<String>> patchableProperties = new ConcurrentHashMap<>();
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  /**
+   * This method is used to apply a merge patch on an entity.
+   *
+   * @param target is the entity to patch, it is modified in place.
+   * @param patch  is the JSON object of the patch.
+   * @param <T>    is the type of the entity.
+   * @return the patched entity.
+   */
+  public <T> T apply(T target, JsonNode patch) {
+    if (patch == null || !patch.isObject()) {
+      throw new IllegalArgumentException("A merge patch must be a JSON object.");
+    }
+    Set<String> patchable = getPatchableProperties(target.getClass());
+    patch.fieldNames().forEachRemaining(property -> {
+      if (!patchable.contains(property)) {
+        throw new IllegalArgumentException("Property " + property + " cannot be patched.");
+      }
+    });
+    try {
+      return objectMapper.readerForUpdating(target).readValue(patch);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalArgumentException("The patch does not match the scheme : "
+        + ex.getOriginalMessage());
+    } catch (IOException ex) {
+      throw new IllegalArgumentException("The patch cannot be read.");
+    }
+  }
+
+  /**
+   * This method is used to check that an entity received for an update only sets the attributes
+   * the update writes. The other attributes would be silently ignored, so they must be left null
+   * (the id, the version and the attributes filled by the application are not checked).
+   *
+   * @param entity     is the entity received.
+   * @param properties are the names of the attributes the update writes.
+   * @throws ResponseStatusException 400 if another attribute has a value.
+   */
+  public void checkOnlySet(Object entity, Set<String> properties) {
+    BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(entity);
+    List<String> ignored = getPatchableProperties(entity.getClass()).stream()
+      .filter(property -> !properties.contains(property))
+      .filter(property -> wrapper.getPropertyValue(property) != null)
+      .sorted()
+      .collect(Collectors.toList());
+    if (!ignored.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Attributes " + ignored
+        + " cannot be changed by an update, only " + new TreeSet<>(properties) + " can.");
+    }
+  }
+
+  /**
+   * This method is used to get the attributes of an entity class that can be patched.
+   *
+   * @param type is the entity class.
+   * @return the names of the patchable attributes.
+   */
+  public Set<String> getPatchableProperties(Class<?> type) {
+    return patchableProperties.computeIfAbsent(type, this::readPatchableProperties);
+  }
+
+  private Set<String> readPatchableProperties(Class<?> type) {
+    BeanDescription description = objectMapper.getDeserializationConfig()
+      .introspect(objectMapper.constructType(type));
+    return description.findProperties().stream()
+      .filter(BeanPropertyDefinition::hasSetter)
+      .filter(property -> property.getField() == null
+        || !(property.getField().hasAnnotation(Id.class)
+        || property.getField().hasAnnotation(Version.class)))
+      .map(BeanPropertyDefinition::getName)
+      .filter(name -> !READ_ONLY_PROPERTIES.contains(name))
+      .collect(Collectors.toUnmodifiableSet());
+  }
+}
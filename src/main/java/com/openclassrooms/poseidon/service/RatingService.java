@@ -1,16 +1,27 @@
 package com.openclassrooms.poseidon.service;
 
+import com.openclassrooms.poseidon.configuration.CacheConfig;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
 import com.openclassrooms.poseidon.domain.Rating;
 import com.openclassrooms.poseidon.repository.RatingRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import javax.transaction.Transactional;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  *
@@ -23,17 +34,53 @@ public class RatingService {
 
   private static final Logger LOGGER = LogManager.getLogger(RatingService.class);
 
+  private static final Set<String> SORTABLE_PROPERTIES = Set.of(
+    "id", "moodysRating", "sandPRating", "fitchRating", "orderNumber"
+  );
+
   @Autowired
   private RatingRepository ratingRepository;
 
+  @Autowired
+  private MergePatcher mergePatcher;
+
+  /**
+   * This method is used to display ratings page by page, with keyset pagination.
+   *
+   * @param afterId is the id after which ratings are fetched.
+   * @param limit   is the maximum number of ratings in the page.
+   * @return a page of ratings with the cursor of the next page.
+   */
+  @Cacheable(cacheNames = CacheConfig.RATING_PAGES,
+    key = "{#root.methodName, #afterId, #limit}", sync = true)
+  @Transactional(readOnly = true)
+  public CursorPage<Rating> getPage(Integer afterId, int limit) {
+    LOGGER.info("Contacting DB to get " + limit + " ratings after id " + afterId + "...");
+    List<Rating> rows = ratingRepository.findByIdGreaterThanOrderByIdAsc(
+      afterId, PageRequest.of(0, limit + 1)
+    );
+    return CursorPage.of(rows, limit, Rating::getId);
+  }
+
   /**
-   * This method is used to display all rating in iterables.
+   * This method is used to display one page of ratings, sorted by one of the listed columns.
+   * Only the rows of the page are read, plus a count of all ratings.
    *
-   * @return is an iterable containing all rating Object.
+   * @param pageable is the number, the size and the sort of the page.
+   * @return the page of ratings.
    */
-  public Iterable<Rating> getAll() {
-    LOGGER.info("Contacting DB to get all ratings...");
-    return ratingRepository.findAll();
+  @Cacheable(cacheNames = CacheConfig.RATING_PAGES,
+    key = "{#root.methodName, #pageable}", sync = true)
+  @Transactional(readOnly = true)
+  public Page<Rating> getSortedPage(Pageable pageable) {
+    LOGGER.info("Contacting DB to get page " + pageable.getPageNumber() + " of ratings...");
+    pageable.getSort().forEach(order -> {
+      if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Ratings cannot be sorted by " + order.getProperty());
+      }
+    });
+    return ratingRepository.findAll(pageable);
   }
 
   /**
@@ -44,6 +91,7 @@ public class RatingService {
    * @param rating is the BidList object you want to save.
    * @return the saved rating
    */
+  @CacheEvict(cacheNames = CacheConfig.RATING_PAGES, allEntries = true)
   public Rating save(Rating rating) {
     LOGGER.info("Contacting DB to save rating...");
     if (rating.getId() != null) {
@@ -55,35 +103,57 @@ public class RatingService {
   }
 
   /**
-   * This method is used to find a specific rating object from DB thanks to its id.
+   * This method is used to find a specific rating object from DB thanks to its id. The rating is
+   * cached until it is updated or deleted.
    *
    * @param id is the id of the rating you want to retrieve form DB.
    * @return an optional rating Object.
    */
+  @Cacheable(cacheNames = CacheConfig.RATINGS, key = "#id", unless = "#result == null")
+  @Transactional(readOnly = true)
   public Optional<Rating> findById(Integer id) {
     LOGGER.info("Contacting DB to find rating with id : " + id);
     return ratingRepository.findById(id);
   }
 
   /**
-   * This method is used to update an EXISTING rating object.
+   * This method is used to find several ratings at once thanks to their ids, with one IN query per
+   * chunk of ids.
+   *
+   * @param ids are the ids of the ratings, without duplicates.
+   * @return the ratings found in the order of the ids, and the ids that match no rating.
+   */
+  @Transactional(readOnly = true)
+  public IdListResult<Rating> findAllByIds(List<Integer> ids) {
+    LOGGER.info("Contacting DB to find " + ids.size() + " ratings by id...");
+    return IdListFetcher.fetch(ids, ratingRepository::findAllById, Rating::getId);
+  }
+
+  /**
+   * This method is used to update an EXISTING rating object. Only the attributes accessible from
+   * the html form are written, with a single UPDATE statement.
+   * The other attributes must be left null, the update is refused (400) otherwise.
    *
    * @param modifiedRating is the object that is going to overwrite the one in DB.
-   * @param ratingToUpdate is the object from db to be updated. (the repo that connect to db will basically just check this object id).
-   * @return the updated rating object
+   * @param expectedVersions are the versions the rating may have (If-Match), null for any.
+   * @return true if the rating has been updated, false if no rating has this id.
    */
-  public Rating update(Rating modifiedRating, Rating ratingToUpdate) {
+  @Caching(evict = {
+    @CacheEvict(cacheNames = CacheConfig.RATINGS, key = "#modifiedRating.id",
+      condition = "#modifiedRating.id != null"),
+    @CacheEvict(cacheNames = CacheConfig.RATING_PAGES, allEntries = true)
+  })
+  public boolean update(Rating modifiedRating, Set<Integer> expectedVersions) {
     LOGGER.info("Contacting DB to update rating...");
-    if (modifiedRating.getId() != ratingToUpdate.getId()) {
-      LOGGER.warn("Your two ratings have different id. Update is not possible !");
-      throw new RuntimeException("Rating ID mismatch.");
+    mergePatcher.checkOnlySet(modifiedRating, RatingRepository.FORM_FIELDS);
+    if (ratingRepository.updateFormFields(modifiedRating, expectedVersions) == 1) {
+      return true;
     }
-    //we only set parameters accessible from html form
-    ratingToUpdate.setMoodysRating(modifiedRating.getMoodysRating());
-    ratingToUpdate.setSandPRating(modifiedRating.getSandPRating());
-    ratingToUpdate.setFitchRating(modifiedRating.getFitchRating());
-    ratingToUpdate.setOrderNumber(modifiedRating.getOrderNumber());
-    return ratingRepository.save(ratingToUpdate);
+    if (expectedVersions != null && ratingRepository.existsById(modifiedRating.getId())) {
+      throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+        "The rating is no longer at one of the versions " + expectedVersions + ".");
+    }
+    return false;
   }
 
   /**
@@ -91,8 +161,26 @@ public class RatingService {
    *
    * @param ratingToDelete is the deleted rating.
    */
+  @Caching(evict = {
+    @CacheEvict(cacheNames = CacheConfig.RATINGS, key = "#ratingToDelete.id",
+      condition = "#ratingToDelete.id != null"),
+    @CacheEvict(cacheNames = CacheConfig.RATING_PAGES, allEntries = true)
+  })
   public void delete(Rating ratingToDelete) {
     LOGGER.info("Contacting DB to delete rating : " + ratingToDelete.toString());
     ratingRepository.delete(ratingToDelete);
   }
+
+  /**
+   * This method is used to delete the ratings of a list of ids with a single statement, the
+   * ratings are not loaded first.
+   *
+   * @param ids are the ids of the ratings to delete.
+   * @return the number of deleted ratings.
+   */
+  @CacheEvict(cacheNames = {CacheConfig.RATINGS, CacheConfig.RATING_PAGES}, allEntries = true)
+  public int deleteAllByIds(List<Integer> ids) {
+    LOGGER.info("Contacting DB to delete " + ids.size() + " ratings...");
+    return ratingRepository.deleteInBulkByIds(ids);
+  }
 }
@@ -1,16 +1,28 @@
 package com.openclassrooms.poseidon.service;
 
+import com.openclassrooms.poseidon.configuration.CacheConfig;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
+import com.openclassrooms.poseidon.domain.DTO.RuleNameSummary;
 import com.openclassrooms.poseidon.domain.RuleName;
 import com.openclassrooms.poseidon.repository.RuleNameRepository;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import javax.transaction.Transactional;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  *
@@ -23,17 +35,83 @@ public class RuleNameService {
 
   private static final Logger LOGGER = LogManager.getLogger(RuleNameService.class);
 
+  private static final Set<String> SORTABLE_PROPERTIES = Set.of(
+    "id", "name", "description"
+  );
+
   @Autowired
   private RuleNameRepository ruleNameRepository;
 
+  @Autowired
+  private MergePatcher mergePatcher;
+
+  /**
+   * This method is used to display rule names page by page, with keyset pagination.
+   *
+   * @param afterId is the id after which rule names are fetched.
+   * @param limit   is the maximum number of rule names in the page.
+   * @return a page of rule names with the cursor of the next page.
+   */
+  @Cacheable(cacheNames = CacheConfig.RULE_NAME_PAGES,
+    key = "{#root.methodName, #afterId, #limit}", sync = true)
+  @Transactional(readOnly = true)
+  public CursorPage<RuleName> getPage(Integer afterId, int limit) {
+    LOGGER.info("Contacting DB to get " + limit + " rule names after id " + afterId + "...");
+    List<RuleName> rows = ruleNameRepository.findByIdGreaterThanOrderByIdAsc(
+      afterId, PageRequest.of(0, limit + 1)
+    );
+    return CursorPage.of(rows, limit, RuleName::getId);
+  }
+
+  /**
+   * This method is used to display one page of rule names, sorted by one of the listed columns.
+   * Only the rows of the page are read, plus a count of all rule names.
+   *
+   * @param pageable is the number, the size and the sort of the page.
+   * @return the page of rule names.
+   */
+  @Cacheable(cacheNames = CacheConfig.RULE_NAME_PAGES,
+    key = "{#root.methodName, #pageable}", sync = true)
+  @Transactional(readOnly = true)
+  public Page<RuleName> getSortedPage(Pageable pageable) {
+    LOGGER.info("Contacting DB to get page " + pageable.getPageNumber() + " of rule names...");
+    checkSort(pageable);
+    return ruleNameRepository.findAll(pageable);
+  }
+
+  /**
+   * This method is used to display rule names page by page, like getPage, but with previews of
+   * their long text columns instead of the full text.
+   *
+   * @param afterId is the id after which rule names are fetched.
+   * @param limit   is the maximum number of rule names in the page.
+   * @return a page of rule name summaries with the cursor of the next page.
+   */
+  @Cacheable(cacheNames = CacheConfig.RULE_NAME_PAGES,
+    key = "{#root.methodName, #afterId, #limit}", sync = true)
+  @Transactional(readOnly = true)
+  public CursorPage<RuleNameSummary> getSummaryPage(Integer afterId, int limit) {
+    LOGGER.info("Contacting DB to get " + limit + " rule name summaries after id " + afterId + "...");
+    List<RuleNameSummary> rows = ruleNameRepository.findSummaryByIdGreaterThan(
+      afterId, PageRequest.of(0, limit + 1)
+    );
+    return CursorPage.of(rows, limit, RuleNameSummary::getId);
+  }
+
   /**
-   * This method is used to display all ruleName in iterables.
+   * This method is used to display one page of rule names, like getSortedPage, but with previews
+   * of their long text columns instead of the full text.
    *
-   * @return is an iterable containing all RuleName Object.
+   * @param pageable is the number, the size and the sort of the page.
+   * @return the page of rule name summaries.
    */
-  public Iterable<RuleName> getAll() {
-    LOGGER.info("Contacting DB to get all rule names...");
-    return ruleNameRepository.findAll();
+  @Cacheable(cacheNames = CacheConfig.RULE_NAME_PAGES,
+    key = "{#root.methodName, #pageable}", sync = true)
+  @Transactional(readOnly = true)
+  public Page<RuleNameSummary> getSortedSummaryPage(Pageable pageable) {
+    LOGGER.info("Contacting DB to get page " + pageable.getPageNumber() + " of rule name summaries...");
+    checkSort(pageable);
+    return ruleNameRepository.findSummaryBy(pageable);
   }
 
   /**
@@ -44,6 +122,7 @@ public class RuleNameService {
    * @param ruleName is the ruleName object you want to save.
    * @return the saved ruleName
    */
+  @CacheEvict(cacheNames = CacheConfig.RULE_NAME_PAGES, allEntries = true)
   public RuleName save(RuleName ruleName) {
     LOGGER.info("Contacting DB to save rule name...");
     if (ruleName.getId() != null) {
@@ -56,38 +135,58 @@ public class RuleNameService {
 
 
   /**
-   * This method is used to find a specific ruleName object from DB thanks to its id.
+   * This method is used to find a specific ruleName object from DB thanks to its id, with its
+   * long text columns. The rule name is cached until it is updated or deleted.
    *
    * @param id is the id of the ruleName you want to retrieve form DB.
    * @return an optional RuleName Object.
    */
+  @Cacheable(cacheNames = CacheConfig.RULE_NAMES, key = "#id", unless = "#result == null")
+  @Transactional(readOnly = true)
   public Optional<RuleName> findById(Integer id) {
     LOGGER.info("Contacting DB to find rule name with id : " + id);
     return ruleNameRepository.findById(id);
   }
 
   /**
-   * This method is used to update an EXISTING ruleName object.
+   * This method is used to find several rule names at once thanks to their ids, with one IN query per
+   * chunk of ids. The long text columns are read in the same
+   * statements.
+   *
+   * @param ids are the ids of the rule names, without duplicates.
+   * @return the rule names found in the order of the ids, and the ids that match no rule name.
+   */
+  @Transactional(readOnly = true)
+  public IdListResult<RuleName> findAllByIds(List<Integer> ids) {
+    LOGGER.info("Contacting DB to find " + ids.size() + " rule names by id...");
+    return IdListFetcher.fetch(ids, ruleNameRepository::findWithTextByIdIn, RuleName::getId);
+  }
+
+  /**
+   * This method is used to update an EXISTING ruleName object. Only the attributes accessible from
+   * the html form are written, with a single UPDATE statement.
+   * The other attributes must be left null, the update is refused (400) otherwise.
    *
    * @param modifiedRuleName is the object that is going to overwrite the one in DB.
-   * @param ruleNameToUpdate is the object from db to be updated. (the repo that connect to db will basically just check this object id).
-   * @return the updated ruleName object
+   * @param expectedVersions are the versions the rule name may have (If-Match), null for any.
+   * @return true if the rule name has been updated, false if no rule name has this id.
    */
-  public RuleName update(RuleName modifiedRuleName, RuleName ruleNameToUpdate) {
+  @Caching(evict = {
+    @CacheEvict(cacheNames = CacheConfig.RULE_NAMES, key = "#modifiedRuleName.id",
+      condition = "#modifiedRuleName.id != null"),
+    @CacheEvict(cacheNames = CacheConfig.RULE_NAME_PAGES, allEntries = true)
+  })
+  public boolean update(RuleName modifiedRuleName, Set<Integer> expectedVersions) {
     LOGGER.info("Contacting DB to update rule name...");
-    if (modifiedRuleName.getId() != ruleNameToUpdate.getId()) {
-      LOGGER.warn("Your two rule names have different id. Update is not possible !");
-      throw new RuntimeException("Rule names ID mismatch.");
+    mergePatcher.checkOnlySet(modifiedRuleName, RuleNameRepository.FORM_FIELDS);
+    if (ruleNameRepository.updateFormFields(modifiedRuleName, expectedVersions) == 1) {
+      return true;
+    }
+    if (expectedVersions != null && ruleNameRepository.existsById(modifiedRuleName.getId())) {
+      throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+        "The rule name is no longer at one of the versions " + expectedVersions + ".");
     }
-    //we only set parameters accessible from html form
-    ruleNameToUpdate.setName(modifiedRuleName.getName());
-    ruleNameToUpdate.setDescription(modifiedRuleName.getDescription());
-    ruleNameToUpdate.setJson(modifiedRuleName.getJson());
-    ruleNameToUpdate.setTemplate(modifiedRuleName.getTemplate());
-    ruleNameToUpdate.setSqlStr(modifiedRuleName.getSqlStr());
-    ruleNameToUpdate.setSqlPart(modifiedRuleName.getSqlPart());
-
-    return ruleNameRepository.save(ruleNameToUpdate);
+    return false;
   }
 
   /**
@@ -95,8 +194,40 @@ public class RuleNameService {
    *
    * @param ruleNameToDelete is the deleted ruleName.
    */
+  @Caching(evict = {
+    @CacheEvict(cacheNames = CacheConfig.RULE_NAMES, key = "#ruleNameToDelete.id",
+      condition = "#ruleNameToDelete.id != null"),
+    @CacheEvict(cacheNames = CacheConfig.RULE_NAME_PAGES, allEntries = true)
+  })
   public void delete(RuleName ruleNameToDelete) {
     LOGGER.info("Contacting DB to delete rule name : " + ruleNameToDelete.toString());
     ruleNameRepository.delete(ruleNameToDelete);
   }
+
+  /**
+   * This method is used to delete the rule names of a list of ids with a single statement, the
+   * rule names are not loaded first.
+   *
+   * @param ids are the ids of the rule names to delete.
+   * @return the number of deleted rule names.
+   */
+  @CacheEvict(cacheNames = {CacheConfig.RULE_NAMES, CacheConfig.RULE_NAME_PAGES}, allEntries = true)
+  public int deleteAllByIds(List<Integer> ids) {
+    LOGGER.info("Contacting DB to delete " + ids.size() + " rule names...");
+    return ruleNameRepository.deleteInBulkByIds(ids);
+  }
+
+  /**
+   * This method is used to check that a page is only sorted by the listed columns.
+   *
+   * @param pageable is the page asked.
+   */
+  private void checkSort(Pageable pageable) {
+    pageable.getSort().forEach(order -> {
+      if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Rule names cannot be sorted by " + order.getProperty());
+      }
+    });
+  }
 }
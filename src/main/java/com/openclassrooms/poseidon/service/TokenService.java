@@ -0,0 +1,63 @@
+package com.openclassrooms.poseidon.service;
+
+import com.openclassrooms.poseidon.configuration.ApiSecurityConfig;
+import com.openclassrooms.poseidon.domain.DTO.TokenResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ *
+ * This class issues the signed tokens of the API. A token holds the username and the roles of
+ * the user : the API checks its signature and its expiry, without reading the database.
+ *
+ */
+@Service
+public class TokenService {
+
+  private static final Logger LOGGER = LogManager.getLogger(TokenService.class);
+
+  @Autowired
+  private JwtEncoder jwtEncoder;
+
+  @Value("${api.token.validity:15m}")
+  private Duration validity;
+
+  /**
+   * This method is used to issue a token for an authenticated user.
+   *
+   * @param authentication is the authentication of the user, with its authorities.
+   * @return the signed token and its validity in seconds.
+   */
+  public TokenResponse issue(Authentication authentication) {
+    LOGGER.info("Issuing API token for " + authentication.getName() + "...");
+    Instant now = Instant.now();
+    List<String> roles = authentication.getAuthorities().stream()
+      .map(GrantedAuthority::getAuthority)
+      .collect(Collectors.toList());
+    JwtClaimsSet claims = JwtClaimsSet.builder()
+      .issuer(ApiSecurityConfig.TOKEN_ISSUER)
+      .subject(authentication.getName())
+      .issuedAt(now)
+      .expiresAt(now.plus(validity))
+      .claim(ApiSecurityConfig.ROLES_CLAIM, roles)
+      .build();
+    JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).build();
+    String token = jwtEncoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+    return new TokenResponse(token, validity.getSeconds());
+  }
+}
@@ -1,18 +1,42 @@
 package com.openclassrooms.poseidon.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.openclassrooms.poseidon.configuration.CacheConfig;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
+import com.openclassrooms.poseidon.domain.DTO.TradeSummary;
 import com.openclassrooms.poseidon.domain.Trade;
 import com.openclassrooms.poseidon.repository.TradeRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import javax.transaction.Transactional;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -20,14 +44,104 @@ public class TradeService {
 
   private static final Logger LOGGER = LogManager.getLogger(TradeService.class);
 
+  private static final Set<String> SORTABLE_PROPERTIES = Set.of(
+    "tradeId", "account", "type", "buyQuantity"
+  );
+
   @Autowired
   private TradeRepository tradeRepository;
 
-  public Iterable<Trade> getAll() {
-    LOGGER.info("Contacting DB to get all trades...");
-    return tradeRepository.findAll();
+  @Autowired
+  private MergePatcher mergePatcher;
+
+  @Autowired
+  private Validator validator;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${export.fetch-size}")
+  private int exportFetchSize;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Cacheable(cacheNames = CacheConfig.TRADE_PAGES,
+    key = "{#root.methodName, #afterId, #limit}", sync = true)
+  @Transactional(readOnly = true)
+  public CursorPage<Trade> getPage(Integer afterId, int limit) {
+    LOGGER.info("Contacting DB to get " + limit + " trades after id " + afterId + "...");
+    List<Trade> rows = tradeRepository.findByTradeIdGreaterThanOrderByTradeIdAsc(
+      afterId, PageRequest.of(0, limit + 1)
+    );
+    return CursorPage.of(rows, limit, Trade::getTradeId);
+  }
+
+  @Cacheable(cacheNames = CacheConfig.TRADE_PAGES,
+    key = "{#root.methodName, #pageable}", sync = true)
+  @Transactional(readOnly = true)
+  public Page<Trade> getSortedPage(Pageable pageable) {
+    LOGGER.info("Contacting DB to get page " + pageable.getPageNumber() + " of trades...");
+    checkSort(pageable);
+    return tradeRepository.findAll(pageable);
+  }
+
+  /**
+   * This method is used to display trades page by page, with keyset pagination. Only the
+   * summary columns are read.
+   *
+   * @param afterId is the id after which trades are fetched.
+   * @param limit   is the maximum number of trades in the page.
+   * @return a page of trade summaries with the cursor of the next page.
+   */
+  @Cacheable(cacheNames = CacheConfig.TRADE_PAGES,
+    key = "{#root.methodName, #afterId, #limit}", sync = true)
+  @Transactional(readOnly = true)
+  public CursorPage<TradeSummary> getSummaryPage(Integer afterId, int limit) {
+    LOGGER.info("Contacting DB to get " + limit + " trade summaries after id " + afterId + "...");
+    List<TradeSummary> rows = tradeRepository.findSummaryByTradeIdGreaterThanOrderByTradeIdAsc(
+      afterId, PageRequest.of(0, limit + 1)
+    );
+    return CursorPage.of(rows, limit, TradeSummary::getTradeId);
   }
 
+  /**
+   * This method is used to display one page of trade summaries, sorted by one of the listed
+   * columns. Only the summary columns are read and nothing is kept in the persistence context.
+   *
+   * @param pageable is the number, the size and the sort of the page.
+   * @return the page of trade summaries.
+   */
+  @Cacheable(cacheNames = CacheConfig.TRADE_PAGES,
+    key = "{#root.methodName, #pageable}", sync = true)
+  @Transactional(readOnly = true)
+  public Page<TradeSummary> getSortedSummaryPage(Pageable pageable) {
+    LOGGER.info("Contacting DB to get page " + pageable.getPageNumber() + " of trade summaries...");
+    checkSort(pageable);
+    return tradeRepository.findSummaryBy(pageable);
+  }
+
+  @Transactional(readOnly = true)
+  public void exportAll(OutputStream outputStream) throws IOException {
+    LOGGER.info("Contacting DB to export all trades...");
+    ObjectWriter writer = objectMapper.writerFor(Trade.class);
+    int written = 0;
+    try (Stream<Trade> trades = tradeRepository.streamAll(exportFetchSize)) {
+      Iterator<Trade> iterator = trades.iterator();
+      while (iterator.hasNext()) {
+        outputStream.write(writer.writeValueAsBytes(iterator.next()));
+        outputStream.write('\n');
+        //flushing once per fetched block lets the client read while the query goes on
+        if (++written % exportFetchSize == 0) {
+          outputStream.flush();
+        }
+      }
+    }
+    outputStream.flush();
+    LOGGER.info(written + " trades exported.");
+  }
+
+  @CacheEvict(cacheNames = CacheConfig.TRADE_PAGES, allEntries = true)
   public Trade save(Trade trade) {
     LOGGER.info("Contacting DB to save trade...");
     //In case the saving is a new trade, then a date is added to its CreationDate attribute
@@ -43,27 +157,174 @@ public class TradeService {
     return tradeRepository.save(trade);
   }
 
+  /**
+   * This method is used to save many NEW trades in one transaction. Their inserts are sent by
+   * JDBC batches (hibernate.jdbc.batch_size) when the transaction is flushed.
+   *
+   * @param trades are the trades to save, none of them can have an id.
+   * @return the ids of the saved trades, in the order of the given list.
+   */
+  @CacheEvict(cacheNames = CacheConfig.TRADE_PAGES, allEntries = true)
+  public List<Integer> saveAll(List<Trade> trades) {
+    LOGGER.info("Contacting DB to save " + trades.size() + " trades...");
+    if (trades.stream().anyMatch(trade -> trade.getTradeId() != null)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+        "Forbidden to save a trade with specific id",
+        new IllegalArgumentException("Forbidden to save a trade with specific id"));
+    }
+    return meterRegistry.timer("poseidon.trade.batch").record(() -> {
+      Timestamp creationDate = Timestamp.valueOf(LocalDateTime.now());
+      trades.forEach(trade -> trade.setCreationDate(creationDate));
+      List<Integer> ids = new ArrayList<>(trades.size());
+      tradeRepository.saveAll(trades).forEach(trade -> ids.add(trade.getTradeId()));
+      tradeRepository.flush();
+      meterRegistry.counter("poseidon.trade.batch.rows").increment(trades.size());
+      return ids;
+    });
+  }
+
+  @Transactional(readOnly = true)
   public Optional<Trade> findById(Integer id) {
     LOGGER.info("Contacting DB to find trade with id : " + id);
     return tradeRepository.findById(id);
   }
 
-  public Trade update(Trade modifiedTrade, Trade tradeToUpdate) {
+  /**
+   * This method is used to find several trades at once thanks to their ids, with one IN query per
+   * chunk of ids.
+   *
+   * @param ids are the ids of the trades, without duplicates.
+   * @return the trades found in the order of the ids, and the ids that match no trade.
+   */
+  @Transactional(readOnly = true)
+  public IdListResult<Trade> findAllByIds(List<Integer> ids) {
+    LOGGER.info("Contacting DB to find " + ids.size() + " trades by id...");
+    return IdListFetcher.fetch(ids, tradeRepository::findAllById, Trade::getTradeId);
+  }
+
+  /**
+   * This method is used to update an EXISTING trade object. Only the attributes accessible from
+   * the html form are written, with a single UPDATE statement.
+   * The other attributes must be left null, the update is refused (400) otherwise.
+   *
+   * @param modifiedTrade is the object that is going to overwrite the one in DB.
+   * @param expectedVersions are the versions the trade may have (If-Match), null for any.
+   * @return true if the trade has been updated, false if no trade has this id.
+   */
+  @CacheEvict(cacheNames = CacheConfig.TRADE_PAGES, allEntries = true)
+  public boolean update(Trade modifiedTrade, Set<Integer> expectedVersions) {
     LOGGER.info("Contacting DB to update trade...");
-    if (modifiedTrade.getTradeId() != tradeToUpdate.getTradeId()) {
-      LOGGER.warn("Your two trades have different id. Update is not possible !");
-      throw new RuntimeException("Trades ID mismatch.");
+    mergePatcher.checkOnlySet(modifiedTrade, TradeRepository.FORM_FIELDS);
+    if (tradeRepository.updateFormFields(modifiedTrade, expectedVersions) == 1) {
+      return true;
     }
-    //we only set parameters accessible from html form
-    tradeToUpdate.setAccount(modifiedTrade.getAccount());
-    tradeToUpdate.setType(modifiedTrade.getType());
-    tradeToUpdate.setBuyQuantity(modifiedTrade.getBuyQuantity());
-
-    return tradeRepository.save(tradeToUpdate);
+    if (expectedVersions != null && tradeRepository.existsById(modifiedTrade.getTradeId())) {
+      throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+        "The trade is no longer at one of the versions " + expectedVersions + ".");
+    }
+    return false;
   }
 
+  @CacheEvict(cacheNames = CacheConfig.TRADE_PAGES, allEntries = true)
   public void delete(Trade tradeToDelete) {
     LOGGER.info("Contacting DB to delete trade : " + tradeToDelete.toString());
     tradeRepository.delete(tradeToDelete);
   }
+
+  /**
+   * This method is used to delete the trades of a list of ids with a single statement, the
+   * trades are not loaded first.
+   *
+   * @param ids are the ids of the trades to delete.
+   * @return the number of deleted trades.
+   */
+  @CacheEvict(cacheNames = CacheConfig.TRADE_PAGES, allEntries = true)
+  public int deleteAllByIds(List<Integer> ids) {
+    LOGGER.info("Contacting DB to delete " + ids.size() + " trades...");
+    return tradeRepository.deleteInBulkByIds(ids);
+  }
+
+  /**
+   * This method is used to delete the trades that match a filter with a single statement, the
+   * trades are not loaded first. At least one criterion must be given.
+   *
+   * @param account       is the account of the trades to delete, null for any.
+   * @param type          is the type of the trades to delete, null for any.
+   * @param status        is the status of the trades to delete, null for any.
+   * @param createdBefore is the date the trades must have been created before, null for any.
+   * @return the number of deleted trades.
+   */
+  @CacheEvict(cacheNames = CacheConfig.TRADE_PAGES, allEntries = true)
+  public int deleteAllByFilter(String account, String type, String status,
+                               LocalDateTime createdBefore) {
+    LOGGER.info("Contacting DB to delete trades with account " + account + ", type " + type
+      + ", status " + status + " and created before " + createdBefore + "...");
+    if (account == null && type == null && status == null && createdBefore == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+        "At least one filter must be given to delete trades.");
+    }
+    return tradeRepository.deleteInBulkByFilter(account, type, status,
+      createdBefore == null ? null : Timestamp.valueOf(createdBefore));
+  }
+
+  /**
+   * This method is used to give the same status to the trades of a list of ids with a single
+   * statement, the trades are not loaded first. Their version is increased.
+   *
+   * @param ids    are the ids of the trades to update.
+   * @param status is the new status, checked against the constraints of the status of a trade
+   *               since the update does not go through the entity.
+   * @return the number of updated trades.
+   */
+  @CacheEvict(cacheNames = CacheConfig.TRADE_PAGES, allEntries = true)
+  public int updateStatus(List<Integer> ids, String status) {
+    LOGGER.info("Contacting DB to set status " + status + " on " + ids.size() + " trades...");
+    Set<ConstraintViolation<Trade>> violations =
+      validator.validateValue(Trade.class, "status", status);
+    if (!violations.isEmpty()) {
+      throw new ConstraintViolationException(violations);
+    }
+    return tradeRepository.updateStatusInBulk(ids, status);
+  }
+
+  /**
+   * This method is used to change some attributes of an EXISTING trade with a JSON merge patch.
+   * The trade is dynamically updated : only the columns that really changed are written.
+   *
+   * @param id              is the id of the trade to patch.
+   * @param patch           is the JSON merge patch.
+   * @param expectedVersions are the versions the trade may have (If-Match), null for any.
+   * @return the patched trade, empty if no trade has this id.
+   */
+  @CacheEvict(cacheNames = CacheConfig.TRADE_PAGES, allEntries = true)
+  public Optional<Trade> patch(Integer id, JsonNode patch, Set<Integer> expectedVersions) {
+    LOGGER.info("Contacting DB to patch trade with id : " + id);
+    Optional<Trade> trade = tradeRepository.findById(id);
+    trade.ifPresent(tradeToPatch -> {
+      if (expectedVersions != null && !expectedVersions.contains(tradeToPatch.getVersion())) {
+        throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+          "The trade is no longer at one of the versions " + expectedVersions + ".");
+      }
+      mergePatcher.apply(tradeToPatch, patch);
+      Set<ConstraintViolation<Trade>> violations = validator.validate(tradeToPatch);
+      if (!violations.isEmpty()) {
+        throw new ConstraintViolationException(violations);
+      }
+    });
+    return trade;
+  }
+
+  /**
+   * This method is used to check that a page is only sorted by the listed columns.
+   *
+   * @param pageable is the page asked.
+   */
+  private void checkSort(Pageable pageable) {
+    pageable.getSort().forEach(order -> {
+      if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Trades cannot be sorted by " + order.getProperty());
+      }
+    });
+  }
 }
@@ -1,22 +1,35 @@
 package com.openclassrooms.poseidon.service;
 
-import com.openclassrooms.poseidon.configuration.SpringSecurityConfig;
-import com.openclassrooms.poseidon.domain.Authority;
+import com.openclassrooms.poseidon.configuration.CacheConfig;
+import com.openclassrooms.poseidon.configuration.CachingPasswordEncoder;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
 import com.openclassrooms.poseidon.domain.DTO.UserDTO;
+import com.openclassrooms.poseidon.domain.DTO.UserSummary;
 import com.openclassrooms.poseidon.domain.User;
 import com.openclassrooms.poseidon.domain.utils.Role;
-import com.openclassrooms.poseidon.repository.AuthorityRepository;
 import com.openclassrooms.poseidon.repository.UserRepository;
 import com.openclassrooms.poseidon.service.exception.UserAlreadyExistsException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
-import javax.transaction.Transactional;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  *
@@ -25,38 +38,78 @@ import java.util.Optional;
  */
 @Service
 @Transactional
-public class UserService {
+public class UserService implements UserDetailsPasswordService {
 
   private static final Logger LOGGER = LogManager.getLogger(UserService.class);
 
+  private static final Set<String> SORTABLE_PROPERTIES = Set.of(
+    "id", "username", "fullname"
+  );
+
   @Autowired
   private UserRepository userRepository;
 
   @Autowired
-  private SpringSecurityConfig springSecurityConfig;
+  private CachingPasswordEncoder passwordEncoder;
+
+  @Autowired
+  private UserCache userCache;
 
   /**
-   * This method is used to display all user in iterables.
+   * This method is used to display all userDTO in iterables. The users and their roles are
+   * read with a single statement, whatever the number of users.
    *
    * @return is an iterable containing all user Object.
    */
-  public Iterable<User> getAll() {
-    LOGGER.info("Contacting DB to get all users...");
-    return userRepository.findAll();
+  @Transactional(readOnly = true)
+  public Iterable<UserDTO> getAllDTO() {
+    LOGGER.info("Contacting DB to get all userDTOs...");
+    return userRepository.findAllSummaries().stream()
+      .map(this::convertUserSummaryIntoUserDTO)
+      .collect(Collectors.toList());
   }
 
   /**
-   * This method is used to display all userDTO in iterables.
+   * This method is used to display userDTOs page by page, with keyset pagination. Only the
+   * columns of the lists are read, never the password.
    *
-   * @return is an iterable containing all user Object.
+   * @param afterId is the id after which users are fetched.
+   * @param limit   is the maximum number of users in the page.
+   * @return a page of userDTOs with the cursor of the next page.
    */
-  public Iterable<UserDTO> getAllDTO() {
-    LOGGER.info("Contacting DB to get all userDTOs...");
-    Iterable<User> users = getAll();
-    List<UserDTO> userDTOs = new ArrayList<>();
-    users.forEach(
-      user -> userDTOs.add(convertUserIntoUserDTO(Optional.of(user)).get()));
-    return userDTOs;
+  @Cacheable(cacheNames = CacheConfig.USER_PAGES,
+    key = "{#root.methodName, #afterId, #limit}", sync = true)
+  @Transactional(readOnly = true)
+  public CursorPage<UserDTO> getDTOPage(Integer afterId, int limit) {
+    LOGGER.info("Contacting DB to get " + limit + " userDTOs after id " + afterId + "...");
+    List<UserDTO> userDTOs = userRepository.findSummaryByIdGreaterThan(
+      afterId, PageRequest.of(0, limit + 1)
+    ).stream()
+      .map(this::convertUserSummaryIntoUserDTO)
+      .collect(Collectors.toList());
+    return CursorPage.of(userDTOs, limit, UserDTO::getId);
+  }
+
+  /**
+   * This method is used to display one page of userDTOs, sorted by one of the listed columns.
+   * Only the rows of the page are read, without the password, plus a count of all users.
+   *
+   * @param pageable is the number, the size and the sort of the page.
+   * @return the page of userDTOs.
+   */
+  @Cacheable(cacheNames = CacheConfig.USER_PAGES,
+    key = "{#root.methodName, #pageable}", sync = true)
+  @Transactional(readOnly = true)
+  public Page<UserDTO> getSortedDTOPage(Pageable pageable) {
+    LOGGER.info("Contacting DB to get page " + pageable.getPageNumber() + " of userDTOs...");
+    pageable.getSort().forEach(order -> {
+      if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Users cannot be sorted by " + order.getProperty());
+      }
+    });
+    return userRepository.findSummaryBy(pageable)
+      .map(this::convertUserSummaryIntoUserDTO);
   }
 
   /**
@@ -69,12 +122,13 @@ public class UserService {
    * @param user is the user object you want to save.
    * @return the saved user
    */
+  @CacheEvict(cacheNames = CacheConfig.USER_PAGES, allEntries = true)
   public User save(User user) {
     if(user.getId()==null && existsByUserName(user)){
       throw new RuntimeException("The user already exists with this username");
     }
     user.setPassword(
-      springSecurityConfig.passwordEncoder().encode(user.getPassword())
+      passwordEncoder.encode(user.getPassword())
     );
     user.setEnabled(true);
     return userRepository.save(user);
@@ -89,6 +143,7 @@ public class UserService {
    * @param userDTO is the user object you want to save.
    * @return the saved user
    */
+  @CacheEvict(cacheNames = CacheConfig.USER_PAGES, allEntries = true)
   public UserDTO saveDTO(UserDTO userDTO) throws UserAlreadyExistsException {
     Optional<UserDTO> optionalUserDTO = Optional.of(userDTO);
     User userToSave = convertUserDTOIntoUser(optionalUserDTO).get();
@@ -117,30 +172,34 @@ public class UserService {
    * @param id is the id of the user you want to retrieve form DB.
    * @return an optional user Object.
    */
+  @Transactional(readOnly = true)
   public Optional<User> findById(Integer id) {
     LOGGER.info("Contacting DB to find user with id : " + id);
     return userRepository.findById(id);
   }
 
   /**
-   * This method is used to update an EXISTING user object.
+   * This method is used to update an EXISTING user object. The user is removed from the
+   * authentication caches.
    *
    * @param modifiedUser is the object that is going to overwrite the one in DB.
    * @param userToUpdate is the object from db to be updated. (the repo that connect to db will basically just check this object id).
    * @return the updated user object
    */
+  @CacheEvict(cacheNames = CacheConfig.USER_PAGES, allEntries = true)
   public User update(User modifiedUser, User userToUpdate) {
     LOGGER.info("Contacting DB to update user...");
     if (modifiedUser.getId() != userToUpdate.getId()) {
       LOGGER.warn("Your two users have different id. Update is not possible !");
       throw new RuntimeException("Users ID mismatch.");
     }
+    evictFromAuthenticationCaches(userToUpdate);
     //we only set parameters accessible from html form
     userToUpdate.setFullname(modifiedUser.getFullname());
     userToUpdate.setUsername(modifiedUser.getUsername());
     userToUpdate.setPassword(modifiedUser.getPassword());
 
-    userToUpdate.setAuthorities(modifiedUser.getAuthorities());
+    userToUpdate.setRoles(modifiedUser.getRoles());
 
     return userRepository.save(userToUpdate);
   }
@@ -152,7 +211,10 @@ public class UserService {
    * @param userFromDB is the object from db to be updated. (the repo that connect to db will basically just check this object id).
    * @return the updated userDTO object
    */
+  @CacheEvict(cacheNames = CacheConfig.USER_PAGES, allEntries = true)
   public UserDTO updateDTO(UserDTO modifiedUserDTO, User userFromDB) {
+    //The user from DB is modified by the conversion, it is evicted with its current username
+    evictFromAuthenticationCaches(userFromDB);
     //Convert user DTO into user
     User modifiedUserFromDTO = convertUserDTOIntoUser(
       Optional.of(modifiedUserDTO)
@@ -184,36 +246,12 @@ public class UserService {
       user.setEnabled(userDtoToConvert.isEnabled());
       user.setFullname(userDtoToConvert.getFullname());
 
-      //For authorities, we check database first
-      List<String> authorities = new ArrayList<>();
-      user.getAuthorities().forEach(authority -> authorities.add(authority.getRole().toString()));
-
       if (userDtoToConvert.getRole().equals(Role.ROLE_ADMIN.toString())) {
-        if (!authorities.contains(Role.ROLE_ADMIN.toString())) {
-          Authority adminAuthority = new Authority();
-          adminAuthority.setRole(Role.ROLE_ADMIN);
-          user.addAuthority(adminAuthority);
-        }
-        if (!authorities.contains(Role.ROLE_USER.toString())) {
-          Authority userAuthority = new Authority();
-          userAuthority.setRole(Role.ROLE_USER);
-          user.addAuthority(userAuthority);
-        }
+        user.addRole(Role.ROLE_ADMIN);
+        user.addRole(Role.ROLE_USER);
       } else if (userDtoToConvert.getRole().equals(Role.ROLE_USER.toString())) {
-        if (!authorities.contains(Role.ROLE_USER.toString())) {
-          Authority userAuthority = new Authority();
-          userAuthority.setRole(Role.ROLE_USER);
-          user.addAuthority(userAuthority);
-        }
-        if (authorities.contains(Role.ROLE_ADMIN.toString())) {
-          Authority authorityAdminToDelete = new Authority();
-          for (Authority authority : user.getAuthorities()) {
-            if (authority.getRole().equals(Role.ROLE_ADMIN)) {
-              authorityAdminToDelete = authority;
-            }
-          }
-          user.removeAuthority(authorityAdminToDelete);
-        }
+        user.addRole(Role.ROLE_USER);
+        user.removeRole(Role.ROLE_ADMIN);
       }
       return Optional.of(user);
     } else {
@@ -223,15 +261,71 @@ public class UserService {
   }
 
   /**
-   * This method is used to delete an existing user from database.
+   * This method is used to delete an existing user from database. The user is removed from the
+   * authentication caches.
    *
    * @param userToDelete is the deleted user.
    */
+  @CacheEvict(cacheNames = CacheConfig.USER_PAGES, allEntries = true)
   public void delete(User userToDelete) {
     LOGGER.info("Contacting DB to delete user : " + userToDelete.toString());
+    evictFromAuthenticationCaches(userToDelete);
     userRepository.delete(userToDelete);
   }
 
+  /**
+   * This method is used by the authentication to replace the hash of a user when it was made
+   * with a lower BCrypt strength than the current one. It is called after a successful login,
+   * with the password hashed again.
+   *
+   * @param user        is the authenticated user.
+   * @param newPassword is the new hash of the password.
+   * @return the user with its new hash.
+   */
+  @Override
+  public UserDetails updatePassword(UserDetails user, String newPassword) {
+    LOGGER.info("Contacting DB to rehash the password of user : " + user.getUsername());
+    userRepository.updatePassword(user.getUsername(), newPassword);
+    userCache.removeUserFromCache(user.getUsername());
+    passwordEncoder.evict(user.getPassword());
+    return org.springframework.security.core.userdetails.User.withUserDetails(user)
+      .password(newPassword)
+      .build();
+  }
+
+  /**
+   * This method is used to forget a user and its verified password in the caches of the
+   * authentication. The evictions are done when the transaction is committed.
+   *
+   * @param user is the user, as it is in database before the modification.
+   */
+  private void evictFromAuthenticationCaches(User user) {
+    if (user.getUsername() != null) {
+      userCache.removeUserFromCache(user.getUsername());
+    }
+    passwordEncoder.evict(user.getPassword());
+  }
+
+  /**
+   *
+   * This method convert a UserSummary projection into a UserDTO object. The password is not
+   * part of the projection, it is left empty.
+   *
+   * @param userSummary is the projection to convert.
+   * @return the UserDTO Object that corresponds to the projection.
+   */
+  private UserDTO convertUserSummaryIntoUserDTO(UserSummary userSummary) {
+    UserDTO userDTO = new UserDTO();
+    userDTO.setId(userSummary.getId());
+    userDTO.setUsername(userSummary.getUsername());
+    userDTO.setFullname(userSummary.getFullname());
+    userDTO.setEnabled(userSummary.isEnabled());
+    userDTO.setRole((userSummary.getRoles() & Role.ROLE_ADMIN.getBit()) != 0
+      ? Role.ROLE_ADMIN.toString()
+      : Role.ROLE_USER.toString());
+    return userDTO;
+  }
+
   /**
    *
    * This method convert a User object into a UserDTO object.
@@ -250,10 +344,7 @@ public class UserService {
       userDTO.setFullname(userToConvert.getFullname());
       userDTO.setEnabled(userToConvert.isEnabled());
 
-      List<String> authorities = new ArrayList<>();
-      userToConvert.getAuthorities().forEach(authority -> authorities.add(authority.getRole().toString()));
-
-      if (authorities.contains(Role.ROLE_ADMIN.toString())) {
+      if (userToConvert.hasRole(Role.ROLE_ADMIN)) {
         userDTO.setRole(Role.ROLE_ADMIN.toString());
       } else {
         userDTO.setRole(Role.ROLE_USER.toString());
@@ -272,9 +363,27 @@ public class UserService {
    * @param id is the id of the userDTO you want to retrieve form DB.
    * @return an optional userDTO Object.
    */
+  @Transactional(readOnly = true)
   public Optional<UserDTO> findDTOById(Integer id) {
     return convertUserIntoUserDTO(findById(id));
   }
 
+  /**
+   * This method is used to find several userDTOs at once thanks to their ids, with one IN query
+   * per chunk of ids. The passwords are not read.
+   *
+   * @param ids are the ids of the users, without duplicates.
+   * @return the userDTOs found in the order of the ids, and the ids that match no user.
+   */
+  @Transactional(readOnly = true)
+  public IdListResult<UserDTO> findAllDTOByIds(List<Integer> ids) {
+    LOGGER.info("Contacting DB to find " + ids.size() + " userDTOs by id...");
+    return IdListFetcher.fetch(ids,
+      chunk -> userRepository.findSummariesByIdIn(chunk).stream()
+        .map(this::convertUserSummaryIntoUserDTO)
+        .collect(Collectors.toList()),
+      UserDTO::getId);
+  }
+
 
 }
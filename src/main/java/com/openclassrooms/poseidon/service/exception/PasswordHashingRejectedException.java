@@ -0,0 +1,19 @@
+package com.openclassrooms.poseidon.service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ *
+ * This exception is thrown when a password cannot be hashed or verified because the password
+ * hashing executor is saturated. The client should retry later. It is an internal exception so
+ * the authentication stops at once, instead of trying the next provider.
+ *
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PasswordHashingRejectedException extends InternalAuthenticationServiceException {
+  public PasswordHashingRejectedException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,17 @@
+-- Ids of all entities are reserved by blocks in the id_sequences table (see PooledIdGenerator).
+-- Run this script once on an existing database, before starting the application, so that the
+-- first blocks start after the ids already used by the auto increment columns.
+
+CREATE TABLE IF NOT EXISTS `id_sequences` (
+  `sequence_name` varchar(255) NOT NULL,
+  `next_val` bigint DEFAULT NULL,
+  PRIMARY KEY (`sequence_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+INSERT IGNORE INTO id_sequences (sequence_name,next_val)
+	 SELECT 'bidlist',COALESCE(MAX(bidlistid),0)+1 FROM bidlist
+	 UNION ALL SELECT 'curvepoint',COALESCE(MAX(id),0)+1 FROM curvepoint
+	 UNION ALL SELECT 'rating',COALESCE(MAX(id),0)+1 FROM rating
+	 UNION ALL SELECT 'rulename',COALESCE(MAX(id),0)+1 FROM rulename
+	 UNION ALL SELECT 'trade',COALESCE(MAX(tradeid),0)+1 FROM trade
+	 UNION ALL SELECT 'users',COALESCE(MAX(id),0)+1 FROM users;
@@ -0,0 +1,32 @@
+-- The roles of the users are stored in the roles column of the users table, as a bitmask
+-- (ROLE_ADMIN = 1, ROLE_USER = 2, see Role), instead of one row per role in authorities.
+-- Run this script once on an existing database, before starting the application : a user
+-- without roles cannot log in. The script can be run again, for instance when the application
+-- was started first and Hibernate already added the column with no roles.
+
+SET @add_roles = (
+	SELECT IF(COUNT(*) = 0, 'ALTER TABLE users ADD COLUMN `roles` int NOT NULL DEFAULT 0', 'DO 0')
+	FROM information_schema.columns
+	WHERE table_schema = DATABASE() AND table_name = 'users' AND column_name = 'roles'
+);
+PREPARE add_roles FROM @add_roles;
+EXECUTE add_roles;
+DEALLOCATE PREPARE add_roles;
+
+-- Only the users still without roles are filled, from authorities while it exists
+SET @fill_roles = (
+	SELECT IF(COUNT(*) = 0, 'DO 0', 'UPDATE users u SET u.roles = (
+		SELECT COALESCE(SUM(DISTINCT CASE a.role WHEN ''ROLE_ADMIN'' THEN 1 WHEN ''ROLE_USER'' THEN 2 ELSE 0 END),0)
+		FROM authorities a
+		WHERE a.userid = u.Id
+	) WHERE u.roles = 0')
+	FROM information_schema.tables
+	WHERE table_schema = DATABASE() AND table_name = 'authorities'
+);
+PREPARE fill_roles FROM @fill_roles;
+EXECUTE fill_roles;
+DEALLOCATE PREPARE fill_roles;
+
+DROP TABLE IF EXISTS authorities;
+
+DELETE FROM id_sequences WHERE sequence_name = 'authorities';
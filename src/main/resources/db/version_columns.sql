@@ -0,0 +1,8 @@
+-- Bids, trades, curve points, ratings and rule names carry a version used for optimistic locking
+-- and as ETag by the API. Run this script once on an existing database.
+
+ALTER TABLE bidlist ADD COLUMN `version` int NOT NULL DEFAULT 0;
+ALTER TABLE curvepoint ADD COLUMN `version` int NOT NULL DEFAULT 0;
+ALTER TABLE rating ADD COLUMN `version` int NOT NULL DEFAULT 0;
+ALTER TABLE rulename ADD COLUMN `version` int NOT NULL DEFAULT 0;
+ALTER TABLE trade ADD COLUMN `version` int NOT NULL DEFAULT 0;
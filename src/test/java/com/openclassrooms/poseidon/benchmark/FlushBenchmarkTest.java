@@ -0,0 +1,110 @@
+package com.openclassrooms.poseidon.benchmark;
+
+import com.openclassrooms.poseidon.domain.Trade;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the flush of 10 000 managed trades of which one in a hundred is changed. Without
+ * bytecode enhancement every field of every trade is compared to its snapshot, enhanced
+ * trades record their own changes.
+ * Run it with : mvn test -Pbenchmark (enhanced), then mvn test -Pbenchmark -DskipEnhance
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Tag("benchmark")
+public class FlushBenchmarkTest {
+
+  private static final Logger LOGGER = LogManager.getLogger(FlushBenchmarkTest.class);
+
+  private static final int ROWS = 10000;
+
+  private static final int CHANGE_EVERY = 100;
+
+  private static final int RUNS = 50;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private void insertMissingTrades() {
+    long missing = ROWS - entityManager.createQuery("select count(t) from Trade t", Long.class)
+      .getSingleResult();
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      for (int i = 1; i <= missing; i++) {
+        Trade trade = new Trade();
+        trade.setAccount("benchmark" + i);
+        trade.setType("benchmark");
+        trade.setBuyQuantity((double) i);
+        entityManager.persist(trade);
+        if (i % 500 == 0) {
+          entityManager.flush();
+          entityManager.clear();
+        }
+      }
+    });
+  }
+
+  /**
+   * @return the average nanoseconds spent by a flush of the managed trades.
+   */
+  private long averageFlushNanos(List<Trade> trades, int round, int changeEvery) {
+    long total = 0;
+    for (int run = 0; run < RUNS; run++) {
+      for (int i = 0; i < trades.size() && changeEvery > 0; i += changeEvery) {
+        trades.get(i).setStatus("flush" + round + "-" + run);
+      }
+      long start = System.nanoTime();
+      entityManager.flush();
+      total += System.nanoTime() - start;
+    }
+    return total / RUNS;
+  }
+
+  @Test
+  public void flushTest() {
+    insertMissingTrades();
+    boolean enhanced = SelfDirtinessTracker.class.isAssignableFrom(Trade.class);
+
+    long[] flushNanos = new TransactionTemplate(transactionManager).execute(status -> {
+      List<Trade> trades = entityManager
+        .createQuery("select t from Trade t order by t.tradeId", Trade.class)
+        .setMaxResults(ROWS)
+        .getResultList();
+      //warm up
+      averageFlushNanos(trades, 0, CHANGE_EVERY);
+      averageFlushNanos(trades, 0, 0);
+      long unchanged = averageFlushNanos(trades, 1, 0);
+      long changed = averageFlushNanos(trades, 1, CHANGE_EVERY);
+
+      assertThat(entityManager
+        .createQuery("select count(t) from Trade t where t.status = :status", Long.class)
+        .setParameter("status", "flush1-" + (RUNS - 1))
+        .getSingleResult())
+        .isEqualTo((long) (trades.size() + CHANGE_EVERY - 1) / CHANGE_EVERY);
+      status.setRollbackOnly();
+      return new long[]{unchanged, changed};
+    });
+
+    LOGGER.info(String.format(
+      "Flush of %d managed trades (%s) : %.2f ms unchanged, %.2f ms with 1 in %d changed",
+      ROWS, enhanced ? "enhanced" : "not enhanced", flushNanos[0] / 1_000_000d,
+      flushNanos[1] / 1_000_000d, CHANGE_EVERY));
+  }
+}
@@ -0,0 +1,75 @@
+package com.openclassrooms.poseidon.benchmark;
+
+import com.openclassrooms.poseidon.domain.Trade;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the insert throughput of trades sent one statement per row, as it was with the
+ * IDENTITY ids, with the throughput of the JDBC batches allowed by the pooled ids.
+ * Run it with : mvn test -Pbenchmark
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Tag("benchmark")
+public class InsertThroughputBenchmarkTest {
+
+  private static final Logger LOGGER = LogManager.getLogger(InsertThroughputBenchmarkTest.class);
+
+  private static final int ROWS = 10000;
+
+  private static final int FLUSH_SIZE = 500;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private double insertTradesPerSecond(boolean rowByRow) {
+    long start = System.nanoTime();
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      for (int i = 1; i <= ROWS; i++) {
+        Trade trade = new Trade();
+        trade.setAccount("benchmark" + i);
+        trade.setType("benchmark");
+        trade.setBuyQuantity((double) i);
+        entityManager.persist(trade);
+        //An IDENTITY id is only known once its row is inserted : one round trip per persist
+        if (rowByRow) {
+          entityManager.flush();
+        }
+        if (i % FLUSH_SIZE == 0) {
+          entityManager.flush();
+          entityManager.clear();
+        }
+      }
+    });
+    return ROWS / ((System.nanoTime() - start) / 1_000_000_000d);
+  }
+
+  @Test
+  public void insertThroughputTest() {
+    //warm up
+    insertTradesPerSecond(false);
+
+    double rowByRow = insertTradesPerSecond(true);
+    double batched = insertTradesPerSecond(false);
+
+    LOGGER.info(String.format("Trade inserts : %.0f rows/s row by row, %.0f rows/s batched",
+      rowByRow, batched));
+    assertThat(batched).isGreaterThan(rowByRow);
+  }
+}
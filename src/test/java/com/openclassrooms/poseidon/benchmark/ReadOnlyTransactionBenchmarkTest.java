@@ -0,0 +1,118 @@
+package com.openclassrooms.poseidon.benchmark;
+
+import com.openclassrooms.poseidon.domain.Trade;
+import com.openclassrooms.poseidon.repository.TradeRepository;
+import com.openclassrooms.poseidon.service.TradeService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares a page of 10 000 trades read in a read-write transaction, as all the service
+ * methods did, with the same page read in the read-only transaction of the service : no
+ * snapshot of the loaded state is kept and nothing is dirty checked at commit.
+ * Run it with : mvn test -Pbenchmark
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Tag("benchmark")
+public class ReadOnlyTransactionBenchmarkTest {
+
+  private static final Logger LOGGER = LogManager.getLogger(ReadOnlyTransactionBenchmarkTest.class);
+
+  private static final int ROWS = 10000;
+
+  private static final int RUNS = 5;
+
+  @Autowired
+  private TradeService tradeService;
+
+  @Autowired
+  private TradeRepository tradeRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private final com.sun.management.ThreadMXBean threadMXBean =
+    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private void insertMissingTrades() {
+    long missing = ROWS - tradeRepository.count();
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      for (int i = 1; i <= missing; i++) {
+        Trade trade = new Trade();
+        trade.setAccount("benchmark" + i);
+        trade.setType("benchmark");
+        trade.setBuyQuantity((double) i);
+        entityManager.persist(trade);
+        if (i % 500 == 0) {
+          entityManager.flush();
+          entityManager.clear();
+        }
+      }
+    });
+  }
+
+  /**
+   * @return the bytes allocated and the nanoseconds spent by one read of the page.
+   */
+  private long[] readPage(boolean readOnly) {
+    PageRequest page = PageRequest.of(0, ROWS);
+    long threadId = Thread.currentThread().getId();
+    long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    if (readOnly) {
+      tradeService.getSortedPage(page);
+    } else {
+      //the read-only transaction of the service joins this read-write one
+      new TransactionTemplate(transactionManager)
+        .executeWithoutResult(status -> tradeService.getSortedPage(page));
+    }
+    return new long[]{
+      threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore,
+      System.nanoTime() - start
+    };
+  }
+
+  private long[] averageOf(boolean readOnly) {
+    long[] total = new long[2];
+    for (int i = 0; i < RUNS; i++) {
+      long[] run = readPage(readOnly);
+      total[0] += run[0];
+      total[1] += run[1];
+    }
+    return new long[]{total[0] / RUNS, total[1] / RUNS};
+  }
+
+  @Test
+  public void readOnlyTransactionTest() {
+    insertMissingTrades();
+    //warm up
+    averageOf(false);
+    averageOf(true);
+
+    long[] readWrite = averageOf(false);
+    long[] readOnly = averageOf(true);
+
+    LOGGER.info(String.format("Page of %d trades : read-write %d KB in %d ms, read-only %d KB in %d ms",
+      ROWS, readWrite[0] / 1024, readWrite[1] / 1_000_000, readOnly[0] / 1024,
+      readOnly[1] / 1_000_000));
+    assertThat(readOnly[0]).isLessThan(readWrite[0]);
+  }
+}
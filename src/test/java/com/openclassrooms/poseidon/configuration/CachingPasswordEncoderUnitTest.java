@@ -0,0 +1,59 @@
+package com.openclassrooms.poseidon.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class CachingPasswordEncoderUnitTest {
+
+  private PasswordEncoder delegateMocked;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private CachingPasswordEncoder cachingPasswordEncoderUnderTest;
+
+  @BeforeEach
+  public void setUp() {
+    delegateMocked = mock(PasswordEncoder.class);
+    meterRegistry = new SimpleMeterRegistry();
+    cachingPasswordEncoderUnderTest = new CachingPasswordEncoder(
+      delegateMocked, new ConcurrentMapCache("verifiedPasswords"), meterRegistry
+    );
+    when(delegateMocked.matches("somePassword", "someHash")).thenReturn(true);
+  }
+
+  @Test
+  public void matchesIsVerifiedOnceTest() {
+    assertThat(cachingPasswordEncoderUnderTest.matches("somePassword", "someHash")).isTrue();
+    assertThat(cachingPasswordEncoderUnderTest.matches("somePassword", "someHash")).isTrue();
+
+    verify(delegateMocked, times(1)).matches("somePassword", "someHash");
+    assertThat(meterRegistry.get("poseidon.auth.verify").tag("cache", "hit").timer().count())
+      .isEqualTo(1);
+  }
+
+  @Test
+  public void matchesWithWrongPasswordTest() {
+    cachingPasswordEncoderUnderTest.matches("somePassword", "someHash");
+
+    assertThat(cachingPasswordEncoderUnderTest.matches("someWrongPassword", "someHash")).isFalse();
+    assertThat(cachingPasswordEncoderUnderTest.matches("someWrongPassword", "someHash")).isFalse();
+
+    verify(delegateMocked, times(2)).matches("someWrongPassword", "someHash");
+  }
+
+  @Test
+  public void evictTest() {
+    cachingPasswordEncoderUnderTest.matches("somePassword", "someHash");
+
+    cachingPasswordEncoderUnderTest.evict("someHash");
+    cachingPasswordEncoderUnderTest.matches("somePassword", "someHash");
+
+    verify(delegateMocked, times(2)).matches("somePassword", "someHash");
+  }
+}
@@ -0,0 +1,50 @@
+package com.openclassrooms.poseidon.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class DataSourceConfigTest {
+
+  @Autowired
+  @Qualifier("primaryDataSource")
+  private DataSource dataSource;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Test
+  public void dataSourceIsConfiguredPoolTest() {
+    assertThat(dataSource).isInstanceOf(HikariDataSource.class);
+    HikariDataSource pool = (HikariDataSource) dataSource;
+
+    assertThat(pool.getPoolName()).isEqualTo("poseidon");
+    assertThat(pool.getMaximumPoolSize()).isEqualTo(5);
+    assertThat(pool.getLeakDetectionThreshold()).isEqualTo(30000);
+    assertThat(pool.getDataSourceProperties()).containsEntry("cachePrepStmts", "true");
+  }
+
+  @Test
+  public void poolMetricsTest() throws Exception {
+    try (Connection connection = dataSource.getConnection()) {
+      assertThat(meterRegistry.get("hikaricp.connections.active").tag("pool", "poseidon")
+        .gauge().value()).isGreaterThanOrEqualTo(1);
+    }
+
+    assertThat(meterRegistry.get("hikaricp.connections.pending").tag("pool", "poseidon")
+      .gauge()).isNotNull();
+    assertThat(meterRegistry.get("hikaricp.connections.acquire").tag("pool", "poseidon")
+      .timer().count()).isGreaterThanOrEqualTo(1);
+  }
+}
@@ -0,0 +1,172 @@
+package com.openclassrooms.poseidon.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class LoginThrottleUnitTest {
+
+  private Clock clockMocked;
+
+  private long givenMillis;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private LoginThrottle loginThrottleUnderTest;
+
+  @BeforeEach
+  public void setUp() {
+    clockMocked = mock(Clock.class);
+    givenMillis = 1_000_000L;
+    when(clockMocked.millis()).thenAnswer(invocation -> givenMillis);
+    meterRegistry = new SimpleMeterRegistry();
+    //3 attempts at once then one per second, locked 1s after 3 failures, 8s at most
+    loginThrottleUnderTest = new LoginThrottle(
+      16, 3, Duration.ofSeconds(1), 3, Duration.ofSeconds(1), Duration.ofSeconds(8),
+      clockMocked, meterRegistry
+    );
+  }
+
+  @Test
+  public void tryAcquireIsThrottledTest() {
+    for (int i = 0; i < 3; i++) {
+      assertThat(loginThrottleUnderTest.tryAcquire("someUsername", "someSource"))
+        .isEqualTo(LoginThrottle.Decision.ALLOWED);
+    }
+
+    assertThat(loginThrottleUnderTest.tryAcquire("someUsername", "someSource"))
+      .isEqualTo(LoginThrottle.Decision.THROTTLED);
+    assertThat(meterRegistry.get(LoginThrottle.REJECTED_METRIC)
+      .tag("key", "username").tag("reason", "rate").counter().count()).isEqualTo(1);
+
+    givenMillis += 1000;
+    assertThat(loginThrottleUnderTest.tryAcquire("someUsername", "someSource"))
+      .isEqualTo(LoginThrottle.Decision.ALLOWED);
+  }
+
+  @Test
+  public void tryAcquireIsThrottledPerSourceTest() {
+    for (int i = 0; i < 3; i++) {
+      loginThrottleUnderTest.tryAcquire("someUsername" + i, "someSource");
+    }
+
+    assertThat(loginThrottleUnderTest.tryAcquire("someOtherUsername", "someSource"))
+      .isEqualTo(LoginThrottle.Decision.THROTTLED);
+    assertThat(loginThrottleUnderTest.tryAcquire("someOtherUsername", "someOtherSource"))
+      .isEqualTo(LoginThrottle.Decision.ALLOWED);
+  }
+
+  @Test
+  public void recordFailureLocksWithExponentialDurationTest() {
+    loginThrottleUnderTest.recordFailure("someUsername", null);
+    loginThrottleUnderTest.recordFailure("someUsername", null);
+    assertThat(loginThrottleUnderTest.tryAcquire("someUsername", null))
+      .isEqualTo(LoginThrottle.Decision.ALLOWED);
+
+    //Third failure : locked 1s
+    loginThrottleUnderTest.recordFailure("someUsername", null);
+    assertThat(loginThrottleUnderTest.tryAcquire("someUsername", null))
+      .isEqualTo(LoginThrottle.Decision.LOCKED);
+    givenMillis += 1000;
+    assertThat(loginThrottleUnderTest.tryAcquire("someUsername", null))
+      .isEqualTo(LoginThrottle.Decision.ALLOWED);
+
+    //Fourth failure : locked 2s
+    loginThrottleUnderTest.recordFailure("someUsername", null);
+    givenMillis += 1000;
+    assertThat(loginThrottleUnderTest.tryAcquire("someUsername", null))
+      .isEqualTo(LoginThrottle.Decision.LOCKED);
+    givenMillis += 1000;
+    assertThat(loginThrottleUnderTest.tryAcquire("someUsername", null))
+      .isEqualTo(LoginThrottle.Decision.ALLOWED);
+
+    assertThat(meterRegistry.get(LoginThrottle.LOCKOUTS_METRIC).tag("key", "username")
+      .counter().count()).isEqualTo(2);
+  }
+
+  @Test
+  public void recordSuccessForgetsFailuresTest() {
+    loginThrottleUnderTest.recordFailure("someUsername", "someSource");
+    loginThrottleUnderTest.recordFailure("someUsername", "someSource");
+    loginThrottleUnderTest.recordSuccess("someUsername", "someSource");
+    loginThrottleUnderTest.recordFailure("someUsername", "someSource");
+
+    assertThat(loginThrottleUnderTest.tryAcquire("someUsername", "someSource"))
+      .isEqualTo(LoginThrottle.Decision.ALLOWED);
+  }
+
+  @Test
+  public void collidingKeyIsThrottledWhenStripeIsLockedTest() {
+    //With a single stripe, every username shares the same bucket
+    loginThrottleUnderTest = new LoginThrottle(
+      1, 3, Duration.ofSeconds(1), 1, Duration.ofSeconds(1), Duration.ofSeconds(8),
+      clockMocked, meterRegistry
+    );
+    loginThrottleUnderTest.recordFailure("someAttacker", null);
+
+    assertThat(loginThrottleUnderTest.tryAcquire("someUsername", null))
+      .isEqualTo(LoginThrottle.Decision.THROTTLED);
+    assertThat(loginThrottleUnderTest.tryAcquire("someAttacker", null))
+      .isEqualTo(LoginThrottle.Decision.LOCKED);
+    assertThat(meterRegistry.counter(LoginThrottle.REJECTED_METRIC,
+      "key", "username", "reason", "collision").count()).isEqualTo(1);
+  }
+
+  @Test
+  public void collidingKeyDoesNotResetFailuresTest() {
+    loginThrottleUnderTest = new LoginThrottle(
+      1, 3, Duration.ofSeconds(1), 3, Duration.ofSeconds(1), Duration.ofSeconds(8),
+      clockMocked, meterRegistry
+    );
+    loginThrottleUnderTest.recordFailure("someUsername", null);
+    loginThrottleUnderTest.recordFailure("someUsername", null);
+
+    assertThat(loginThrottleUnderTest.tryAcquire("someAttacker", null))
+      .isEqualTo(LoginThrottle.Decision.THROTTLED);
+    loginThrottleUnderTest.recordSuccess("someAttacker", null);
+    loginThrottleUnderTest.recordFailure("someUsername", null);
+    assertThat(loginThrottleUnderTest.tryAcquire("someUsername", null))
+      .isEqualTo(LoginThrottle.Decision.LOCKED);
+  }
+
+  @Test
+  public void collidingKeyTakesItsOtherStripeTest() {
+    //With two stripes, every username can use both of them
+    loginThrottleUnderTest = new LoginThrottle(
+      2, 3, Duration.ofSeconds(1), 1, Duration.ofSeconds(1), Duration.ofSeconds(8),
+      clockMocked, meterRegistry
+    );
+    loginThrottleUnderTest.recordFailure("someAttacker", null);
+
+    assertThat(loginThrottleUnderTest.tryAcquire("someUsername", null))
+      .isEqualTo(LoginThrottle.Decision.ALLOWED);
+    loginThrottleUnderTest.recordFailure("someUsername", null);
+    assertThat(loginThrottleUnderTest.tryAcquire("someUsername", null))
+      .isEqualTo(LoginThrottle.Decision.LOCKED);
+    assertThat(loginThrottleUnderTest.tryAcquire("someAttacker", null))
+      .isEqualTo(LoginThrottle.Decision.LOCKED);
+  }
+
+  @Test
+  public void stripesDependOnTheSecretTest() {
+    LoginThrottle otherThrottle = new LoginThrottle(
+      16, 3, Duration.ofSeconds(1), 3, Duration.ofSeconds(1), Duration.ofSeconds(8),
+      clockMocked, meterRegistry
+    );
+
+    assertThat(IntStream.range(0, 100).mapToObj(i -> "someUsername" + i)
+      .anyMatch(key -> !Arrays.equals(loginThrottleUnderTest.stripesOf(key),
+        otherThrottle.stripesOf(key)))).isTrue();
+    assertThat(loginThrottleUnderTest.stripesOf("someUsername"))
+      .containsExactly(loginThrottleUnderTest.stripesOf("someUsername"))
+      .doesNotHaveDuplicates();
+  }
+}
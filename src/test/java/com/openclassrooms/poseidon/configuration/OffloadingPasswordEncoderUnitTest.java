@@ -0,0 +1,107 @@
+package com.openclassrooms.poseidon.configuration;
+
+import com.openclassrooms.poseidon.service.exception.PasswordHashingRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class OffloadingPasswordEncoderUnitTest {
+
+  private PasswordEncoder delegateMocked;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private OffloadingPasswordEncoder offloadingPasswordEncoderUnderTest;
+
+  @BeforeEach
+  public void setUp() {
+    delegateMocked = mock(PasswordEncoder.class);
+    meterRegistry = new SimpleMeterRegistry();
+    offloadingPasswordEncoderUnderTest = new OffloadingPasswordEncoder(
+      delegateMocked, 1, 1, Duration.ofSeconds(5), meterRegistry
+    );
+  }
+
+  @AfterEach
+  public void tearDown() {
+    offloadingPasswordEncoderUnderTest.shutdown();
+  }
+
+  @Test
+  public void matchesTest() {
+    when(delegateMocked.matches("somePassword", "someHash")).thenReturn(true);
+
+    assertThat(offloadingPasswordEncoderUnderTest.matches("somePassword", "someHash")).isTrue();
+    assertThat(offloadingPasswordEncoderUnderTest.matches("someWrongPassword", "someHash"))
+      .isFalse();
+  }
+
+  @Test
+  public void encodeTest() {
+    when(delegateMocked.encode("somePassword")).thenReturn("someHash");
+
+    assertThat(offloadingPasswordEncoderUnderTest.encode("somePassword")).isEqualTo("someHash");
+    //The worker counts the task as completed after the caller got the result : wait for it
+    offloadingPasswordEncoderUnderTest.shutdown();
+    assertThat(meterRegistry.get("executor.completed")
+      .tag("name", OffloadingPasswordEncoder.EXECUTOR_NAME).functionCounter().count())
+      .isEqualTo(1);
+  }
+
+  @Test
+  public void encodeWhenExecutorIsFullTest() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(delegateMocked.encode("someSlowPassword")).thenAnswer(invocation -> {
+      started.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      return "someHash";
+    });
+    when(delegateMocked.encode("somePassword")).thenReturn("someHash");
+
+    //The only thread is busy and the only slot of the queue is taken
+    CompletableFuture<String> running = CompletableFuture.supplyAsync(
+      () -> offloadingPasswordEncoderUnderTest.encode("someSlowPassword"));
+    started.await(5, TimeUnit.SECONDS);
+    CompletableFuture<String> queued = CompletableFuture.supplyAsync(
+      () -> offloadingPasswordEncoderUnderTest.encode("somePassword"));
+    while (meterRegistry.get("executor.queued").gauge().value() < 1) {
+      Thread.sleep(10);
+    }
+
+    assertThatThrownBy(() -> offloadingPasswordEncoderUnderTest.encode("somePassword"))
+      .isInstanceOf(PasswordHashingRejectedException.class);
+    assertThat(meterRegistry.get("poseidon.password.hashing.rejected").counter().count())
+      .isEqualTo(1);
+
+    release.countDown();
+    assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("someHash");
+    assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("someHash");
+  }
+
+  @Test
+  public void matchesTimeoutTest() {
+    offloadingPasswordEncoderUnderTest.shutdown();
+    offloadingPasswordEncoderUnderTest = new OffloadingPasswordEncoder(
+      delegateMocked, 1, 1, Duration.ofMillis(50), new SimpleMeterRegistry()
+    );
+    when(delegateMocked.matches("somePassword", "someHash")).thenAnswer(invocation -> {
+      Thread.sleep(1000);
+      return true;
+    });
+
+    assertThatThrownBy(() -> offloadingPasswordEncoderUnderTest.matches("somePassword", "someHash"))
+      .isInstanceOf(PasswordHashingRejectedException.class);
+  }
+}
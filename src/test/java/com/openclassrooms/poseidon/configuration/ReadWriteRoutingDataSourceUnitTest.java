@@ -0,0 +1,96 @@
+package com.openclassrooms.poseidon.configuration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ReadWriteRoutingDataSourceUnitTest {
+
+  private DataSource primaryMocked;
+
+  private DataSource replicaMocked;
+
+  private ReplicaLagMonitor replicaLagMonitorMocked;
+
+  private Connection primaryConnection;
+
+  private Connection replicaConnection;
+
+  private ReadWriteRoutingDataSource routingDataSourceUnderTest;
+
+  @BeforeEach
+  public void setUp() throws SQLException {
+    primaryMocked = mock(DataSource.class);
+    replicaMocked = mock(DataSource.class);
+    replicaLagMonitorMocked = mock(ReplicaLagMonitor.class);
+    primaryConnection = mock(Connection.class);
+    replicaConnection = mock(Connection.class);
+    when(primaryMocked.getConnection()).thenReturn(primaryConnection);
+    when(replicaMocked.getConnection()).thenReturn(replicaConnection);
+    when(replicaLagMonitorMocked.isReplicaUsable()).thenReturn(true);
+    routingDataSourceUnderTest = new ReadWriteRoutingDataSource(
+      primaryMocked, replicaMocked, replicaLagMonitorMocked
+    );
+  }
+
+  @AfterEach
+  public void tearDown() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+  }
+
+  @Test
+  public void readOnlyTransactionUsesReplicaTest() throws SQLException {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertThat(routingDataSourceUnderTest.getConnection()).isEqualTo(replicaConnection);
+  }
+
+  @Test
+  public void readWriteTransactionUsesPrimaryTest() throws SQLException {
+    assertThat(routingDataSourceUnderTest.getConnection()).isEqualTo(primaryConnection);
+  }
+
+  @Test
+  public void lateReplicaIsNotUsedTest() throws SQLException {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    when(replicaLagMonitorMocked.isReplicaUsable()).thenReturn(false);
+
+    assertThat(routingDataSourceUnderTest.getConnection()).isEqualTo(primaryConnection);
+    verify(replicaMocked, never()).getConnection();
+  }
+
+  @Test
+  public void readOnlyTransactionConnectionIsReadOnlyTest() throws SQLException {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    routingDataSourceUnderTest.getConnection();
+
+    verify(replicaConnection, times(1)).setReadOnly(true);
+  }
+
+  @Test
+  public void withoutReplicaReadOnlyTransactionUsesPrimaryTest() throws SQLException {
+    routingDataSourceUnderTest = new ReadWriteRoutingDataSource(primaryMocked, null, null);
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertThat(routingDataSourceUnderTest.getConnection()).isEqualTo(primaryConnection);
+    verify(primaryConnection, times(1)).setReadOnly(true);
+  }
+
+  @Test
+  public void unreachableReplicaFallsBackToPrimaryTest() throws SQLException {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    when(replicaMocked.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+    assertThat(routingDataSourceUnderTest.getConnection()).isEqualTo(primaryConnection);
+    verify(replicaLagMonitorMocked, times(1)).markUnusable();
+  }
+}
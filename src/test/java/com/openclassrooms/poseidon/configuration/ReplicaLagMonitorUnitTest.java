@@ -0,0 +1,84 @@
+package com.openclassrooms.poseidon.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ReplicaLagMonitorUnitTest {
+
+  private DataSource replicaMocked;
+
+  private ResultSet lagResultSet;
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private ReplicaLagMonitor replicaLagMonitorUnderTest;
+
+  @BeforeEach
+  public void setUp() throws SQLException {
+    replicaMocked = mock(DataSource.class);
+    Connection connection = mock(Connection.class);
+    Statement statement = mock(Statement.class);
+    lagResultSet = mock(ResultSet.class);
+    ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+    when(replicaMocked.getConnection()).thenReturn(connection);
+    when(connection.createStatement()).thenReturn(statement);
+    when(statement.executeQuery(anyString())).thenReturn(lagResultSet);
+    when(lagResultSet.getMetaData()).thenReturn(metaData);
+    when(metaData.getColumnCount()).thenReturn(1);
+    when(lagResultSet.next()).thenReturn(true, false);
+    meterRegistry = new SimpleMeterRegistry();
+    replicaLagMonitorUnderTest = new ReplicaLagMonitor(
+      replicaMocked, "select lag from heartbeat", Duration.ofSeconds(5), Duration.ofHours(1),
+      meterRegistry
+    );
+  }
+
+  @AfterEach
+  public void tearDown() {
+    replicaLagMonitorUnderTest.close();
+  }
+
+  @Test
+  public void freshReplicaIsUsableTest() throws SQLException {
+    when(lagResultSet.getDouble(1)).thenReturn(2d);
+
+    replicaLagMonitorUnderTest.check();
+
+    assertThat(replicaLagMonitorUnderTest.isReplicaUsable()).isTrue();
+    assertThat(meterRegistry.get("poseidon.datasource.replica.lag").gauge().value())
+      .isEqualTo(2);
+  }
+
+  @Test
+  public void lateReplicaIsNotUsableTest() throws SQLException {
+    when(lagResultSet.getDouble(1)).thenReturn(60d);
+
+    replicaLagMonitorUnderTest.check();
+
+    assertThat(replicaLagMonitorUnderTest.isReplicaUsable()).isFalse();
+  }
+
+  @Test
+  public void unreachableReplicaIsNotUsableTest() throws SQLException {
+    when(replicaMocked.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+    replicaLagMonitorUnderTest.check();
+
+    assertThat(replicaLagMonitorUnderTest.isReplicaUsable()).isFalse();
+  }
+}
@@ -0,0 +1,124 @@
+package com.openclassrooms.poseidon.controller;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.openclassrooms.poseidon.domain.DTO.TokenRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class AuthRestControllerUnitTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @MockBean
+  private AuthenticationManager authenticationManagerMocked;
+
+  @Value("${api.ver}")
+  private String apiVer;
+
+  private String baseUrl;
+
+  private Gson gson
+    = new GsonBuilder()
+    .setPrettyPrinting()
+    .create();
+
+  private String jsonOfGivenTokenRequest;
+
+  @BeforeEach
+  public void setUp() {
+    //URL base setup
+    baseUrl = "/" + apiVer + "/auth";
+
+    TokenRequest givenTokenRequest = new TokenRequest();
+    givenTokenRequest.setUsername("someUsername");
+    givenTokenRequest.setPassword("somePassword1@");
+    jsonOfGivenTokenRequest = gson.toJson(givenTokenRequest);
+  }
+
+  @Test
+  public void tokenTest() throws Exception {
+    Authentication givenAuthentication = new UsernamePasswordAuthenticationToken(
+      "someUsername", null, AuthorityUtils.createAuthorityList("ROLE_ADMIN", "ROLE_USER")
+    );
+    when(authenticationManagerMocked.authenticate(any(Authentication.class)))
+      .thenReturn(givenAuthentication);
+
+    String token = mockMvc.perform(
+        post(baseUrl + "/token")
+          .contentType(MediaType.APPLICATION_JSON)
+          .content(jsonOfGivenTokenRequest)
+      )
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.tokenType").value("Bearer"))
+      .andExpect(jsonPath("$.expiresIn").value(900))
+      .andReturn().getResponse().getContentAsString()
+      .replaceAll(".*\"accessToken\"\\s*:\\s*\"([^\"]+)\".*", "$1");
+
+    mockMvc.perform(
+        get("/" + apiVer + "/unknown").header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+      )
+      .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void tokenWithBadCredentialsTest() throws Exception {
+    when(authenticationManagerMocked.authenticate(any(Authentication.class)))
+      .thenThrow(new BadCredentialsException("Bad credentials"));
+    mockMvc.perform(
+        post(baseUrl + "/token")
+          .contentType(MediaType.APPLICATION_JSON)
+          .content(jsonOfGivenTokenRequest)
+      )
+      .andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  public void tokenWithoutUsernameTest() throws Exception {
+    mockMvc.perform(
+        post(baseUrl + "/token")
+          .contentType(MediaType.APPLICATION_JSON)
+          .content("{\"password\":\"somePassword1@\"}")
+      )
+      .andExpect(status().isBadRequest());
+    verify(authenticationManagerMocked, times(0)).authenticate(any(Authentication.class));
+  }
+
+  @Test
+  public void apiWithoutTokenTest() throws Exception {
+    mockMvc.perform(get("/" + apiVer + "/trade/list"))
+      .andExpect(status().isUnauthorized())
+      .andExpect(header().string(HttpHeaders.WWW_AUTHENTICATE, "Bearer"));
+  }
+
+  @Test
+  public void apiWithInvalidTokenTest() throws Exception {
+    mockMvc.perform(
+        get("/" + apiVer + "/trade/list").header(HttpHeaders.AUTHORIZATION, "Bearer notAToken")
+      )
+      .andExpect(status().isUnauthorized());
+  }
+}
@@ -1,9 +1,14 @@
 package com.openclassrooms.poseidon.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.openclassrooms.poseidon.domain.BidList;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.ImportReport;
+import com.openclassrooms.poseidon.service.BidListImportService;
 import com.openclassrooms.poseidon.service.BidListService;
+import com.openclassrooms.poseidon.service.MergePatcher;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,13 +16,23 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.validation.ConstraintViolationException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -35,6 +50,9 @@ public class BidListRestControllerUnitTest {
   @MockBean
   private BidListService bidListServiceMocked;
 
+  @MockBean
+  private BidListImportService bidListImportServiceMocked;
+
   @Value("${api.ver}")
   private String apiVer;
 
@@ -67,24 +85,114 @@ public class BidListRestControllerUnitTest {
   public void getAllUnauthorizedTest() throws Exception {
     mockMvc.perform(get(baseUrl + "/list"))
       .andExpect(status().isForbidden());
-    verify(bidListServiceMocked, times(0)).getAll();
+    verify(bidListServiceMocked, times(0)).getPage(any(), anyInt());
   }
 
   @Test
   public void getAllTest() throws Exception {
     mockMvc.perform(get(baseUrl + "/list"))
       .andExpect(status().isOk());
-    verify(bidListServiceMocked, times(1)).getAll();
+    verify(bidListServiceMocked, times(1)).getPage(0, CursorPage.DEFAULT_LIMIT);
+  }
+
+  @Test
+  public void getPageWithCursorTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list")
+        .param("after", CursorPage.encodeCursor(42))
+        .param("limit", "10"))
+      .andExpect(status().isOk());
+    verify(bidListServiceMocked, times(1)).getPage(42, 10);
+  }
+
+  @Test
+  public void getPageWithWrongLimitTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list").param("limit", "0"))
+      .andExpect(status().isBadRequest());
+    verify(bidListServiceMocked, times(0)).getPage(any(), anyInt());
+  }
+
+  @Test
+  public void getSortedPageTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list/sorted")
+        .param("page", "2")
+        .param("size", "10"))
+      .andExpect(status().isOk());
+    verify(bidListServiceMocked, times(1)).getSortedPage(argThat(pageable ->
+      pageable.getPageNumber() == 2 && pageable.getPageSize() == 10));
+  }
+
+  @Test
+  public void getSummaryPageTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list").param("view", "summary"))
+      .andExpect(status().isOk());
+    verify(bidListServiceMocked, times(1)).getSummaryPage(0, CursorPage.DEFAULT_LIMIT);
+    verify(bidListServiceMocked, times(0)).getPage(any(), anyInt());
+  }
+
+  @Test
+  public void getSortedSummaryPageTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list/sorted")
+        .param("view", "summary")
+        .param("page", "1"))
+      .andExpect(status().isOk());
+    verify(bidListServiceMocked, times(1)).getSortedSummaryPage(argThat(pageable ->
+      pageable.getPageNumber() == 1));
+    verify(bidListServiceMocked, times(0)).getSortedPage(any(Pageable.class));
+  }
+
+  @Test
+  public void getByIdsTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list").param("ids", "3,1,3,2"))
+      .andExpect(status().isOk());
+    verify(bidListServiceMocked, times(1)).findAllByIds(List.of(3, 1, 2));
+  }
+
+  @Test
+  public void getByIdsWithSummaryViewTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list")
+        .param("ids", "3,1,2")
+        .param("view", "summary"))
+      .andExpect(status().isBadRequest());
+    verify(bidListServiceMocked, times(0)).findAllByIds(any());
+    verify(bidListServiceMocked, times(0)).getSummaryPage(any(), anyInt());
   }
 
   @Test
   public void getByIdTest() throws Exception {
     Integer givenInteger = 1;
+    givenBidList.setVersion(3);
+    when(bidListServiceMocked.findById(1)).thenReturn(Optional.of(givenBidList));
     mockMvc.perform(get(baseUrl + "/list/" + givenInteger))
-      .andExpect(status().isOk());
+      .andExpect(status().isOk())
+      .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
     verify(bidListServiceMocked, times(1)).findById(1);
   }
 
+  @Test
+  public void getByIdNotModifiedTest() throws Exception {
+    givenBidList.setVersion(3);
+    when(bidListServiceMocked.findById(1)).thenReturn(Optional.of(givenBidList));
+    mockMvc.perform(get(baseUrl + "/list/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+      .andExpect(status().isNotModified());
+  }
+
+  @Test
+  public void getByIdNotModifiedWithETagListTest() throws Exception {
+    givenBidList.setVersion(3);
+    when(bidListServiceMocked.findById(1)).thenReturn(Optional.of(givenBidList));
+    mockMvc.perform(get(baseUrl + "/list/1").header(HttpHeaders.IF_NONE_MATCH, "\"2\", \"3\""))
+      .andExpect(status().isNotModified());
+    mockMvc.perform(get(baseUrl + "/list/1").header(HttpHeaders.IF_NONE_MATCH, "*"))
+      .andExpect(status().isNotModified());
+  }
+
+  @Test
+  public void getByIdWithNotFoundTest() throws Exception {
+    when(bidListServiceMocked.findById(1)).thenReturn(Optional.empty());
+    mockMvc.perform(get(baseUrl + "/list/1"))
+      .andExpect(status().isNotFound());
+  }
+
   @Test
   public void deleteTest() throws Exception {
     when(bidListServiceMocked.findById(1)).thenReturn(Optional.of(new BidList()));
@@ -95,6 +203,55 @@ public class BidListRestControllerUnitTest {
     verify(bidListServiceMocked, times(1)).findById(1);
   }
 
+  @Test
+  public void deleteByIdsTest() throws Exception {
+    when(bidListServiceMocked.deleteAllByIds(List.of(3, 1))).thenReturn(2);
+    mockMvc.perform(delete(baseUrl + "/delete").param("ids", "3,1"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.affectedRows").value(2));
+    verify(bidListServiceMocked, times(0)).findById(any());
+  }
+
+  @Test
+  public void deleteByFilterTest() throws Exception {
+    when(bidListServiceMocked.deleteAllByFilter("someAccount", null, null,
+      LocalDateTime.of(2022, 5, 31, 0, 0))).thenReturn(12);
+    mockMvc.perform(delete(baseUrl + "/delete/filter")
+        .param("account", "someAccount")
+        .param("createdBefore", "2022-05-31T00:00:00"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.affectedRows").value(12));
+  }
+
+  @Test
+  public void updateStatusTest() throws Exception {
+    when(bidListServiceMocked.updateStatus(List.of(1, 2), "CLOSED")).thenReturn(2);
+    mockMvc.perform(put(baseUrl + "/update/status")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"ids\":[1,2,1],\"status\":\"CLOSED\"}"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.affectedRows").value(2));
+  }
+
+  @Test
+  public void updateStatusWithoutStatusTest() throws Exception {
+    mockMvc.perform(put(baseUrl + "/update/status")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"ids\":[1,2]}"))
+      .andExpect(status().isBadRequest());
+    verify(bidListServiceMocked, times(0)).updateStatus(any(), any());
+  }
+
+  @Test
+  public void updateStatusWithInvalidStatusTest() throws Exception {
+    when(bidListServiceMocked.updateStatus(List.of(1, 2), "CLOSED_BY_DESK"))
+      .thenThrow(new ConstraintViolationException(Set.of()));
+    mockMvc.perform(put(baseUrl + "/update/status")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"ids\":[1,2],\"status\":\"CLOSED_BY_DESK\"}"))
+      .andExpect(status().isBadRequest());
+  }
+
   @Test
   public void deleteTestWithNotFound() throws Exception {
     when(bidListServiceMocked.findById(1)).thenReturn(null);
@@ -148,31 +305,131 @@ public class BidListRestControllerUnitTest {
         .contentType(MediaType.APPLICATION_JSON)
         .content("")
     ).andExpect(status().isBadRequest());
-    verify(bidListServiceMocked,times(0)).update(any(BidList.class),any(BidList.class));
+    verify(bidListServiceMocked,times(0)).update(any(BidList.class), any());
   }
 
   @Test
   public void updateWithNotFoundBidListTest() throws Exception {
-    when(bidListServiceMocked.findById(28)).thenReturn(null);
+    when(bidListServiceMocked.update(any(BidList.class), any())).thenReturn(false);
     mockMvc.perform(
       put(baseUrl + "/update")
         .contentType(MediaType.APPLICATION_JSON)
         .content(jsonOfGivenBidList)
     ).andExpect(status().isNotFound());
-    verify(bidListServiceMocked,times(0)).update(any(BidList.class),any(BidList.class));
+    verify(bidListServiceMocked,times(1)).update(any(BidList.class), any());
   }
 
   @Test
   public void updateTest() throws Exception {
     givenBidList.setBidListId(28);
     jsonOfGivenBidList = gson.toJson(givenBidList);
-    when(bidListServiceMocked.findById(any(Integer.class))).thenReturn(Optional.of(givenBidList));
+    when(bidListServiceMocked.update(any(BidList.class), any())).thenReturn(true);
     mockMvc.perform(
       put(baseUrl + "/update")
         .contentType(MediaType.APPLICATION_JSON)
         .content(jsonOfGivenBidList)
     ).andExpect(status().isOk());
-    verify(bidListServiceMocked,times(1)).update(any(BidList.class),any(BidList.class));
+    verify(bidListServiceMocked,times(1)).update(any(BidList.class), any());
   }
 
+  @Test
+  public void importCsvTest() throws Exception {
+    MockMultipartFile givenFile = new MockMultipartFile("file", "bids.csv", "text/csv",
+      "account,type,bidQuantity\nsomeAccount,someType,28.0\n".getBytes());
+    when(bidListImportServiceMocked.importCsv(any(InputStream.class)))
+      .thenReturn(new ImportReport());
+    mockMvc.perform(multipart(baseUrl + "/import").file(givenFile))
+      .andExpect(status().isOk());
+    verify(bidListImportServiceMocked, times(1)).importCsv(any(InputStream.class));
+  }
+
+  @Test
+  public void importCsvWithoutFileTest() throws Exception {
+    mockMvc.perform(multipart(baseUrl + "/import"))
+      .andExpect(status().isBadRequest());
+    verify(bidListImportServiceMocked, times(0)).importCsv(any(InputStream.class));
+  }
+
+  @Test
+  public void patchTest() throws Exception {
+    when(bidListServiceMocked.patch(eq(28), any(JsonNode.class), any())).thenReturn(Optional.of(givenBidList));
+    mockMvc.perform(
+      patch(baseUrl + "/28")
+        .contentType(MergePatcher.MEDIA_TYPE)
+        .content("{\"bidQuantity\": 7.0}")
+    ).andExpect(status().isOk());
+    verify(bidListServiceMocked, times(1)).patch(eq(28), any(JsonNode.class), any());
+  }
+
+  @Test
+  public void patchNotFoundTest() throws Exception {
+    when(bidListServiceMocked.patch(eq(28), any(JsonNode.class), any())).thenReturn(Optional.empty());
+    mockMvc.perform(
+      patch(baseUrl + "/28")
+        .contentType(MergePatcher.MEDIA_TYPE)
+        .content("{\"bidQuantity\": 7.0}")
+    ).andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void updateWithStaleETagTest() throws Exception {
+    givenBidList.setBidListId(28);
+    jsonOfGivenBidList = gson.toJson(givenBidList);
+    when(bidListServiceMocked.update(any(BidList.class), eq(Set.of(2))))
+      .thenThrow(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED));
+    mockMvc.perform(
+      put(baseUrl + "/update")
+        .header(HttpHeaders.IF_MATCH, "\"2\"")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(jsonOfGivenBidList)
+    ).andExpect(status().isPreconditionFailed());
+  }
+
+  @Test
+  public void updateWithInvalidETagTest() throws Exception {
+    mockMvc.perform(
+      put(baseUrl + "/update")
+        .header(HttpHeaders.IF_MATCH, "notAnETag")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(jsonOfGivenBidList)
+    ).andExpect(status().isBadRequest());
+    verify(bidListServiceMocked, times(0)).update(any(BidList.class), any());
+  }
+
+  @Test
+  public void updateWithETagListTest() throws Exception {
+    givenBidList.setBidListId(28);
+    jsonOfGivenBidList = gson.toJson(givenBidList);
+    when(bidListServiceMocked.update(any(BidList.class), eq(Set.of(2, 3)))).thenReturn(true);
+    mockMvc.perform(
+      put(baseUrl + "/update")
+        .header(HttpHeaders.IF_MATCH, "\"2\", W/\"4\", \"3\"")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(jsonOfGivenBidList)
+    ).andExpect(status().isOk());
+  }
+
+  @Test
+  public void updateWithAnyETagTest() throws Exception {
+    givenBidList.setBidListId(28);
+    jsonOfGivenBidList = gson.toJson(givenBidList);
+    when(bidListServiceMocked.update(any(BidList.class), isNull())).thenReturn(true);
+    mockMvc.perform(
+      put(baseUrl + "/update")
+        .header(HttpHeaders.IF_MATCH, "*")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(jsonOfGivenBidList)
+    ).andExpect(status().isOk());
+  }
+
+  @Test
+  public void updateWithWeakETagTest() throws Exception {
+    mockMvc.perform(
+      put(baseUrl + "/update")
+        .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(jsonOfGivenBidList)
+    ).andExpect(status().isPreconditionFailed());
+    verify(bidListServiceMocked, times(0)).update(any(BidList.class), any());
+  }
 }
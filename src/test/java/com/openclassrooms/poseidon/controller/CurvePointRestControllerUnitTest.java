@@ -3,6 +3,7 @@ package com.openclassrooms.poseidon.controller;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.openclassrooms.poseidon.domain.CurvePoint;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
 import com.openclassrooms.poseidon.service.CurvePointService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,16 +12,21 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -70,24 +76,75 @@ public class CurvePointRestControllerUnitTest {
   public void getAllUnauthorizedTest() throws Exception {
     mockMvc.perform(get(baseUrl + "/list"))
       .andExpect(status().isForbidden());
-    verify(curvePointServiceMocked, times(0)).getAll();
+    verify(curvePointServiceMocked, times(0)).getPage(any(), anyInt());
   }
 
   @Test
   public void getAllTest() throws Exception {
     mockMvc.perform(get(baseUrl + "/list"))
       .andExpect(status().isOk());
-    verify(curvePointServiceMocked, times(1)).getAll();
+    verify(curvePointServiceMocked, times(1)).getPage(0, CursorPage.DEFAULT_LIMIT);
+  }
+
+  @Test
+  public void getPageWithCursorTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list")
+        .param("after", CursorPage.encodeCursor(42))
+        .param("limit", "10"))
+      .andExpect(status().isOk());
+    verify(curvePointServiceMocked, times(1)).getPage(42, 10);
+  }
+
+  @Test
+  public void getPageWithWrongLimitTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list").param("limit", "0"))
+      .andExpect(status().isBadRequest());
+    verify(curvePointServiceMocked, times(0)).getPage(any(), anyInt());
+  }
+
+  @Test
+  public void getSortedPageTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list/sorted")
+        .param("page", "2")
+        .param("size", "10"))
+      .andExpect(status().isOk());
+    verify(curvePointServiceMocked, times(1)).getSortedPage(argThat(pageable ->
+      pageable.getPageNumber() == 2 && pageable.getPageSize() == 10));
+  }
+
+  @Test
+  public void getByIdsTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list").param("ids", "3,1,3,2"))
+      .andExpect(status().isOk());
+    verify(curvePointServiceMocked, times(1)).findAllByIds(List.of(3, 1, 2));
   }
 
   @Test
   public void getByIdTest() throws Exception {
     Integer givenInteger = 1;
+    givenCurvePoint.setVersion(3);
+    when(curvePointServiceMocked.findById(1)).thenReturn(Optional.of(givenCurvePoint));
     mockMvc.perform(get(baseUrl + "/list/" + givenInteger))
-      .andExpect(status().isOk());
+      .andExpect(status().isOk())
+      .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
     verify(curvePointServiceMocked, times(1)).findById(1);
   }
 
+  @Test
+  public void getByIdNotModifiedTest() throws Exception {
+    givenCurvePoint.setVersion(3);
+    when(curvePointServiceMocked.findById(1)).thenReturn(Optional.of(givenCurvePoint));
+    mockMvc.perform(get(baseUrl + "/list/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+      .andExpect(status().isNotModified());
+  }
+
+  @Test
+  public void getByIdWithNotFoundTest() throws Exception {
+    when(curvePointServiceMocked.findById(1)).thenReturn(Optional.empty());
+    mockMvc.perform(get(baseUrl + "/list/1"))
+      .andExpect(status().isNotFound());
+  }
+
   @Test
   public void deleteTest() throws Exception {
     when(curvePointServiceMocked.findById(1)).thenReturn(Optional.of(new CurvePoint()));
@@ -98,6 +155,15 @@ public class CurvePointRestControllerUnitTest {
     verify(curvePointServiceMocked, times(1)).findById(1);
   }
 
+  @Test
+  public void deleteByIdsTest() throws Exception {
+    when(curvePointServiceMocked.deleteAllByIds(List.of(3, 1))).thenReturn(2);
+    mockMvc.perform(delete(baseUrl + "/delete").param("ids", "3,1"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.affectedRows").value(2));
+    verify(curvePointServiceMocked, times(0)).findById(any());
+  }
+
   @Test
   public void deleteTestWithNotFound() throws Exception {
     when(curvePointServiceMocked.findById(1)).thenReturn(null);
@@ -151,31 +217,66 @@ public class CurvePointRestControllerUnitTest {
         .contentType(MediaType.APPLICATION_JSON)
         .content("")
     ).andExpect(status().isBadRequest());
-    verify(curvePointServiceMocked,times(0)).update(any(CurvePoint.class),any(CurvePoint.class));
+    verify(curvePointServiceMocked,times(0)).update(any(CurvePoint.class), any());
   }
 
   @Test
   public void updateWithNotFoundBidListTest() throws Exception {
-    when(curvePointServiceMocked.findById(28)).thenReturn(null);
+    when(curvePointServiceMocked.update(any(CurvePoint.class), any())).thenReturn(false);
     mockMvc.perform(
       put(baseUrl + "/update")
         .contentType(MediaType.APPLICATION_JSON)
         .content(jsonOfGivenCurvePoint)
     ).andExpect(status().isNotFound());
-    verify(curvePointServiceMocked,times(0)).update(any(CurvePoint.class),any(CurvePoint.class));
+    verify(curvePointServiceMocked,times(1)).update(any(CurvePoint.class), any());
   }
 
   @Test
   public void updateTest() throws Exception {
     givenCurvePoint.setId(28);
     jsonOfGivenCurvePoint = gson.toJson(givenCurvePoint);
-    when(curvePointServiceMocked.findById(any(Integer.class))).thenReturn(Optional.of(givenCurvePoint));
+    when(curvePointServiceMocked.update(any(CurvePoint.class), any())).thenReturn(true);
     mockMvc.perform(
       put(baseUrl + "/update")
         .contentType(MediaType.APPLICATION_JSON)
         .content(jsonOfGivenCurvePoint)
     ).andExpect(status().isOk());
-    verify(curvePointServiceMocked,times(1)).update(any(CurvePoint.class),any(CurvePoint.class));
+    verify(curvePointServiceMocked,times(1)).update(any(CurvePoint.class), any());
   }
 
+  @Test
+  public void updateWithStaleETagTest() throws Exception {
+    givenCurvePoint.setId(28);
+    jsonOfGivenCurvePoint = gson.toJson(givenCurvePoint);
+    when(curvePointServiceMocked.update(any(CurvePoint.class), eq(Set.of(2))))
+      .thenThrow(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED));
+    mockMvc.perform(
+      put(baseUrl + "/update")
+        .header(HttpHeaders.IF_MATCH, "\"2\"")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(jsonOfGivenCurvePoint)
+    ).andExpect(status().isPreconditionFailed());
+  }
+
+  @Test
+  public void updateWithInvalidETagTest() throws Exception {
+    mockMvc.perform(
+      put(baseUrl + "/update")
+        .header(HttpHeaders.IF_MATCH, "notAnETag")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(jsonOfGivenCurvePoint)
+    ).andExpect(status().isBadRequest());
+    verify(curvePointServiceMocked, times(0)).update(any(CurvePoint.class), any());
+  }
+
+  @Test
+  public void updateWithWeakETagTest() throws Exception {
+    mockMvc.perform(
+      put(baseUrl + "/update")
+        .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(jsonOfGivenCurvePoint)
+    ).andExpect(status().isPreconditionFailed());
+    verify(curvePointServiceMocked, times(0)).update(any(CurvePoint.class), any());
+  }
 }
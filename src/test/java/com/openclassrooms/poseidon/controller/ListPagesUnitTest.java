@@ -0,0 +1,58 @@
+package com.openclassrooms.poseidon.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ListPagesUnitTest {
+
+  private final List<Pageable> loaded = new ArrayList<>();
+
+  /**
+   * Loads a page of a list of 25 rows.
+   */
+  private Page<Integer> load(Pageable pageable) {
+    loaded.add(pageable);
+    List<Integer> rows = new ArrayList<>();
+    long end = Math.min(25, pageable.getOffset() + pageable.getPageSize());
+    for (long i = pageable.getOffset(); i < end; i++) {
+      rows.add((int) i);
+    }
+    return new PageImpl<>(rows, pageable, 25);
+  }
+
+  @Test
+  public void clampTest() {
+    Page<Integer> result = ListPages.clamp(PageRequest.of(1, 10), this::load);
+
+    assertThat(result.getNumber()).isEqualTo(1);
+    assertThat(loaded).hasSize(1);
+  }
+
+  @Test
+  public void clampAfterLastPageTest() {
+    Pageable givenPageable = PageRequest.of(7, 10, Sort.by("id").descending());
+
+    Page<Integer> result = ListPages.clamp(givenPageable, this::load);
+
+    assertThat(result.getNumber()).isEqualTo(2);
+    assertThat(result.getContent()).hasSize(5);
+    assertThat(result.getSort()).isEqualTo(givenPageable.getSort());
+  }
+
+  @Test
+  public void clampEmptyListTest() {
+    Page<Integer> result = ListPages.clamp(PageRequest.of(3, 10),
+      pageable -> new PageImpl<>(new ArrayList<>(), pageable, 0));
+
+    assertThat(result.getContent()).isEmpty();
+  }
+}
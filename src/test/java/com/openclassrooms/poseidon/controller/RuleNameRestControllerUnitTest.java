@@ -2,6 +2,7 @@ package com.openclassrooms.poseidon.controller;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
 import com.openclassrooms.poseidon.domain.RuleName;
 import com.openclassrooms.poseidon.service.RuleNameService;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,18 +12,24 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -77,24 +84,104 @@ public class RuleNameRestControllerUnitTest {
   public void getAllUnauthorizedTest() throws Exception {
     mockMvc.perform(get(baseUrl + "/list"))
       .andExpect(status().isForbidden());
-    verify(ruleNameServiceMocked, times(0)).getAll();
+    verify(ruleNameServiceMocked, times(0)).getPage(any(), anyInt());
   }
 
   @Test
   public void getAllTest() throws Exception {
     mockMvc.perform(get(baseUrl + "/list"))
       .andExpect(status().isOk());
-    verify(ruleNameServiceMocked, times(1)).getAll();
+    verify(ruleNameServiceMocked, times(1)).getPage(0, CursorPage.DEFAULT_LIMIT);
+  }
+
+  @Test
+  public void getPageWithCursorTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list")
+        .param("after", CursorPage.encodeCursor(42))
+        .param("limit", "10"))
+      .andExpect(status().isOk());
+    verify(ruleNameServiceMocked, times(1)).getPage(42, 10);
+  }
+
+  @Test
+  public void getPageWithWrongLimitTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list").param("limit", "0"))
+      .andExpect(status().isBadRequest());
+    verify(ruleNameServiceMocked, times(0)).getPage(any(), anyInt());
+  }
+
+  @Test
+  public void getSortedPageTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list/sorted")
+        .param("page", "2")
+        .param("size", "10"))
+      .andExpect(status().isOk());
+    verify(ruleNameServiceMocked, times(1)).getSortedPage(argThat(pageable ->
+      pageable.getPageNumber() == 2 && pageable.getPageSize() == 10));
+  }
+
+  @Test
+  public void getSummaryPageTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list").param("view", "summary"))
+      .andExpect(status().isOk());
+    verify(ruleNameServiceMocked, times(1)).getSummaryPage(0, CursorPage.DEFAULT_LIMIT);
+    verify(ruleNameServiceMocked, times(0)).getPage(any(), anyInt());
+  }
+
+  @Test
+  public void getSortedSummaryPageTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list/sorted")
+        .param("view", "summary")
+        .param("page", "1"))
+      .andExpect(status().isOk());
+    verify(ruleNameServiceMocked, times(1)).getSortedSummaryPage(argThat(pageable ->
+      pageable.getPageNumber() == 1));
+    verify(ruleNameServiceMocked, times(0)).getSortedPage(any(Pageable.class));
+  }
+
+  @Test
+  public void getByIdsTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list").param("ids", "3,1,3,2"))
+      .andExpect(status().isOk());
+    verify(ruleNameServiceMocked, times(1)).findAllByIds(List.of(3, 1, 2));
+  }
+
+  @Test
+  public void getByIdsWithSummaryViewTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list")
+        .param("ids", "3,1,2")
+        .param("view", "summary"))
+      .andExpect(status().isBadRequest());
+    verify(ruleNameServiceMocked, times(0)).findAllByIds(any());
+    verify(ruleNameServiceMocked, times(0)).getSummaryPage(any(), anyInt());
   }
 
   @Test
   public void getByIdTest() throws Exception {
     Integer givenInteger = 1;
+    givenRuleName.setVersion(3);
+    when(ruleNameServiceMocked.findById(1)).thenReturn(Optional.of(givenRuleName));
     mockMvc.perform(get(baseUrl + "/list/" + givenInteger))
-      .andExpect(status().isOk());
+      .andExpect(status().isOk())
+      .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
     verify(ruleNameServiceMocked, times(1)).findById(1);
   }
 
+  @Test
+  public void getByIdNotModifiedTest() throws Exception {
+    givenRuleName.setVersion(3);
+    when(ruleNameServiceMocked.findById(1)).thenReturn(Optional.of(givenRuleName));
+    mockMvc.perform(get(baseUrl + "/list/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+      .andExpect(status().isNotModified());
+  }
+
+  @Test
+  public void getByIdWithNotFoundTest() throws Exception {
+    when(ruleNameServiceMocked.findById(1)).thenReturn(Optional.empty());
+    mockMvc.perform(get(baseUrl + "/list/1"))
+      .andExpect(status().isNotFound());
+  }
+
   @Test
   public void deleteTest() throws Exception {
     when(ruleNameServiceMocked.findById(1)).thenReturn(Optional.of(new RuleName()));
@@ -105,6 +192,15 @@ public class RuleNameRestControllerUnitTest {
     verify(ruleNameServiceMocked, times(1)).findById(1);
   }
 
+  @Test
+  public void deleteByIdsTest() throws Exception {
+    when(ruleNameServiceMocked.deleteAllByIds(List.of(3, 1))).thenReturn(2);
+    mockMvc.perform(delete(baseUrl + "/delete").param("ids", "3,1"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.affectedRows").value(2));
+    verify(ruleNameServiceMocked, times(0)).findById(any());
+  }
+
   @Test
   public void deleteTestWithNotFound() throws Exception {
     when(ruleNameServiceMocked.findById(1)).thenReturn(null);
@@ -158,31 +254,66 @@ public class RuleNameRestControllerUnitTest {
         .contentType(MediaType.APPLICATION_JSON)
         .content("")
     ).andExpect(status().isBadRequest());
-    verify(ruleNameServiceMocked,times(0)).update(any(RuleName.class),any(RuleName.class));
+    verify(ruleNameServiceMocked,times(0)).update(any(RuleName.class), any());
   }
 
   @Test
   public void updateWithNotFoundBidListTest() throws Exception {
-    when(ruleNameServiceMocked.findById(28)).thenReturn(null);
+    when(ruleNameServiceMocked.update(any(RuleName.class), any())).thenReturn(false);
     mockMvc.perform(
       put(baseUrl + "/update")
         .contentType(MediaType.APPLICATION_JSON)
         .content(jsonOfGivenRuleName)
     ).andExpect(status().isNotFound());
-    verify(ruleNameServiceMocked,times(0)).update(any(RuleName.class),any(RuleName.class));
+    verify(ruleNameServiceMocked,times(1)).update(any(RuleName.class), any());
   }
 
   @Test
   public void updateTest() throws Exception {
     givenRuleName.setId(28);
     jsonOfGivenRuleName = gson.toJson(givenRuleName);
-    when(ruleNameServiceMocked.findById(any(Integer.class))).thenReturn(Optional.of(givenRuleName));
+    when(ruleNameServiceMocked.update(any(RuleName.class), any())).thenReturn(true);
     mockMvc.perform(
       put(baseUrl + "/update")
         .contentType(MediaType.APPLICATION_JSON)
         .content(jsonOfGivenRuleName)
     ).andExpect(status().isOk());
-    verify(ruleNameServiceMocked,times(1)).update(any(RuleName.class),any(RuleName.class));
+    verify(ruleNameServiceMocked,times(1)).update(any(RuleName.class), any());
   }
 
+  @Test
+  public void updateWithStaleETagTest() throws Exception {
+    givenRuleName.setId(28);
+    jsonOfGivenRuleName = gson.toJson(givenRuleName);
+    when(ruleNameServiceMocked.update(any(RuleName.class), eq(Set.of(2))))
+      .thenThrow(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED));
+    mockMvc.perform(
+      put(baseUrl + "/update")
+        .header(HttpHeaders.IF_MATCH, "\"2\"")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(jsonOfGivenRuleName)
+    ).andExpect(status().isPreconditionFailed());
+  }
+
+  @Test
+  public void updateWithInvalidETagTest() throws Exception {
+    mockMvc.perform(
+      put(baseUrl + "/update")
+        .header(HttpHeaders.IF_MATCH, "notAnETag")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(jsonOfGivenRuleName)
+    ).andExpect(status().isBadRequest());
+    verify(ruleNameServiceMocked, times(0)).update(any(RuleName.class), any());
+  }
+
+  @Test
+  public void updateWithWeakETagTest() throws Exception {
+    mockMvc.perform(
+      put(baseUrl + "/update")
+        .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(jsonOfGivenRuleName)
+    ).andExpect(status().isPreconditionFailed());
+    verify(ruleNameServiceMocked, times(0)).update(any(RuleName.class), any());
+  }
 }
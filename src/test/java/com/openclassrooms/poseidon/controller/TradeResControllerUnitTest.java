@@ -1,8 +1,12 @@
 package com.openclassrooms.poseidon.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
 import com.openclassrooms.poseidon.domain.Trade;
+import com.openclassrooms.poseidon.service.IdListFetcher;
+import com.openclassrooms.poseidon.service.MergePatcher;
 import com.openclassrooms.poseidon.service.TradeService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,18 +15,29 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.validation.ConstraintViolationException;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -71,24 +86,125 @@ public class TradeResControllerUnitTest {
   public void getAllUnauthorizedTest() throws Exception {
     mockMvc.perform(get(baseUrl + "/list"))
       .andExpect(status().isForbidden());
-    verify(tradeServiceMocked, times(0)).getAll();
+    verify(tradeServiceMocked, times(0)).getPage(any(), anyInt());
   }
 
   @Test
   public void getAllTest() throws Exception {
     mockMvc.perform(get(baseUrl + "/list"))
       .andExpect(status().isOk());
-    verify(tradeServiceMocked, times(1)).getAll();
+    verify(tradeServiceMocked, times(1)).getPage(0, CursorPage.DEFAULT_LIMIT);
+  }
+
+  @Test
+  public void getPageWithCursorTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list")
+        .param("after", CursorPage.encodeCursor(42))
+        .param("limit", "10"))
+      .andExpect(status().isOk());
+    verify(tradeServiceMocked, times(1)).getPage(42, 10);
+  }
+
+  @Test
+  public void getPageWithWrongLimitTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list").param("limit", "0"))
+      .andExpect(status().isBadRequest());
+    verify(tradeServiceMocked, times(0)).getPage(any(), anyInt());
+  }
+
+  @Test
+  public void getSortedPageTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list/sorted")
+        .param("page", "2")
+        .param("size", "10"))
+      .andExpect(status().isOk());
+    verify(tradeServiceMocked, times(1)).getSortedPage(argThat(pageable ->
+      pageable.getPageNumber() == 2 && pageable.getPageSize() == 10));
+  }
+
+  @Test
+  public void getSummaryPageTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list").param("view", "summary"))
+      .andExpect(status().isOk());
+    verify(tradeServiceMocked, times(1)).getSummaryPage(0, CursorPage.DEFAULT_LIMIT);
+    verify(tradeServiceMocked, times(0)).getPage(any(), anyInt());
+  }
+
+  @Test
+  public void getSortedSummaryPageTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list/sorted")
+        .param("view", "summary")
+        .param("page", "1"))
+      .andExpect(status().isOk());
+    verify(tradeServiceMocked, times(1)).getSortedSummaryPage(argThat(pageable ->
+      pageable.getPageNumber() == 1));
+    verify(tradeServiceMocked, times(0)).getSortedPage(any(Pageable.class));
+  }
+
+  @Test
+  public void exportTest() throws Exception {
+    MvcResult mvcResult = mockMvc.perform(get(baseUrl + "/export"))
+      .andExpect(request().asyncStarted())
+      .andReturn();
+    mockMvc.perform(asyncDispatch(mvcResult))
+      .andExpect(status().isOk())
+      .andExpect(content().contentType(MediaType.APPLICATION_NDJSON));
+    verify(tradeServiceMocked, times(1)).exportAll(any());
+  }
+
+  @Test
+  public void getByIdsTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list").param("ids", "3,1,3,2"))
+      .andExpect(status().isOk());
+    verify(tradeServiceMocked, times(1)).findAllByIds(List.of(3, 1, 2));
+  }
+
+  @Test
+  public void getByIdsWithSummaryViewTest() throws Exception {
+    mockMvc.perform(get(baseUrl + "/list")
+        .param("ids", "3,1,2")
+        .param("view", "summary"))
+      .andExpect(status().isBadRequest());
+    verify(tradeServiceMocked, times(0)).findAllByIds(any());
+    verify(tradeServiceMocked, times(0)).getSummaryPage(any(), anyInt());
+  }
+
+  @Test
+  public void getByIdsWithTooManyIdsTest() throws Exception {
+    String givenIds = IntStream.rangeClosed(1, IdListFetcher.MAX_IDS + 1)
+      .mapToObj(String::valueOf)
+      .collect(Collectors.joining(","));
+    mockMvc.perform(get(baseUrl + "/list").param("ids", givenIds))
+      .andExpect(status().isBadRequest());
+    verify(tradeServiceMocked, times(0)).findAllByIds(any());
   }
 
   @Test
   public void getByIdTest() throws Exception {
     Integer givenInteger = 1;
+    givenTrade.setVersion(3);
+    when(tradeServiceMocked.findById(1)).thenReturn(Optional.of(givenTrade));
     mockMvc.perform(get(baseUrl + "/list/" + givenInteger))
-      .andExpect(status().isOk());
+      .andExpect(status().isOk())
+      .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
     verify(tradeServiceMocked, times(1)).findById(1);
   }
 
+  @Test
+  public void getByIdNotModifiedTest() throws Exception {
+    givenTrade.setVersion(3);
+    when(tradeServiceMocked.findById(1)).thenReturn(Optional.of(givenTrade));
+    mockMvc.perform(get(baseUrl + "/list/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+      .andExpect(status().isNotModified());
+  }
+
+  @Test
+  public void getByIdWithNotFoundTest() throws Exception {
+    when(tradeServiceMocked.findById(1)).thenReturn(Optional.empty());
+    mockMvc.perform(get(baseUrl + "/list/1"))
+      .andExpect(status().isNotFound());
+  }
+
   @Test
   public void deleteTest() throws Exception {
     when(tradeServiceMocked.findById(1)).thenReturn(Optional.of(new Trade()));
@@ -99,6 +215,55 @@ public class TradeResControllerUnitTest {
     verify(tradeServiceMocked, times(1)).findById(1);
   }
 
+  @Test
+  public void deleteByIdsTest() throws Exception {
+    when(tradeServiceMocked.deleteAllByIds(List.of(3, 1))).thenReturn(2);
+    mockMvc.perform(delete(baseUrl + "/delete").param("ids", "3,1"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.affectedRows").value(2));
+    verify(tradeServiceMocked, times(0)).findById(any());
+  }
+
+  @Test
+  public void deleteByFilterTest() throws Exception {
+    when(tradeServiceMocked.deleteAllByFilter("someAccount", null, null,
+      LocalDateTime.of(2022, 5, 31, 0, 0))).thenReturn(12);
+    mockMvc.perform(delete(baseUrl + "/delete/filter")
+        .param("account", "someAccount")
+        .param("createdBefore", "2022-05-31T00:00:00"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.affectedRows").value(12));
+  }
+
+  @Test
+  public void updateStatusTest() throws Exception {
+    when(tradeServiceMocked.updateStatus(List.of(1, 2), "CLOSED")).thenReturn(2);
+    mockMvc.perform(put(baseUrl + "/update/status")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"ids\":[1,2,1],\"status\":\"CLOSED\"}"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.affectedRows").value(2));
+  }
+
+  @Test
+  public void updateStatusWithoutStatusTest() throws Exception {
+    mockMvc.perform(put(baseUrl + "/update/status")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"ids\":[1,2]}"))
+      .andExpect(status().isBadRequest());
+    verify(tradeServiceMocked, times(0)).updateStatus(any(), any());
+  }
+
+  @Test
+  public void updateStatusWithInvalidStatusTest() throws Exception {
+    when(tradeServiceMocked.updateStatus(List.of(1, 2), "CLOSED_BY_DESK"))
+      .thenThrow(new ConstraintViolationException(Set.of()));
+    mockMvc.perform(put(baseUrl + "/update/status")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"ids\":[1,2],\"status\":\"CLOSED_BY_DESK\"}"))
+      .andExpect(status().isBadRequest());
+  }
+
   @Test
   public void deleteTestWithNotFound() throws Exception {
     when(tradeServiceMocked.findById(1)).thenReturn(null);
@@ -121,6 +286,30 @@ public class TradeResControllerUnitTest {
     verify(tradeServiceMocked,times(1)).save(any(Trade.class));
   }
 
+  @Test
+  public void createAllTest() throws Exception {
+    when(tradeServiceMocked.saveAll(anyList())).thenReturn(List.of(1, 2));
+    mockMvc.perform(
+        post(baseUrl + "/add/batch")
+          .contentType(MediaType.APPLICATION_JSON)
+          .content("[" + jsonOfGivenTrade + "," + jsonOfGivenTrade + "]")
+      )
+      .andExpect(status().isOk())
+      .andExpect(content().json("[1,2]"));
+    verify(tradeServiceMocked, times(1)).saveAll(argThat(trades -> trades.size() == 2));
+  }
+
+  @Test
+  public void createAllWithInvalidTradeTest() throws Exception {
+    mockMvc.perform(
+        post(baseUrl + "/add/batch")
+          .contentType(MediaType.APPLICATION_JSON)
+          .content("[" + jsonOfGivenTrade + ",{\"account\":\"someAccount\"}]")
+      )
+      .andExpect(status().isBadRequest());
+    verify(tradeServiceMocked, times(0)).saveAll(anyList());
+  }
+
   @Test
   public void createBadBodyTest() throws Exception {
     mockMvc.perform(
@@ -152,31 +341,87 @@ public class TradeResControllerUnitTest {
         .contentType(MediaType.APPLICATION_JSON)
         .content("")
     ).andExpect(status().isBadRequest());
-    verify(tradeServiceMocked,times(0)).update(any(Trade.class),any(Trade.class));
+    verify(tradeServiceMocked,times(0)).update(any(Trade.class), any());
   }
 
   @Test
   public void updateWithNotFoundBidListTest() throws Exception {
-    when(tradeServiceMocked.findById(28)).thenReturn(null);
+    when(tradeServiceMocked.update(any(Trade.class), any())).thenReturn(false);
     mockMvc.perform(
       put(baseUrl + "/update")
         .contentType(MediaType.APPLICATION_JSON)
         .content(jsonOfGivenTrade)
     ).andExpect(status().isNotFound());
-    verify(tradeServiceMocked,times(0)).update(any(Trade.class),any(Trade.class));
+    verify(tradeServiceMocked,times(1)).update(any(Trade.class), any());
   }
 
   @Test
   public void updateTest() throws Exception {
     givenTrade.setTradeId(28);
     jsonOfGivenTrade = gson.toJson(givenTrade);
-    when(tradeServiceMocked.findById(any(Integer.class))).thenReturn(Optional.of(givenTrade));
+    when(tradeServiceMocked.update(any(Trade.class), any())).thenReturn(true);
     mockMvc.perform(
       put(baseUrl + "/update")
         .contentType(MediaType.APPLICATION_JSON)
         .content(jsonOfGivenTrade)
     ).andExpect(status().isOk());
-    verify(tradeServiceMocked,times(1)).update(any(Trade.class),any(Trade.class));
+    verify(tradeServiceMocked,times(1)).update(any(Trade.class), any());
+  }
+
+  @Test
+  public void patchTest() throws Exception {
+    when(tradeServiceMocked.patch(eq(28), any(JsonNode.class), any())).thenReturn(Optional.of(givenTrade));
+    mockMvc.perform(
+      patch(baseUrl + "/28")
+        .contentType(MergePatcher.MEDIA_TYPE)
+        .content("{\"buyQuantity\": 7.0}")
+    ).andExpect(status().isOk());
+    verify(tradeServiceMocked, times(1)).patch(eq(28), any(JsonNode.class), any());
+  }
+
+  @Test
+  public void patchNotFoundTest() throws Exception {
+    when(tradeServiceMocked.patch(eq(28), any(JsonNode.class), any())).thenReturn(Optional.empty());
+    mockMvc.perform(
+      patch(baseUrl + "/28")
+        .contentType(MergePatcher.MEDIA_TYPE)
+        .content("{\"buyQuantity\": 7.0}")
+    ).andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void updateWithStaleETagTest() throws Exception {
+    givenTrade.setTradeId(28);
+    jsonOfGivenTrade = gson.toJson(givenTrade);
+    when(tradeServiceMocked.update(any(Trade.class), eq(Set.of(2))))
+      .thenThrow(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED));
+    mockMvc.perform(
+      put(baseUrl + "/update")
+        .header(HttpHeaders.IF_MATCH, "\"2\"")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(jsonOfGivenTrade)
+    ).andExpect(status().isPreconditionFailed());
   }
 
+  @Test
+  public void updateWithInvalidETagTest() throws Exception {
+    mockMvc.perform(
+      put(baseUrl + "/update")
+        .header(HttpHeaders.IF_MATCH, "notAnETag")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(jsonOfGivenTrade)
+    ).andExpect(status().isBadRequest());
+    verify(tradeServiceMocked, times(0)).update(any(Trade.class), any());
+  }
+
+  @Test
+  public void updateWithWeakETagTest() throws Exception {
+    mockMvc.perform(
+      put(baseUrl + "/update")
+        .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(jsonOfGivenTrade)
+    ).andExpect(status().isPreconditionFailed());
+    verify(tradeServiceMocked, times(0)).update(any(Trade.class), any());
+  }
 }
@@ -0,0 +1,95 @@
+package com.openclassrooms.poseidon.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+public class IdBlockAllocatorUnitTest {
+
+  private JdbcTemplate jdbcTemplateMocked;
+
+  private PlatformTransactionManager transactionManagerMocked;
+
+  private IdBlockAllocator idBlockAllocatorUnderTest;
+
+  @BeforeEach
+  public void setUp() {
+    jdbcTemplateMocked = mock(JdbcTemplate.class);
+    transactionManagerMocked = mock(PlatformTransactionManager.class);
+    when(transactionManagerMocked.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    idBlockAllocatorUnderTest = new IdBlockAllocator(jdbcTemplateMocked, transactionManagerMocked);
+  }
+
+  @Test
+  public void allocateTest() {
+    when(jdbcTemplateMocked.queryForList(anyString(), eq(Long.class), eq("bidlist")))
+      .thenReturn(List.of(42L));
+
+    assertThat(idBlockAllocatorUnderTest.allocate("bidlist", 10)).isEqualTo(42);
+    verify(jdbcTemplateMocked, times(1)).update(startsWith("update"), eq(52L), eq("bidlist"));
+    verify(transactionManagerMocked, times(1)).commit(any());
+  }
+
+  @Test
+  public void allocateCreatesMissingRowTest() {
+    when(jdbcTemplateMocked.queryForList(anyString(), eq(Long.class), eq("bidlist")))
+      .thenReturn(List.of());
+
+    assertThat(idBlockAllocatorUnderTest.allocate("bidlist", 10)).isEqualTo(1);
+    verify(jdbcTemplateMocked, times(1)).update(startsWith("insert"), eq("bidlist"), eq(11L));
+  }
+
+  @Test
+  public void allocateWhenRowInsertedByAnotherNodeTest() {
+    //No row at the first select, the other node inserts it before us
+    when(jdbcTemplateMocked.queryForList(anyString(), eq(Long.class), eq("bidlist")))
+      .thenReturn(List.of(), List.of(11L));
+    when(jdbcTemplateMocked.update(startsWith("insert"), eq("bidlist"), eq(11L)))
+      .thenThrow(new DuplicateKeyException("Duplicate entry 'bidlist'"));
+
+    assertThat(idBlockAllocatorUnderTest.allocate("bidlist", 10)).isEqualTo(11);
+    verify(jdbcTemplateMocked, times(1)).update(startsWith("update"), eq(21L), eq("bidlist"));
+    verify(transactionManagerMocked, times(1)).rollback(any());
+    verify(transactionManagerMocked, times(1)).commit(any());
+  }
+
+  @Test
+  public void allocateWhenInsertDeadlocksTest() {
+    //Both nodes took a gap lock on the missing row, our insert is the deadlock loser
+    when(jdbcTemplateMocked.queryForList(anyString(), eq(Long.class), eq("bidlist")))
+      .thenReturn(List.of(), List.of(11L));
+    when(jdbcTemplateMocked.update(startsWith("insert"), eq("bidlist"), eq(11L)))
+      .thenThrow(new DeadlockLoserDataAccessException("Deadlock found", null));
+
+    assertThat(idBlockAllocatorUnderTest.allocate("bidlist", 10)).isEqualTo(11);
+    verify(jdbcTemplateMocked, times(1)).update(startsWith("update"), eq(21L), eq("bidlist"));
+  }
+
+  @Test
+  public void allocateGivesUpAfterMaxAttemptsTest() {
+    when(jdbcTemplateMocked.queryForList(anyString(), eq(Long.class), eq("bidlist")))
+      .thenThrow(new CannotAcquireLockException("Lock wait timeout exceeded"));
+
+    assertThrows(CannotAcquireLockException.class,
+      () -> idBlockAllocatorUnderTest.allocate("bidlist", 10));
+    verify(jdbcTemplateMocked, times(IdBlockAllocator.MAX_ATTEMPTS))
+      .queryForList(anyString(), eq(Long.class), eq("bidlist"));
+  }
+
+  @Test
+  public void allocateNothingTest() {
+    assertThrows(IllegalArgumentException.class,
+      () -> idBlockAllocatorUnderTest.allocate("bidlist", 0));
+  }
+}
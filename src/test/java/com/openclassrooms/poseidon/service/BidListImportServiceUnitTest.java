@@ -0,0 +1,205 @@
+package com.openclassrooms.poseidon.service;
+
+import com.openclassrooms.poseidon.domain.BidList;
+import com.openclassrooms.poseidon.domain.DTO.ImportReport;
+import com.openclassrooms.poseidon.repository.IdBlockAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = "import.batch-size=2")
+public class BidListImportServiceUnitTest {
+
+  @Autowired
+  private BidListImportService bidListImportServiceUnderTest;
+
+  @MockBean
+  private JdbcTemplate jdbcTemplateMocked;
+
+  @MockBean
+  private IdBlockAllocator idBlockAllocatorMocked;
+
+  private InputStream csvOf(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void importCsvTest() throws Exception {
+    InputStream givenCsv = csvOf("account,type,bidQuantity,commentary\n" +
+      "acc1,type1,1.0,\"first, with comma\"\n" +
+      "acc2,type2,2.0,\n" +
+      "acc3,type3,3.0,\"quoted \"\"word\"\"\"\n");
+
+    when(idBlockAllocatorMocked.allocate("bidlist", 2)).thenReturn(1);
+    when(idBlockAllocatorMocked.allocate("bidlist", 1)).thenReturn(3);
+
+    ImportReport result = bidListImportServiceUnderTest.importCsv(givenCsv);
+
+    assertThat(result.getImportedRows()).isEqualTo(3);
+    assertThat(result.getRejectedRows()).isEqualTo(0);
+    //3 rows with batches of 2 : one full batch then the remaining row
+    verify(jdbcTemplateMocked, times(1))
+      .batchUpdate(anyString(), argThat((Collection<BidList> batch) -> batch.size() == 2),
+        eq(2), any(ParameterizedPreparedStatementSetter.class));
+    verify(jdbcTemplateMocked, times(1))
+      .batchUpdate(anyString(), argThat((Collection<BidList> batch) -> batch.size() == 1
+          && batch.iterator().next().getBidListId() == 3),
+        eq(1), any(ParameterizedPreparedStatementSetter.class));
+  }
+
+  @Test
+  public void importCsvWithInvalidRowsTest() throws Exception {
+    InputStream givenCsv = csvOf("Account,Type,BidQuantity\n" +
+      "acc1,type1,1.0\n" +
+      ",type2,2.0\n" +
+      "acc3,type3,notANumber\n" +
+      "acc4,type4\n");
+
+    ImportReport result = bidListImportServiceUnderTest.importCsv(givenCsv);
+
+    assertThat(result.getImportedRows()).isEqualTo(1);
+    assertThat(result.getRejectedRows()).isEqualTo(3);
+    assertThat(result.getErrors()).extracting(ImportReport.RowError::getLine)
+      .containsExactly(3L, 4L, 5L);
+    assertThat(result.getErrors().get(0).getMessages())
+      .containsExactly("account : Account is mandatory");
+  }
+
+  @Test
+  public void importCsvWithUnknownColumnTest() {
+    InputStream givenCsv = csvOf("account,type,unknown\n");
+
+    assertThrows(IllegalArgumentException.class,
+      () -> bidListImportServiceUnderTest.importCsv(givenCsv));
+    verify(jdbcTemplateMocked, times(0))
+      .batchUpdate(anyString(), anyCollection(), anyInt(),
+        any(ParameterizedPreparedStatementSetter.class));
+  }
+
+  @Test
+  public void importCsvWithLineBreakInQuotedValueTest() throws Exception {
+    InputStream givenCsv = csvOf("account,type,bidQuantity,commentary\n" +
+      "acc1,type1,1.0,\"first line\nsecond, line\"\n" +
+      ",type2,2.0,\n");
+
+    when(idBlockAllocatorMocked.allocate("bidlist", 1)).thenReturn(1);
+
+    ImportReport result = bidListImportServiceUnderTest.importCsv(givenCsv);
+
+    assertThat(result.getImportedRows()).isEqualTo(1);
+    //The invalid row is the 4th line of the file, the quoted value took 2 lines
+    assertThat(result.getErrors()).extracting(ImportReport.RowError::getLine)
+      .containsExactly(4L);
+    verify(jdbcTemplateMocked, times(1))
+      .batchUpdate(anyString(), argThat((Collection<BidList> batch) ->
+          batch.iterator().next().getCommentary().equals("first line\nsecond, line")),
+        eq(1), any(ParameterizedPreparedStatementSetter.class));
+  }
+
+  @Test
+  public void importCsvWithUnclosedQuoteTest() throws Exception {
+    InputStream givenCsv = csvOf("account,type,commentary\n" +
+      "acc1,type1,\"never closed\n" +
+      "acc2,type2,\n");
+
+    ImportReport result = bidListImportServiceUnderTest.importCsv(givenCsv);
+
+    assertThat(result.getImportedRows()).isEqualTo(0);
+    assertThat(result.getRejectedRows()).isEqualTo(1);
+    assertThat(result.getErrors().get(0).getLine()).isEqualTo(2L);
+  }
+
+  @Test
+  public void importCsvWithFailingBatchTest() throws Exception {
+    InputStream givenCsv = csvOf("account,type,bidQuantity\n" +
+      "acc1,type1,1.0\n" +
+      "acc2,type2,2.0\n" +
+      "acc3,type3,3.0\n" +
+      "acc4,type4,4.0\n" +
+      "acc5,type5,5.0\n");
+
+    when(idBlockAllocatorMocked.allocate("bidlist", 2)).thenReturn(1, 3);
+    when(idBlockAllocatorMocked.allocate("bidlist", 1)).thenReturn(5);
+    //The second batch, lines 4 and 5, fails
+    when(jdbcTemplateMocked.batchUpdate(anyString(),
+      argThat((Collection<BidList> batch) -> batch.iterator().next().getBidListId() == 3),
+      anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+      .thenThrow(new DataIntegrityViolationException("value too long"));
+
+    ImportReport result = bidListImportServiceUnderTest.importCsv(givenCsv);
+
+    assertThat(result.getImportedRows()).isEqualTo(3);
+    assertThat(result.getFailedRows()).isEqualTo(2);
+    assertThat(result.getFailedBatches()).hasSize(1);
+    ImportReport.BatchError failedBatch = result.getFailedBatches().get(0);
+    assertThat(failedBatch.getFirstLine()).isEqualTo(4L);
+    assertThat(failedBatch.getLastLine()).isEqualTo(5L);
+    assertThat(failedBatch.getMessage()).isEqualTo("value too long");
+  }
+
+  @Test
+  public void importCsvWithQuoteInsideValueTest() throws Exception {
+    //The quote does not start the value, it does not open a quoted value
+    InputStream givenCsv = csvOf("account,type,bidQuantity,commentary\n" +
+      "acc1,type1,1.0,5\" screen\n" +
+      "acc2,type2,2.0,\n");
+
+    when(idBlockAllocatorMocked.allocate("bidlist", 2)).thenReturn(1);
+
+    ImportReport result = bidListImportServiceUnderTest.importCsv(givenCsv);
+
+    assertThat(result.getImportedRows()).isEqualTo(2);
+    assertThat(result.getRejectedRows()).isEqualTo(0);
+    verify(jdbcTemplateMocked, times(1))
+      .batchUpdate(anyString(), argThat((Collection<BidList> batch) ->
+          batch.iterator().next().getCommentary().equals("5\" screen")),
+        eq(2), any(ParameterizedPreparedStatementSetter.class));
+  }
+
+  @Test
+  public void importCsvWithTooLongRecordTest() throws Exception {
+    InputStream givenCsv = csvOf("account,type,bidQuantity,commentary\n" +
+      "acc1,type1,1.0,\"" + "x".repeat(BidListImportService.MAX_RECORD_LENGTH) + "\n" +
+      "acc2,type2,2.0,\n");
+
+    when(idBlockAllocatorMocked.allocate("bidlist", 1)).thenReturn(1);
+
+    ImportReport result = bidListImportServiceUnderTest.importCsv(givenCsv);
+
+    //The record is rejected, the reading goes on at the next line
+    assertThat(result.getImportedRows()).isEqualTo(1);
+    assertThat(result.getRejectedRows()).isEqualTo(1);
+    assertThat(result.getErrors().get(0).getLine()).isEqualTo(2L);
+    assertThat(result.getErrors().get(0).getMessages())
+      .containsExactly("Record is longer than " + BidListImportService.MAX_RECORD_LENGTH +
+        " characters");
+  }
+
+  @Test
+  public void parseLineTest() {
+    List<String> result = BidListImportService.parseLine("a,\"b,c\",,\"d\"\"e\"");
+
+    assertThat(result).containsExactly("a", "b,c", "", "d\"e");
+  }
+
+  @Test
+  public void parseLineWithQuoteInsideValueTest() {
+    List<String> result = BidListImportService.parseLine("5\" screen,\"b\"");
+
+    assertThat(result).containsExactly("5\" screen", "b");
+  }
+}
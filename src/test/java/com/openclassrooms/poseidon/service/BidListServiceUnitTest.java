@@ -1,6 +1,11 @@
 package com.openclassrooms.poseidon.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.poseidon.domain.BidList;
+import com.openclassrooms.poseidon.domain.DTO.BidListSummary;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
 import com.openclassrooms.poseidon.repository.BidListRepository;
 import com.openclassrooms.poseidon.service.BidListService;
 import org.assertj.core.util.Lists;
@@ -9,11 +14,22 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.validation.ConstraintViolationException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -28,10 +44,14 @@ public class BidListServiceUnitTest {
   @MockBean
   private BidListRepository bidListRepositoryMocked;
 
+  @Autowired
+  private CacheManager cacheManager;
+
   private BidList givenBidList;
 
   @BeforeEach
   public void setUp() {
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
     String givenAccount = "someAccount";
     String givenType = "someType";
     Double givenBidQuantity = 1.0d;
@@ -42,16 +62,139 @@ public class BidListServiceUnitTest {
   }
 
   @Test
-  public void getAllTest() {
-    List<BidList> expected = new ArrayList<>();
-    expected.add(givenBidList);
+  public void getPageTest() {
+    List<BidList> rows = new ArrayList<>();
+    for (int id = 1; id <= 3; id++) {
+      BidList bidList = new BidList();
+      bidList.setBidListId(id);
+      rows.add(bidList);
+    }
+    when(bidListRepositoryMocked.findByBidListIdGreaterThanOrderByBidListIdAsc(0, PageRequest.of(0, 3)))
+      .thenReturn(rows);
+
+    CursorPage<BidList> result = bidListServiceUnderTest.getPage(0, 2);
+
+    assertThat(result.getContent()).hasSize(2);
+    assertThat(result.getNextCursor()).isEqualTo(CursorPage.encodeCursor(2));
+  }
+
+  @Test
+  public void getLastPageTest() {
+    List<BidList> rows = new ArrayList<>();
+    when(bidListRepositoryMocked.findByBidListIdGreaterThanOrderByBidListIdAsc(2, PageRequest.of(0, 3)))
+      .thenReturn(rows);
+
+    CursorPage<BidList> result = bidListServiceUnderTest.getPage(2, 2);
+
+    assertThat(result.getContent()).isEmpty();
+    assertThat(result.getNextCursor()).isNull();
+  }
+
+  @Test
+  public void getSortedPageTest() {
+    Pageable givenPageable = PageRequest.of(1, 20, Sort.by("bidListId").descending());
+    Page<BidList> expected = new PageImpl<>(new ArrayList<>(), givenPageable, 20);
+    when(bidListRepositoryMocked.findAll(givenPageable)).thenReturn(expected);
+
+    Page<BidList> result = bidListServiceUnderTest.getSortedPage(givenPageable);
+
+    assertThat(result).isEqualTo(expected);
+    verify(bidListRepositoryMocked, times(1)).findAll(givenPageable);
+  }
+
+  @Test
+  public void getSortedPageWithWrongSortTest() {
+    Pageable givenPageable = PageRequest.of(0, 20, Sort.by("notAColumn"));
+
+    assertThrows(
+      ResponseStatusException.class, () -> bidListServiceUnderTest.getSortedPage(givenPageable)
+    );
+    verify(bidListRepositoryMocked, times(0)).findAll(any(Pageable.class));
+  }
+
+  @Test
+  public void getSummaryPageTest() {
+    List<BidListSummary> rows = new ArrayList<>();
+    for (int id = 1; id <= 3; id++) {
+      BidListSummary summary = mock(BidListSummary.class);
+      when(summary.getBidListId()).thenReturn(id);
+      rows.add(summary);
+    }
+    when(bidListRepositoryMocked.findSummaryByBidListIdGreaterThanOrderByBidListIdAsc(0, PageRequest.of(0, 3)))
+      .thenReturn(rows);
+
+    CursorPage<BidListSummary> result = bidListServiceUnderTest.getSummaryPage(0, 2);
+
+    assertThat(result.getContent()).hasSize(2);
+    assertThat(result.getNextCursor()).isEqualTo(CursorPage.encodeCursor(2));
+  }
 
-    when(bidListRepositoryMocked.findAll()).thenReturn(expected);
+  @Test
+  public void getSortedSummaryPageTest() {
+    Pageable givenPageable = PageRequest.of(1, 20, Sort.by("account"));
+    Page<BidListSummary> expected = new PageImpl<>(new ArrayList<>(), givenPageable, 20);
+    when(bidListRepositoryMocked.findSummaryBy(givenPageable)).thenReturn(expected);
 
-    List<BidList> result = Lists.newArrayList(bidListServiceUnderTest.getAll());
+    Page<BidListSummary> result = bidListServiceUnderTest.getSortedSummaryPage(givenPageable);
 
     assertThat(result).isEqualTo(expected);
-    verify(bidListRepositoryMocked, times(1)).findAll();
+    verify(bidListRepositoryMocked, times(0)).findAll(any(Pageable.class));
+  }
+
+  @Test
+  public void getSortedSummaryPageWithWrongSortTest() {
+    Pageable givenPageable = PageRequest.of(0, 20, Sort.by("commentary"));
+
+    assertThrows(
+      ResponseStatusException.class, () -> bidListServiceUnderTest.getSortedSummaryPage(givenPageable)
+    );
+    verify(bidListRepositoryMocked, times(0)).findSummaryBy(any(Pageable.class));
+  }
+
+  @Test
+  public void deleteAllByIdsTest() {
+    when(bidListRepositoryMocked.deleteInBulkByIds(List.of(1, 2))).thenReturn(2);
+
+    int result = bidListServiceUnderTest.deleteAllByIds(List.of(1, 2));
+
+    assertThat(result).isEqualTo(2);
+    verify(bidListRepositoryMocked, times(0)).findById(any());
+  }
+
+  @Test
+  public void deleteAllByFilterTest() {
+    LocalDateTime givenDate = LocalDateTime.of(2022, 5, 31, 0, 0);
+    when(bidListRepositoryMocked.deleteInBulkByFilter(null, "someType", null, Timestamp.valueOf(givenDate)))
+      .thenReturn(12);
+
+    int result = bidListServiceUnderTest.deleteAllByFilter(null, "someType", null, givenDate);
+
+    assertThat(result).isEqualTo(12);
+  }
+
+  @Test
+  public void deleteAllByFilterWithoutFilterTest() {
+    assertThrows(
+      ResponseStatusException.class,
+      () -> bidListServiceUnderTest.deleteAllByFilter(null, null, null, null)
+    );
+    verify(bidListRepositoryMocked, times(0)).deleteInBulkByFilter(any(), any(), any(), any());
+  }
+
+  @Test
+  public void updateStatusTest() {
+    when(bidListRepositoryMocked.updateStatusInBulk(List.of(1, 2), "CLOSED")).thenReturn(2);
+
+    int result = bidListServiceUnderTest.updateStatus(List.of(1, 2), "CLOSED");
+
+    assertThat(result).isEqualTo(2);
+  }
+
+  @Test
+  public void updateStatusWithTooLongStatusTest() {
+    assertThrows(ConstraintViolationException.class,
+      () -> bidListServiceUnderTest.updateStatus(List.of(1, 2), "CLOSED_BY_DESK"));
+    verify(bidListRepositoryMocked, times(0)).updateStatusInBulk(any(), any());
   }
 
   @Test
@@ -61,6 +204,22 @@ public class BidListServiceUnitTest {
     verify(bidListRepositoryMocked, times(1)).delete(givenBidList);
   }
 
+  @Test
+  public void findAllByIdsTest() {
+    List<BidList> rows = new ArrayList<>();
+    for (int id : new int[]{1, 3}) {
+      BidList bidList = new BidList();
+      bidList.setBidListId(id);
+      rows.add(bidList);
+    }
+    when(bidListRepositoryMocked.findAllById(List.of(3, 1, 2))).thenReturn(rows);
+
+    IdListResult<BidList> result = bidListServiceUnderTest.findAllByIds(List.of(3, 1, 2));
+
+    assertThat(result.getContent()).extracting(BidList::getBidListId).containsExactly(3, 1);
+    assertThat(result.getMissingIds()).containsExactly(2);
+  }
+
   @Test
   public void findByIdTest() {
     givenBidList.setBidListId(28);
@@ -98,20 +257,42 @@ public class BidListServiceUnitTest {
   }
 
   @Test
-  public void updateExceptionTest() {
+  public void updateNotFoundTest() {
     BidList modifiedBidList = new BidList();
     modifiedBidList.setBidListId(42);
+    when(bidListRepositoryMocked.updateFormFields(modifiedBidList, null)).thenReturn(0);
 
-    String expectedMessage = "Bid's ID mismatch.";
+    boolean result = bidListServiceUnderTest.update(modifiedBidList, null);
 
-    Exception exception = assertThrows(
-      RuntimeException.class,
-      () ->bidListServiceUnderTest.update(modifiedBidList, givenBidList)
-    );
+    assertThat(result).isFalse();
+  }
 
-    String resultMessage = exception.getMessage();
+  @Test
+  public void updateWithStaleVersionTest() {
+    BidList modifiedBidList = new BidList();
+    modifiedBidList.setBidListId(42);
+    when(bidListRepositoryMocked.updateFormFields(modifiedBidList, Set.of(2))).thenReturn(0);
+    when(bidListRepositoryMocked.existsById(42)).thenReturn(true);
 
-    assertThat(resultMessage.contains(expectedMessage)).isTrue();
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+      () -> bidListServiceUnderTest.update(modifiedBidList, Set.of(2)));
+
+    assertThat(exception.getStatus()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+  }
+
+  @Test
+  public void updateWithAttributeOutOfFormTest() {
+    BidList modifiedBidList = new BidList();
+    modifiedBidList.setBidListId(42);
+    modifiedBidList.setAccount("someNewAccount");
+    modifiedBidList.setCommentary("someCommentary");
+
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+      () -> bidListServiceUnderTest.update(modifiedBidList, null));
+
+    assertThat(exception.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+    assertThat(exception.getReason()).contains("[commentary]");
+    verify(bidListRepositoryMocked, times(0)).updateFormFields(any(BidList.class), any());
   }
 
   @Test
@@ -127,17 +308,68 @@ public class BidListServiceUnitTest {
     modifiedBidList.setType(givenTypeToUpdate);
     modifiedBidList.setBidQuantity(givenBidQuantityToUpdate);
 
-    when(bidListRepositoryMocked.save(givenBidList)).thenReturn(givenBidList);
-    when(bidListRepositoryMocked.existsById(42)).thenReturn(true);
+    when(bidListRepositoryMocked.updateFormFields(modifiedBidList, null)).thenReturn(1);
+
+    boolean result = bidListServiceUnderTest.update(modifiedBidList, null);
+
+    assertThat(result).isTrue();
+    verify(bidListRepositoryMocked, times(1)).updateFormFields(modifiedBidList, null);
+    verify(bidListRepositoryMocked, times(0)).findById(any(Integer.class));
+    verify(bidListRepositoryMocked, times(0)).save(any(BidList.class));
+  }
+
+  @Test
+  public void patchTest() throws Exception {
+    givenBidList.setBidListId(42);
+    when(bidListRepositoryMocked.findById(42)).thenReturn(Optional.of(givenBidList));
+    JsonNode givenPatch = new ObjectMapper().readTree("{\"bidQuantity\": 7.0, \"benchmark\": \"someBenchmark\"}");
 
-    BidList result = bidListServiceUnderTest.update(modifiedBidList, givenBidList);
+    Optional<BidList> result = bidListServiceUnderTest.patch(42, givenPatch, null);
 
-    assertThat(result.getBidListId()).isEqualTo(givenBidList.getBidListId());
-    assertThat(result.getAccount()).isEqualTo(givenAccountToUpdate);
-    assertThat(result.getType()).isEqualTo(givenTypeToUpdate);
-    assertThat(result.getBidQuantity()).isEqualTo(28.0d);
-    verify(bidListRepositoryMocked,times(1)).save(givenBidList);
+    assertThat(result).isPresent();
+    assertThat(result.get().getBidQuantity()).isEqualTo(7.0d);
+    assertThat(result.get().getBenchmark()).isEqualTo("someBenchmark");
+    assertThat(result.get().getAccount()).isEqualTo("someAccount");
   }
 
+  @Test
+  public void patchNotFoundTest() throws Exception {
+    when(bidListRepositoryMocked.findById(42)).thenReturn(Optional.empty());
+    JsonNode givenPatch = new ObjectMapper().readTree("{\"bidQuantity\": 7.0}");
+
+    Optional<BidList> result = bidListServiceUnderTest.patch(42, givenPatch, null);
 
+    assertThat(result).isEmpty();
+  }
+
+  @Test
+  public void patchIdTest() throws Exception {
+    when(bidListRepositoryMocked.findById(42)).thenReturn(Optional.of(givenBidList));
+    JsonNode givenPatch = new ObjectMapper().readTree("{\"bidListId\": 28}");
+
+    assertThrows(IllegalArgumentException.class,
+      () -> bidListServiceUnderTest.patch(42, givenPatch, null));
+  }
+
+  @Test
+  public void patchInvalidTest() throws Exception {
+    when(bidListRepositoryMocked.findById(42)).thenReturn(Optional.of(givenBidList));
+    JsonNode givenPatch = new ObjectMapper().readTree("{\"account\": null}");
+
+    assertThrows(ConstraintViolationException.class,
+      () -> bidListServiceUnderTest.patch(42, givenPatch, null));
+  }
+
+  @Test
+  public void patchWithStaleVersionTest() throws Exception {
+    givenBidList.setVersion(3);
+    when(bidListRepositoryMocked.findById(42)).thenReturn(Optional.of(givenBidList));
+    JsonNode givenPatch = new ObjectMapper().readTree("{\"benchmark\": \"someBenchmark\"}");
+
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+      () -> bidListServiceUnderTest.patch(42, givenPatch, Set.of(2)));
+
+    assertThat(exception.getStatus()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    assertThat(givenBidList.getBenchmark()).isNotEqualTo("someBenchmark");
+  }
 }
@@ -2,6 +2,8 @@ package com.openclassrooms.poseidon.service;
 
 import com.nimbusds.jose.jwk.Curve;
 import com.openclassrooms.poseidon.domain.CurvePoint;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
 import com.openclassrooms.poseidon.repository.CurvePointRepository;
 import com.openclassrooms.poseidon.service.CurvePointService;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,10 +11,21 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,10 +40,14 @@ public class CurvePointServiceUnitTest {
   @MockBean
   private CurvePointRepository curvePointRepositoryMocked;
 
+  @Autowired
+  private CacheManager cacheManager;
+
   private CurvePoint givenCurvePoint;
 
   @BeforeEach
   public void setUp() {
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
     Integer givenCurveId = 1;
     Double givenTerm = 2.0d;
     Double givenValue = 3.0d;
@@ -41,15 +58,70 @@ public class CurvePointServiceUnitTest {
   }
 
   @Test
-  public void getAllTest() {
-    Iterable<CurvePoint> expected = new ArrayList<>();
+  public void getPageTest() {
+    List<CurvePoint> rows = new ArrayList<>();
+    for (int id = 1; id <= 3; id++) {
+      CurvePoint curvePoint = new CurvePoint();
+      curvePoint.setId(id);
+      rows.add(curvePoint);
+    }
+    when(curvePointRepositoryMocked.findByIdGreaterThanOrderByIdAsc(0, PageRequest.of(0, 3)))
+      .thenReturn(rows);
+
+    CursorPage<CurvePoint> result = curvePointServiceUnderTest.getPage(0, 2);
+
+    assertThat(result.getContent()).hasSize(2);
+    assertThat(result.getNextCursor()).isEqualTo(CursorPage.encodeCursor(2));
+  }
 
-    when(curvePointRepositoryMocked.findAll()).thenReturn(expected);
+  @Test
+  public void getLastPageTest() {
+    List<CurvePoint> rows = new ArrayList<>();
+    when(curvePointRepositoryMocked.findByIdGreaterThanOrderByIdAsc(2, PageRequest.of(0, 3)))
+      .thenReturn(rows);
 
-    Iterable<CurvePoint> result = curvePointServiceUnderTest.getAll();
+    CursorPage<CurvePoint> result = curvePointServiceUnderTest.getPage(2, 2);
+
+    assertThat(result.getContent()).isEmpty();
+    assertThat(result.getNextCursor()).isNull();
+  }
+
+  @Test
+  public void getSortedPageTest() {
+    Pageable givenPageable = PageRequest.of(1, 20, Sort.by("id").descending());
+    Page<CurvePoint> expected = new PageImpl<>(new ArrayList<>(), givenPageable, 20);
+    when(curvePointRepositoryMocked.findAll(givenPageable)).thenReturn(expected);
+
+    Page<CurvePoint> result = curvePointServiceUnderTest.getSortedPage(givenPageable);
 
     assertThat(result).isEqualTo(expected);
-    verify(curvePointRepositoryMocked, times(1)).findAll();
+    verify(curvePointRepositoryMocked, times(1)).findAll(givenPageable);
+  }
+
+  @Test
+  public void getSortedPageWithWrongSortTest() {
+    Pageable givenPageable = PageRequest.of(0, 20, Sort.by("notAColumn"));
+
+    assertThrows(
+      ResponseStatusException.class, () -> curvePointServiceUnderTest.getSortedPage(givenPageable)
+    );
+    verify(curvePointRepositoryMocked, times(0)).findAll(any(Pageable.class));
+  }
+
+  @Test
+  public void findAllByIdsTest() {
+    List<CurvePoint> rows = new ArrayList<>();
+    for (int id : new int[]{1, 3}) {
+      CurvePoint curvePoint = new CurvePoint();
+      curvePoint.setId(id);
+      rows.add(curvePoint);
+    }
+    when(curvePointRepositoryMocked.findAllById(List.of(3, 1, 2))).thenReturn(rows);
+
+    IdListResult<CurvePoint> result = curvePointServiceUnderTest.findAllByIds(List.of(3, 1, 2));
+
+    assertThat(result.getContent()).extracting(CurvePoint::getId).containsExactly(3, 1);
+    assertThat(result.getMissingIds()).containsExactly(2);
   }
 
   @Test
@@ -66,6 +138,16 @@ public class CurvePointServiceUnitTest {
     verify(curvePointRepositoryMocked, times(1)).findById(givenId);
   }
 
+  @Test
+  public void deleteAllByIdsTest() {
+    when(curvePointRepositoryMocked.deleteInBulkByIds(List.of(1, 2))).thenReturn(2);
+
+    int result = curvePointServiceUnderTest.deleteAllByIds(List.of(1, 2));
+
+    assertThat(result).isEqualTo(2);
+    verify(curvePointRepositoryMocked, times(0)).findById(any());
+  }
+
   @Test
   public void deleteTest() {
     curvePointServiceUnderTest.delete(givenCurvePoint);
@@ -96,20 +178,66 @@ public class CurvePointServiceUnitTest {
   }
 
   @Test
-  public void updateWithExceptionTest() {
+  public void findByIdIsCachedTest() {
+    when(curvePointRepositoryMocked.findById(28)).thenReturn(Optional.of(givenCurvePoint));
+
+    curvePointServiceUnderTest.findById(28);
+    Optional<CurvePoint> result = curvePointServiceUnderTest.findById(28);
+
+    assertThat(result).contains(givenCurvePoint);
+    verify(curvePointRepositoryMocked, times(1)).findById(28);
+  }
+
+  @Test
+  public void updateEvictsCacheTest() {
+    givenCurvePoint.setId(28);
+    when(curvePointRepositoryMocked.findById(28)).thenReturn(Optional.of(givenCurvePoint));
+    when(curvePointRepositoryMocked.updateFormFields(givenCurvePoint, null)).thenReturn(1);
+
+    curvePointServiceUnderTest.findById(28);
+    curvePointServiceUnderTest.update(givenCurvePoint, null);
+    curvePointServiceUnderTest.findById(28);
+
+    verify(curvePointRepositoryMocked, times(2)).findById(28);
+  }
+
+  @Test
+  public void updateNotFoundTest() {
     CurvePoint modifiedCurvePoint = new CurvePoint();
     modifiedCurvePoint.setId(42);
+    when(curvePointRepositoryMocked.updateFormFields(modifiedCurvePoint, null)).thenReturn(0);
 
-    String expectedMessage = "Curve point ID mismatch.";
+    boolean result = curvePointServiceUnderTest.update(modifiedCurvePoint, null);
 
-    Exception exception = assertThrows(
-      RuntimeException.class,
-      () -> curvePointServiceUnderTest.update(modifiedCurvePoint, givenCurvePoint)
-    );
+    assertThat(result).isFalse();
+  }
 
-    String resultMessage = exception.getMessage();
+  @Test
+  public void updateWithStaleVersionTest() {
+    CurvePoint modifiedCurvePoint = new CurvePoint();
+    modifiedCurvePoint.setId(42);
+    when(curvePointRepositoryMocked.updateFormFields(modifiedCurvePoint, Set.of(2))).thenReturn(0);
+    when(curvePointRepositoryMocked.existsById(42)).thenReturn(true);
 
-    assertThat(resultMessage.contains(expectedMessage)).isTrue();
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+      () -> curvePointServiceUnderTest.update(modifiedCurvePoint, Set.of(2)));
+
+    assertThat(exception.getStatus()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+  }
+
+  @Test
+  public void updateWithAttributeOutOfFormTest() {
+    CurvePoint modifiedCurvePoint = new CurvePoint();
+    modifiedCurvePoint.setId(42);
+    modifiedCurvePoint.setTerm(1.0d);
+    modifiedCurvePoint.setAsOfDate(Timestamp.valueOf(LocalDateTime.now()));
+
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+      () -> curvePointServiceUnderTest.update(modifiedCurvePoint, null));
+
+    assertThat(exception.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+    assertThat(exception.getReason()).contains("[asOfDate]");
+    verify(curvePointRepositoryMocked, times(0)).updateFormFields(any(CurvePoint.class), any());
   }
 
   @Test
@@ -124,14 +252,14 @@ public class CurvePointServiceUnitTest {
     modifiedCurvePoint.setTerm(newGivenTerm);
     modifiedCurvePoint.setValue(newGivenValue);
 
-    when(curvePointRepositoryMocked.save(givenCurvePoint)).thenReturn(givenCurvePoint);
+    when(curvePointRepositoryMocked.updateFormFields(modifiedCurvePoint, null)).thenReturn(1);
 
-    CurvePoint result = curvePointServiceUnderTest.update(modifiedCurvePoint, givenCurvePoint);
+    boolean result = curvePointServiceUnderTest.update(modifiedCurvePoint, null);
 
-    verify(curvePointRepositoryMocked, times(1)).save(givenCurvePoint);
-    assertThat(result.getCurveId()).isEqualTo(28);
-    assertThat(result.getTerm()).isEqualTo(9.0d);
-    assertThat(result.getValue()).isEqualTo(100.0d);
+    assertThat(result).isTrue();
+    verify(curvePointRepositoryMocked, times(1)).updateFormFields(modifiedCurvePoint, null);
+    verify(curvePointRepositoryMocked, times(0)).findById(any(Integer.class));
+    verify(curvePointRepositoryMocked, times(0)).save(any(CurvePoint.class));
   }
 
 }
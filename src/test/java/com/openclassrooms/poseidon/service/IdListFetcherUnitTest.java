@@ -0,0 +1,70 @@
+package com.openclassrooms.poseidon.service;
+
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class IdListFetcherUnitTest {
+
+  @Test
+  public void fetchTest() {
+    List<List<Integer>> chunks = new ArrayList<>();
+
+    IdListResult<Integer> result = IdListFetcher.fetch(List.of(3, 1, 2),
+      ids -> {
+        chunks.add(ids);
+        //The rows come back in any order, 2 is missing
+        return List.of(1, 3);
+      },
+      row -> row);
+
+    assertThat(result.getContent()).containsExactly(3, 1);
+    assertThat(result.getMissingIds()).containsExactly(2);
+    assertThat(chunks).hasSize(1);
+  }
+
+  @Test
+  public void fetchByChunksTest() {
+    List<Integer> givenIds = IntStream.rangeClosed(1, 2 * IdListFetcher.CHUNK_SIZE + 1).boxed()
+      .collect(Collectors.toList());
+    List<Integer> chunkSizes = new ArrayList<>();
+
+    IdListResult<Integer> result = IdListFetcher.fetch(givenIds,
+      ids -> {
+        chunkSizes.add(ids.size());
+        return ids;
+      },
+      row -> row);
+
+    assertThat(result.getContent()).isEqualTo(givenIds);
+    assertThat(chunkSizes)
+      .containsExactly(IdListFetcher.CHUNK_SIZE, IdListFetcher.CHUNK_SIZE, 1);
+  }
+
+  @Test
+  public void checkIdsTest() {
+    assertThat(IdListFetcher.checkIds(List.of(3, 1, 3, 2))).containsExactly(3, 1, 2);
+  }
+
+  @Test
+  public void checkIdsWithEmptyIdTest() {
+    assertThrows(IllegalArgumentException.class,
+      () -> IdListFetcher.checkIds(Arrays.asList(1, null)));
+  }
+
+  @Test
+  public void checkIdsWithTooManyIdsTest() {
+    List<Integer> givenIds = IntStream.rangeClosed(1, IdListFetcher.MAX_IDS + 1).boxed()
+      .collect(Collectors.toList());
+
+    assertThrows(IllegalArgumentException.class, () -> IdListFetcher.checkIds(givenIds));
+  }
+}
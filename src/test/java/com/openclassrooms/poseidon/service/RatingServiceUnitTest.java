@@ -1,5 +1,7 @@
 package com.openclassrooms.poseidon.service;
 
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
 import com.openclassrooms.poseidon.domain.Rating;
 import com.openclassrooms.poseidon.repository.RatingRepository;
 import com.openclassrooms.poseidon.service.RatingService;
@@ -9,11 +11,19 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -28,10 +38,14 @@ public class RatingServiceUnitTest {
   @MockBean
   private RatingRepository ratingRepositoryMocked;
 
+  @Autowired
+  private CacheManager cacheManager;
+
   private Rating givenRating;
 
   @BeforeEach
   public void setUp() {
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
     String givenMoodyRating = "someMoodysRating";
     String givenSandPRating = "someSandPRating";
     String givenFitchRating = "someFitchRating";
@@ -44,14 +58,54 @@ public class RatingServiceUnitTest {
   }
 
   @Test
-  public void getAllTest() {
-    List<Rating> expected = new ArrayList<>();
+  public void getPageTest() {
+    List<Rating> rows = new ArrayList<>();
+    for (int id = 1; id <= 3; id++) {
+      Rating rating = new Rating();
+      rating.setId(id);
+      rows.add(rating);
+    }
+    when(ratingRepositoryMocked.findByIdGreaterThanOrderByIdAsc(0, PageRequest.of(0, 3)))
+      .thenReturn(rows);
+
+    CursorPage<Rating> result = ratingServiceUnderTest.getPage(0, 2);
+
+    assertThat(result.getContent()).hasSize(2);
+    assertThat(result.getNextCursor()).isEqualTo(CursorPage.encodeCursor(2));
+  }
+
+  @Test
+  public void getLastPageTest() {
+    List<Rating> rows = new ArrayList<>();
+    when(ratingRepositoryMocked.findByIdGreaterThanOrderByIdAsc(2, PageRequest.of(0, 3)))
+      .thenReturn(rows);
 
-    when(ratingRepositoryMocked.findAll()).thenReturn(expected);
+    CursorPage<Rating> result = ratingServiceUnderTest.getPage(2, 2);
 
-    List<Rating> result = Lists.newArrayList(ratingServiceUnderTest.getAll());
+    assertThat(result.getContent()).isEmpty();
+    assertThat(result.getNextCursor()).isNull();
+  }
+
+  @Test
+  public void getSortedPageTest() {
+    Pageable givenPageable = PageRequest.of(1, 20, Sort.by("id").descending());
+    Page<Rating> expected = new PageImpl<>(new ArrayList<>(), givenPageable, 20);
+    when(ratingRepositoryMocked.findAll(givenPageable)).thenReturn(expected);
+
+    Page<Rating> result = ratingServiceUnderTest.getSortedPage(givenPageable);
 
     assertThat(result).isEqualTo(expected);
+    verify(ratingRepositoryMocked, times(1)).findAll(givenPageable);
+  }
+
+  @Test
+  public void getSortedPageWithWrongSortTest() {
+    Pageable givenPageable = PageRequest.of(0, 20, Sort.by("notAColumn"));
+
+    assertThrows(
+      ResponseStatusException.class, () -> ratingServiceUnderTest.getSortedPage(givenPageable)
+    );
+    verify(ratingRepositoryMocked, times(0)).findAll(any(Pageable.class));
   }
 
   @Test
@@ -77,6 +131,22 @@ public class RatingServiceUnitTest {
     assertThat(result).isEqualTo(givenRating);
   }
 
+  @Test
+  public void findAllByIdsTest() {
+    List<Rating> rows = new ArrayList<>();
+    for (int id : new int[]{1, 3}) {
+      Rating rating = new Rating();
+      rating.setId(id);
+      rows.add(rating);
+    }
+    when(ratingRepositoryMocked.findAllById(List.of(3, 1, 2))).thenReturn(rows);
+
+    IdListResult<Rating> result = ratingServiceUnderTest.findAllByIds(List.of(3, 1, 2));
+
+    assertThat(result.getContent()).extracting(Rating::getId).containsExactly(3, 1);
+    assertThat(result.getMissingIds()).containsExactly(2);
+  }
+
   @Test
   public void findByIdTest() {
     Integer givenId = 28;
@@ -90,19 +160,51 @@ public class RatingServiceUnitTest {
   }
 
   @Test
-  public void updateExceptionTest() {
+  public void findByIdIsCachedTest() {
+    when(ratingRepositoryMocked.findById(28)).thenReturn(Optional.of(givenRating));
+
+    ratingServiceUnderTest.findById(28);
+    Optional<Rating> result = ratingServiceUnderTest.findById(28);
+
+    assertThat(result).contains(givenRating);
+    verify(ratingRepositoryMocked, times(1)).findById(28);
+  }
+
+  @Test
+  public void updateEvictsCacheTest() {
+    givenRating.setId(28);
+    when(ratingRepositoryMocked.findById(28)).thenReturn(Optional.of(givenRating));
+    when(ratingRepositoryMocked.updateFormFields(givenRating, null)).thenReturn(1);
+
+    ratingServiceUnderTest.findById(28);
+    ratingServiceUnderTest.update(givenRating, null);
+    ratingServiceUnderTest.findById(28);
+
+    verify(ratingRepositoryMocked, times(2)).findById(28);
+  }
+
+  @Test
+  public void updateNotFoundTest() {
     Rating modifiedRating = new Rating();
-    modifiedRating.setId(28);
+    modifiedRating.setId(42);
+    when(ratingRepositoryMocked.updateFormFields(modifiedRating, null)).thenReturn(0);
 
-    String expectedMessage = "Rating ID mismatch.";
+    boolean result = ratingServiceUnderTest.update(modifiedRating, null);
 
-    Exception exception = assertThrows(
-      RuntimeException.class,
-      () -> ratingServiceUnderTest.update(modifiedRating, givenRating)
-    );
-    String resultMessage = exception.getMessage();
+    assertThat(result).isFalse();
+  }
 
-    assertThat(resultMessage.contains(expectedMessage)).isTrue();
+  @Test
+  public void updateWithStaleVersionTest() {
+    Rating modifiedRating = new Rating();
+    modifiedRating.setId(42);
+    when(ratingRepositoryMocked.updateFormFields(modifiedRating, Set.of(2))).thenReturn(0);
+    when(ratingRepositoryMocked.existsById(42)).thenReturn(true);
+
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+      () -> ratingServiceUnderTest.update(modifiedRating, Set.of(2)));
+
+    assertThat(exception.getStatus()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
   }
 
   @Test
@@ -121,14 +223,24 @@ public class RatingServiceUnitTest {
     modifiedRating.setSandPRating(newGivenSandPRating);
     modifiedRating.setOrderNumber(newGivenOrderNumber);
 
-    when(ratingRepositoryMocked.save(givenRating)).thenReturn(givenRating);
+    when(ratingRepositoryMocked.updateFormFields(modifiedRating, null)).thenReturn(1);
+
+    boolean result = ratingServiceUnderTest.update(modifiedRating, null);
+
+    assertThat(result).isTrue();
+    verify(ratingRepositoryMocked, times(1)).updateFormFields(modifiedRating, null);
+    verify(ratingRepositoryMocked, times(0)).findById(any(Integer.class));
+    verify(ratingRepositoryMocked, times(0)).save(any(Rating.class));
+  }
+
+  @Test
+  public void deleteAllByIdsTest() {
+    when(ratingRepositoryMocked.deleteInBulkByIds(List.of(1, 2))).thenReturn(2);
 
-    Rating result = ratingServiceUnderTest.update(modifiedRating, givenRating);
+    int result = ratingServiceUnderTest.deleteAllByIds(List.of(1, 2));
 
-    assertThat(result.getFitchRating()).isEqualTo(newGivenFitchRating);
-    assertThat(result.getMoodysRating()).isEqualTo(newGivenMoodyRating);
-    assertThat(result.getSandPRating()).isEqualTo(newGivenSandPRating);
-    assertThat(result.getOrderNumber()).isEqualTo(newGivenOrderNumber);
+    assertThat(result).isEqualTo(2);
+    verify(ratingRepositoryMocked, times(0)).findById(any());
   }
 
   @Test
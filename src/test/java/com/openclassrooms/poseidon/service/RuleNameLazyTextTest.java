@@ -0,0 +1,102 @@
+package com.openclassrooms.poseidon.service;
+
+import com.openclassrooms.poseidon.domain.DTO.RuleNameSummary;
+import com.openclassrooms.poseidon.domain.RuleName;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.PersistentAttributeInterceptable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that the long text columns of the rule names are only read when they are needed : the
+ * lists get previews, a rule name found by id comes with its full text.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class RuleNameLazyTextTest {
+
+  private static final String LONG_JSON = "{\"rule\":\"" + "x".repeat(200) + "\"}";
+
+  //As many characters as the preview, but more bytes in UTF-8
+  private static final String ACCENTED_TEMPLATE = "é".repeat(RuleNameSummary.PREVIEW_LENGTH);
+
+  @Autowired
+  private RuleNameService ruleNameServiceUnderTest;
+
+  @Autowired
+  private CacheManager cacheManager;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private RuleName savedRuleName;
+
+  @BeforeEach
+  public void setUp() {
+    RuleName ruleName = new RuleName();
+    ruleName.setName("lazyText");
+    ruleName.setDescription("someDescription");
+    ruleName.setJson(LONG_JSON);
+    ruleName.setTemplate(ACCENTED_TEMPLATE);
+    ruleName.setSqlStr("someSqlStr");
+    ruleName.setSqlPart("someSqlPart");
+    savedRuleName = ruleNameServiceUnderTest.save(ruleName);
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+  }
+
+  @AfterEach
+  public void tearDown() {
+    ruleNameServiceUnderTest.delete(savedRuleName);
+  }
+
+  @Test
+  public void getSummaryPageReturnsPreviewsTest() {
+    RuleNameSummary summary = ruleNameServiceUnderTest
+      .getSummaryPage(savedRuleName.getId() - 1, 1).getContent().get(0);
+
+    assertThat(summary.getJsonPreview())
+      .isEqualTo(LONG_JSON.substring(0, RuleNameSummary.PREVIEW_LENGTH) + "...");
+    assertThat(summary.getTemplatePreview()).isEqualTo(ACCENTED_TEMPLATE);
+    assertThat(summary.getSqlStrPreview()).isEqualTo("someSqlStr");
+  }
+
+  @Test
+  public void findByIdLoadsTextTest() {
+    RuleName result = ruleNameServiceUnderTest.findById(savedRuleName.getId()).orElseThrow();
+
+    //read outside of any transaction
+    assertThat(result.getJson()).isEqualTo(LONG_JSON);
+    assertThat(result.getSqlPart()).isEqualTo("someSqlPart");
+  }
+
+  @Test
+  public void textIsNotLoadedWithTheEntityTest() {
+    assumeTrue(PersistentAttributeInterceptable.class.isAssignableFrom(RuleName.class),
+      "The entities are not enhanced (-DskipEnhance)");
+
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      RuleName ruleName = entityManager.find(RuleName.class, savedRuleName.getId());
+
+      assertThat(Hibernate.isPropertyInitialized(ruleName, "name")).isTrue();
+      assertThat(Hibernate.isPropertyInitialized(ruleName, "json")).isFalse();
+      assertThat(ruleName.getJson()).isEqualTo(LONG_JSON);
+      assertThat(Hibernate.isPropertyInitialized(ruleName, "sqlPart")).isTrue();
+    });
+  }
+}
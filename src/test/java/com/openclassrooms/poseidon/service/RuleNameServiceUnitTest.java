@@ -1,5 +1,8 @@
 package com.openclassrooms.poseidon.service;
 
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
+import com.openclassrooms.poseidon.domain.DTO.RuleNameSummary;
 import com.openclassrooms.poseidon.domain.RuleName;
 import com.openclassrooms.poseidon.repository.RuleNameRepository;
 import com.openclassrooms.poseidon.service.RuleNameService;
@@ -8,10 +11,19 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,10 +38,14 @@ public class RuleNameServiceUnitTest {
   @MockBean
   private RuleNameRepository ruleNameRepositoryMocked;
 
+  @Autowired
+  private CacheManager cacheManager;
+
   private RuleName givenRuleName;
 
   @BeforeEach
   public void setUp() {
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
     String givenName = "someName";
     String givenDescription = "someDescription";
     String givenJson = "someJson";
@@ -46,15 +62,93 @@ public class RuleNameServiceUnitTest {
   }
 
   @Test
-  public void getAllTest() {
-    Iterable<RuleName> expected = new ArrayList<>();
+  public void getPageTest() {
+    List<RuleName> rows = new ArrayList<>();
+    for (int id = 1; id <= 3; id++) {
+      RuleName ruleName = new RuleName();
+      ruleName.setId(id);
+      rows.add(ruleName);
+    }
+    when(ruleNameRepositoryMocked.findByIdGreaterThanOrderByIdAsc(0, PageRequest.of(0, 3)))
+      .thenReturn(rows);
+
+    CursorPage<RuleName> result = ruleNameServiceUnderTest.getPage(0, 2);
+
+    assertThat(result.getContent()).hasSize(2);
+    assertThat(result.getNextCursor()).isEqualTo(CursorPage.encodeCursor(2));
+  }
+
+  @Test
+  public void getLastPageTest() {
+    List<RuleName> rows = new ArrayList<>();
+    when(ruleNameRepositoryMocked.findByIdGreaterThanOrderByIdAsc(2, PageRequest.of(0, 3)))
+      .thenReturn(rows);
 
-    when(ruleNameRepositoryMocked.findAll()).thenReturn(expected);
+    CursorPage<RuleName> result = ruleNameServiceUnderTest.getPage(2, 2);
+
+    assertThat(result.getContent()).isEmpty();
+    assertThat(result.getNextCursor()).isNull();
+  }
+
+  @Test
+  public void getSortedPageTest() {
+    Pageable givenPageable = PageRequest.of(1, 20, Sort.by("id").descending());
+    Page<RuleName> expected = new PageImpl<>(new ArrayList<>(), givenPageable, 20);
+    when(ruleNameRepositoryMocked.findAll(givenPageable)).thenReturn(expected);
 
-    Iterable<RuleName> result = ruleNameServiceUnderTest.getAll();
+    Page<RuleName> result = ruleNameServiceUnderTest.getSortedPage(givenPageable);
 
     assertThat(result).isEqualTo(expected);
-    verify(ruleNameRepositoryMocked, times(1)).findAll();
+    verify(ruleNameRepositoryMocked, times(1)).findAll(givenPageable);
+  }
+
+  @Test
+  public void getSortedPageWithWrongSortTest() {
+    Pageable givenPageable = PageRequest.of(0, 20, Sort.by("notAColumn"));
+
+    assertThrows(
+      ResponseStatusException.class, () -> ruleNameServiceUnderTest.getSortedPage(givenPageable)
+    );
+    verify(ruleNameRepositoryMocked, times(0)).findAll(any(Pageable.class));
+  }
+
+  @Test
+  public void getSummaryPageTest() {
+    List<RuleNameSummary> rows = new ArrayList<>();
+    for (int id = 1; id <= 3; id++) {
+      RuleNameSummary summary = mock(RuleNameSummary.class);
+      when(summary.getId()).thenReturn(id);
+      rows.add(summary);
+    }
+    when(ruleNameRepositoryMocked.findSummaryByIdGreaterThan(0, PageRequest.of(0, 3)))
+      .thenReturn(rows);
+
+    CursorPage<RuleNameSummary> result = ruleNameServiceUnderTest.getSummaryPage(0, 2);
+
+    assertThat(result.getContent()).hasSize(2);
+    assertThat(result.getNextCursor()).isEqualTo(CursorPage.encodeCursor(2));
+  }
+
+  @Test
+  public void getSortedSummaryPageTest() {
+    Pageable givenPageable = PageRequest.of(1, 20, Sort.by("name"));
+    Page<RuleNameSummary> expected = new PageImpl<>(new ArrayList<>(), givenPageable, 20);
+    when(ruleNameRepositoryMocked.findSummaryBy(givenPageable)).thenReturn(expected);
+
+    Page<RuleNameSummary> result = ruleNameServiceUnderTest.getSortedSummaryPage(givenPageable);
+
+    assertThat(result).isEqualTo(expected);
+    verify(ruleNameRepositoryMocked, times(0)).findAll(any(Pageable.class));
+  }
+
+  @Test
+  public void getSortedSummaryPageWithWrongSortTest() {
+    Pageable givenPageable = PageRequest.of(0, 20, Sort.by("json"));
+
+    assertThrows(
+      ResponseStatusException.class, () -> ruleNameServiceUnderTest.getSortedSummaryPage(givenPageable)
+    );
+    verify(ruleNameRepositoryMocked, times(0)).findSummaryBy(any(Pageable.class));
   }
 
   @Test
@@ -82,6 +176,22 @@ public class RuleNameServiceUnitTest {
     verify(ruleNameRepositoryMocked, times(1)).save(givenRuleName);
   }
 
+  @Test
+  public void findAllByIdsTest() {
+    List<RuleName> rows = new ArrayList<>();
+    for (int id : new int[]{1, 3}) {
+      RuleName ruleName = new RuleName();
+      ruleName.setId(id);
+      rows.add(ruleName);
+    }
+    when(ruleNameRepositoryMocked.findWithTextByIdIn(List.of(3, 1, 2))).thenReturn(rows);
+
+    IdListResult<RuleName> result = ruleNameServiceUnderTest.findAllByIds(List.of(3, 1, 2));
+
+    assertThat(result.getContent()).extracting(RuleName::getId).containsExactly(3, 1);
+    assertThat(result.getMissingIds()).containsExactly(2);
+  }
+
   @Test
   public void findByIdTest() {
     Integer givenId = 28;
@@ -97,19 +207,51 @@ public class RuleNameServiceUnitTest {
   }
 
   @Test
-  public void updateExceptionTest() {
+  public void findByIdIsCachedTest() {
+    when(ruleNameRepositoryMocked.findById(28)).thenReturn(Optional.of(givenRuleName));
+
+    ruleNameServiceUnderTest.findById(28);
+    Optional<RuleName> result = ruleNameServiceUnderTest.findById(28);
+
+    assertThat(result).contains(givenRuleName);
+    verify(ruleNameRepositoryMocked, times(1)).findById(28);
+  }
+
+  @Test
+  public void updateEvictsCacheTest() {
+    givenRuleName.setId(28);
+    when(ruleNameRepositoryMocked.findById(28)).thenReturn(Optional.of(givenRuleName));
+    when(ruleNameRepositoryMocked.updateFormFields(givenRuleName, null)).thenReturn(1);
+
+    ruleNameServiceUnderTest.findById(28);
+    ruleNameServiceUnderTest.update(givenRuleName, null);
+    ruleNameServiceUnderTest.findById(28);
+
+    verify(ruleNameRepositoryMocked, times(2)).findById(28);
+  }
+
+  @Test
+  public void updateNotFoundTest() {
     RuleName modifiedRuleName = new RuleName();
-    modifiedRuleName.setId(28);
-    String expectedMessage = "Rule names ID mismatch.";
+    modifiedRuleName.setId(42);
+    when(ruleNameRepositoryMocked.updateFormFields(modifiedRuleName, null)).thenReturn(0);
 
-    Exception exception = assertThrows(
-      RuntimeException.class,
-      () -> ruleNameServiceUnderTest.update(modifiedRuleName, givenRuleName)
-    );
+    boolean result = ruleNameServiceUnderTest.update(modifiedRuleName, null);
 
-    String resultMessage = exception.getMessage();
+    assertThat(result).isFalse();
+  }
 
-    assertThat(resultMessage.contains(expectedMessage)).isTrue();
+  @Test
+  public void updateWithStaleVersionTest() {
+    RuleName modifiedRuleName = new RuleName();
+    modifiedRuleName.setId(42);
+    when(ruleNameRepositoryMocked.updateFormFields(modifiedRuleName, Set.of(2))).thenReturn(0);
+    when(ruleNameRepositoryMocked.existsById(42)).thenReturn(true);
+
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+      () -> ruleNameServiceUnderTest.update(modifiedRuleName, Set.of(2)));
+
+    assertThat(exception.getStatus()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
   }
 
   @Test
@@ -131,17 +273,36 @@ public class RuleNameServiceUnitTest {
     modifiedRuleName.setSqlStr(newGivenSqlStr);
     modifiedRuleName.setSqlPart(newGivenSqlPart);
     
-    when(ruleNameRepositoryMocked.save(givenRuleName)).thenReturn(givenRuleName);
-    
-    RuleName result = ruleNameServiceUnderTest.update(modifiedRuleName, givenRuleName);
+    when(ruleNameRepositoryMocked.updateFormFields(modifiedRuleName, null)).thenReturn(1);
 
-    verify(ruleNameRepositoryMocked, times(1)).save(givenRuleName);
-    assertThat(result.getName()).isEqualTo(newGivenName);
-    assertThat(result.getDescription()).isEqualTo(newGivenDescription);
-    assertThat(result.getJson()).isEqualTo(newGivenJson);
-    assertThat(result.getTemplate()).isEqualTo(newGivenTemplate);
-    assertThat(result.getSqlStr()).isEqualTo(newGivenSqlStr);
-    assertThat(result.getSqlPart()).isEqualTo(newGivenSqlPart);
+    boolean result = ruleNameServiceUnderTest.update(modifiedRuleName, null);
+
+    assertThat(result).isTrue();
+    verify(ruleNameRepositoryMocked, times(1)).updateFormFields(modifiedRuleName, null);
+    verify(ruleNameRepositoryMocked, times(0)).findById(any(Integer.class));
+    verify(ruleNameRepositoryMocked, times(0)).save(any(RuleName.class));
+  }
+
+  @Test
+  public void deleteAllByIdsTest() {
+    when(ruleNameRepositoryMocked.deleteInBulkByIds(List.of(1, 2))).thenReturn(2);
+
+    int result = ruleNameServiceUnderTest.deleteAllByIds(List.of(1, 2));
+
+    assertThat(result).isEqualTo(2);
+    verify(ruleNameRepositoryMocked, times(0)).findById(any());
+  }
+
+  @Test
+  public void deleteAllByIdsEvictsCacheTest() {
+    when(ruleNameRepositoryMocked.findById(28)).thenReturn(Optional.of(givenRuleName));
+    when(ruleNameRepositoryMocked.deleteInBulkByIds(List.of(28))).thenReturn(1);
+
+    ruleNameServiceUnderTest.findById(28);
+    ruleNameServiceUnderTest.deleteAllByIds(List.of(28));
+    ruleNameServiceUnderTest.findById(28);
+
+    verify(ruleNameRepositoryMocked, times(2)).findById(28);
   }
 
   @Test
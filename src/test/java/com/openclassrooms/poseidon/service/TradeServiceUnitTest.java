@@ -1,5 +1,10 @@
 package com.openclassrooms.poseidon.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
+import com.openclassrooms.poseidon.domain.DTO.TradeSummary;
 import com.openclassrooms.poseidon.domain.Trade;
 import com.openclassrooms.poseidon.repository.TradeRepository;
 import com.openclassrooms.poseidon.service.TradeService;
@@ -8,10 +13,32 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.validation.ConstraintViolationException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,10 +53,14 @@ public class TradeServiceUnitTest {
   @MockBean
   private TradeRepository tradeRepositoryMocked;
 
+  @Autowired
+  private CacheManager cacheManager;
+
   private Trade givenTrade;
 
   @BeforeEach
   public void setUp(){
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
     String givenAccount = "someAccount";
     String givenType = "someType";
     Double givenBuyQuantity = 1.0d;
@@ -40,15 +71,152 @@ public class TradeServiceUnitTest {
   }
 
   @Test
-  public void getAllTest() {
-    Iterable<Trade> expected = new ArrayList<>();
+  public void getPageTest() {
+    List<Trade> rows = new ArrayList<>();
+    for (int id = 1; id <= 3; id++) {
+      Trade trade = new Trade();
+      trade.setTradeId(id);
+      rows.add(trade);
+    }
+    when(tradeRepositoryMocked.findByTradeIdGreaterThanOrderByTradeIdAsc(0, PageRequest.of(0, 3)))
+      .thenReturn(rows);
+
+    CursorPage<Trade> result = tradeServiceUnderTest.getPage(0, 2);
+
+    assertThat(result.getContent()).hasSize(2);
+    assertThat(result.getNextCursor()).isEqualTo(CursorPage.encodeCursor(2));
+  }
+
+  @Test
+  public void getLastPageTest() {
+    List<Trade> rows = new ArrayList<>();
+    when(tradeRepositoryMocked.findByTradeIdGreaterThanOrderByTradeIdAsc(2, PageRequest.of(0, 3)))
+      .thenReturn(rows);
+
+    CursorPage<Trade> result = tradeServiceUnderTest.getPage(2, 2);
+
+    assertThat(result.getContent()).isEmpty();
+    assertThat(result.getNextCursor()).isNull();
+  }
 
-    when(tradeRepositoryMocked.findAll()).thenReturn(expected);
+  @Test
+  public void getSortedPageTest() {
+    Pageable givenPageable = PageRequest.of(1, 20, Sort.by("tradeId").descending());
+    Page<Trade> expected = new PageImpl<>(new ArrayList<>(), givenPageable, 20);
+    when(tradeRepositoryMocked.findAll(givenPageable)).thenReturn(expected);
 
-    Iterable<Trade> result = tradeServiceUnderTest.getAll();
+    Page<Trade> result = tradeServiceUnderTest.getSortedPage(givenPageable);
 
-    verify(tradeRepositoryMocked,times(1)).findAll();
     assertThat(result).isEqualTo(expected);
+    verify(tradeRepositoryMocked, times(1)).findAll(givenPageable);
+  }
+
+  @Test
+  public void getSortedPageIsCachedUntilBulkWriteTest() {
+    Pageable givenPageable = PageRequest.of(0, 20, Sort.by("tradeId"));
+    when(tradeRepositoryMocked.findAll(givenPageable))
+      .thenReturn(new PageImpl<>(new ArrayList<>(), givenPageable, 0));
+    when(tradeRepositoryMocked.updateStatusInBulk(List.of(1), "CLOSED")).thenReturn(1);
+
+    tradeServiceUnderTest.getSortedPage(givenPageable);
+    tradeServiceUnderTest.getSortedPage(PageRequest.of(0, 20, Sort.by("tradeId")));
+    tradeServiceUnderTest.updateStatus(List.of(1), "CLOSED");
+    tradeServiceUnderTest.getSortedPage(givenPageable);
+
+    verify(tradeRepositoryMocked, times(2)).findAll(givenPageable);
+  }
+
+  @Test
+  public void getSortedPageIsLoadedOnceByConcurrentCallsTest() throws Exception {
+    Pageable givenPageable = PageRequest.of(0, 20, Sort.by("tradeId"));
+    CountDownLatch start = new CountDownLatch(1);
+    when(tradeRepositoryMocked.findAll(givenPageable)).thenAnswer(invocation -> {
+      Thread.sleep(100);
+      return new PageImpl<>(new ArrayList<>(), givenPageable, 0);
+    });
+    ExecutorService executor = Executors.newFixedThreadPool(20);
+    List<Future<Page<Trade>>> results = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      results.add(executor.submit(() -> {
+        start.await();
+        return tradeServiceUnderTest.getSortedPage(givenPageable);
+      }));
+    }
+    start.countDown();
+    for (Future<Page<Trade>> result : results) {
+      assertThat(result.get()).isEmpty();
+    }
+    executor.shutdown();
+
+    verify(tradeRepositoryMocked, times(1)).findAll(givenPageable);
+  }
+
+  @Test
+  public void getSortedPageWithWrongSortTest() {
+    Pageable givenPageable = PageRequest.of(0, 20, Sort.by("notAColumn"));
+
+    assertThrows(
+      ResponseStatusException.class, () -> tradeServiceUnderTest.getSortedPage(givenPageable)
+    );
+    verify(tradeRepositoryMocked, times(0)).findAll(any(Pageable.class));
+  }
+
+  @Test
+  public void getSummaryPageTest() {
+    List<TradeSummary> rows = new ArrayList<>();
+    for (int id = 1; id <= 3; id++) {
+      TradeSummary summary = mock(TradeSummary.class);
+      when(summary.getTradeId()).thenReturn(id);
+      rows.add(summary);
+    }
+    when(tradeRepositoryMocked.findSummaryByTradeIdGreaterThanOrderByTradeIdAsc(0, PageRequest.of(0, 3)))
+      .thenReturn(rows);
+
+    CursorPage<TradeSummary> result = tradeServiceUnderTest.getSummaryPage(0, 2);
+
+    assertThat(result.getContent()).hasSize(2);
+    assertThat(result.getNextCursor()).isEqualTo(CursorPage.encodeCursor(2));
+  }
+
+  @Test
+  public void getSortedSummaryPageTest() {
+    Pageable givenPageable = PageRequest.of(1, 20, Sort.by("account"));
+    Page<TradeSummary> expected = new PageImpl<>(new ArrayList<>(), givenPageable, 20);
+    when(tradeRepositoryMocked.findSummaryBy(givenPageable)).thenReturn(expected);
+
+    Page<TradeSummary> result = tradeServiceUnderTest.getSortedSummaryPage(givenPageable);
+
+    assertThat(result).isEqualTo(expected);
+    verify(tradeRepositoryMocked, times(0)).findAll(any(Pageable.class));
+  }
+
+  @Test
+  public void getSortedSummaryPageWithWrongSortTest() {
+    Pageable givenPageable = PageRequest.of(0, 20, Sort.by("commentary"));
+
+    assertThrows(
+      ResponseStatusException.class, () -> tradeServiceUnderTest.getSortedSummaryPage(givenPageable)
+    );
+    verify(tradeRepositoryMocked, times(0)).findSummaryBy(any(Pageable.class));
+  }
+
+  @Test
+  public void exportAllTest() throws IOException {
+    Trade firstTrade = new Trade();
+    firstTrade.setTradeId(1);
+    firstTrade.setAccount("firstAccount");
+    Trade secondTrade = new Trade();
+    secondTrade.setTradeId(2);
+    secondTrade.setAccount("secondAccount");
+    when(tradeRepositoryMocked.streamAll(anyInt())).thenReturn(Stream.of(firstTrade, secondTrade));
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    tradeServiceUnderTest.exportAll(outputStream);
+
+    String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+    assertThat(lines).hasSize(2);
+    assertThat(lines[0]).contains("\"tradeId\":1", "firstAccount");
+    assertThat(lines[1]).contains("\"tradeId\":2", "secondAccount");
   }
 
   @Test
@@ -78,6 +246,62 @@ public class TradeServiceUnitTest {
     assertThat(result.getCreationDate()).isNotNull();
   }
 
+  @Test
+  public void saveAllTest() {
+    Trade otherTrade = new Trade();
+    List<Trade> givenTrades = List.of(givenTrade, otherTrade);
+    when(tradeRepositoryMocked.saveAll(givenTrades)).thenAnswer(invocation -> {
+      givenTrade.setTradeId(1);
+      otherTrade.setTradeId(2);
+      return givenTrades;
+    });
+
+    List<Integer> result = tradeServiceUnderTest.saveAll(givenTrades);
+
+    verify(tradeRepositoryMocked, times(1)).saveAll(givenTrades);
+    verify(tradeRepositoryMocked, times(1)).flush();
+    assertThat(result).containsExactly(1, 2);
+    assertThat(otherTrade.getCreationDate()).isNotNull();
+  }
+
+  @Test
+  public void saveAllWithIdTest() {
+    givenTrade.setTradeId(28);
+
+    assertThrows(ResponseStatusException.class,
+      () -> tradeServiceUnderTest.saveAll(List.of(givenTrade)));
+    verify(tradeRepositoryMocked, times(0)).saveAll(anyList());
+  }
+
+  @Test
+  public void findAllByIdsTest() {
+    List<Trade> rows = new ArrayList<>();
+    for (int id : new int[]{1, 3}) {
+      Trade trade = new Trade();
+      trade.setTradeId(id);
+      rows.add(trade);
+    }
+    when(tradeRepositoryMocked.findAllById(List.of(3, 1, 2))).thenReturn(rows);
+
+    IdListResult<Trade> result = tradeServiceUnderTest.findAllByIds(List.of(3, 1, 2));
+
+    assertThat(result.getContent()).extracting(Trade::getTradeId).containsExactly(3, 1);
+    assertThat(result.getMissingIds()).containsExactly(2);
+  }
+
+  @Test
+  public void findAllByIdsByChunksTest() {
+    List<Integer> givenIds = IntStream.rangeClosed(1, 2 * IdListFetcher.CHUNK_SIZE + 1)
+      .boxed()
+      .collect(Collectors.toList());
+    when(tradeRepositoryMocked.findAllById(any())).thenReturn(new ArrayList<>());
+
+    IdListResult<Trade> result = tradeServiceUnderTest.findAllByIds(givenIds);
+
+    assertThat(result.getMissingIds()).isEqualTo(givenIds);
+    verify(tradeRepositoryMocked, times(3)).findAllById(any());
+  }
+
   @Test
   public void findByIdTest() {
     Integer givenId = 28;
@@ -92,19 +316,27 @@ public class TradeServiceUnitTest {
   }
 
   @Test
-  public void updateExceptionTest() {
+  public void updateNotFoundTest() {
     Trade modifiedTrade = new Trade();
-    modifiedTrade.setTradeId(28);
+    modifiedTrade.setTradeId(42);
+    when(tradeRepositoryMocked.updateFormFields(modifiedTrade, null)).thenReturn(0);
 
-    String expectedMessage = "Trades ID mismatch.";
-    Exception exception = assertThrows(
-      RuntimeException.class,
-      () -> tradeServiceUnderTest.update(modifiedTrade, givenTrade)
-    );
+    boolean result = tradeServiceUnderTest.update(modifiedTrade, null);
 
-    String resultMessage = exception.getMessage();
+    assertThat(result).isFalse();
+  }
 
-    assertThat(resultMessage.contains(expectedMessage)).isTrue();
+  @Test
+  public void updateWithStaleVersionTest() {
+    Trade modifiedTrade = new Trade();
+    modifiedTrade.setTradeId(42);
+    when(tradeRepositoryMocked.updateFormFields(modifiedTrade, Set.of(2))).thenReturn(0);
+    when(tradeRepositoryMocked.existsById(42)).thenReturn(true);
+
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+      () -> tradeServiceUnderTest.update(modifiedTrade, Set.of(2)));
+
+    assertThat(exception.getStatus()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
   }
 
   @Test
@@ -121,14 +353,60 @@ public class TradeServiceUnitTest {
     modifiedTrade.setType(newGivenType);
     modifiedTrade.setBuyQuantity(newGivenBuyQuantity);
 
-    when(tradeRepositoryMocked.save(givenTrade)).thenReturn(givenTrade);
+    when(tradeRepositoryMocked.updateFormFields(modifiedTrade, null)).thenReturn(1);
 
-    Trade result = tradeServiceUnderTest.update(modifiedTrade, givenTrade);
+    boolean result = tradeServiceUnderTest.update(modifiedTrade, null);
 
-    verify(tradeRepositoryMocked,times(1)).save(givenTrade);
-    assertThat(result.getAccount()).isEqualTo(newGivenAccount);
-    assertThat(result.getType()).isEqualTo(newGivenType);
-    assertThat(result.getBuyQuantity()).isEqualTo(newGivenBuyQuantity);
+    assertThat(result).isTrue();
+    verify(tradeRepositoryMocked, times(1)).updateFormFields(modifiedTrade, null);
+    verify(tradeRepositoryMocked, times(0)).findById(any(Integer.class));
+    verify(tradeRepositoryMocked, times(0)).save(any(Trade.class));
+  }
+
+  @Test
+  public void deleteAllByIdsTest() {
+    when(tradeRepositoryMocked.deleteInBulkByIds(List.of(1, 2))).thenReturn(2);
+
+    int result = tradeServiceUnderTest.deleteAllByIds(List.of(1, 2));
+
+    assertThat(result).isEqualTo(2);
+    verify(tradeRepositoryMocked, times(0)).findById(any());
+  }
+
+  @Test
+  public void deleteAllByFilterTest() {
+    LocalDateTime givenDate = LocalDateTime.of(2022, 5, 31, 0, 0);
+    when(tradeRepositoryMocked.deleteInBulkByFilter(null, "someType", null, Timestamp.valueOf(givenDate)))
+      .thenReturn(12);
+
+    int result = tradeServiceUnderTest.deleteAllByFilter(null, "someType", null, givenDate);
+
+    assertThat(result).isEqualTo(12);
+  }
+
+  @Test
+  public void deleteAllByFilterWithoutFilterTest() {
+    assertThrows(
+      ResponseStatusException.class,
+      () -> tradeServiceUnderTest.deleteAllByFilter(null, null, null, null)
+    );
+    verify(tradeRepositoryMocked, times(0)).deleteInBulkByFilter(any(), any(), any(), any());
+  }
+
+  @Test
+  public void updateStatusTest() {
+    when(tradeRepositoryMocked.updateStatusInBulk(List.of(1, 2), "CLOSED")).thenReturn(2);
+
+    int result = tradeServiceUnderTest.updateStatus(List.of(1, 2), "CLOSED");
+
+    assertThat(result).isEqualTo(2);
+  }
+
+  @Test
+  public void updateStatusWithTooLongStatusTest() {
+    assertThrows(ConstraintViolationException.class,
+      () -> tradeServiceUnderTest.updateStatus(List.of(1, 2), "CLOSED_BY_DESK"));
+    verify(tradeRepositoryMocked, times(0)).updateStatusInBulk(any(), any());
   }
 
   @Test
@@ -138,4 +416,58 @@ public class TradeServiceUnitTest {
     verify(tradeRepositoryMocked,times(1)).delete(givenTrade);
   }
 
+  @Test
+  public void patchTest() throws Exception {
+    givenTrade.setTradeId(42);
+    when(tradeRepositoryMocked.findById(42)).thenReturn(Optional.of(givenTrade));
+    JsonNode givenPatch = new ObjectMapper().readTree("{\"buyQuantity\": 7.0, \"benchmark\": \"someBenchmark\"}");
+
+    Optional<Trade> result = tradeServiceUnderTest.patch(42, givenPatch, null);
+
+    assertThat(result).isPresent();
+    assertThat(result.get().getBuyQuantity()).isEqualTo(7.0d);
+    assertThat(result.get().getBenchmark()).isEqualTo("someBenchmark");
+    assertThat(result.get().getAccount()).isEqualTo("someAccount");
+  }
+
+  @Test
+  public void patchNotFoundTest() throws Exception {
+    when(tradeRepositoryMocked.findById(42)).thenReturn(Optional.empty());
+    JsonNode givenPatch = new ObjectMapper().readTree("{\"buyQuantity\": 7.0}");
+
+    Optional<Trade> result = tradeServiceUnderTest.patch(42, givenPatch, null);
+
+    assertThat(result).isEmpty();
+  }
+
+  @Test
+  public void patchIdTest() throws Exception {
+    when(tradeRepositoryMocked.findById(42)).thenReturn(Optional.of(givenTrade));
+    JsonNode givenPatch = new ObjectMapper().readTree("{\"tradeId\": 28}");
+
+    assertThrows(IllegalArgumentException.class,
+      () -> tradeServiceUnderTest.patch(42, givenPatch, null));
+  }
+
+  @Test
+  public void patchInvalidTest() throws Exception {
+    when(tradeRepositoryMocked.findById(42)).thenReturn(Optional.of(givenTrade));
+    JsonNode givenPatch = new ObjectMapper().readTree("{\"account\": null}");
+
+    assertThrows(ConstraintViolationException.class,
+      () -> tradeServiceUnderTest.patch(42, givenPatch, null));
+  }
+
+  @Test
+  public void patchWithStaleVersionTest() throws Exception {
+    givenTrade.setVersion(3);
+    when(tradeRepositoryMocked.findById(42)).thenReturn(Optional.of(givenTrade));
+    JsonNode givenPatch = new ObjectMapper().readTree("{\"benchmark\": \"someBenchmark\"}");
+
+    ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+      () -> tradeServiceUnderTest.patch(42, givenPatch, Set.of(2)));
+
+    assertThat(exception.getStatus()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    assertThat(givenTrade.getBenchmark()).isNotEqualTo("someBenchmark");
+  }
 }
@@ -0,0 +1,123 @@
+package com.openclassrooms.poseidon.service;
+
+import com.openclassrooms.poseidon.configuration.CacheConfig;
+import com.openclassrooms.poseidon.domain.DTO.UserDTO;
+import com.openclassrooms.poseidon.domain.User;
+import com.openclassrooms.poseidon.domain.utils.Role;
+import com.openclassrooms.poseidon.repository.UserRepository;
+import org.assertj.core.util.Lists;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the users list and its pages are read with the same number of statements whatever
+ * the number of users (no statement per user to load its roles).
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class UserServiceStatementCountTest {
+
+  @Autowired
+  private UserService userServiceUnderTest;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private CacheManager cacheManager;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private Statistics statistics;
+
+  @BeforeEach
+  public void setUp() {
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+  }
+
+  @Test
+  public void getAllDTOStatementCountTest() {
+    saveUsers(2, "few");
+    long statementsWithFewUsers = countGetAllDTOStatements();
+
+    saveUsers(20, "many");
+    long statementsWithManyUsers = countGetAllDTOStatements();
+
+    assertThat(statementsWithFewUsers).isEqualTo(1);
+    assertThat(statementsWithManyUsers).isEqualTo(statementsWithFewUsers);
+  }
+
+  @Test
+  public void getSortedDTOPageStatementCountTest() {
+    saveUsers(2, "few");
+    long statementsWithFewUsers = countGetSortedDTOPageStatements();
+
+    saveUsers(20, "many");
+    long statementsWithManyUsers = countGetSortedDTOPageStatements();
+
+    //The rows of the page, then the count of all users
+    assertThat(statementsWithFewUsers).isEqualTo(2);
+    assertThat(statementsWithManyUsers).isEqualTo(statementsWithFewUsers);
+  }
+
+  //  ---- Helpers ----
+
+  private long countGetAllDTOStatements() {
+    entityManager.flush();
+    entityManager.clear();
+    statistics.clear();
+    assertThat(Lists.newArrayList(userServiceUnderTest.getAllDTO())).isNotEmpty();
+    return statistics.getPrepareStatementCount();
+  }
+
+  private long countGetSortedDTOPageStatements() {
+    entityManager.flush();
+    entityManager.clear();
+    statistics.clear();
+    //The saved users are never committed, so they do not evict the cached pages
+    cacheManager.getCache(CacheConfig.USER_PAGES).invalidate();
+    //A page smaller than the number of users, so that the count query always runs
+    Page<UserDTO> page = userServiceUnderTest.getSortedDTOPage(
+      PageRequest.of(0, 1, Sort.by("username")));
+    assertThat(page.getContent()).hasSize(1);
+    assertThat(page.getContent().get(0).getPassword()).isNull();
+    return statistics.getPrepareStatementCount();
+  }
+
+  private void saveUsers(int count, String prefix) {
+    for (int i = 0; i < count; i++) {
+      User user = new User();
+      user.setUsername(prefix + "StatementCount" + i);
+      user.setFullname("Statement Count " + i);
+      user.setPassword("someHash");
+      user.setEnabled(true);
+      user.addRole(Role.ROLE_USER);
+      if (i % 2 == 0) {
+        user.addRole(Role.ROLE_ADMIN);
+      }
+      userRepository.save(user);
+    }
+  }
+}
@@ -1,7 +1,9 @@
 package com.openclassrooms.poseidon.service;
 
-import com.openclassrooms.poseidon.domain.Authority;
+import com.openclassrooms.poseidon.domain.DTO.CursorPage;
+import com.openclassrooms.poseidon.domain.DTO.IdListResult;
 import com.openclassrooms.poseidon.domain.DTO.UserDTO;
+import com.openclassrooms.poseidon.domain.DTO.UserSummary;
 import com.openclassrooms.poseidon.domain.User;
 import com.openclassrooms.poseidon.domain.utils.Role;
 import com.openclassrooms.poseidon.repository.UserRepository;
@@ -13,8 +15,17 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,6 +45,12 @@ public class UserServiceUnitTest {
   @MockBean
   private UserRepository userRepositoryMocked;
 
+  @Autowired
+  private CacheManager cacheManager;
+
+  @Autowired
+  private UserCache userCache;
+
 
   private PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(BCryptPasswordEncoder.BCryptVersion.$2B);
 
@@ -41,23 +58,21 @@ public class UserServiceUnitTest {
   private String givenUsername;
   private String givenFullName;
   private String givenRawPassword;
-  private Authority givenAuthority;
   private UserDTO givenUserDTO;
 
   @BeforeEach
   public void setUp() {
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
     givenUsername = "someUsername";
     givenFullName = "someFullName";
     givenRawPassword = "somePassword";
-    givenAuthority = new Authority();
-    givenAuthority.setRole(Role.ROLE_USER);
 
     givenUser = new User();
     givenUser.setUsername(givenUsername);
     givenUser.setFullname(givenFullName);
     givenUser.setPassword(givenRawPassword);
     givenUser.setEnabled(true);
-    givenUser.addAuthority(givenAuthority);
+    givenUser.addRole(Role.ROLE_USER);
 
     givenUserDTO = new UserDTO();
     givenUserDTO.setUsername(givenUser.getUsername());
@@ -68,31 +83,71 @@ public class UserServiceUnitTest {
   }
 
   @Test
-  public void getAllTest() {
-    Iterable<User> expected = new ArrayList<>();
-    when(userRepositoryMocked.findAll()).thenReturn(expected);
+  public void getDTOPageTest() {
+    List<UserSummary> rows = new ArrayList<>();
+    for (int id = 1; id <= 3; id++) {
+      UserSummary user = mock(UserSummary.class);
+      when(user.getId()).thenReturn(id);
+      when(user.getUsername()).thenReturn(givenUsername + id);
+      when(user.getRoles()).thenReturn(Role.ROLE_USER.getBit());
+      rows.add(user);
+    }
+    when(userRepositoryMocked.findSummaryByIdGreaterThan(0, PageRequest.of(0, 3)))
+      .thenReturn(rows);
 
-    Iterable<User> result = userServiceUnderTest.getAll();
+    CursorPage<UserDTO> result = userServiceUnderTest.getDTOPage(0, 2);
 
-    assertThat(result).isEqualTo(expected);
-    verify(userRepositoryMocked, times(1)).findAll();
+    assertThat(result.getContent()).hasSize(2);
+    assertThat(result.getContent().get(0).getRole()).isEqualTo("ROLE_USER");
+    assertThat(result.getContent().get(0).getPassword()).isNull();
+    assertThat(result.getNextCursor()).isEqualTo(CursorPage.encodeCursor(2));
+    verify(userRepositoryMocked, never()).findAll(any(Pageable.class));
+  }
+
+  @Test
+  public void getSortedDTOPageTest() {
+    UserSummary user = mock(UserSummary.class);
+    when(user.getId()).thenReturn(1);
+    when(user.getUsername()).thenReturn(givenUsername);
+    when(user.getRoles()).thenReturn(Role.ROLE_USER.getBit());
+    Pageable givenPageable = PageRequest.of(0, 20, Sort.by("username"));
+    when(userRepositoryMocked.findSummaryBy(givenPageable))
+      .thenReturn(new PageImpl<>(List.of(user), givenPageable, 1));
+
+    Page<UserDTO> result = userServiceUnderTest.getSortedDTOPage(givenPageable);
+
+    assertThat(result.getTotalElements()).isEqualTo(1);
+    assertThat(result.getContent().get(0).getUsername()).isEqualTo(givenUsername);
+    assertThat(result.getContent().get(0).getPassword()).isNull();
+    verify(userRepositoryMocked, never()).findAll(any(Pageable.class));
+  }
+
+  @Test
+  public void getSortedDTOPageWithWrongSortTest() {
+    Pageable givenPageable = PageRequest.of(0, 20, Sort.by("password"));
+
+    assertThrows(
+      ResponseStatusException.class, () -> userServiceUnderTest.getSortedDTOPage(givenPageable)
+    );
   }
 
   @Test
   public void getAllDTOTest() {
-    List<User> expected = new ArrayList<>();
-    User user1 = new User();
-    User user2 = new User();
-    User user3 = new User();
-    expected.addAll(List.of(user1, user2, user3));
+    UserSummary admin = mock(UserSummary.class);
+    when(admin.getUsername()).thenReturn("someAdmin");
+    when(admin.getRoles()).thenReturn(Role.ROLE_ADMIN.getBit() | Role.ROLE_USER.getBit());
+    UserSummary user = mock(UserSummary.class);
+    when(user.getUsername()).thenReturn("someUser");
+    when(user.getRoles()).thenReturn(Role.ROLE_USER.getBit());
 
-    when(userRepositoryMocked.findAll()).thenReturn(expected);
+    when(userRepositoryMocked.findAllSummaries()).thenReturn(List.of(admin, user));
 
     List<UserDTO> results = Lists.newArrayList(userServiceUnderTest.getAllDTO());
-    assertThat(results.size()).isEqualTo(3);
-    for (UserDTO result : results) {
-      assertThat(result).isInstanceOf(UserDTO.class);
-    }
+    assertThat(results.size()).isEqualTo(2);
+    assertThat(results.get(0).getUsername()).isEqualTo("someAdmin");
+    assertThat(results.get(0).getRole()).isEqualTo(Role.ROLE_ADMIN.toString());
+    assertThat(results.get(1).getRole()).isEqualTo(Role.ROLE_USER.toString());
+    verify(userRepositoryMocked, never()).findAll();
   }
 
   @Test
@@ -101,7 +156,7 @@ public class UserServiceUnitTest {
     expectedUser.setUsername(givenUser.getUsername());
     expectedUser.setFullname(givenUser.getFullname());
     expectedUser.setEnabled(givenUser.isEnabled());
-    expectedUser.addAuthority(givenUser.getAuthorities().get(0));
+    expectedUser.setRoles(givenUser.getRoles());
     expectedUser.setId(28);
     String encodedPassword = passwordEncoder.encode(givenRawPassword);
     expectedUser.setPassword(encodedPassword);
@@ -121,7 +176,7 @@ public class UserServiceUnitTest {
     expectedUser.setUsername(givenUser.getUsername());
     expectedUser.setFullname(givenUser.getFullname());
     expectedUser.setEnabled(givenUser.isEnabled());
-    expectedUser.addAuthority(givenUser.getAuthorities().get(0));
+    expectedUser.setRoles(givenUser.getRoles());
     expectedUser.setId(28);
     String encodedPassword = passwordEncoder.encode(givenRawPassword);
     expectedUser.setPassword(encodedPassword);
@@ -137,16 +192,13 @@ public class UserServiceUnitTest {
 
   @Test
   public void saveAdminDTOTest() throws UserAlreadyExistsException {
-    Authority givenAuthorityAdmin = new Authority();
-    givenAuthorityAdmin.setRole(Role.ROLE_ADMIN);
-    givenUser.addAuthority(givenAuthorityAdmin);
+    givenUser.addRole(Role.ROLE_ADMIN);
 
     User expectedUser = new User();
     expectedUser.setUsername(givenUser.getUsername());
     expectedUser.setFullname(givenUser.getFullname());
     expectedUser.setEnabled(givenUser.isEnabled());
-    expectedUser.addAuthority(givenUser.getAuthorities().get(0));
-    expectedUser.addAuthority(givenAuthorityAdmin);
+    expectedUser.setRoles(givenUser.getRoles());
     expectedUser.setId(28);
     String encodedPassword = passwordEncoder.encode(givenRawPassword);
     expectedUser.setPassword(encodedPassword);
@@ -190,7 +242,7 @@ public class UserServiceUnitTest {
   }
 
   @Test
-  public void updateTestWithNoAuthoritiesChange() {
+  public void updateTestWithNoRolesChange() {
     String someNewFullName = "someNewFullName";
     String someNewUserName = "someNewUserName";
     String someNewRawPassword = "someNewRawPassword";
@@ -200,7 +252,7 @@ public class UserServiceUnitTest {
     givenModifiedUser.setUsername(someNewUserName);
     givenModifiedUser.setFullname(someNewFullName);
     givenModifiedUser.setEnabled(givenUser.isEnabled());
-    givenModifiedUser.addAuthority(givenUser.getAuthorities().get(0));
+    givenModifiedUser.setRoles(givenUser.getRoles());
     givenModifiedUser.setId(28);
     givenModifiedUser.setPassword(someNewRawPassword);
 
@@ -212,7 +264,7 @@ public class UserServiceUnitTest {
     assertThat(result.getUsername()).isEqualTo(someNewUserName);
     assertThat(result.getFullname()).isEqualTo(someNewFullName);
     assertThat(passwordEncoder.matches(someNewRawPassword,result.getPassword()));
-    assertThat(result.getAuthorities()).isEqualTo(givenUser.getAuthorities());
+    assertThat(result.getRoles()).isEqualTo(givenUser.getRoles());
   }
 
   @Test
@@ -239,7 +291,66 @@ public class UserServiceUnitTest {
     assertThat(result.getUsername()).isEqualTo(someNewUserName);
     assertThat(result.getFullname()).isEqualTo(someNewFullName);
     assertThat(passwordEncoder.matches(someNewRawPassword,result.getPassword()));
-    assertThat(result.getRole()).isEqualTo(givenUser.getAuthorities().get(0).getRole().toString());
+    assertThat(result.getRole()).isEqualTo(Role.ROLE_USER.toString());
+  }
+
+  @Test
+  public void updateDTORemovesAdminRoleTest() {
+    givenUser.setId(28);
+    givenUser.addRole(Role.ROLE_ADMIN);
+    givenUserDTO.setId(28);
+    givenUserDTO.setRole("ROLE_USER");
+
+    when(userRepositoryMocked.save(givenUser)).thenReturn(givenUser);
+    when(userRepositoryMocked.findById(28)).thenReturn(Optional.of(givenUser));
+
+    UserDTO result = userServiceUnderTest.updateDTO(givenUserDTO, givenUser);
+
+    assertThat(givenUser.getRoles()).containsExactly(Role.ROLE_USER);
+    assertThat(result.getRole()).isEqualTo(Role.ROLE_USER.toString());
+  }
+
+  @Test
+  public void updateEvictsAuthenticationCacheTest() {
+    givenUser.setId(28);
+    userCache.putUserInCache(
+      org.springframework.security.core.userdetails.User.withUsername(givenUsername)
+        .password("someHash").roles("USER").build()
+    );
+    User givenModifiedUser = new User();
+    givenModifiedUser.setId(28);
+    givenModifiedUser.setUsername("someNewUserName");
+    when(userRepositoryMocked.save(givenUser)).thenReturn(givenUser);
+
+    userServiceUnderTest.update(givenModifiedUser, givenUser);
+
+    assertThat(userCache.getUserFromCache(givenUsername)).isNull();
+  }
+
+  @Test
+  public void deleteEvictsAuthenticationCacheTest() {
+    userCache.putUserInCache(
+      org.springframework.security.core.userdetails.User.withUsername(givenUsername)
+        .password("someHash").roles("USER").build()
+    );
+
+    userServiceUnderTest.delete(givenUser);
+
+    assertThat(userCache.getUserFromCache(givenUsername)).isNull();
+  }
+
+  @Test
+  public void updatePasswordTest() {
+    UserDetails authenticatedUser = org.springframework.security.core.userdetails.User
+      .withUsername(givenUsername).password("someOldHash").roles("USER").build();
+    userCache.putUserInCache(authenticatedUser);
+
+    UserDetails result = userServiceUnderTest.updatePassword(authenticatedUser, "someNewHash");
+
+    verify(userRepositoryMocked, times(1)).updatePassword(givenUsername, "someNewHash");
+    assertThat(result.getPassword()).isEqualTo("someNewHash");
+    assertThat(result.getAuthorities()).isEqualTo(authenticatedUser.getAuthorities());
+    assertThat(userCache.getUserFromCache(givenUsername)).isNull();
   }
 
   @Test
@@ -251,6 +362,21 @@ public class UserServiceUnitTest {
     verify(userRepositoryMocked, times(1)).delete(userToDelete);
   }
 
+  @Test
+  public void findAllDTOByIdsTest() {
+    UserSummary user = mock(UserSummary.class);
+    when(user.getId()).thenReturn(1);
+    when(user.getUsername()).thenReturn("someUser");
+    when(user.getRoles()).thenReturn(Role.ROLE_USER.getBit());
+    when(userRepositoryMocked.findSummariesByIdIn(List.of(2, 1))).thenReturn(List.of(user));
+
+    IdListResult<UserDTO> result = userServiceUnderTest.findAllDTOByIds(List.of(2, 1));
+
+    assertThat(result.getContent()).extracting(UserDTO::getUsername).containsExactly("someUser");
+    assertThat(result.getContent().get(0).getPassword()).isNull();
+    assertThat(result.getMissingIds()).containsExactly(2);
+  }
+
   @Test
   public void findDTOByIdTest() {
     Optional<UserDTO> result = userServiceUnderTest.findDTOById(28);
@@ -1,11 +1,14 @@
-INSERT INTO poseidontest.users (username,password,fullname,enabled) VALUES
-	 ('admin','$2b$10$I9J19.iKbICRLLBeI07Iuu47A80tVUw7j2eEeG/ikk2rVPX6EvmJy','Administrator',1),
-	 ('user','$2b$10$Iwiv5yJ5AAnpeXwNI4Csiewr.EONg2bjTWeaR43.FHyCRDARQ7qHe','User',1);
-
-INSERT INTO poseidontest.authorities (userid,`role`) VALUES
-	 (1,'ROLE_ADMIN'),
-	 (1,'ROLE_USER'),
-	 (2,'ROLE_USER');
+INSERT INTO poseidontest.users (username,password,fullname,enabled,roles) VALUES
+	 ('admin','$2b$10$I9J19.iKbICRLLBeI07Iuu47A80tVUw7j2eEeG/ikk2rVPX6EvmJy','Administrator',1,3),
+	 ('user','$2b$10$Iwiv5yJ5AAnpeXwNI4Csiewr.EONg2bjTWeaR43.FHyCRDARQ7qHe','User',1,2);
 
 INSERT INTO poseidontest.bidlist (account,`type`,bidQuantity,askQuantity,bid,ask,benchmark,bidListDate,commentary,`security`,status,trader,book,creationName,creationDate,revisionName,revisionDate,dealName,dealType,sourceListId,side) VALUES
-	 ('TESTBID_ACCOUNT','TESTBID_TYPE',12.0,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL);
\ No newline at end of file
+	 ('TESTBID_ACCOUNT','TESTBID_TYPE',12.0,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL,NULL);
+
+INSERT INTO poseidontest.id_sequences (sequence_name,next_val)
+	 SELECT 'bidlist',COALESCE(MAX(BidListId),0)+1 FROM poseidontest.bidlist
+	 UNION ALL SELECT 'curvepoint',COALESCE(MAX(Id),0)+1 FROM poseidontest.curvepoint
+	 UNION ALL SELECT 'rating',COALESCE(MAX(Id),0)+1 FROM poseidontest.rating
+	 UNION ALL SELECT 'rulename',COALESCE(MAX(Id),0)+1 FROM poseidontest.rulename
+	 UNION ALL SELECT 'trade',COALESCE(MAX(TradeId),0)+1 FROM poseidontest.trade
+	 UNION ALL SELECT 'users',COALESCE(MAX(Id),0)+1 FROM poseidontest.users;
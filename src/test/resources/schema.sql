@@ -11,11 +11,12 @@ drop table if exists rulename;
 drop table if exists trade;
 drop table if exists authorities;
 drop table if exists users;
+drop table if exists id_sequences;
 
 -- poseidon.bidlist definition
 
 CREATE TABLE `bidlist` (
-  `BidListId` tinyint NOT NULL AUTO_INCREMENT,
+  `BidListId` int NOT NULL AUTO_INCREMENT,
   `account` varchar(30) NOT NULL,
   `type` varchar(30) NOT NULL,
   `bidQuantity` double DEFAULT NULL,
@@ -37,6 +38,7 @@ CREATE TABLE `bidlist` (
   `dealType` varchar(125) DEFAULT NULL,
   `sourceListId` varchar(125) DEFAULT NULL,
   `side` varchar(125) DEFAULT NULL,
+  `version` int NOT NULL DEFAULT 0,
   PRIMARY KEY (`BidListId`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
@@ -44,12 +46,13 @@ CREATE TABLE `bidlist` (
 -- poseidon.curvepoint definition
 
 CREATE TABLE `curvepoint` (
-  `Id` tinyint NOT NULL AUTO_INCREMENT,
+  `Id` int NOT NULL AUTO_INCREMENT,
   `CurveId` tinyint DEFAULT NULL,
   `asOfDate` timestamp NULL DEFAULT NULL,
   `term` double DEFAULT NULL,
   `value` double DEFAULT NULL,
   `creationDate` timestamp NULL DEFAULT NULL,
+  `version` int NOT NULL DEFAULT 0,
   PRIMARY KEY (`Id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
@@ -57,11 +60,12 @@ CREATE TABLE `curvepoint` (
 -- poseidon.rating definition
 
 CREATE TABLE `rating` (
-  `Id` tinyint NOT NULL AUTO_INCREMENT,
+  `Id` int NOT NULL AUTO_INCREMENT,
   `moodysRating` varchar(125) DEFAULT NULL,
   `sandPRating` varchar(125) DEFAULT NULL,
   `fitchRating` varchar(125) DEFAULT NULL,
   `orderNumber` tinyint DEFAULT NULL,
+  `version` int NOT NULL DEFAULT 0,
   PRIMARY KEY (`Id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
@@ -69,13 +73,14 @@ CREATE TABLE `rating` (
 -- poseidon.rulename definition
 
 CREATE TABLE `rulename` (
-  `Id` tinyint NOT NULL AUTO_INCREMENT,
+  `Id` int NOT NULL AUTO_INCREMENT,
   `name` varchar(125) DEFAULT NULL,
   `description` varchar(125) DEFAULT NULL,
   `json` varchar(125) DEFAULT NULL,
   `template` varchar(512) DEFAULT NULL,
   `sqlStr` varchar(125) DEFAULT NULL,
   `sqlPart` varchar(125) DEFAULT NULL,
+  `version` int NOT NULL DEFAULT 0,
   PRIMARY KEY (`Id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
@@ -83,7 +88,7 @@ CREATE TABLE `rulename` (
 -- poseidon.trade definition
 
 CREATE TABLE `trade` (
-  `TradeId` tinyint NOT NULL AUTO_INCREMENT,
+  `TradeId` int NOT NULL AUTO_INCREMENT,
   `account` varchar(30) NOT NULL,
   `type` varchar(30) NOT NULL,
   `buyQuantity` double DEFAULT NULL,
@@ -104,6 +109,7 @@ CREATE TABLE `trade` (
   `dealType` varchar(125) DEFAULT NULL,
   `sourceListId` varchar(125) DEFAULT NULL,
   `side` varchar(125) DEFAULT NULL,
+  `version` int NOT NULL DEFAULT 0,
   PRIMARY KEY (`TradeId`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
@@ -111,23 +117,22 @@ CREATE TABLE `trade` (
 -- poseidon.users definition
 
 CREATE TABLE `users` (
-  `Id` tinyint NOT NULL AUTO_INCREMENT,
+  `Id` int NOT NULL AUTO_INCREMENT,
   `username` varchar(125) DEFAULT NULL,
   `password` varchar(125) DEFAULT NULL,
   `fullname` varchar(125) DEFAULT NULL,
   `enabled` tinyint(1) NOT NULL DEFAULT '1',
+  `roles` int NOT NULL DEFAULT 0,
   PRIMARY KEY (`Id`),
   UNIQUE KEY `users_un` (`username`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
 
--- poseidon.authorities definition
+-- poseidon.id_sequences definition
+-- Next free id of each table whose ids are allocated by Hibernate (one row per table)
 
-CREATE TABLE `authorities` (
-  `Id` int NOT NULL AUTO_INCREMENT,
-  `userid` tinyint NOT NULL,
-  `role` varchar(125) NOT NULL,
-  PRIMARY KEY (`Id`),
-  KEY `authorities_FK` (`userid`),
-  CONSTRAINT `authorities_FK` FOREIGN KEY (`userid`) REFERENCES `users` (`Id`) ON DELETE CASCADE ON UPDATE CASCADE
+CREATE TABLE `id_sequences` (
+  `sequence_name` varchar(255) NOT NULL,
+  `next_val` bigint DEFAULT NULL,
+  PRIMARY KEY (`sequence_name`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;